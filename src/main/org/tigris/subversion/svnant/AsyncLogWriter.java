@@ -0,0 +1,198 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.apache.tools.ant.BuildException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes log messages to a file using a background thread. The number of pending messages is 
+ * bounded, so a caller blocks if the file can't be written as fast as messages are produced. 
+ * Messages of concurrent callers are written in the order they have been queued.
+ */
+class AsyncLogWriter {
+
+    private static final int      CAPACITY         = 1024;
+
+    private static final String   MSG_CANNOT_WRITE = "Cannot write the logfile '%s'.";
+
+    private static final String   LINE_SEPARATOR   = System.getProperty( "line.separator" );
+
+    /** marker which terminates the background thread */
+    private static final String   END              = new String();
+
+    private File                    logfile;
+    private BlockingQueue<String>   queue;
+    private Writer                  writer;
+    private Thread                  thread;
+    private volatile IOException    failure;
+
+    /**
+     * Opens the supplied logfile.
+     * 
+     * @param file   The logfile which has to be written. Not <code>null</code>.
+     * 
+     * @throws IOException   The logfile could not be opened.
+     */
+    AsyncLogWriter( File file ) throws IOException {
+        logfile = file;
+        queue   = new ArrayBlockingQueue<String>( CAPACITY );
+        writer  = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ) ) );
+        failure = null;
+        thread  = new Thread( "svnant-logfile" ) {
+            public void run() {
+                drain();
+            }
+        };
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * Queues the supplied message. Blocks while the queue is full.
+     * 
+     * @param message   The message which has to be written. Not <code>null</code>.
+     */
+    void println( String message ) {
+        if( failure != null ) {
+            // the messages can't be written anymore
+            return;
+        }
+        try {
+            queue.put( message );
+        } catch( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all pending messages and closes the logfile.
+     * 
+     * @throws BuildException   Writing the logfile failed.
+     */
+    void close() throws BuildException {
+        boolean interrupted = false;
+        while( true ) {
+            try {
+                queue.put( END );
+                thread.join();
+                break;
+            } catch( InterruptedException ex ) {
+                // the logfile has to be completed anyway
+                interrupted = true;
+            }
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+        if( failure != null ) {
+            throw new BuildException( String.format( MSG_CANNOT_WRITE, logfile ), failure );
+        }
+    }
+
+    /**
+     * Writes the queued messages until the logfile is being closed. The queue is drained even
+     * after a failure, so callers never block forever.
+     */
+    private void drain() {
+        try {
+            String message = queue.take();
+            while( message != END ) {
+                write( message );
+                message = queue.take();
+            }
+        } catch( InterruptedException ex ) {
+            // only happens if the JVM is being shut down
+        } finally {
+            try {
+                writer.close();
+            } catch( IOException ex ) {
+                if( failure == null ) {
+                    failure = ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a single message unless writing already failed.
+     * 
+     * @param message   The message which has to be written. Not <code>null</code>.
+     */
+    private void write( String message ) {
+        if( failure == null ) {
+            try {
+                writer.write( message );
+                writer.write( LINE_SEPARATOR );
+                if( queue.isEmpty() ) {
+                    // keep the file up to date while no messages are pending
+                    writer.flush();
+                }
+            } catch( IOException ex ) {
+                failure = ex;
+            }
+        }
+    }
+
+} /* ENDCLASS */
@@ -0,0 +1,243 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import java.util.Properties;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.URL;
+
+import java.security.CodeSource;
+import java.security.MessageDigest;
+
+/**
+ * Remembers client types which are not available, so the expensive (and failing) attempt to load 
+ * native libraries or to launch executables is not repeated by each ant invocation. The entries
+ * are keyed by the environment (JVM, classpath, library path and PATH) and expire after a day.
+ * 
+ * The cache is disabled by default as an outdated entry hides a client which has been installed
+ * in the meantime. It's enabled by setting the system property <code>svnant.cache.dir</code> to
+ * the directory containing the cache file.
+ * 
+ * Positive results are not cached as the setup of a client type is required anyway in order 
+ * to use it.
+ */
+class AvailabilityCache {
+
+    private static final String   PROP_CACHEDIR = "svnant.cache.dir";
+
+    private static final String   FILENAME      = "availability.properties";
+
+    private static final long     MAXAGE        = 24L * 60L * 60L * 1000L;
+
+    private static File           cachefile     = null;
+    private static String         environment   = null;
+    private static Properties     entries       = null;
+
+    /**
+     * Returns <code>true</code> if the supplied client type is known to be unavailable.
+     * 
+     * @param type   The client type which has to be tested. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The client type has been unavailable before.
+     */
+    public static synchronized boolean isUnavailable( SvnClientType type ) {
+        if( !load() ) {
+            return false;
+        }
+        String value = entries.getProperty( getKey( type ) );
+        if( value != null ) {
+            try {
+                return System.currentTimeMillis() - Long.parseLong( value ) < MAXAGE;
+            } catch( NumberFormatException ex ) {
+                // ignore a damaged entry
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records that the supplied client type is not available.
+     * 
+     * @param type   The client type which is not available. Not <code>null</code>.
+     */
+    public static synchronized void setUnavailable( SvnClientType type ) {
+        if( !load() ) {
+            return;
+        }
+        entries.setProperty( getKey( type ), String.valueOf( System.currentTimeMillis() ) );
+        save();
+    }
+
+    /**
+     * Returns the location of the cache file.
+     * 
+     * @return   The location of the cache file. <code>null</code> if the cache is disabled.
+     */
+    public static synchronized File getCacheFile() {
+        return load() ? cachefile : null;
+    }
+
+    /**
+     * Discards the loaded entries, so the configuration and the cache file are read again.
+     */
+    static synchronized void reset() {
+        cachefile   = null;
+        environment = null;
+        entries     = null;
+    }
+
+    private static String getKey( SvnClientType type ) {
+        return environment + "." + type.name();
+    }
+
+    /**
+     * Loads the cache if necessary.
+     * 
+     * @return   <code>true</code> <=> The cache can be used.
+     */
+    private static boolean load() {
+        if( entries == null ) {
+            String dir = System.getProperty( PROP_CACHEDIR );
+            if( (dir == null) || (dir.length() == 0) ) {
+                return false;
+            }
+            cachefile   = new File( dir, FILENAME );
+            environment = computeEnvironment();
+            entries     = new Properties();
+            if( cachefile.isFile() ) {
+                InputStream instream = null;
+                try {
+                    instream = new FileInputStream( cachefile );
+                    entries.load( instream );
+                } catch( Exception ex ) {
+                    // the cache is just an optimization, so it will be rebuilt
+                    entries.clear();
+                } finally {
+                    SvnAntUtilities.close( instream );
+                }
+            }
+        }
+        return environment != null;
+    }
+
+    /**
+     * Writes the cache. The file is written to a temporary location first, so concurrent ant
+     * invocations never see a partially written file.
+     */
+    private static void save() {
+        OutputStream outstream = null;
+        File         tempfile  = new File( cachefile.getParentFile(), FILENAME + ".tmp" );
+        try {
+            cachefile.getParentFile().mkdirs();
+            outstream = new FileOutputStream( tempfile );
+            entries.store( outstream, "svnant: unavailable svn clients" );
+            outstream.close();
+            outstream = null;
+            if( (!tempfile.renameTo( cachefile )) && cachefile.delete() ) {
+                tempfile.renameTo( cachefile );
+            }
+        } catch( Exception ex ) {
+            // the cache is just an optimization
+        } finally {
+            SvnAntUtilities.close( outstream );
+            tempfile.delete();
+        }
+    }
+
+    /**
+     * Creates a fingerprint of everything that affects the availability of a client type.
+     * 
+     * @return   A fingerprint of the environment. <code>null</code> if it can't be computed.
+     */
+    private static String computeEnvironment() {
+        StringBuffer buffer = new StringBuffer();
+        String[]     names  = new String[] { "java.vendor", "java.version", "java.home", "os.name", "os.arch", "java.class.path", "java.library.path" };
+        for( String name : names ) {
+            buffer.append( System.getProperty( name ) ).append( '\n' );
+        }
+        buffer.append( System.getenv( "PATH" ) ).append( '\n' );
+        // within ant the svnant libraries are usually not part of the system classpath
+        for( SvnClientType type : SvnClientType.values() ) {
+            buffer.append( getLocation( type.getFactoryClass() ) ).append( '\n' );
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            byte[]        hash   = digest.digest( buffer.toString().getBytes( "UTF-8" ) );
+            StringBuffer  result = new StringBuffer();
+            for( byte b : hash ) {
+                result.append( String.format( "%02x", Integer.valueOf( b & 0xFF ) ) );
+            }
+            return result.toString();
+        } catch( Exception ex ) {
+            return null;
+        }
+    }
+
+    private static String getLocation( Class<?> clazz ) {
+        if( clazz == null ) {
+            return "";
+        }
+        CodeSource source   = clazz.getProtectionDomain().getCodeSource();
+        URL        location = source != null ? source.getLocation() : null;
+        return String.valueOf( location );
+    }
+
+} /* ENDCLASS */
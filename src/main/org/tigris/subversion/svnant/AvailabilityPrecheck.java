@@ -0,0 +1,117 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.apache.tools.ant.taskdefs.AntlibDefinition;
+
+import org.apache.tools.ant.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Executed while the svnant antlib is being loaded. It starts checking the availability of the
+ * svn clients listed by the property <code>svnant.precheck</code> (f.e. <code>javahl,svnkit</code>)
+ * in the background. Without this property the availability of a client is checked when it's 
+ * used for the first time, so clients which are never used aren't loaded at all.
+ */
+public class AvailabilityPrecheck extends AntlibDefinition {
+
+    private static final String PROP_PRECHECK = "svnant.precheck";
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute() {
+        String precheck = getProject().getProperty( PROP_PRECHECK );
+        if( precheck == null ) {
+            precheck = System.getProperty( PROP_PRECHECK );
+        }
+        List<SvnClientType> types = getTypes( precheck );
+        SvnClientType.checkAvailabilityAsync( types.toArray( new SvnClientType[ types.size() ] ) );
+    }
+
+    /**
+     * Returns the client types listed by the supplied property value. Types which cannot be 
+     * checked (f.e. <code>auto</code>) and unknown names are skipped.
+     * 
+     * @param precheck   The comma separated list of client types. Maybe <code>null</code>.
+     * 
+     * @return   The client types which have to be checked. Not <code>null</code>.
+     */
+    List<SvnClientType> getTypes( String precheck ) {
+        List<SvnClientType> result = new ArrayList<SvnClientType>();
+        if( precheck == null ) {
+            return result;
+        }
+        StringTokenizer tokenizer = new StringTokenizer( precheck, ", " );
+        while( tokenizer.hasMoreTokens() ) {
+            String name = tokenizer.nextToken();
+            try {
+                SvnClientType type = SvnClientType.valueOf( name );
+                if( (type.getFactoryClass() != null) && (! result.contains( type )) ) {
+                    result.add( type );
+                }
+            } catch( IllegalArgumentException ex ) {
+                if( ! "false".equalsIgnoreCase( name ) ) {
+                    log( String.format( "Ignoring the unknown svn client '%s' of the property %s.", name, PROP_PRECHECK ), Project.MSG_VERBOSE );
+                }
+            }
+        }
+        return result;
+    }
+
+} /* ENDCLASS */
@@ -0,0 +1,255 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JVM wide pool of client adapters. Adapters are grouped by a key which consists of the
+ * resolved settings used to configure them (client type, credentials, configuration directory,
+ * conflict resolution, repository session pool) so an adapter is only handed out to components that would have 
+ * configured it the same way.
+ * 
+ * Each configuration has it's own lock, so tasks using different settings never wait for each 
+ * other. An adapter is used by one thread at a time and idle adapters are preferably handed out
+ * to the thread that used them before. Construction and disposal of adapters is always done 
+ * without holding a lock.
+ */
+class ClientAdapterPool {
+
+    private static final ClientAdapterPool                  INSTANCE = new ClientAdapterPool();
+
+    private ConcurrentMap<List<Object>,Stripe>              stripes;
+    private ConcurrentMap<ISVNClientAdapter,Stripe>         leased;
+
+    private ClientAdapterPool() {
+        stripes = new ConcurrentHashMap<List<Object>,Stripe>();
+        leased  = new ConcurrentHashMap<ISVNClientAdapter,Stripe>();
+    }
+
+    /**
+     * Returns the pool shared by all svnant components.
+     * 
+     * @return   The pool shared by all svnant components. Not <code>null</code>.
+     */
+    public static ClientAdapterPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Checks out an idle adapter for the supplied key. Idle adapters which exceeded the supplied
+     * timeout will be disposed.
+     * 
+     * @param key           The key identifying the configuration of the adapter. Not <code>null</code>.
+     * @param idletimeout   The number of milliseconds an adapter may stay idle. A value <= 0 disables
+     *                      the eviction.
+     * 
+     * @return   An idle adapter or <code>null</code> if there's none. In the latter case the caller 
+     *           is supposed to create a new adapter and to pass it to {@link #register(List, ISVNClientAdapter)}.
+     */
+    public ISVNClientAdapter acquire( List<Object> key, long idletimeout ) {
+        Stripe stripe = stripes.get( key );
+        if( stripe == null ) {
+            return null;
+        }
+        List<ISVNClientAdapter> expired = new ArrayList<ISVNClientAdapter>();
+        ISVNClientAdapter       result  = stripe.acquire( idletimeout, expired );
+        if( result != null ) {
+            leased.put( result, stripe );
+        }
+        dispose( expired );
+        return result;
+    }
+
+    /**
+     * Registers a newly created adapter as being in use.
+     * 
+     * @param key       The key identifying the configuration of the adapter. Not <code>null</code>.
+     * @param adapter   The adapter that has been created. Not <code>null</code>.
+     */
+    public void register( List<Object> key, ISVNClientAdapter adapter ) {
+        Stripe stripe = stripes.get( key );
+        if( stripe == null ) {
+            Stripe newstripe = new Stripe();
+            stripe           = stripes.putIfAbsent( key, newstripe );
+            if( stripe == null ) {
+                stripe = newstripe;
+            }
+        }
+        leased.put( adapter, stripe );
+    }
+
+    /**
+     * Returns an adapter to this pool. If the adapter isn't known to this pool or if there are
+     * already enough idle adapters for it's configuration it will be disposed.
+     * 
+     * @param adapter    The adapter which is no longer used. Not <code>null</code>.
+     * @param poolsize   The maximum number of idle adapters per configuration.
+     */
+    public void release( ISVNClientAdapter adapter, int poolsize ) {
+        Stripe stripe = leased.remove( adapter );
+        if( (stripe == null) || (!stripe.release( adapter, poolsize )) ) {
+            adapter.dispose();
+        }
+    }
+
+    /**
+     * Disposes all idle adapters. Adapters which are currently in use are not affected.
+     */
+    public void clear() {
+        List<ISVNClientAdapter> expired = new ArrayList<ISVNClientAdapter>();
+        for( Stripe stripe : stripes.values() ) {
+            stripe.clear( expired );
+        }
+        dispose( expired );
+    }
+
+    private void dispose( List<ISVNClientAdapter> adapters ) {
+        for( ISVNClientAdapter adapter : adapters ) {
+            adapter.dispose();
+        }
+    }
+
+    /**
+     * Idle adapters of one configuration.
+     */
+    private static class Stripe {
+
+        private LinkedList<Entry>   idle = new LinkedList<Entry>();
+
+        /**
+         * Removes an idle adapter. Adapters previously used by the current thread are preferred.
+         * 
+         * @param idletimeout   The number of milliseconds an adapter may stay idle.
+         * @param expired       Receives the adapters which have been idle for too long. Not <code>null</code>.
+         * 
+         * @return   An idle adapter or <code>null</code>.
+         */
+        public synchronized ISVNClientAdapter acquire( long idletimeout, List<ISVNClientAdapter> expired ) {
+            if( idletimeout > 0 ) {
+                // entries are ordered by the time they have been released, so the oldest come first
+                long limit = System.currentTimeMillis() - idletimeout;
+                while( (!idle.isEmpty()) && (idle.getFirst().released < limit) ) {
+                    expired.add( idle.removeFirst().adapter );
+                }
+            }
+            if( idle.isEmpty() ) {
+                return null;
+            }
+            Thread              current = Thread.currentThread();
+            ListIterator<Entry> it      = idle.listIterator( idle.size() );
+            while( it.hasPrevious() ) {
+                Entry entry = it.previous();
+                if( entry.owner == current ) {
+                    it.remove();
+                    return entry.adapter;
+                }
+            }
+            // the most recently used adapter is the most likely to have warm connections
+            return idle.removeLast().adapter;
+        }
+
+        /**
+         * Adds the supplied adapter to the idle ones unless there are already enough of them.
+         * 
+         * @param adapter    The adapter which is no longer used. Not <code>null</code>.
+         * @param poolsize   The maximum number of idle adapters.
+         * 
+         * @return   <code>true</code> <=> The adapter has been kept.
+         */
+        public synchronized boolean release( ISVNClientAdapter adapter, int poolsize ) {
+            if( idle.size() < poolsize ) {
+                idle.addLast( new Entry( adapter ) );
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Removes all idle adapters.
+         * 
+         * @param receiver   Receives the removed adapters. Not <code>null</code>.
+         */
+        public synchronized void clear( List<ISVNClientAdapter> receiver ) {
+            for( Entry entry : idle ) {
+                receiver.add( entry.adapter );
+            }
+            idle.clear();
+        }
+
+    } /* ENDCLASS */
+
+    private static class Entry {
+
+        private ISVNClientAdapter   adapter;
+        private Thread              owner;
+        private long                released;
+
+        public Entry( ISVNClientAdapter clientadapter ) {
+            adapter   = clientadapter;
+            owner     = Thread.currentThread();
+            released  = System.currentTimeMillis();
+        }
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
@@ -0,0 +1,261 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.apache.tools.ant.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Resolves the client type {@link SvnClientType#auto} to one of the available client types.
+ * Without a benchmark the first available type of {@link #PREFERENCE} is chosen. Otherwise 
+ * each available type runs a status on a small working copy of a temporary <code>file://</code>
+ * repository and the fastest one wins. The outcome is computed once per JVM.
+ */
+class ClientTypeSelector {
+
+    /** Order used when no benchmark is run (native clients are usually the fastest ones). */
+    private static final SvnClientType[]   PREFERENCE    = new SvnClientType[] { SvnClientType.javahl, SvnClientType.svnkit, SvnClientType.cli };
+
+    private static final int               DIRECTORIES   = 5;
+
+    private static final int               FILES         = 20;
+
+    private static final int               RUNS          = 5;
+
+    private static SvnClientType           selected      = null;
+    private static SvnClientType           benchmarked   = null;
+
+    /**
+     * Resolves the client type to be used.
+     * 
+     * @param project     The project used for logging and to expose the outcome. Not <code>null</code>.
+     * @param benchmark   <code>true</code> <=> Run a micro benchmark to select the fastest client type.
+     * @param property    The name of the property receiving the selected type. Maybe <code>null</code>.
+     * 
+     * @return   The selected client type. Not <code>null</code>.
+     */
+    public static synchronized SvnClientType select( Project project, boolean benchmark, String property ) {
+        SvnClientType result = benchmark ? benchmarked : selected;
+        if( result == null ) {
+            List<SvnClientType> candidates = new ArrayList<SvnClientType>();
+            for( SvnClientType type : PREFERENCE ) {
+                if( type.isAvailable() ) {
+                    candidates.add( type );
+                }
+            }
+            if( candidates.isEmpty() ) {
+                // causes the usual error message when the client is used
+                result = SvnClientType.svnkit;
+            } else if( benchmark && (candidates.size() > 1) ) {
+                result = benchmark( project, candidates );
+            } else {
+                result = candidates.get(0);
+            }
+            project.log( String.format( "Selected svn client '%s' (available: %s).", result, candidates ), Project.MSG_INFO );
+            if( benchmark ) {
+                benchmarked = result;
+            } else {
+                selected    = result;
+            }
+        }
+        if( property != null ) {
+            project.setNewProperty( property, result.name() );
+        }
+        return result;
+    }
+
+    /**
+     * Measures the time needed by each candidate to run a recursive status on a working copy.
+     * 
+     * @param project      The project used for logging. Not <code>null</code>.
+     * @param candidates   The available client types. Not <code>null</code>.
+     * 
+     * @return   The fastest client type. Not <code>null</code>.
+     */
+    private static SvnClientType benchmark( Project project, List<SvnClientType> candidates ) {
+        SvnClientType result  = candidates.get(0);
+        File          tempdir = null;
+        try {
+            tempdir = createTempDir();
+            SVNUrl        url     = createRepository( candidates, tempdir );
+            long          fastest = Long.MAX_VALUE;
+            StringBuffer  timings = new StringBuffer();
+            for( SvnClientType type : candidates ) {
+                try {
+                    long time = measure( type, url, new File( tempdir, "wc-" + type.name() ) );
+                    if( timings.length() > 0 ) {
+                        timings.append( ", " );
+                    }
+                    timings.append( String.format( "%s=%.2fms", type, Double.valueOf( time / 1000000.0 ) ) );
+                    if( time < fastest ) {
+                        fastest = time;
+                        result  = type;
+                    }
+                } catch( Exception ex ) {
+                    project.log( String.format( "Benchmark of svn client '%s' failed: %s", type, ex ), Project.MSG_VERBOSE );
+                }
+            }
+            project.log( String.format( "Benchmark of svn clients (status): %s", timings ), Project.MSG_INFO );
+        } catch( Exception ex ) {
+            project.log( String.format( "Benchmark of svn clients failed: %s", ex ), Project.MSG_WARN );
+        } finally {
+            if( tempdir != null ) {
+                delete( tempdir );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a repository with a few directories and files.
+     * 
+     * @param candidates   The available client types. Not <code>null</code>.
+     * @param tempdir      The directory used for the benchmark. Not <code>null</code>.
+     * 
+     * @return   The url of the repository. Not <code>null</code>.
+     * 
+     * @throws Exception   The repository could not be created.
+     */
+    private static SVNUrl createRepository( List<SvnClientType> candidates, File tempdir ) throws Exception {
+        File repository = new File( tempdir, "repository" );
+        File content    = new File( tempdir, "content" );
+        for( int i = 0; i < DIRECTORIES; i++ ) {
+            File dir = new File( content, "dir" + i );
+            dir.mkdirs();
+            for( int j = 0; j < FILES; j++ ) {
+                Writer writer = new FileWriter( new File( dir, "file" + j + ".txt" ) );
+                try {
+                    writer.write( "content of file " + j + "\n" );
+                } finally {
+                    SvnAntUtilities.close( writer );
+                }
+            }
+        }
+        // the commandline client can't create repositories
+        SvnClientType     creator = candidates.contains( SvnClientType.svnkit ) ? SvnClientType.svnkit : candidates.get(0);
+        ISVNClientAdapter client  = creator.createClient();
+        try {
+            client.createRepository( repository, ISVNClientAdapter.REPOSITORY_FSTYPE_FSFS );
+            String path = repository.getAbsolutePath().replace( '\\', '/' );
+            if( !path.startsWith( "/" ) ) {
+                path = "/" + path;
+            }
+            SVNUrl result = new SVNUrl( "file://" + path );
+            client.doImport( content, result, "benchmark", true );
+            return result;
+        } finally {
+            client.dispose();
+        }
+    }
+
+    /**
+     * Checks out the repository and measures the fastest of a few status runs.
+     * 
+     * @param type   The client type to be measured. Not <code>null</code>.
+     * @param url    The url of the repository. Not <code>null</code>.
+     * @param wc     The location of the working copy. Not <code>null</code>.
+     * 
+     * @return   The time in nanoseconds needed by the fastest run.
+     * 
+     * @throws Exception   The client failed.
+     */
+    private static long measure( SvnClientType type, SVNUrl url, File wc ) throws Exception {
+        ISVNClientAdapter client = type.createClient();
+        try {
+            client.checkout( url, wc, SVNRevision.HEAD, true );
+            // warm up
+            client.getStatus( wc, true, true );
+            long result = Long.MAX_VALUE;
+            for( int i = 0; i < RUNS; i++ ) {
+                long start = System.nanoTime();
+                client.getStatus( wc, true, true );
+                result     = Math.min( result, System.nanoTime() - start );
+            }
+            return result;
+        } finally {
+            client.dispose();
+        }
+    }
+
+    private static File createTempDir() throws IOException {
+        File result = File.createTempFile( "svnant", ".bench" );
+        if( (!result.delete()) || (!result.mkdirs()) ) {
+            throw new IOException( "Failed to create the directory '" + result + "' !" );
+        }
+        return result;
+    }
+
+    private static void delete( File file ) {
+        File[] children = file.listFiles();
+        if( children != null ) {
+            for( File child : children ) {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+} /* ENDCLASS */
@@ -0,0 +1,241 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnant.commands.CommandTargets;
+import org.tigris.subversion.svnant.commands.SvnCommand;
+
+import org.apache.tools.ant.BuildException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes svn commands concurrently while commands sharing a local path (or changing the 
+ * repository) are executed in their declared order. The dependencies are calculated once, so each command 
+ * depends on all preceding commands it conflicts with. After the first failure no further 
+ * commands are started while the running ones are allowed to finish.
+ */
+class CommandScheduler {
+
+    private static final AtomicInteger   THREADCOUNT = new AtomicInteger();
+
+    private List<SvnCommand>      commands;
+    private List<List<Integer>>   dependents;
+    private int[]                 pending;
+
+    /**
+     * Initialises this scheduler.
+     * 
+     * @param svncommands   The commands in their declared order. Not <code>null</code>.
+     */
+    CommandScheduler( List<SvnCommand> svncommands ) {
+        commands   = svncommands;
+        dependents = new ArrayList<List<Integer>>();
+        pending    = new int[ commands.size() ];
+        List<CommandTargets> targets = new ArrayList<CommandTargets>();
+        for( int i = 0; i < commands.size(); i++ ) {
+            CommandTargets current = commands.get(i).getTargets();
+            dependents.add( new ArrayList<Integer>() );
+            for( int j = 0; j < i; j++ ) {
+                if( current.conflicts( targets.get(j) ) ) {
+                    dependents.get(j).add( Integer.valueOf(i) );
+                    pending[i]++;
+                }
+            }
+            targets.add( current );
+        }
+    }
+
+    /**
+     * Executes all commands.
+     * 
+     * @param threads   The maximum number of concurrently executed commands. At least 1.
+     * @param runner    Executes a single command. Not <code>null</code>.
+     * 
+     * @throws BuildException   At least one command failed.
+     */
+    void execute( int threads, final Runner runner ) throws BuildException {
+        ExecutorService            executor   = Executors.newFixedThreadPool( Math.min( threads, commands.size() ), new DaemonThreadFactory() );
+        CompletionService<Integer> completion = new ExecutorCompletionService<Integer>( executor );
+        List<String>               failures   = new ArrayList<String>();
+        Throwable                  cause      = null;
+        int                        running    = 0;
+        int                        finished   = 0;
+        try {
+            for( int i = 0; i < commands.size(); i++ ) {
+                if( pending[i] == 0 ) {
+                    submit( completion, runner, i );
+                    running++;
+                }
+            }
+            while( running > 0 ) {
+                Future<Integer> future = completion.take();
+                running--;
+                finished++;
+                try {
+                    int index = future.get().intValue();
+                    for( Integer dependent : dependents.get( index ) ) {
+                        pending[ dependent.intValue() ]--;
+                        if( (pending[ dependent.intValue() ] == 0) && (cause == null) ) {
+                            submit( completion, runner, dependent.intValue() );
+                            running++;
+                        }
+                    }
+                } catch( ExecutionException ex ) {
+                    CommandFailure failure = (CommandFailure) ex.getCause();
+                    if( cause == null ) {
+                        cause = failure.getCause();
+                    }
+                    failures.add( String.format( "<%s>: %s", failure.getCommand().getCommandname(), failure.getCause().getMessage() ) );
+                }
+            }
+        } catch( InterruptedException ex ) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new BuildException( "The execution of the svn commands has been interrupted !" );
+        } finally {
+            executor.shutdown();
+        }
+        if( cause != null ) {
+            if( (failures.size() == 1) && (finished == commands.size()) ) {
+                throw cause instanceof BuildException ? (BuildException) cause : new BuildException( cause );
+            }
+            StringBuffer message = new StringBuffer();
+            message.append( String.format( "%d of %d svn commands failed", Integer.valueOf( failures.size() ), Integer.valueOf( commands.size() ) ) );
+            if( finished < commands.size() ) {
+                message.append( String.format( " (%d not executed)", Integer.valueOf( commands.size() - finished ) ) );
+            }
+            message.append( ':' );
+            for( String failure : failures ) {
+                message.append( "\n  " ).append( failure );
+            }
+            throw new BuildException( message.toString(), cause );
+        }
+    }
+
+    private void submit( CompletionService<Integer> completion, final Runner runner, final int index ) {
+        completion.submit( new Callable<Integer>() {
+            public Integer call() throws CommandFailure {
+                SvnCommand command = commands.get( index );
+                try {
+                    runner.run( command );
+                } catch( RuntimeException ex ) {
+                    throw new CommandFailure( command, ex );
+                } catch( Error ex ) {
+                    throw new CommandFailure( command, ex );
+                }
+                return Integer.valueOf( index );
+            }
+        } );
+    }
+
+    /**
+     * Executes a single command.
+     */
+    interface Runner {
+
+        /**
+         * Executes the supplied command within the current thread.
+         * 
+         * @param command   The command which has to be executed. Not <code>null</code>.
+         */
+        void run( SvnCommand command );
+
+    } /* ENDINTERFACE */
+
+    /**
+     * Associates a failure with the failing command.
+     */
+    private static class CommandFailure extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private SvnCommand   command;
+
+        CommandFailure( SvnCommand svncommand, Throwable cause ) {
+            super( cause );
+            command = svncommand;
+        }
+
+        SvnCommand getCommand() {
+            return command;
+        }
+
+    } /* ENDCLASS */
+
+    /**
+     * Creates daemon threads, so a hanging command doesn't prevent the vm from exiting.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        public Thread newThread( Runnable runnable ) {
+            Thread result = new Thread( runnable, "svnant-command-" + THREADCOUNT.incrementAndGet() );
+            result.setDaemon( true );
+            return result;
+        }
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
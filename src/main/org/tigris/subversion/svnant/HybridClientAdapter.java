@@ -0,0 +1,178 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.io.File;
+
+/**
+ * Client adapter which sends read only operations on repository urls to a SVNKit adapter while 
+ * all other operations are performed by the primary adapter. This avoids process launches
+ * (commandline client) or JNI calls (javahl) for remote reads. Configuration changes and 
+ * listeners are applied to both adapters.
+ */
+class HybridClientAdapter implements InvocationHandler {
+
+    /** Operations which only read from the repository. */
+    private static final Set<String>   READONLY  = new HashSet<String>( Arrays.asList( new String[] {
+        "annotate", "diffSummarize", "getContent", "getDirEntry", "getInfo", "getList", "getListWithLocks", 
+        "getLogMessages", "getMergeInfo", "getMergeinfoLog", "getProperties", "getRevProperties", 
+        "getRevProperty", "propertyGet", "suggestMergeSources"
+    } ) );
+
+    /** Operations which change the configuration or the state and must be applied to both adapters. */
+    private static final Set<String>   BROADCAST = new HashSet<String>( Arrays.asList( new String[] {
+        "addNotifyListener", "removeNotifyListener", "setUsername", "setPassword", "addPasswordCallback",
+        "addConflictResolutionCallback", "setProgressListener", "setConfigDirectory", "cancelOperation", 
+        "dispose"
+    } ) );
+
+    private ISVNClientAdapter   primary;
+    private ISVNClientAdapter   remote;
+
+    private HybridClientAdapter( ISVNClientAdapter primaryadapter, ISVNClientAdapter remoteadapter ) {
+        primary = primaryadapter;
+        remote  = remoteadapter;
+    }
+
+    /**
+     * Creates an adapter which uses the primary adapter for all operations except for remote
+     * reads which are performed by the SVNKit adapter.
+     * 
+     * @param primary   The adapter used for all other operations. Not <code>null</code>.
+     * @param remote    The SVNKit adapter used for remote reads. Not <code>null</code>.
+     * 
+     * @return   The adapter routing the operations. Not <code>null</code>.
+     */
+    public static ISVNClientAdapter create( ISVNClientAdapter primary, ISVNClientAdapter remote ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( 
+            ISVNClientAdapter.class.getClassLoader(), 
+            new Class<?>[] { ISVNClientAdapter.class }, 
+            new HybridClientAdapter( primary, remote ) 
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+        if( method.getDeclaringClass() == Object.class ) {
+            return invokeObjectMethod( proxy, method, args );
+        }
+        String name = method.getName();
+        if( BROADCAST.contains( name ) ) {
+            invoke( remote, method, args );
+            return invoke( primary, method, args );
+        } else if( READONLY.contains( name ) && isRemote( args ) ) {
+            return invoke( remote, method, args );
+        } else {
+            return invoke( primary, method, args );
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied arguments only refer to repository urls.
+     * 
+     * @param args   The arguments of an invocation. Maybe <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The arguments only refer to repository urls.
+     */
+    private boolean isRemote( Object[] args ) {
+        if( args == null ) {
+            return false;
+        }
+        boolean result = false;
+        for( Object arg : args ) {
+            if( (arg instanceof File) || (arg instanceof File[]) ) {
+                return false;
+            }
+            if( (arg instanceof SVNUrl) || (arg instanceof SVNUrl[]) ) {
+                result = true;
+            }
+        }
+        return result;
+    }
+
+    private Object invokeObjectMethod( Object proxy, Method method, Object[] args ) {
+        String name = method.getName();
+        if( "equals".equals( name ) ) {
+            return Boolean.valueOf( proxy == args[0] );
+        } else if( "hashCode".equals( name ) ) {
+            return Integer.valueOf( System.identityHashCode( proxy ) );
+        } else {
+            return "hybrid[" + primary + ", " + remote + "]";
+        }
+    }
+
+    private Object invoke( ISVNClientAdapter adapter, Method method, Object[] args ) throws Throwable {
+        try {
+            return method.invoke( adapter, args );
+        } catch( InvocationTargetException ex ) {
+            throw ex.getCause();
+        }
+    }
+
+} /* ENDCLASS */
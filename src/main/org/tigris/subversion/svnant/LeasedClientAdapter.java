@@ -0,0 +1,201 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Client adapter which records the state changes of a caller while it's leasing a pooled adapter.
+ * When the adapter is returned the listeners are removed again. Changes of the credentials, the
+ * callbacks or the configuration directory can't be undone, so such an adapter is not reused.
+ */
+class LeasedClientAdapter implements InvocationHandler {
+
+    /** Operations which change the configuration in a way that can't be reverted. */
+    private static final Set<String>   CONFIGURATION = new HashSet<String>( Arrays.asList( new String[] {
+        "setUsername", "setPassword", "addPasswordCallback", "addConflictResolutionCallback", 
+        "setConfigDirectory", "dispose"
+    } ) );
+
+    private ISVNClientAdapter          adapter;
+    private List<ISVNNotifyListener>   listeners;
+    private boolean                    progress;
+    private boolean                    changed;
+
+    private LeasedClientAdapter( ISVNClientAdapter delegate ) {
+        adapter     = delegate;
+        listeners   = new ArrayList<ISVNNotifyListener>();
+        progress    = false;
+        changed     = false;
+    }
+
+    /**
+     * Creates an adapter which records the state changes applied to the supplied adapter.
+     * 
+     * @param delegate   The pooled adapter. Not <code>null</code>.
+     * 
+     * @return   The adapter recording the changes. Not <code>null</code>.
+     */
+    public static ISVNClientAdapter wrap( ISVNClientAdapter delegate ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( 
+            ISVNClientAdapter.class.getClassLoader(), 
+            new Class<?>[] { ISVNClientAdapter.class }, 
+            new LeasedClientAdapter( delegate ) 
+        );
+    }
+
+    /**
+     * Returns the adapter which has been wrapped by {@link #wrap(ISVNClientAdapter)}.
+     * 
+     * @param adapter   The adapter which might be a leased one. Not <code>null</code>.
+     * 
+     * @return   The wrapped adapter or the supplied one if it's not a leased one. Not <code>null</code>.
+     */
+    public static ISVNClientAdapter unwrap( ISVNClientAdapter adapter ) {
+        LeasedClientAdapter lease = getLease( adapter );
+        return lease != null ? lease.adapter : adapter;
+    }
+
+    /**
+     * Reverts the state changes of the lease, so the adapter can be handed out again.
+     * 
+     * @param adapter   The adapter which might be a leased one. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The adapter is in it's original state and can be reused.
+     */
+    public static boolean reset( ISVNClientAdapter adapter ) {
+        LeasedClientAdapter lease = getLease( adapter );
+        if( lease == null ) {
+            return false;
+        }
+        synchronized( lease ) {
+            for( ISVNNotifyListener listener : lease.listeners ) {
+                lease.adapter.removeNotifyListener( listener );
+            }
+            lease.listeners.clear();
+            if( lease.progress ) {
+                lease.adapter.setProgressListener( null );
+                lease.progress = false;
+            }
+            return !lease.changed;
+        }
+    }
+
+    private static LeasedClientAdapter getLease( ISVNClientAdapter adapter ) {
+        if( Proxy.isProxyClass( adapter.getClass() ) ) {
+            InvocationHandler handler = Proxy.getInvocationHandler( adapter );
+            if( handler instanceof LeasedClientAdapter ) {
+                return (LeasedClientAdapter) handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+        if( method.getDeclaringClass() == Object.class ) {
+            return invokeObjectMethod( proxy, method, args );
+        }
+        String name = method.getName();
+        if( "addNotifyListener".equals( name ) ) {
+            synchronized( this ) {
+                listeners.add( (ISVNNotifyListener) args[0] );
+            }
+        } else if( "removeNotifyListener".equals( name ) ) {
+            synchronized( this ) {
+                listeners.remove( args[0] );
+            }
+        } else if( "setProgressListener".equals( name ) ) {
+            synchronized( this ) {
+                progress = args[0] != null;
+            }
+        } else if( CONFIGURATION.contains( name ) ) {
+            synchronized( this ) {
+                changed = true;
+            }
+        }
+        try {
+            return method.invoke( adapter, args );
+        } catch( InvocationTargetException ex ) {
+            throw ex.getCause();
+        }
+    }
+
+    private Object invokeObjectMethod( Object proxy, Method method, Object[] args ) {
+        String name = method.getName();
+        if( "equals".equals( name ) ) {
+            return Boolean.valueOf( proxy == args[0] );
+        } else if( "hashCode".equals( name ) ) {
+            return Integer.valueOf( System.identityHashCode( proxy ) );
+        } else {
+            return "leased[" + adapter + "]";
+        }
+    }
+
+} /* ENDCLASS */
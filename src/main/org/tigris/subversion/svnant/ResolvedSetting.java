@@ -0,0 +1,348 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnant.types.SvnSetting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import java.io.File;
+
+/**
+ * Immutable view on the settings of a component. The local settings and the settings referred 
+ * to by a refid are merged once, so accessing a value doesn't require any further lookup.
+ */
+public final class ResolvedSetting {
+
+    private static final String     DEFAULT_DATEFORMATTER = "MM/dd/yyyy hh:mm a";
+
+    private static final boolean    DEFAULT_FAILONERROR   = true;
+
+    private static final int        DEFAULT_POOLSIZE      = 4;
+
+    private static final int        DEFAULT_IDLETIMEOUT   = 300;
+
+    private static final int        DEFAULT_SESSIONS      = 4;
+
+    private static final int        DEFAULT_PROGRESS      = 10;
+
+    private final SvnClientType        client;
+    private final SvnClientType        primaryclient;
+    private final String               username;
+    private final String               password;
+    private final String               sslpassword;
+    private final File                 sslclientcertpath;
+    private final Integer              sshport;
+    private final String               sshpassphrase;
+    private final File                 sshkeypath;
+    private final Boolean              certreject;
+    private final File                 configdir;
+    private final ConflictResolution   conflictresolution;
+    private final String               dateformatter;
+    private final TimeZone             timezone;
+    private final boolean              failonerror;
+    private final boolean              metrics;
+    private final int                  progressinterval;
+    private final boolean              lognotifications;
+    private final int                  poolsize;
+    private final int                  poolidletimeout;
+    private final int                  sessionpoolsize;
+    private final int                  sessionidletimeout;
+    private final List<Object>         poolkey;
+
+    /**
+     * Merges the supplied settings. Values of the local settings take precedence.
+     * 
+     * @param local        The settings of the component itself. Not <code>null</code>.
+     * @param refid        The settings the component refers to. Not <code>null</code>.
+     * @param clienttype   The client type to be used. Never {@link SvnClientType#auto}.
+     */
+    ResolvedSetting( SvnSetting local, SvnSetting refid, SvnClientType clienttype ) {
+        client              = clienttype;
+        primaryclient       = refid.getPrimaryClient();
+        username            = choose( local.getUsername(), refid.getUsername() );
+        password            = choose( local.getPassword(), refid.getPassword() );
+        sslpassword         = choose( local.getSSLPassword(), refid.getSSLPassword() );
+        sslclientcertpath   = choose( local.getSSLClientCertPath(), refid.getSSLClientCertPath() );
+        sshport             = choose( local.getSSHPort(), refid.getSSHPort() );
+        sshpassphrase       = choose( local.getSSHPassphrase(), refid.getSSHPassphrase() );
+        sshkeypath          = choose( local.getSSHKeyPath(), refid.getSSHKeyPath() );
+        certreject          = choose( local.getCertReject(), refid.getCertReject() );
+        configdir           = choose( local.getConfigDirectory(), refid.getConfigDirectory() );
+        conflictresolution  = choose( local.getConflictResolution(), refid.getConflictResolution() );
+        dateformatter       = chooseText( chooseText( local.getDateFormatter(), refid.getDateFormatter() ), DEFAULT_DATEFORMATTER );
+        String zone         = chooseText( local.getDateTimezone(), refid.getDateTimezone() );
+        timezone            = zone != null ? TimeZone.getTimeZone( zone ) : null;
+        Boolean fail        = choose( local.getFailonerror(), refid.getFailonerror() );
+        failonerror         = fail != null ? fail.booleanValue() : DEFAULT_FAILONERROR;
+        metrics             = Boolean.TRUE.equals( choose( local.getMetrics(), refid.getMetrics() ) );
+        Integer progress    = choose( local.getProgressInterval(), refid.getProgressInterval() );
+        progressinterval    = progress != null ? progress.intValue() : DEFAULT_PROGRESS;
+        lognotifications    = Boolean.TRUE.equals( choose( local.getLogNotifications(), refid.getLogNotifications() ) );
+        Integer size        = choose( local.getPoolSize(), refid.getPoolSize() );
+        poolsize            = size != null ? size.intValue() : DEFAULT_POOLSIZE;
+        Integer idle        = choose( local.getPoolIdleTimeout(), refid.getPoolIdleTimeout() );
+        poolidletimeout     = idle != null ? idle.intValue() : DEFAULT_IDLETIMEOUT;
+        Integer sessions    = choose( local.getSessionPoolSize(), refid.getSessionPoolSize() );
+        sessionpoolsize     = sessions != null ? sessions.intValue() : DEFAULT_SESSIONS;
+        Integer sessionidle = choose( local.getSessionIdleTimeout(), refid.getSessionIdleTimeout() );
+        sessionidletimeout  = sessionidle != null ? sessionidle.intValue() : DEFAULT_IDLETIMEOUT;
+        poolkey             = Collections.unmodifiableList( Arrays.asList( new Object[] {
+            client, client == SvnClientType.hybrid ? primaryclient : null, username, password, sshkeypath, sshpassphrase, sshport, 
+            sslclientcertpath, sslpassword, certreject, configdir, conflictresolution, 
+            Integer.valueOf( sessionpoolsize ), Integer.valueOf( sessionidletimeout )
+        } ) );
+    }
+
+    private static <T> T choose( T localvalue, T refidvalue ) {
+        return localvalue != null ? localvalue : refidvalue;
+    }
+
+    private static String chooseText( String localvalue, String refidvalue ) {
+        return (localvalue != null) && (localvalue.length() > 0) ? localvalue : refidvalue;
+    }
+
+    /**
+     * @see SvnSetting#getClient()
+     */
+    public SvnClientType getClient() {
+        return client;
+    }
+
+    /**
+     * @see SvnSetting#getPrimaryClient()
+     */
+    public SvnClientType getPrimaryClient() {
+        return primaryclient;
+    }
+
+    /**
+     * @see SvnSetting#getUsername()
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @see SvnSetting#getPassword()
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @see SvnSetting#getSSLPassword()
+     */
+    public String getSSLPassword() {
+        return sslpassword;
+    }
+
+    /**
+     * @see SvnSetting#getSSLClientCertPath()
+     */
+    public File getSSLClientCertPath() {
+        return sslclientcertpath;
+    }
+
+    /**
+     * @see SvnSetting#getSSHPort()
+     */
+    public Integer getSSHPort() {
+        return sshport;
+    }
+
+    /**
+     * @see SvnSetting#getSSHPassphrase()
+     */
+    public String getSSHPassphrase() {
+        return sshpassphrase;
+    }
+
+    /**
+     * @see SvnSetting#getSSHKeyPath()
+     */
+    public File getSSHKeyPath() {
+        return sshkeypath;
+    }
+
+    /**
+     * @see SvnSetting#getCertReject()
+     */
+    public Boolean getCertReject() {
+        return certreject;
+    }
+
+    /**
+     * @see SvnSetting#getConfigDirectory()
+     */
+    public File getConfigDirectory() {
+        return configdir;
+    }
+
+    /**
+     * @see SvnSetting#getConflictResolution()
+     */
+    public ConflictResolution getConflictResolution() {
+        return conflictresolution;
+    }
+
+    /**
+     * Returns the formatting pattern to parse/format revision dates.
+     * 
+     * @return   The formatting pattern. Neither <code>null</code> nor empty.
+     */
+    public String getDateFormatter() {
+        return dateformatter;
+    }
+
+    /**
+     * Returns the timezone used to parse/format revision dates.
+     * 
+     * @return   The timezone. <code>null</code> if the local timezone has to be used.
+     */
+    public TimeZone getDateTimezone() {
+        return timezone;
+    }
+
+    /**
+     * Returns <code>true</code> if a failure shall abort the build process.
+     *
+     * @return   <code>true</code> <=> A failure has to abort the build process.
+     */
+    public boolean getFailonerror() {
+        return failonerror;
+    }
+
+    /**
+     * Returns <code>true</code> if statistics about the calls of the client adapter shall be collected.
+     *
+     * @return   <code>true</code> <=> Collect statistics about the calls of the client adapter.
+     */
+    public boolean getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of seconds between two progress reports of a running command.
+     * 
+     * @return   The number of seconds between two progress reports. A value of 0 disables the
+     *           progress reports while a command is running.
+     */
+    public int getProgressInterval() {
+        return progressinterval;
+    }
+
+    /**
+     * Returns <code>true</code> if each notification of the client adapter shall be logged.
+     *
+     * @return   <code>true</code> <=> Log each notification instead of aggregating them.
+     */
+    public boolean getLogNotifications() {
+        return lognotifications;
+    }
+
+    /**
+     * Returns the maximum number of idle client adapters kept per configuration.
+     * 
+     * @return   The maximum number of idle client adapters. A value of 0 disables the pooling.
+     */
+    public int getPoolSize() {
+        return poolsize;
+    }
+
+    /**
+     * Returns the number of seconds a pooled client adapter may stay idle.
+     * 
+     * @return   The number of seconds a pooled client adapter may stay idle. A value of 0 
+     *           disables the eviction.
+     */
+    public int getPoolIdleTimeout() {
+        return poolidletimeout;
+    }
+
+    /**
+     * Returns the maximum number of open repository sessions kept per thread (SVNKit only).
+     * 
+     * @return   The maximum number of open repository sessions. A value of 0 disables the pooling.
+     */
+    public int getSessionPoolSize() {
+        return sessionpoolsize;
+    }
+
+    /**
+     * Returns the number of seconds an unused repository session is kept open.
+     * 
+     * @return   The number of seconds an unused repository session is kept open. A value of 0 
+     *           disables the eviction.
+     */
+    public int getSessionIdleTimeout() {
+        return sessionidletimeout;
+    }
+
+    /**
+     * Returns the key used to pool client adapters. Two components will share adapters if
+     * they are configured the same way. The key contains all settings applied to a new adapter
+     * including the settings of the repository session pool.
+     * 
+     * @return   The key used to pool client adapters. Not <code>null</code>.
+     */
+    public List<Object> getPoolKey() {
+        return poolkey;
+    }
+
+} /* ENDCLASS */
@@ -215,6 +215,18 @@ public class SvnAntUtilities {
     }
   }
 
+  /**
+   * Causes a BuildException if the supplied number is negative.
+   * 
+   * @param param   The name for the parameter. Neither <code>null</code> nor empty.
+   * @param value   The value which has to be tested.
+   */
+  public static final void attrNotNegative( String param, int value ) {
+    if( value < 0 ) {
+      throw create( "The attribute '%s' is not allowed to be negative (value: %d).", param, Integer.valueOf( value ) );
+    }
+  }
+
   /**
    * Causes a BuildException if the supplied object is not one of a list of possible candidates.
    * 
@@ -54,6 +54,8 @@
  */
 package org.tigris.subversion.svnant;
 
+import org.tigris.subversion.svnant.memory.MemoryClientAdapterFactory;
+
 import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
 import org.tigris.subversion.svnclientadapter.SVNClientAdapterFactory;
 import org.tigris.subversion.svnclientadapter.commandline.CmdLineClientAdapterFactory;
@@ -62,6 +64,8 @@ import org.tigris.subversion.svnclientadapter.svnkit.SvnKitClientAdapterFactory;
 
 import org.apache.tools.ant.BuildException;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -70,7 +74,16 @@ public enum SvnClientType {
 
     svnkit  ( SvnKitClientAdapterFactory  . class , SvnKitClientAdapterFactory  . SVNKIT_CLIENT      ),
     javahl  ( JhlClientAdapterFactory     . class , JhlClientAdapterFactory     . JAVAHL_CLIENT      ),
-    cli     ( CmdLineClientAdapterFactory . class , CmdLineClientAdapterFactory . COMMANDLINE_CLIENT );
+    cli     ( CmdLineClientAdapterFactory . class , CmdLineClientAdapterFactory . COMMANDLINE_CLIENT ),
+    
+    /** Keeps repositories and working copies in memory. Meant for benchmarks and tests only. */
+    memory  ( MemoryClientAdapterFactory  . class , MemoryClientAdapterFactory  . MEMORY_CLIENT      ),
+    
+    /** Placeholder which is resolved to one of the available client types. */
+    auto    ( null                                , null                                            ),
+    
+    /** Uses SVNKit for read only repository operations and the primary client for everything else. */
+    hybrid  ( null                                , null                                            );
     
     private static final String MSG_MISSING_METHOD      = 
         "There's no method $%s for class %s !";
@@ -78,9 +91,16 @@ public enum SvnClientType {
     private static final String MSG_UNACCESSIBLE_METHOD = 
         "The method $%s for class %s is not accessible !";
     
+    private static final String MSG_CACHED_UNAVAILABLE  = 
+        "The svn client '%s' is not available ! (cached result, delete '%s' to check it again)";
+    
+    private static final Object         SETUP_LOCK  = new Object();
+    
+    private static final AtomicBoolean  PRECHECK    = new AtomicBoolean( false );
+    
     private Class<? extends SVNClientAdapterFactory>   factoryclass;
     private String                                     clientname;
-    private Boolean                                    available;
+    private volatile Boolean                           available;
     
     SvnClientType( Class<? extends SVNClientAdapterFactory> clazz, String client ) {
         factoryclass    = clazz;
@@ -89,10 +109,14 @@ public enum SvnClientType {
     }
     
     public ISVNClientAdapter createClient() throws BuildException {
-        if( available == null ) {
-            checkAvailability();
+        if( factoryclass == null ) {
+            throw new BuildException( String.format( "The svn client '%s' must be resolved before it can be used !", this ) );
+        }
+        Boolean isavailable = available;
+        if( isavailable == null ) {
+            isavailable = checkAvailability();
         }
-        if( available.booleanValue() ) {
+        if( isavailable.booleanValue() ) {
             ISVNClientAdapter result = null;
             try {
                 result = SVNClientAdapterFactory.createSVNClient( clientname );
@@ -105,11 +129,49 @@ public enum SvnClientType {
         }
     }
     
-    private void checkAvailability() throws BuildException {
-        available             = Boolean.FALSE;
+    /**
+     * Returns <code>true</code> if this client type can be used.
+     * 
+     * @return   <code>true</code> <=> This client type can be used.
+     */
+    public boolean isAvailable() {
+        if( factoryclass == null ) {
+            return false;
+        }
+        Boolean isavailable = available;
+        if( isavailable == null ) {
+            try {
+                isavailable = checkAvailability();
+            } catch( BuildException ex ) {
+                isavailable = Boolean.FALSE;
+            }
+        }
+        return isavailable.booleanValue();
+    }
+    
+    /**
+     * Checks whether this client type is available. The check is performed only once per client 
+     * type. Concurrent callers for the same type wait for the outcome while other types aren't
+     * blocked.
+     * 
+     * @return   <code>true</code> <=> The client type is available. Not <code>null</code>.
+     * 
+     * @throws BuildException   The first check failed.
+     */
+    private synchronized Boolean checkAvailability() throws BuildException {
+        if( available != null ) {
+            return available;
+        }
+        if( AvailabilityCache.isUnavailable( this ) ) {
+            available = Boolean.FALSE;
+            throw new BuildException( String.format( MSG_CACHED_UNAVAILABLE, this, AvailabilityCache.getCacheFile() ) );
+        }
         String msgunavailable = String.format( "The svn client '%s' is not available !", this );
         try {
-            invoke( getMethod( factoryclass, "setup" ) );
+            // the factory registry of the svnclientadapter isn't thread safe
+            synchronized( SETUP_LOCK ) {
+                invoke( getMethod( factoryclass, "setup" ) );
+            }
             Method  issvnclientavailable = getMethod( SVNClientAdapterFactory.class, "isSVNClientAvailable", String.class );
             Boolean availablity          = invoke( issvnclientavailable, clientname );
             if( ! Boolean.TRUE.equals( availablity ) ) {
@@ -117,10 +179,49 @@ public enum SvnClientType {
             }
             available = Boolean.TRUE;
         } catch( BuildException ex ) {
+            setUnavailable();
             throw ex;
         } catch( RuntimeException ex ) {
+            setUnavailable();
             throw new BuildException( msgunavailable, ex.getCause() );
         }
+        return available;
+    }
+    
+    private void setUnavailable() {
+        available = Boolean.FALSE;
+        AvailabilityCache.setUnavailable( this );
+    }
+    
+    /**
+     * Returns the factory class used to create clients of this type.
+     * 
+     * @return   The factory class used to create clients of this type. <code>null</code> for {@link #auto}.
+     */
+    Class<? extends SVNClientAdapterFactory> getFactoryClass() {
+        return factoryclass;
+    }
+    
+    /**
+     * Checks the availability of the supplied client types within a background thread, so the 
+     * first svn task doesn't need to wait for it. Only the first call has an effect.
+     * 
+     * @param types   The client types which have to be checked. Not <code>null</code>.
+     */
+    public static void checkAvailabilityAsync( final SvnClientType ... types ) {
+        if( (types.length == 0) || PRECHECK.getAndSet( true ) ) {
+            return;
+        }
+        Thread thread = new Thread( "svnant-availability" ) {
+            public void run() {
+                for( SvnClientType type : types ) {
+                    type.isAvailable();
+                }
+            }
+        };
+        thread.setDaemon( true );
+        thread.setPriority( Thread.MIN_PRIORITY );
+        thread.start();
     }
     
     @SuppressWarnings("unchecked")
@@ -55,6 +55,12 @@
 package org.tigris.subversion.svnant;
 
 import org.tigris.subversion.svnant.commands.SvnCommand;
+import org.tigris.subversion.svnant.metrics.BuildCounters;
+import org.tigris.subversion.svnant.metrics.BuildTrace;
+import org.tigris.subversion.svnant.metrics.ClientMetrics;
+import org.tigris.subversion.svnant.metrics.EventClientAdapter;
+import org.tigris.subversion.svnant.metrics.FlightEvents;
+import org.tigris.subversion.svnant.metrics.MetricsClientAdapter;
 
 import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
 import org.tigris.subversion.svnclientadapter.ISVNConflictResolver;
@@ -67,10 +73,15 @@ import org.tigris.subversion.svnant.types.SvnSetting;
 
 import org.apache.tools.ant.types.Reference;
 
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import java.io.File;
 
@@ -83,15 +94,14 @@ import java.io.File;
  */
 public class SvnFacade {
 
-    private static final String  DEFAULT_DATEFORMATTER = "MM/dd/yyyy hh:mm a";
-
-    private static final Boolean DEFAULT_FAILONERROR   = Boolean.TRUE;
-
     private static final String  KEY_FACADE            = "org.tigris.subversion.svnant.SvnFacade";
 
-    private SvnSetting           setting               = new SvnSetting( null );
-    private SvnSetting           refidsetting          = null;
-    private Reference            refid                 = null;
+    private static volatile boolean  sessionpools      = false;
+
+    private SvnSetting                 setting         = new SvnSetting( null );
+    private volatile SvnSetting        refidsetting    = null;
+    private volatile Reference         refid           = null;
+    private volatile ResolvedSetting   resolved        = null;
 
     /**
      * Returns a facade which is associated with the supplied ant project.
@@ -101,32 +111,47 @@ public class SvnFacade {
      * @return   A new facade. Not <code>null</code>.
      */
     private static final SvnFacade getFacade( ProjectComponent component ) {
-        // in general I would prefer to use the key by it's own but the code might
-        // become invalid if the ant svn tasks are used in parallel for the same
-        // project (which is unlikely to happen), so here we're providing the necessary 
-        // distinction.
+        // each component gets it's own facade, so svn tasks used in parallel for the same 
+        // project don't interfere with each other.
         if( component instanceof SvnCommand ) {
             // if a command is passed we're using the task for reference
             component = ((SvnCommand) component).getTask();
         }
-        String    key    = KEY_FACADE + component.hashCode();
-        SvnFacade result = (SvnFacade) component.getProject().getReference( key );
+        ConcurrentMap<ProjectComponent,SvnFacade> facades = getFacades( component.getProject() );
+        SvnFacade                                 result  = facades.get( component );
         if( result == null ) {
-            result = new SvnFacade();
-            component.getProject().addReference( key, result );
+            SvnFacade facade = new SvnFacade();
+            result           = facades.putIfAbsent( component, facade );
+            if( result == null ) {
+                result = facade;
+            }
         }
         return result;
     }
 
     /**
-     * Returns the settings used by this facade.
-     *
-     * @param component   The ant project component used to access the facade. Not <code>null</code>.
+     * Returns the registry of all facades used within the supplied project. When the registry is 
+     * created a listener is installed which disposes idle client adapters at the end of the build.
+     * 
+     * @param project   The project which registry is requested. Not <code>null</code>.
      * 
-     * @return   The settings used by this facade. Not <code>null</code>.
+     * @return   The registry of all facades. Not <code>null</code>.
      */
-    private static final SvnSetting getSetting( ProjectComponent component ) {
-        return getFacade( component ).setting;
+    @SuppressWarnings("unchecked")
+    private static final ConcurrentMap<ProjectComponent,SvnFacade> getFacades( Project project ) {
+        Object result = project.getReference( KEY_FACADE );
+        if( result == null ) {
+            // only happens once per project
+            synchronized( project ) {
+                result = project.getReference( KEY_FACADE );
+                if( result == null ) {
+                    result = new ConcurrentHashMap<ProjectComponent,SvnFacade>();
+                    project.addReference( KEY_FACADE, result );
+                    project.addBuildListener( new PoolCleanup() );
+                }
+            }
+        }
+        return (ConcurrentMap<ProjectComponent,SvnFacade>) result;
     }
 
     private static final SvnSetting getRefidSetting( ProjectComponent component ) {
@@ -155,212 +180,193 @@ public class SvnFacade {
      * @param refid       The id of the configuration which has to be used.
      */
     public static final void setRefid( ProjectComponent component, Reference refid ) {
-        getFacade( component ).refid = refid;
+        SvnFacade facade    = getFacade( component );
+        facade.refid        = refid;
+        facade.refidsetting = null;
+        facade.resolved     = null;
     }
 
     /**
-     * Returns the <code>ConflictResolution</code> specification used to handle conflicts.
+     * Returns the settings of the supplied component. The local settings and the settings referred
+     * to by the refid are resolved only once.
      * 
      * @param component   The ant project component used to access the facade. Not <code>null</code>.
      * 
-     * @return   The <code>ConflictResolution</code> specification used to handle conflicts.
+     * @return   The resolved settings of the supplied component. Not <code>null</code>.
      */
-    private static final ConflictResolution getConflictResolution( ProjectComponent component ) {
-        ConflictResolution result = getSetting( component ).getConflictResolution();
+    public static final ResolvedSetting getResolvedSetting( ProjectComponent component ) {
+        SvnFacade       facade = getFacade( component );
+        ResolvedSetting result = facade.resolved;
         if( result == null ) {
-            result = getRefidSetting( component ).getConflictResolution();
+            // concurrent callers might resolve the settings twice which is harmless as the
+            // outcome is immutable
+            SvnSetting    reference    = getRefidSetting( component );
+            SvnClientType clienttype   = reference.getClient();
+            if( clienttype == SvnClientType.auto ) {
+                clienttype = ClientTypeSelector.select( 
+                    component.getProject(), 
+                    Boolean.TRUE.equals( reference.getClientBenchmark() ), 
+                    reference.getClientProperty() 
+                );
+            }
+            result          = new ResolvedSetting( facade.setting, reference, clienttype );
+            facade.resolved = result;
         }
         return result;
     }
-    
-    private static final SvnClientType getClientType( ProjectComponent component ) {
-        return getRefidSetting( component ).getClient();
-    }
 
     /**
-     * @see SvnSetting#getUsername()
+     * @see ResolvedSetting#getDateFormatter()
      * 
      * @param component   The ant project component used to access the facade. Not <code>null</code>.
      */
-    private static final String getUsername( ProjectComponent component ) {
-        String result = getSetting( component ).getUsername();
-        if( result == null ) {
-            result = getRefidSetting( component ).getUsername();
-        }
-        return result;
+    public static final String getDateFormatter( ProjectComponent component ) {
+        return getResolvedSetting( component ).getDateFormatter();
     }
 
     /**
-     * @see SvnSetting#getPassword()
+     * @see ResolvedSetting#getDateTimezone()
      * 
      * @param component   The ant project component used to access the facade. Not <code>null</code>.
      */
-    private static final String getPassword( ProjectComponent component ) {
-        String result = getSetting( component ).getPassword();
-        if( result == null ) {
-            result = getRefidSetting( component ).getPassword();
-        }
-        return result;
+    public static final TimeZone getDateTimezone( ProjectComponent component ) {
+        return getResolvedSetting( component ).getDateTimezone();
     }
 
     /**
-     * @see SvnSetting#getSSLPassword()
-     * 
-     * @param component   The ant project component used to access the facade. Not <code>null</code>.
+     * Returns <code>true</code> if a failure shall abort the build process.
+     *
+     * @param component  The ant project component used to access the facade. 
+     *                          Not <code>null</code>.
+     *                          
+     * @return   <code>true</code> <=> A failure has to abort the build process.
      */
-    private static final String getSSLPassword( ProjectComponent component ) {
-        String result = getSetting( component ).getSSLPassword();
-        if( result == null ) {
-            result = getRefidSetting( component ).getSSLPassword();
-        }
-        return result;
+    public static final boolean getFailonerror( ProjectComponent component ) {
+        return getResolvedSetting( component ).getFailonerror();
     }
-    
+
     /**
-     * @see SvnSetting#getSSLClientCertPath()
+     * @see ResolvedSetting#getPoolSize()
      * 
      * @param component   The ant project component used to access the facade. Not <code>null</code>.
      */
-    private static final File getSSLClientCertPath( ProjectComponent component ) {
-        File result = getSetting( component ).getSSLClientCertPath();
-        if( result == null ) {
-            result = getRefidSetting( component ).getSSLClientCertPath();
-        }
-        return result;
+    public static final int getPoolSize( ProjectComponent component ) {
+        return getResolvedSetting( component ).getPoolSize();
     }
-    
+
     /**
-     * @see SvnSetting#getSSHPort()
+     * @see ResolvedSetting#getPoolIdleTimeout()
      * 
      * @param component   The ant project component used to access the facade. Not <code>null</code>.
      */
-    private static final Integer getSSHPort( ProjectComponent component ) {
-        Integer result = getSetting( component ).getSSHPort();
-        if( result == null ) {
-            result = getRefidSetting( component ).getSSHPort();
-        }
-        return result;
+    public static final int getPoolIdleTimeout( ProjectComponent component ) {
+        return getResolvedSetting( component ).getPoolIdleTimeout();
     }
-    
+
     /**
-     * @see SvnSetting#getSSHPassphrase()
+     * This method returns a SVN client adapter, based on the property set to the svn task. 
+     * More specifically, the 'javahl' and 'svnkit' flags are verified, as well as the
+     * availability of JAVAHL ad SVNKit adapters, to decide what flavour to use.
      * 
-     * @param component   The ant project component used to access the facade. Not <code>null</code>.
-     */
-    private static final String getSSHPassphrase( ProjectComponent component ) {
-        String result = getSetting( component ).getSSHPassphrase();
-        if( result == null ) {
-            result = getRefidSetting( component ).getSSHPassphrase();
-        }
-        return result;
-    }
-    
-    /**
-     * @see SvnSetting#getSSHKeyPath()
+     * Adapters are taken from a pool if possible, so the caller is supposed to return the
+     * adapter using {@link #releaseClientAdapter(ProjectComponent, ISVNClientAdapter)} when 
+     * it's no longer needed. If metrics are enabled the adapter records all calls. While a flight
+     * recording is running or a trace is active each call emits an event.
      * 
-     * @param component   The ant project component used to access the facade. Not <code>null</code>.
+     * @param component  The ant project component used to access the facade. 
+     *                   Not <code>null</code>.
+     *                      
+     * @return  An instance of SVN client adapter that meets the specified constraints, if any.
+     *          Not <code>null</code>.
+     *          
+     * @throws BuildException   Thrown in a situation where no adapter can fit the constraints.
      */
-    private static final File getSSHKeyPath( ProjectComponent component ) {
-        File result = getSetting( component ).getSSHKeyPath();
-        if( result == null ) {
-            result = getRefidSetting( component ).getSSHKeyPath();
+    public static final ISVNClientAdapter getClientAdapter( ProjectComponent component ) throws BuildException {
+        ResolvedSetting   settings = getResolvedSetting( component );
+        ISVNClientAdapter result   = null;
+        if( settings.getPoolSize() <= 0 ) {
+            result = createClientAdapter( settings );
+        } else {
+            List<Object> key = settings.getPoolKey();
+            result           = ClientAdapterPool.getInstance().acquire( key, settings.getPoolIdleTimeout() * 1000L );
+            String counter   = result != null ? "svnant_cache_hits_total" : "svnant_cache_misses_total";
+            BuildCounters.getCounters( component.getProject() ).add( counter, 1, "cache", "adapterPool" );
+            if( result == null ) {
+                result = createClientAdapter( settings );
+                ClientAdapterPool.getInstance().register( key, result );
+            }
+            // the changes of the caller are recorded, so they can be reverted when it's released
+            result = LeasedClientAdapter.wrap( result );
         }
-        return result;
-    }
-    
-    /**
-     * @see SvnSetting#getConfigDirectory()
-     */
-    private static final File getConfigDirectory( ProjectComponent component ) {
-        File result = getSetting( component ).getConfigDirectory();
-        if( result == null ) {
-            result = getRefidSetting( component ).getConfigDirectory();
+        if( FlightEvents.isRecording() || (BuildTrace.getActive() != null) ) {
+            result = EventClientAdapter.wrap( result, component.getClass().getSimpleName() );
         }
-        return result;
-    }
-
-    /**
-     * @see SvnSetting#getCertReject()
-     *  
-     * @param component   The ant project component used to access the facade. Not <code>null</code>.
-     */
-    private static final Boolean getCertReject( ProjectComponent component ) {
-        Boolean result = getSetting( component ).getCertReject();
-        if( result == null ) {
-            result = getRefidSetting( component ).getCertReject();
+        if( settings.getMetrics() ) {
+            // the pool only knows the plain adapter, so it's wrapped after being acquired
+            ClientMetrics metrics = ClientMetrics.getMetrics( component.getProject() );
+            result                = MetricsClientAdapter.wrap( result, component.getClass().getSimpleName(), metrics );
         }
         return result;
     }
 
     /**
-     * @see SvnSetting#getDateFormatter()
+     * Returns a client adapter which has been obtained through {@link #getClientAdapter(ProjectComponent)}.
+     * The adapter must not be used by the caller afterwards. Listeners which are still registered
+     * are removed. If the caller changed the configuration of the adapter it won't be reused.
      * 
      * @param component   The ant project component used to access the facade. Not <code>null</code>.
+     * @param adapter     The adapter which is no longer needed. Maybe <code>null</code>.
      */
-    public static final String getDateFormatter( ProjectComponent component ) {
-        String result = getSetting( component ).getDateFormatter();
-        if( (result == null) || (result.length() == 0) ) {
-            result = getRefidSetting( component ).getDateFormatter();
+    public static final void releaseClientAdapter( ProjectComponent component, ISVNClientAdapter adapter ) {
+        if( adapter != null ) {
+            ISVNClientAdapter lease    = EventClientAdapter.unwrap( MetricsClientAdapter.unwrap( adapter ) );
+            boolean           reusable = LeasedClientAdapter.reset( lease );
+            ClientAdapterPool.getInstance().release( LeasedClientAdapter.unwrap( lease ), reusable ? getPoolSize( component ) : 0 );
         }
-        if( (result == null) || (result.length() == 0) ) {
-            result = DEFAULT_DATEFORMATTER;
-        }
-        return result;
     }
 
     /**
-     * @see SvnSetting#getDateTimezone()
+     * Creates a new SVN client adapter of the supplied type. SVNKit adapters are connected to
+     * the repository session pool of their configuration.
      * 
-     * @param component   The ant project component used to access the facade. Not <code>null</code>.
-     */
-    public static final TimeZone getDateTimezone( ProjectComponent component ) {
-        String zone = getSetting( component ).getDateTimezone();
-        if( (zone == null) || (zone.length() == 0) ) {
-            zone = getRefidSetting( component ).getDateTimezone();
-        }
-        if( (zone == null) || (zone.length() == 0) ) {
-            return null;
-        } else {
-            return TimeZone.getTimeZone( zone );
-        }
-    }
-
-    /**
-     * Returns <code>true</code> if a failure shall abort the build process.
-     *
-     * @param component  The ant project component used to access the facade. 
-     *                          Not <code>null</code>.
-     *                          
-     * @return   <code>true</code> <=> A failure has to abort the build process.
+     * @param clienttype   The type of the client. Not <code>null</code>.
+     * @param settings     The settings used to configure the adapter. Not <code>null</code>.
+     * 
+     * @return   A new SVN client adapter. Not <code>null</code>.
      */
-    public static final boolean getFailonerror( ProjectComponent component ) {
-        Boolean result = getSetting( component ).getFailonerror();
-        if( result == null ) {
-            result = getRefidSetting( component ).getFailonerror();
-        }
-        if( result == null ) {
-            result = DEFAULT_FAILONERROR;
+    private static final ISVNClientAdapter newClient( SvnClientType clienttype, ResolvedSetting settings ) {
+        ISVNClientAdapter result = clienttype.createClient();
+        if( (clienttype == SvnClientType.svnkit) && (settings.getSessionPoolSize() > 0) ) {
+            if( SvnKitSessionPool.install( result, settings.getPoolKey(), settings.getSessionPoolSize(), settings.getSessionIdleTimeout() ) ) {
+                sessionpools = true;
+            }
         }
-        return result.booleanValue();
+        return result;
     }
 
     /**
-     * This method returns a SVN client adapter, based on the property set to the svn task. 
-     * More specifically, the 'javahl' and 'svnkit' flags are verified, as well as the
-     * availability of JAVAHL ad SVNKit adapters, to decide what flavour to use.
+     * Creates and configures a new SVN client adapter.
      * 
-     * @param component  The ant project component used to access the facade. 
-     *                   Not <code>null</code>.
+     * @param settings   The settings used to configure the adapter. Not <code>null</code>.
      *                      
      * @return  An instance of SVN client adapter that meets the specified constraints, if any.
      *          Not <code>null</code>.
      *          
      * @throws BuildException   Thrown in a situation where no adapter can fit the constraints.
      */
-    public static final synchronized ISVNClientAdapter getClientAdapter( ProjectComponent component ) throws BuildException {
-        SvnClientType     clienttype = getClientType( component );
-        ISVNClientAdapter result     = clienttype.createClient();
-        File configdir = getConfigDirectory( component );
+    private static final ISVNClientAdapter createClientAdapter( ResolvedSetting settings ) throws BuildException {
+        SvnClientType     clienttype = settings.getClient();
+        ISVNClientAdapter result     = null;
+        if( clienttype == SvnClientType.hybrid ) {
+            clienttype = settings.getPrimaryClient();
+            result     = newClient( clienttype, settings );
+            if( (clienttype != SvnClientType.svnkit) && SvnClientType.svnkit.isAvailable() ) {
+                result = HybridClientAdapter.create( result, newClient( SvnClientType.svnkit, settings ) );
+            }
+        } else {
+            result     = newClient( clienttype, settings );
+        }
+        File configdir = settings.getConfigDirectory();
         if( configdir != null ) {
             try {
                 result.setConfigDirectory( configdir );
@@ -368,35 +374,72 @@ public class SvnFacade {
                 throw new BuildException( "Failed to change the configuration directory to '" + configdir.getAbsolutePath() + "' !", ex );
             }
         }
-        ConflictResolution conflictresolution = getConflictResolution( component );
+        ConflictResolution conflictresolution = settings.getConflictResolution();
         if( conflictresolution != null ) {
             result.addConflictResolutionCallback( new DefaultConflictResolver( conflictresolution ) );
         }
-        if( getUsername( component ) != null ) {
-            result.setUsername( getUsername( component ) );
+        if( settings.getUsername() != null ) {
+            result.setUsername( settings.getUsername() );
         }
         if( clienttype == SvnClientType.cli ) {
-            if( getPassword( component ) != null ) {
-                result.setPassword( getPassword( component ) );
+            if( settings.getPassword() != null ) {
+                result.setPassword( settings.getPassword() );
             }
-        } else {
+        }
+        if( (clienttype != SvnClientType.cli) || (settings.getClient() == SvnClientType.hybrid) ) {
+            // the svnkit part of a hybrid client needs the callback as well
             result.addPasswordCallback( 
                 new DefaultPasswordCallback( 
-                    getUsername          ( component ),
-                    getPassword          ( component ),
-                    getSSHKeyPath        ( component ),
-                    getSSHPassphrase     ( component ),
-                    getSSHPort           ( component ),
-                    getSSLClientCertPath ( component ),
-                    getSSLPassword       ( component ),
-                    getCertReject        ( component )
+                    settings.getUsername          (),
+                    settings.getPassword          (),
+                    settings.getSSHKeyPath        (),
+                    settings.getSSHPassphrase     (),
+                    settings.getSSHPort           (),
+                    settings.getSSLClientCertPath (),
+                    settings.getSSLPassword       (),
+                    settings.getCertReject        ()
                 ) 
             );
         }
         return result;
-        
     }
     
+    /**
+     * Disposes idle client adapters when the build has finished.
+     */
+    private static class PoolCleanup implements InternalListener {
+
+        /**
+         * {@inheritDoc}
+         */
+        public void buildFinished( BuildEvent event ) {
+            ClientAdapterPool.getInstance().clear();
+            if( sessionpools ) {
+                // only touch the session pool if SVNKit has been used
+                SvnKitSessionPool.clear();
+            }
+        }
+
+        public void buildStarted( BuildEvent event ) {
+        }
+
+        public void targetStarted( BuildEvent event ) {
+        }
+
+        public void targetFinished( BuildEvent event ) {
+        }
+
+        public void taskStarted( BuildEvent event ) {
+        }
+
+        public void taskFinished( BuildEvent event ) {
+        }
+
+        public void messageLogged( BuildEvent event ) {
+        }
+
+    } /* ENDCLASS */
+    
     private static class DefaultConflictResolver implements ISVNConflictResolver {
 
         private ConflictResolution   choice;
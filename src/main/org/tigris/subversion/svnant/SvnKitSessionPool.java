@@ -0,0 +1,396 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.javahl.AbstractJhlClientAdapter;
+
+import org.tmatesoft.svn.core.ISVNCanceller;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.io.ISVNSession;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.ISVNRepositoryPool;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.util.ISVNDebugLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.lang.reflect.Field;
+
+/**
+ * Keeps repository sessions of SVNKit adapters open, so subsequent commands and tasks using the 
+ * same repository don't need to connect and authenticate again. Sessions are shared by all 
+ * adapters with the same configuration, identified by their repository root and UUID and bound 
+ * to the thread that opened them (sessions are not thread safe and SVNKit doesn't return them 
+ * explicitly). Each thread keeps a limited number of sessions which are closed after being idle 
+ * for too long.
+ * 
+ * Local repositories (<code>file://</code>) are not pooled as there's no connection to be saved.
+ */
+class SvnKitSessionPool {
+
+    private static final ConcurrentMap<List<Object>,SvnKitSessionPool>   POOLS = new ConcurrentHashMap<List<Object>,SvnKitSessionPool>();
+
+    private Map<Thread,LinkedList<Session>>   sessions;
+    private int                               poolsize;
+    private long                              idletimeout;
+
+    private SvnKitSessionPool() {
+        sessions    = new HashMap<Thread,LinkedList<Session>>();
+    }
+
+    /**
+     * Makes the supplied SVNKit adapter use the session pool of it's configuration.
+     * 
+     * @param adapter       The SVNKit adapter. Not <code>null</code>.
+     * @param key           The key identifying the configuration of the adapter. Not <code>null</code>.
+     * @param size          The maximum number of sessions kept per thread.
+     * @param idleseconds   The number of seconds a session may stay idle. 0 means forever.
+     * 
+     * @return   <code>true</code> <=> The pool has been installed.
+     */
+    public static boolean install( ISVNClientAdapter adapter, List<Object> key, int size, int idleseconds ) {
+        SvnOperationFactory factory = getOperationFactory( adapter );
+        if( factory == null ) {
+            return false;
+        }
+        SvnKitSessionPool pool = POOLS.get( key );
+        if( pool == null ) {
+            SvnKitSessionPool newpool = new SvnKitSessionPool();
+            pool                      = POOLS.putIfAbsent( key, newpool );
+            if( pool == null ) {
+                pool = newpool;
+            }
+        }
+        pool.configure( size, idleseconds * 1000L );
+        // the adapter must not close the shared sessions when it's being disposed
+        factory.setAutoDisposeRepositoryPool( false );
+        factory.setRepositoryPool( pool.new View( factory ) );
+        return true;
+    }
+
+    /**
+     * Closes all pooled sessions.
+     */
+    public static void clear() {
+        for( SvnKitSessionPool pool : POOLS.values() ) {
+            pool.close( pool.removeAll( true ) );
+        }
+    }
+
+    /**
+     * Returns the operation factory used by the supplied SVNKit adapter.
+     * 
+     * @param adapter   The SVNKit adapter. Not <code>null</code>.
+     * 
+     * @return   The operation factory. <code>null</code> if it's not accessible with the current
+     *           SVNKit version.
+     */
+    private static SvnOperationFactory getOperationFactory( ISVNClientAdapter adapter ) {
+        if( !(adapter instanceof AbstractJhlClientAdapter) ) {
+            return null;
+        }
+        Object client = ((AbstractJhlClientAdapter) adapter).getSVNClient();
+        try {
+            Field field = client.getClass().getDeclaredField( "svnOperationFactory" );
+            field.setAccessible( true );
+            Object result = field.get( client );
+            return result instanceof SvnOperationFactory ? (SvnOperationFactory) result : null;
+        } catch( Exception ex ) {
+            return null;
+        }
+    }
+
+    private synchronized void configure( int size, long timeout ) {
+        poolsize    = size;
+        idletimeout = timeout;
+    }
+
+    /**
+     * Returns an open session of the current thread for the supplied url. Sessions of terminated 
+     * threads and idle sessions of the current thread are closed.
+     * 
+     * @param url   The url which has to be accessed. Not <code>null</code>.
+     * 
+     * @return   A session or <code>null</code> if there's none.
+     */
+    private Session lookup( SVNURL url ) {
+        List<Session> expired = new ArrayList<Session>();
+        Session       result  = null;
+        synchronized( this ) {
+            Iterator<Map.Entry<Thread,LinkedList<Session>>> it = sessions.entrySet().iterator();
+            while( it.hasNext() ) {
+                Map.Entry<Thread,LinkedList<Session>> entry = it.next();
+                if( !entry.getKey().isAlive() ) {
+                    expired.addAll( entry.getValue() );
+                    it.remove();
+                }
+            }
+            LinkedList<Session> list = sessions.get( Thread.currentThread() );
+            if( list != null ) {
+                long                limit   = System.currentTimeMillis() - idletimeout;
+                Iterator<Session>   entries = list.iterator();
+                while( entries.hasNext() ) {
+                    Session session = entries.next();
+                    if( (idletimeout > 0) && (session.lastused < limit) ) {
+                        expired.add( session );
+                        entries.remove();
+                    } else if( (result == null) && session.matches( url ) ) {
+                        result = session;
+                        entries.remove();
+                    }
+                }
+                if( result != null ) {
+                    // keep the list ordered by the last use
+                    result.lastused = System.currentTimeMillis();
+                    list.addLast( result );
+                }
+            }
+        }
+        close( expired );
+        return result;
+    }
+
+    /**
+     * Adds a new session for the current thread. The least recently used sessions are closed if 
+     * there are too many.
+     * 
+     * @param session   The session which can be reused. Not <code>null</code>.
+     */
+    private void add( Session session ) {
+        List<Session> expired = new ArrayList<Session>();
+        synchronized( this ) {
+            LinkedList<Session> list = sessions.get( Thread.currentThread() );
+            if( list == null ) {
+                list = new LinkedList<Session>();
+                sessions.put( Thread.currentThread(), list );
+            }
+            list.addLast( session );
+            while( list.size() > poolsize ) {
+                expired.add( list.removeFirst() );
+            }
+        }
+        close( expired );
+    }
+
+    /**
+     * Removes sessions from this pool.
+     * 
+     * @param all   <code>true</code> <=> Remove the sessions of all threads, otherwise only the 
+     *              sessions of the current thread are removed.
+     * 
+     * @return   The removed sessions. Not <code>null</code>.
+     */
+    private synchronized List<Session> removeAll( boolean all ) {
+        List<Session> result = new ArrayList<Session>();
+        if( all ) {
+            for( LinkedList<Session> list : sessions.values() ) {
+                result.addAll( list );
+            }
+            sessions.clear();
+        } else {
+            LinkedList<Session> list = sessions.remove( Thread.currentThread() );
+            if( list != null ) {
+                result.addAll( list );
+            }
+        }
+        return result;
+    }
+
+    private void close( List<Session> expired ) {
+        for( Session session : expired ) {
+            session.repository.closeSession();
+        }
+    }
+
+    /**
+     * An open session together with it's identity.
+     */
+    private static class Session {
+
+        private SVNRepository   repository;
+        private String          root;
+        private String          uuid;
+        private long            lastused;
+
+        public Session( SVNRepository newrepository ) {
+            repository  = newrepository;
+            root        = null;
+            uuid        = null;
+            lastused    = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns <code>true</code> if this session belongs to the repository of the supplied url.
+         * 
+         * @param url   The url which has to be accessed. Not <code>null</code>.
+         * 
+         * @return   <code>true</code> <=> This session belongs to the repository of the url.
+         */
+        public boolean matches( SVNURL url ) {
+            if( root == null ) {
+                // root and uuid are known as soon as the session has been used once
+                try {
+                    SVNURL rooturl = repository.getRepositoryRoot( false );
+                    if( rooturl != null ) {
+                        root = rooturl.toString();
+                        uuid = repository.getRepositoryUUID( false );
+                    }
+                } catch( SVNException ex ) {
+                    return false;
+                }
+            }
+            if( (root == null) || (uuid == null) ) {
+                return false;
+            }
+            String location = url.toString();
+            return location.equals( root ) || location.startsWith( root.endsWith( "/" ) ? root : root + "/" );
+        }
+
+    } /* ENDCLASS */
+
+    /**
+     * The repository pool of a single adapter. It uses the authentication settings of that 
+     * adapter while the sessions are shared.
+     */
+    private class View implements ISVNRepositoryPool {
+
+        private SvnOperationFactory         factory;
+        private ISVNAuthenticationManager   authmanager;
+        private ISVNCanceller               canceller;
+        private ISVNDebugLog                debuglog;
+
+        public View( SvnOperationFactory operationfactory ) {
+            factory     = operationfactory;
+            authmanager = operationfactory.getAuthenticationManager();
+            canceller   = operationfactory.getCanceller();
+            debuglog    = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNRepository createRepository( SVNURL url, boolean mayreuse ) throws SVNException {
+            // like the default pool of SVNKit a session is only reused by the same thread
+            boolean       pooled  = mayreuse && (!"file".equals( url.getProtocol() ));
+            Session       session = pooled ? lookup( url ) : null;
+            SVNRepository result  = null;
+            if( session != null ) {
+                result = session.repository;
+                result.setLocation( url, false );
+            } else if( pooled ) {
+                result = SVNRepositoryFactory.create( url, ISVNSession.KEEP_ALIVE );
+                add( new Session( result ) );
+            } else {
+                result = SVNRepositoryFactory.create( url, ISVNSession.DEFAULT );
+            }
+            result.setAuthenticationManager( authmanager );
+            result.setTunnelProvider( factory.getOptions() );
+            result.setCanceller( canceller );
+            if( debuglog != null ) {
+                result.setDebugLog( debuglog );
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void setAuthenticationManager( ISVNAuthenticationManager newauthmanager ) {
+            authmanager = newauthmanager;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void setCanceller( ISVNCanceller newcanceller ) {
+            canceller = newcanceller;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void setDebugLog( ISVNDebugLog newdebuglog ) {
+            debuglog = newdebuglog;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("deprecation") // still part of ISVNRepositoryPool and called by SVNKit
+        public void shutdownConnections( boolean shutdownall ) {
+            close( removeAll( shutdownall ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void dispose() {
+            // the sessions are shared with other adapters, so they are kept open
+        }
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
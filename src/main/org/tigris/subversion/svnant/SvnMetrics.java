@@ -0,0 +1,230 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnant.metrics.BuildCounters;
+import org.tigris.subversion.svnant.metrics.BuildTrace;
+import org.tigris.subversion.svnant.metrics.ClientMetrics;
+import org.tigris.subversion.svnant.metrics.PrometheusFormat;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes the counters and client metrics of the build in the Prometheus text format when the
+ * build has finished, so they can be collected by the textfile collector of the node exporter.
+ * The file is written to a temporary file first and renamed afterwards, so the collector never
+ * reads an incomplete file. Optionally a timeline of the svn operations is recorded from now 
+ * on and written in the Chrome Trace Event format.
+ */
+public class SvnMetrics extends Task {
+
+    private static final String   KEY_FILES        = "org.tigris.subversion.svnant.SvnMetrics";
+
+    private static final String   MSG_CANNOT_WRITE = "Cannot write the svn metrics to '%s'. Cause: %s";
+
+    private File   file      = null;
+    private File   tracefile = null;
+
+    /**
+     * Specifies the location of the file receiving the metrics.
+     * 
+     * @param newfile   The location of the file receiving the metrics.
+     */
+    public void setFile( File newfile ) {
+        file = newfile;
+    }
+
+    /**
+     * Specifies the location of the file receiving the timeline of the svn operations.
+     * 
+     * @param newtracefile   The location of the file receiving the timeline.
+     */
+    public void setTraceFile( File newtracefile ) {
+        tracefile = newtracefile;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute() throws BuildException {
+        if( (file == null) && (tracefile == null) ) {
+            throw new BuildException( "One of the attributes 'file' or 'traceFile' is required." );
+        }
+        if( file != null ) {
+            File location = file.getAbsoluteFile();
+            if( register( getProject(), location ) ) {
+                getProject().addBuildListener( new MetricsExport( location, null ) );
+            }
+            log( String.format( "The svn metrics will be written to '%s' when the build has finished.", location ), Project.MSG_VERBOSE );
+        }
+        if( tracefile != null ) {
+            File location = tracefile.getAbsoluteFile();
+            if( register( getProject(), location ) ) {
+                getProject().addBuildListener( new MetricsExport( location, BuildTrace.start() ) );
+            }
+            log( String.format( "The svn trace will be written to '%s' when the build has finished.", location ), Project.MSG_VERBOSE );
+        }
+    }
+
+    /**
+     * Registers the supplied file, so it's only written once.
+     * 
+     * @param project    The current project. Not <code>null</code>.
+     * @param location   The absolute location of the file. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The file hasn't been registered before.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean register( Project project, File location ) {
+        synchronized( project ) {
+            Object files = project.getReference( KEY_FILES );
+            if( !(files instanceof Set) ) {
+                files = new HashSet<File>();
+                project.addReference( KEY_FILES, files );
+            }
+            return ((Set<File>) files).add( location );
+        }
+    }
+
+    /**
+     * Writes the metrics of the supplied project into a file.
+     * 
+     * @param project    The project which metrics have to be written. Not <code>null</code>.
+     * @param location   The location of the file. Not <code>null</code>.
+     * 
+     * @throws IOException   Writing the file failed.
+     */
+    private static void write( Project project, File location ) throws IOException {
+        Object        reference = project.getReference( ClientMetrics.REFID );
+        ClientMetrics metrics   = reference instanceof ClientMetrics ? (ClientMetrics) reference : null;
+        String        content   = PrometheusFormat.format( BuildCounters.getCounters( project ), metrics );
+        File          temp      = new File( location.getParentFile(), location.getName() + ".tmp" );
+        Writer        writer    = new OutputStreamWriter( new FileOutputStream( temp ), "UTF-8" );
+        try {
+            writer.write( content );
+        } finally {
+            writer.close();
+        }
+        if( !temp.renameTo( location ) ) {
+            // renaming doesn't replace an existing file on all platforms
+            location.delete();
+            if( !temp.renameTo( location ) ) {
+                throw new IOException( String.format( "Cannot rename '%s' to '%s'.", temp, location ) );
+            }
+        }
+    }
+
+    /**
+     * Writes the metrics or the trace into a file when the build has finished.
+     */
+    private static class MetricsExport implements InternalListener {
+
+        private File         location;
+        private BuildTrace   trace;
+
+        public MetricsExport( File newlocation, BuildTrace newtrace ) {
+            location = newlocation;
+            trace    = newtrace;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void buildFinished( BuildEvent event ) {
+            try {
+                if( trace != null ) {
+                    BuildTrace.stop( trace );
+                    trace.write( location );
+                } else {
+                    write( event.getProject(), location );
+                }
+            } catch( IOException ex ) {
+                event.getProject().log( String.format( MSG_CANNOT_WRITE, location, ex.getMessage() ), Project.MSG_WARN );
+            }
+        }
+
+        public void buildStarted( BuildEvent event ) {
+        }
+
+        public void targetStarted( BuildEvent event ) {
+        }
+
+        public void targetFinished( BuildEvent event ) {
+        }
+
+        public void taskStarted( BuildEvent event ) {
+        }
+
+        public void taskFinished( BuildEvent event ) {
+        }
+
+        public void messageLogged( BuildEvent event ) {
+        }
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
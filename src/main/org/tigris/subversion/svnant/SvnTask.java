@@ -78,6 +78,7 @@ import org.tigris.subversion.svnant.commands.Move;
 import org.tigris.subversion.svnant.commands.Propdel;
 import org.tigris.subversion.svnant.commands.Propget;
 import org.tigris.subversion.svnant.commands.Propset;
+import org.tigris.subversion.svnant.commands.ResourceSetSvnCommand;
 import org.tigris.subversion.svnant.commands.Revert;
 import org.tigris.subversion.svnant.commands.SingleInfo;
 import org.tigris.subversion.svnant.commands.Status;
@@ -85,6 +86,13 @@ import org.tigris.subversion.svnant.commands.SvnCommand;
 import org.tigris.subversion.svnant.commands.Switch;
 import org.tigris.subversion.svnant.commands.Update;
 import org.tigris.subversion.svnant.commands.WcVersion;
+import org.tigris.subversion.svnant.metrics.ClientMetrics;
+import org.tigris.subversion.svnant.metrics.BuildCounters;
+import org.tigris.subversion.svnant.metrics.BuildTrace;
+import org.tigris.subversion.svnant.metrics.CallStatistics;
+import org.tigris.subversion.svnant.metrics.MetricsClientAdapter;
+import org.tigris.subversion.svnant.metrics.TaskReport;
+import org.tigris.subversion.svnant.selectors.SelectorContext;
 
 import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
 import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
@@ -92,6 +100,7 @@ import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
 import org.apache.tools.ant.types.Reference;
 
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DefaultLogger;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 import org.apache.tools.ant.Task;
@@ -99,10 +108,11 @@ import org.apache.tools.ant.Task;
 import java.util.ArrayList;
 import java.util.List;
 
-import java.io.CharArrayWriter;
+import java.lang.reflect.Method;
+
 import java.io.File;
-import java.io.FileWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 
 /**
  * Svn Task
@@ -113,12 +123,22 @@ import java.io.PrintWriter;
  */
 public class SvnTask extends Task {
     
+    private static final int         DEFAULT_THREADS = 4;
+    
+    /** the accessor for the level of a DefaultLogger which isn't available with older Ant versions */
+    private static final Method      LEVEL_ACCESSOR  = getLevelAccessor();
+    
     private List<SvnCommand>         commands        = new ArrayList<SvnCommand>();
     private List<ISVNNotifyListener> notifyListeners = new ArrayList<ISVNNotifyListener>();
-    private CharArrayWriter          writer          = new CharArrayWriter();
-    private PrintWriter              printer         = new PrintWriter( writer );
-    private PrintWriter              logprinter      = null;
+    private AsyncLogWriter           logwriter       = null;
+    private int                      outputlevel     = Project.MSG_DEBUG;
     private File                     logfile         = null;
+    private File                     reportfile      = null;
+    private TaskReport               report          = null;
+    private boolean                  parallel        = false;
+    private int                      threads         = DEFAULT_THREADS;
+    private boolean                  pinhead         = false;
+    private TaskRevisions            revisions       = new TaskRevisions( this );
 
     /**
      * Specifies a location of the log file used to write the output to.
@@ -129,6 +149,63 @@ public class SvnTask extends Task {
         logfile = newlogfile;
     }
     
+    /**
+     * Specifies a location of the report file receiving the timings of the nested commands.
+     * 
+     * @param newreportfile   The location of the report file. Maybe <code>null</code>.
+     */
+    public void setReportFile( File newreportfile ) {
+        reportfile = newreportfile;
+    }
+    
+    /**
+     * Enables the concurrent execution of the nested commands. Commands sharing a local path are 
+     * still executed in their declared order while commands changing the repository are executed
+     * exclusively.
+     * 
+     * @param enable   <code>true</code> <=> Execute independent commands concurrently.
+     */
+    public void setParallel( boolean enable ) {
+        parallel = enable;
+    }
+    
+    /**
+     * Specifies the maximum number of commands executed concurrently if <i>parallel</i> is enabled.
+     * 
+     * @param count   The maximum number of concurrently executed commands. At least 1.
+     */
+    public void setThreads( int count ) {
+        threads = count;
+    }
+    
+    /**
+     * Enables the resolution of HEAD to a numeric revision once per repository, so all nested 
+     * commands refer to the same state of the repository.
+     * 
+     * @param enable   <code>true</code> <=> Resolve HEAD once per repository.
+     */
+    public void setPinHead( boolean enable ) {
+        pinhead = enable;
+    }
+    
+    /**
+     * Returns <code>true</code> if HEAD is resolved once per repository.
+     * 
+     * @return   <code>true</code> <=> HEAD is resolved once per repository.
+     */
+    public boolean isPinHead() {
+        return pinhead;
+    }
+    
+    /**
+     * Returns the revisions shared by the nested commands.
+     * 
+     * @return   The revisions shared by the nested commands. Not <code>null</code>.
+     */
+    public TaskRevisions getRevisions() {
+        return revisions;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -447,16 +524,83 @@ public class SvnTask extends Task {
         if( args != null ) {
             for( int i = 0; i < args.length; i++ ) {
                 if( args[i] instanceof Throwable ) {
-                    writer.reset();
-                    Throwable t = (Throwable) args[i];
+                    // commands might log concurrently, so each trace gets it's own writer
+                    StringWriter writer = new StringWriter();
+                    PrintWriter  printer = new PrintWriter( writer );
+                    Throwable    t       = (Throwable) args[i];
                     t.printStackTrace( printer );
-                    args[i]     = String.valueOf( writer.toCharArray() );
+                    printer.flush();
+                    args[i]     = writer.toString();
                 }
             }
         }
         return args;
     }
 
+    /**
+     * Returns <code>true</code> if a message with the supplied level will be written, so it's 
+     * worth to format it.
+     * 
+     * @param level   The level of the message.
+     * 
+     * @return   <code>true</code> <=> The message will be written.
+     */
+    private boolean isEnabled( int level ) {
+        return (logwriter != null) || (level <= outputlevel);
+    }
+
+    /**
+     * Returns the highest level of messages accepted by any listener of the project. Listeners
+     * which don't provide their level are considered to accept all messages while the listeners
+     * registered by svnant are ignored.
+     * 
+     * @return   The highest level of accepted messages.
+     */
+    private int getOutputLevel() {
+        int result = Project.MSG_ERR;
+        for( Object listener : getProject().getBuildListeners() ) {
+            result = Math.max( result, getOutputLevel( listener ) );
+            if( result == Project.MSG_DEBUG ) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the level of messages accepted by the supplied listener.
+     * 
+     * @param listener   The listener which has to be examined. Not <code>null</code>.
+     * 
+     * @return   The highest level of messages accepted by the listener.
+     */
+    private int getOutputLevel( Object listener ) {
+        if( listener instanceof InternalListener ) {
+            // our own listeners don't process messages
+            return Project.MSG_ERR;
+        } else if( (listener instanceof DefaultLogger) && (LEVEL_ACCESSOR != null) ) {
+            try {
+                return ((Integer) LEVEL_ACCESSOR.invoke( listener )).intValue();
+            } catch( Exception ex ) {
+                return Project.MSG_DEBUG;
+            }
+        }
+        return Project.MSG_DEBUG;
+    }
+
+    /**
+     * Returns the public accessor for the level of a DefaultLogger.
+     * 
+     * @return   The accessor. <code>null</code> if the Ant version doesn't provide it.
+     */
+    private static Method getLevelAccessor() {
+        try {
+            return DefaultLogger.class.getMethod( "getMessageOutputLevel" );
+        } catch( NoSuchMethodException ex ) {
+            return null;
+        }
+    }
+
     /**
      * Dumps some verbose messages.
      * 
@@ -464,6 +608,9 @@ public class SvnTask extends Task {
      * @param args   The arguments for the formatting String. Maybe <code>null</code>.
      */
     public void verbose( String fmt, Object ... args ) {
+        if( ! isEnabled( Project.MSG_VERBOSE ) ) {
+            return;
+        }
         if( (args == null) || (args.length == 0) ) {
             write( fmt, Project.MSG_VERBOSE );
         } else {
@@ -478,6 +625,9 @@ public class SvnTask extends Task {
      * @param args   The arguments for the formatting String. Maybe <code>null</code>.
      */
     public void debug( String fmt, Object ... args ) {
+        if( ! isEnabled( Project.MSG_DEBUG ) ) {
+            return;
+        }
         if( (args == null) || (args.length == 0) ) {
             write( fmt, Project.MSG_DEBUG );
         } else {
@@ -492,6 +642,9 @@ public class SvnTask extends Task {
      * @param args   The arguments for the formatting String. Maybe <code>null</code>.
      */
     public void warning( String fmt, Object ... args ) {
+        if( ! isEnabled( Project.MSG_WARN ) ) {
+            return;
+        }
         if( (args == null) || (args.length == 0) ) {
             write( fmt, Project.MSG_WARN );
         } else {
@@ -507,10 +660,14 @@ public class SvnTask extends Task {
      * @param args      The arguments for the formatting String. Maybe <code>null</code>.
      */
     public void info( boolean verbose, String fmt, Object ... args ) {
+        int level = verbose ? Project.MSG_VERBOSE : Project.MSG_INFO;
+        if( ! isEnabled( level ) ) {
+            return;
+        }
         if( (args == null) || (args.length == 0) ) {
-            write( fmt, verbose ? Project.MSG_VERBOSE : Project.MSG_INFO );
+            write( fmt, level );
         } else {
-            write( String.format( fmt, alter( args ) ), verbose ? Project.MSG_VERBOSE : Project.MSG_INFO );
+            write( String.format( fmt, alter( args ) ), level );
         }
     }
 
@@ -521,6 +678,9 @@ public class SvnTask extends Task {
      * @param args   The arguments for the formatting String. Maybe <code>null</code>.
      */
     public void info( String fmt, Object ... args ) {
+        if( ! isEnabled( Project.MSG_INFO ) ) {
+            return;
+        }
         if( (args == null) || (args.length == 0) ) {
             write( fmt, Project.MSG_INFO );
         } else {
@@ -535,6 +695,9 @@ public class SvnTask extends Task {
      * @param args   The arguments for the formatting String. Maybe <code>null</code>.
      */
     public void error( String fmt, Object ... args ) {
+        if( ! isEnabled( Project.MSG_ERR ) ) {
+            return;
+        }
         if( (args == null) || (args.length == 0) ) {
             write( fmt, Project.MSG_ERR );
         } else {
@@ -549,8 +712,8 @@ public class SvnTask extends Task {
      * @param level     The error level.
      */
     private void write( String message, int level ) {
-        if( logprinter != null ) {
-            logprinter.println( message );
+        if( logwriter != null ) {
+            logwriter.println( message );
         } else {
             log( message, level );
         }
@@ -561,32 +724,98 @@ public class SvnTask extends Task {
      */
     public void execute() throws BuildException {
 
+        BuildTrace     trace   = BuildTrace.getActive();
+        long           started = trace != null ? System.nanoTime() : 0;
+        BuildException failure = null;
         try {
             if( logfile != null ) {
-                logprinter = new PrintWriter( new FileWriter( logfile ) );
+                logwriter = new AsyncLogWriter( logfile );
+            }
+            outputlevel = getOutputLevel();
+            revisions.reset();
+            if( reportfile != null ) {
+                String target = getOwningTarget() != null ? getOwningTarget().getName() : null;
+                report = new TaskReport( getTaskName(), target, getLocation().getFileName() + ":" + getLocation().getLineNumber() );
             }
             executeImpl();
         } catch( Exception ex ) {
+            failure = handleFailure( ex );
+        } finally {
+            SelectorContext.release( getProject() );
+            // a failure while closing must not replace the failure of the execution
+            failure = closeOutputs( failure );
+            if( trace != null ) {
+                String target = getOwningTarget() != null ? getOwningTarget().getName() : null;
+                String where  = getLocation().getFileName() + ":" + getLocation().getLineNumber();
+                trace.addSpan( getTaskName(), "task", started, System.nanoTime(), "target", target, "location", where );
+            }
+        }
+        if( failure != null ) {
+            throw failure;
+        }
 
-            if( SvnFacade.getFailonerror( this ) ) {
+    }
 
-                if( ex instanceof BuildException ) {
-                    throw (BuildException) ex;
-                } else {
-                    throw new BuildException( ex );
-                }
+    /**
+     * Handles a failure depending on the <code>failonerror</code> setting.
+     * 
+     * @param ex   The failure which has to be handled. Not <code>null</code>.
+     * 
+     * @return   The exception which has to be raised. <code>null</code> if the build shall continue.
+     */
+    private BuildException handleFailure( Exception ex ) {
+        if( SvnFacade.getFailonerror( this ) ) {
+            return ex instanceof BuildException ? (BuildException) ex : new BuildException( ex );
+        }
+        // quit normally but we're dumping the exception so the user will notice it
+        error( "the execution failed for some reason. cause: %s", ex );
+        return null;
+    }
 
-            } else {
-                // quit normally but we're dumping the exception so the user will notice it
-                error( "the execution failed for some reason. cause: %s", ex );
+    /**
+     * Closes the logfile and writes the report. A failure is handled like a failure of the
+     * execution unless the execution already failed in which case it's just logged.
+     * 
+     * @param failure   The exception of the execution which has to be raised. Maybe <code>null</code>.
+     * 
+     * @return   The exception which has to be raised. <code>null</code> if the build shall continue.
+     */
+    private BuildException closeOutputs( BuildException failure ) {
+        if( logwriter != null ) {
+            AsyncLogWriter closing = logwriter;
+            logwriter = null;
+            try {
+                closing.close();
+            } catch( BuildException ex ) {
+                failure = closeFailed( failure, ex );
             }
-            
-        } finally {
-            if( logprinter != null ) {
-                logprinter.close();
+        }
+        if( report != null ) {
+            TaskReport finished = report;
+            report = null;
+            try {
+                finished.write( getProject(), reportfile );
+            } catch( BuildException ex ) {
+                failure = closeFailed( failure, ex );
             }
         }
+        return failure;
+    }
 
+    /**
+     * Handles a failure while closing the outputs of this task.
+     * 
+     * @param failure   The pending exception which has to be raised. Maybe <code>null</code>.
+     * @param ex        The failure while closing. Not <code>null</code>.
+     * 
+     * @return   The exception which has to be raised. <code>null</code> if the build shall continue.
+     */
+    private BuildException closeFailed( BuildException failure, BuildException ex ) {
+        if( failure != null ) {
+            error( "%s", ex.getMessage() );
+            return failure;
+        }
+        return handleFailure( ex );
     }
 
     /**
@@ -594,20 +823,202 @@ public class SvnTask extends Task {
      */
     private void executeImpl() {
 
-        ISVNClientAdapter svnClient = SvnFacade.getClientAdapter( this );
+        List<SvnCommand> executable = joinCommands();
+        
+        if( parallel && (executable.size() > 1) ) {
+            executeParallel( executable );
+            return;
+        }
+
+        ISVNClientAdapter svnClient = acquireClientAdapter();
+
+        try {
+
+            for( int i = 0; i < notifyListeners.size(); i++ ) {
+                svnClient.addNotifyListener( notifyListeners.get( i ) );
+            }
+
+            for( int i = 0; i < executable.size(); i++ ) {
+                executeCommand( svnClient, executable.get( i ) );
+            }
+
+        } finally {
+            // the adapter might be reused by other tasks, so it must not keep our listeners
+            for( int i = 0; i < notifyListeners.size(); i++ ) {
+                svnClient.removeNotifyListener( notifyListeners.get( i ) );
+            }
+            dumpMetrics( MetricsClientAdapter.getMetrics( unwrapReport( svnClient ) ) );
+            SvnFacade.releaseClientAdapter( this, unwrapReport( svnClient ) );
+        }
+
+    }
+
+    /**
+     * Joins adjacent commands of the same kind using the same options, so their resources are
+     * handled by the first one using batched client calls.
+     * 
+     * @return   The commands which have to be executed. Not <code>null</code>.
+     */
+    private List<SvnCommand> joinCommands() {
+        List<SvnCommand>      result = new ArrayList<SvnCommand>();
+        ResourceSetSvnCommand last   = null;
+        for( SvnCommand command : commands ) {
+            if( (last != null) && (command instanceof ResourceSetSvnCommand) && last.isJoinable( (ResourceSetSvnCommand) command ) ) {
+                last.join( (ResourceSetSvnCommand) command );
+            } else {
+                result.add( command );
+                last = command instanceof ResourceSetSvnCommand ? (ResourceSetSvnCommand) command : null;
+            }
+        }
+        if( result.size() < commands.size() ) {
+            verbose( "Joined %d commands into %d.", Integer.valueOf( commands.size() ), Integer.valueOf( result.size() ) );
+        }
+        return result;
+    }
+
+    /**
+     * Executes independent commands concurrently. Each command uses it's own client adapter.
+     * 
+     * @param executable   The commands which have to be executed. Not <code>null</code>.
+     */
+    private void executeParallel( List<SvnCommand> executable ) {
+        if( threads < 1 ) {
+            throw new BuildException( String.format( "The attribute 'threads' must be positive (value: %d).", Integer.valueOf( threads ) ) );
+        }
+        final ClientMetrics metrics = new ClientMetrics();
+        try {
+            new CommandScheduler( executable ).execute( threads, new CommandScheduler.Runner() {
+                public void run( SvnCommand command ) {
+                    executeIsolated( command, metrics );
+                }
+            } );
+        } finally {
+            dumpMetrics( metrics );
+        }
+    }
 
-        for( int i = 0; i < notifyListeners.size(); i++ ) {
-            svnClient.addNotifyListener( notifyListeners.get( i ) );
+    /**
+     * Executes a single command with a client adapter of it's own.
+     * 
+     * @param command   The command which has to be executed. Not <code>null</code>.
+     * @param metrics   Receives the metrics of the client adapter. Not <code>null</code>.
+     */
+    private void executeIsolated( SvnCommand command, ClientMetrics metrics ) {
+        // output of the worker thread belongs to this task
+        getProject().registerThreadTask( Thread.currentThread(), this );
+        ISVNClientAdapter svnClient = acquireClientAdapter();
+        try {
+            for( int i = 0; i < notifyListeners.size(); i++ ) {
+                svnClient.addNotifyListener( notifyListeners.get( i ) );
+            }
+            executeCommand( svnClient, command );
+        } finally {
+            for( int i = 0; i < notifyListeners.size(); i++ ) {
+                svnClient.removeNotifyListener( notifyListeners.get( i ) );
+            }
+            ClientMetrics local = MetricsClientAdapter.getMetrics( unwrapReport( svnClient ) );
+            if( local != null ) {
+                metrics.add( local );
+            }
+            SvnFacade.releaseClientAdapter( this, unwrapReport( svnClient ) );
+            getProject().registerThreadTask( Thread.currentThread(), null );
         }
+    }
 
-        for( int i = 0; i < commands.size(); i++ ) {
-            SvnCommand command  = commands.get( i );
-            Feedback   feedback = new Feedback( command );
-            svnClient.addNotifyListener( feedback );
+    /**
+     * Executes a single command while it's feedback is being logged.
+     * 
+     * @param svnClient   The client adapter used for the command. Not <code>null</code>.
+     * @param command     The command which has to be executed. Not <code>null</code>.
+     */
+    private void executeCommand( ISVNClientAdapter svnClient, SvnCommand command ) {
+        Feedback       feedback = new Feedback( command );
+        ClientMetrics  timing   = report != null ? MetricsClientAdapter.getMetrics( svnClient ) : null;
+        List<String>   targets  = timing != null ? command.getTargets().getLocations() : null;
+        svnClient.addNotifyListener( feedback );
+        svnClient.setProgressListener( feedback );
+        CallStatistics before   = timing != null ? timing.getTotal() : null;
+        long           started  = System.nanoTime();
+        String         error    = null;
+        try {
             command.executeCommand( svnClient );
+        } catch( BuildException ex ) {
+            error = String.valueOf( ex.getMessage() );
+            throw ex;
+        } finally {
+            long walltime = System.nanoTime() - started;
+            count( command.getCommandname(), walltime, feedback, error == null );
+            if( timing != null ) {
+                CallStatistics after = timing.getTotal();
+                report.addCommand( 
+                    command.getCommandname(), targets, walltime, after.getTotal() - before.getTotal(), 
+                    after.getCount() - before.getCount(), feedback.getEntries(), error 
+                );
+            }
+            svnClient.setProgressListener( null );
             svnClient.removeNotifyListener( feedback );
+            feedback.finish();
+            // the command might have changed the working copy
+            SelectorContext.invalidate( getProject() );
+            SelectorContext.release( getProject() );
         }
+    }
 
+    /**
+     * Updates the counters of the build after a command has been executed.
+     * 
+     * @param name       The name of the command. Not <code>null</code>.
+     * @param walltime   The duration of the command in nanoseconds.
+     * @param feedback   The feedback of the command. Not <code>null</code>.
+     * @param success    <code>true</code> <=> The command succeeded.
+     */
+    private void count( String name, long walltime, Feedback feedback, boolean success ) {
+        BuildCounters counters = BuildCounters.getCounters( getProject() );
+        counters.add( "svnant_commands_total", 1, "command", name, "result", success ? "success" : "failure" );
+        counters.add( "svnant_command_seconds_total", walltime, "command", name );
+        counters.add( "svnant_notifications_total", feedback.getEntries(), "command", name );
+        counters.add( "svnant_transferred_bytes_total", feedback.getBytes(), "command", name );
+    }
+
+    /**
+     * Provides a client adapter for this task. The adapter is wrapped in order to measure the 
+     * time spent within it's calls if a report file has been specified.
+     * 
+     * @return   The client adapter for this task. Not <code>null</code>.
+     */
+    private ISVNClientAdapter acquireClientAdapter() {
+        long              started = System.nanoTime();
+        ISVNClientAdapter result  = SvnFacade.getClientAdapter( this );
+        if( report != null ) {
+            report.addAcquisition( System.nanoTime() - started );
+            result = MetricsClientAdapter.wrap( result, getTaskName(), new ClientMetrics() );
+        }
+        return result;
+    }
+
+    /**
+     * Removes the wrapper used to measure the calls for the report file.
+     * 
+     * @param svnClient   The adapter provided by {@link #acquireClientAdapter()}. Not <code>null</code>.
+     * 
+     * @return   The adapter provided by the facade. Not <code>null</code>.
+     */
+    private ISVNClientAdapter unwrapReport( ISVNClientAdapter svnClient ) {
+        return report != null ? MetricsClientAdapter.unwrap( svnClient ) : svnClient;
+    }
+
+    /**
+     * Dumps the summary of the calls performed by this task. The metrics of the whole build are 
+     * available through the reference {@link ClientMetrics#REFID}.
+     * 
+     * @param metrics   The metrics of this task. <code>null</code> if metrics are disabled.
+     */
+    private void dumpMetrics( ClientMetrics metrics ) {
+        if( (metrics != null) && (!metrics.isEmpty()) ) {
+            for( String line : metrics.getSummary() ) {
+                info( line );
+            }
+        }
     }
 
 }
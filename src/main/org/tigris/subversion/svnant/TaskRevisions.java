@@ -0,0 +1,200 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNInfo;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+/**
+ * Revisions shared by the commands of a single svn task. Parsed revisions and the date 
+ * formatter are kept, so each revision text is only parsed once per task. If enabled HEAD is 
+ * resolved to a numeric revision once per repository, so all commands of the task refer to
+ * the same state of the repository even while other clients are committing.
+ */
+public class TaskRevisions {
+
+    private SvnTask                                     task;
+    private ConcurrentMap<String,SVNRevision>           parsed;
+    private ConcurrentMap<String,SVNRevision.Number>    pinned;
+    private SimpleDateFormat                            formatter;
+
+    /**
+     * Initialises the revisions of the supplied task.
+     * 
+     * @param svntask   The task which commands are using these revisions. Not <code>null</code>.
+     */
+    TaskRevisions( SvnTask svntask ) {
+        task      = svntask;
+        parsed    = new ConcurrentHashMap<String,SVNRevision>();
+        pinned    = new ConcurrentHashMap<String,SVNRevision.Number>();
+        formatter = null;
+    }
+
+    /**
+     * Returns the revision described by the supplied text which is either a keyword, a number
+     * or a date using the configured date format.
+     * 
+     * @param revision   The textual description of the revision. Not <code>null</code>.
+     * 
+     * @return   The revision. Not <code>null</code>.
+     * 
+     * @throws ParseException   The text doesn't describe a revision.
+     */
+    public SVNRevision parse( String revision ) throws ParseException {
+        SVNRevision result = parsed.get( revision );
+        if( result == null ) {
+            SimpleDateFormat dateformatter = getFormatter();
+            synchronized( dateformatter ) {
+                result = SVNRevision.getRevision( revision, dateformatter );
+            }
+            if( result != null ) {
+                parsed.put( revision, result );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the supplied date formatted using the configured date format.
+     * 
+     * @param date   The date which has to be formatted. Not <code>null</code>.
+     * 
+     * @return   The formatted date. Neither <code>null</code> nor empty.
+     */
+    public String format( Date date ) {
+        SimpleDateFormat dateformatter = getFormatter();
+        synchronized( dateformatter ) {
+            return dateformatter.format( date );
+        }
+    }
+
+    /**
+     * Returns the revision which has to be used to access the supplied url. If HEAD is pinned 
+     * it's replaced by the revision HEAD had when the repository has been accessed for the 
+     * first time within the task. HEAD is resolved without holding a lock, so commands running
+     * in parallel don't wait for each other. If they resolve the same repository concurrently 
+     * the first resolved revision wins.
+     * 
+     * @param svnClient   The client adapter used to resolve HEAD. Not <code>null</code>.
+     * @param revision    The requested revision. Maybe <code>null</code>.
+     * @param url         The accessed url. Maybe <code>null</code>.
+     * 
+     * @return   The revision which has to be used. Maybe <code>null</code> if <code>revision</code> is.
+     * 
+     * @throws SVNClientException   HEAD could not be resolved.
+     */
+    public SVNRevision pin( ISVNClientAdapter svnClient, SVNRevision revision, SVNUrl url ) throws SVNClientException {
+        if( (!task.isPinHead()) || (url == null) || (revision == null) || (revision.getKind() != SVNRevision.Kind.head) ) {
+            return revision;
+        }
+        String location = trim( url.toString() );
+        for( Map.Entry<String,SVNRevision.Number> entry : pinned.entrySet() ) {
+            String root = entry.getKey();
+            if( location.equals( root ) || location.startsWith( root + "/" ) ) {
+                return entry.getValue();
+            }
+        }
+        // the revision of an url is the youngest revision of it's repository
+        ISVNInfo           info     = svnClient.getInfo( url );
+        String             root     = info.getRepository() != null ? trim( info.getRepository().toString() ) : location;
+        SVNRevision.Number result   = info.getRevision();
+        SVNRevision.Number existing = pinned.putIfAbsent( root, result );
+        if( existing != null ) {
+            return existing;
+        }
+        task.verbose( "Pinned HEAD of '%s' to revision %s.", root, result );
+        return result;
+    }
+
+    /**
+     * Discards the pinned revisions.
+     */
+    void reset() {
+        pinned.clear();
+    }
+
+    private synchronized SimpleDateFormat getFormatter() {
+        if( formatter == null ) {
+            ResolvedSetting  settings      = SvnFacade.getResolvedSetting( task );
+            SimpleDateFormat dateformatter = new SimpleDateFormat( settings.getDateFormatter() );
+            TimeZone         timezone      = settings.getDateTimezone();
+            if( timezone != null ) {
+                dateformatter.setTimeZone( timezone );
+            }
+            formatter = dateformatter;
+        }
+        return formatter;
+    }
+
+    private static String trim( String location ) {
+        while( location.endsWith( "/" ) ) {
+            location = location.substring( 0, location.length() - 1 );
+        }
+        return location;
+    }
+
+} /* ENDCLASS */
@@ -59,6 +59,7 @@ import org.tigris.subversion.svnclientadapter.SVNRevision;
 import org.tigris.subversion.svnclientadapter.SVNUrl;
 
 import org.tigris.subversion.svnant.SvnAntUtilities;
+import org.tigris.subversion.svnant.metrics.BuildCounters;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -88,17 +89,20 @@ public class Cat extends SvnCommand {
         if( destFile == null ) {
             destFile = new File( getProject().getBaseDir(), url.getLastPathSegment() );
         }
-        InputStream      is = null;
-        FileOutputStream os = null;
+        InputStream      is    = null;
+        FileOutputStream os    = null;
+        long             total = 0;
         try {
             os            = new FileOutputStream( destFile );
-            is            = getClient().getContent( url, revision );
+            is            = getClient().getContent( url, pinRevision( revision, url ) );
             byte[] buffer = new byte[5000];
             int    read   = is.read( buffer );
             while( read != -1 ) {
                 os.write( buffer, 0, read );
-                read = is.read( buffer );
+                total += read;
+                read   = is.read( buffer );
             }
+            BuildCounters.getCounters( getProject() ).add( "svnant_content_bytes_total", total, "command", getCommandname() );
         } catch( IOException ex ) {
             throw ex( ex, MSG_CANT_GET_CONTENT, url );
         } catch( SVNClientException ex ) {
@@ -144,4 +148,23 @@ public class Cat extends SvnCommand {
         this.revision = getRevisionFrom( revision );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addUrl( url );
+        if( destFile != null ) {
+            targets.addPath( destFile );
+        } else if( url != null ) {
+            targets.addPath( new File( getProject().getBaseDir(), url.getLastPathSegment() ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    SVNRevision getRevision() {
+        return revision;
+    }
+
 }
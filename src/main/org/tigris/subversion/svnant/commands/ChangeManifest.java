@@ -0,0 +1,193 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.commands;
+
+import org.tigris.subversion.svnant.types.ManifestResources;
+import org.tigris.subversion.svnant.types.ManifestResources.Change;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import java.util.EnumSet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Records the paths changed by a command (added, updated, deleted or conflicting ones). The
+ * paths are written to the manifest file while the command is running (one path per line, UTF-8
+ * encoded, preceded by the code of the change). Optionally the changed files are provided as a 
+ * Path reference afterwards. The paths of each kind of change are provided by the references
+ * <code>&lt;refid&gt;.added</code>, <code>&lt;refid&gt;.updated</code>, 
+ * <code>&lt;refid&gt;.deleted</code> and <code>&lt;refid&gt;.conflicted</code>.
+ */
+final class ChangeManifest {
+
+    private static final String MSG_CANNOT_WRITE = "Cannot write the changes to '%s'.";
+
+    private File     file;
+    private String   refid;
+    private Writer   writer;
+    private File     location;
+
+    /**
+     * Initialises this manifest which is disabled by default.
+     */
+    ChangeManifest() {
+        file     = null;
+        refid    = null;
+        writer   = null;
+        location = null;
+    }
+
+    /**
+     * Changes the file which receives the changed paths.
+     * 
+     * @param newfile   The file receiving the changed paths. Maybe <code>null</code>.
+     */
+    void setFile( File newfile ) {
+        file = newfile;
+    }
+
+    /**
+     * Changes the id of the Path reference providing the changed files.
+     * 
+     * @param newrefid   The id of the reference. Maybe <code>null</code>.
+     */
+    void setRefid( String newrefid ) {
+        refid = newrefid;
+    }
+
+    /**
+     * Returns <code>true</code> if the changes have to be recorded.
+     * 
+     * @return   <code>true</code> <=> The changes have to be recorded.
+     */
+    boolean isEnabled() {
+        return (file != null) || (refid != null);
+    }
+
+    /**
+     * Registers the manifest file as a target of the command.
+     * 
+     * @param targets   The receiver for the targets. Not <code>null</code>.
+     */
+    void collectTargets( CommandTargets targets ) {
+        targets.addPath( file );
+    }
+
+    /**
+     * Opens the manifest. A temporary file is used if only the reference has been requested.
+     */
+    void open() {
+        try {
+            if( file != null ) {
+                location = file.getAbsoluteFile();
+                if( location.getParentFile() != null ) {
+                    location.getParentFile().mkdirs();
+                }
+            } else {
+                location = File.createTempFile( "svnant", ".changes" );
+                location.deleteOnExit();
+            }
+            writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( location ), "UTF-8" ) );
+        } catch( IOException ex ) {
+            throw new BuildException( String.format( MSG_CANNOT_WRITE, location ), ex );
+        }
+    }
+
+    /**
+     * Records the supplied path.
+     * 
+     * @param path     The path which has been changed. Not <code>null</code>.
+     * @param change   The kind of the change. Not <code>null</code>.
+     */
+    void add( File path, Change change ) {
+        try {
+            writer.write( change.getCode() );
+            writer.write( ' ' );
+            writer.write( path.getAbsolutePath() );
+            writer.write( '\n' );
+        } catch( IOException ex ) {
+            throw new BuildException( String.format( MSG_CANNOT_WRITE, location ), ex );
+        }
+    }
+
+    /**
+     * Closes the manifest and registers the reference if requested.
+     * 
+     * @param project   The project receiving the reference. Not <code>null</code>.
+     */
+    void close( Project project ) {
+        try {
+            writer.close();
+        } catch( IOException ex ) {
+            throw new BuildException( String.format( MSG_CANNOT_WRITE, location ), ex );
+        } finally {
+            writer = null;
+        }
+        if( refid != null ) {
+            project.addReference( refid, new ManifestResources( project, location ) );
+            for( Change change : Change.values() ) {
+                project.addReference( refid + "." + change.name(), new ManifestResources( project, location, EnumSet.of( change ) ) );
+            }
+        }
+    }
+
+}
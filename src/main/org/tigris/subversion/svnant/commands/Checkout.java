@@ -93,6 +93,8 @@ public class Checkout extends SvnCommand {
     private boolean         ignoreexternals = false;
     
     private CheckoutDepth   depth = null;
+    
+    private ChangeManifest  changes = new ChangeManifest();
 
     /**
      * {@inheritDoc}
@@ -102,10 +104,11 @@ public class Checkout extends SvnCommand {
             destPath = getProject().getBaseDir();
         }
         try {
+            SVNRevision pinned = pinRevision( revision, url );
             if( depth != null ) {
-                getClient().checkout( url, destPath, revision, depth.getIntValue(), ignoreexternals, force );
+                getClient().checkout( url, destPath, pinned, depth.getIntValue(), ignoreexternals, force );
             } else {
-                getClient().checkout( url, destPath, revision, recurse == null ? true : recurse.booleanValue() );
+                getClient().checkout( url, destPath, pinned, recurse == null ? true : recurse.booleanValue() );
             }
             
         } catch( SVNClientException ex ) {
@@ -187,6 +190,24 @@ public class Checkout extends SvnCommand {
         this.revision = getRevisionFrom( revision );
     }
 
+    /**
+     * Sets the file which receives the changed paths (one path per line, preceded by the code of the change).
+     * 
+     * @param file   The file receiving the changed paths. Not <code>null</code>.
+     */
+    public void setChangesFile( File file ) {
+        changes.setFile( file );
+    }
+
+    /**
+     * Sets the id of a Path reference which provides the changed files afterwards.
+     * 
+     * @param refid   The id of the Path reference. Neither <code>null</code> nor empty.
+     */
+    public void setChangesRefid( String refid ) {
+        changes.setRefid( refid );
+    }
+
     /**
      * EnumeratedAttribute covering the depth for the checkout.
      */
@@ -220,4 +241,27 @@ public class Checkout extends SvnCommand {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addUrl( url );
+        targets.addPath( destPath );
+        changes.collectTargets( targets );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    ChangeManifest getChangeManifest() {
+        return changes.isEnabled() ? changes : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    SVNRevision getRevision() {
+        return revision;
+    }
+
 }
@@ -98,4 +98,11 @@ public class Cleanup extends SvnCommand {
         SvnAntUtilities.attrIsDirectory( "path", path );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+    }
+
 }
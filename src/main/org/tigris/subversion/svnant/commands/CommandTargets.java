@@ -0,0 +1,227 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.commands;
+
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.apache.tools.ant.util.FileUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.io.File;
+
+import java.net.MalformedURLException;
+
+/**
+ * Collects the local paths and repository urls accessed by a command. Two commands which don't
+ * share a local path can be executed concurrently. Repository urls are only read, so they don't
+ * cause any conflict except for the location of <code>file://</code> repositories. A command is 
+ * <i>exclusive</i> if it's targets are unknown or if it changes the repository, so it's neither 
+ * executed concurrently with nor reordered against any other command.
+ */
+public final class CommandTargets {
+
+    private static final String   FILE_PROTOCOL = "file://";
+
+    @SuppressWarnings("deprecation") // FileUtils.getFileUtils() isn't available with Ant 1.6
+    private static final FileUtils   FILEUTILS = FileUtils.newFileUtils();
+
+    private List<String>   paths;
+    private List<String>   readpaths;
+    private List<String>   urls;
+    private boolean        exclusive;
+
+    /**
+     * Initialises these targets without any path or url.
+     */
+    CommandTargets() {
+        paths     = new ArrayList<String>();
+        readpaths = new ArrayList<String>();
+        urls      = new ArrayList<String>();
+        exclusive = false;
+    }
+
+    /**
+     * Registers a local path. The path includes all it's descendants.
+     * 
+     * @param path   The local path. Maybe <code>null</code> which has no effect.
+     */
+    void addPath( File path ) {
+        if( path != null ) {
+            paths.add( FILEUTILS.normalize( path.getAbsolutePath() ).getPath() );
+        }
+    }
+
+    /**
+     * Registers a repository url which is being read. The location of a <code>file://</code> 
+     * repository is registered as a local path which is only being read.
+     * 
+     * @param url   The repository url. Maybe <code>null</code> which has no effect.
+     */
+    void addUrl( SVNUrl url ) {
+        if( url != null ) {
+            String location = url.toString();
+            while( location.endsWith( "/" ) ) {
+                location = location.substring( 0, location.length() - 1 );
+            }
+            urls.add( location );
+            if( location.startsWith( FILE_PROTOCOL ) ) {
+                File path = new File( location.substring( FILE_PROTOCOL.length() ) );
+                readpaths.add( FILEUTILS.normalize( path.getAbsolutePath() ).getPath() );
+            }
+        }
+    }
+
+    /**
+     * Registers a target which is either a repository url or a local path.
+     * 
+     * @param target   The url or local path. Maybe <code>null</code> which has no effect.
+     */
+    void addTarget( String target ) {
+        if( target != null ) {
+            try {
+                addUrl( new SVNUrl( target ) );
+            } catch( MalformedURLException ex ) {
+                addPath( new File( target ) );
+            }
+        }
+    }
+
+    /**
+     * Marks the command as exclusive.
+     */
+    void setExclusive() {
+        exclusive = true;
+    }
+
+    /**
+     * Returns <code>true</code> if the command must not be executed concurrently with any other
+     * command.
+     * 
+     * @return   <code>true</code> <=> The command must not be executed concurrently.
+     */
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied targets share a local path with these ones, so 
+     * the commands must be executed in their declared order.
+     * 
+     * @param other   The targets of another command. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The commands must be executed in their declared order.
+     */
+    public boolean conflicts( CommandTargets other ) {
+        if( exclusive || other.exclusive ) {
+            return true;
+        }
+        return sharesPath( other );
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied targets share a local path with these ones. 
+     * Unlike {@link #conflicts(CommandTargets)} the exclusiveness of the commands isn't 
+     * considered.
+     * 
+     * @param other   The targets of another command. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The targets share a local path.
+     */
+    public boolean sharesPath( CommandTargets other ) {
+        return overlaps( paths, other.paths ) || overlaps( paths, other.readpaths ) || overlaps( readpaths, other.paths );
+    }
+
+    private static boolean overlaps( List<String> list1, List<String> list2 ) {
+        for( String location1 : list1 ) {
+            for( String location2 : list2 ) {
+                if( isAncestorOrSelf( location1, location2 ) || isAncestorOrSelf( location2, location1 ) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAncestorOrSelf( String ancestor, String location ) {
+        if( !location.startsWith( ancestor ) ) {
+            return false;
+        }
+        return (location.length() == ancestor.length()) || ancestor.endsWith( File.separator ) || location.startsWith( File.separator, ancestor.length() );
+    }
+
+    /**
+     * Returns the registered local paths followed by the registered repository urls.
+     * 
+     * @return   The registered local paths and repository urls. Not <code>null</code>.
+     */
+    public List<String> getLocations() {
+        List<String> result = new ArrayList<String>( paths );
+        result.addAll( urls );
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        if( exclusive ) {
+            return "exclusive";
+        }
+        return getLocations().toString();
+    }
+
+}
@@ -167,4 +167,22 @@ public class Commit extends ResourceSetSvnCommand {
         this.message = message;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean canJoin( ResourceSetSvnCommand other ) {
+        // joined commands will be committed using a single revision
+        return (message != null) && message.equals( ((Commit) other).message );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        // the paths are needed to decide whether commits can be joined
+        super.collectTargets( targets );
+        // changes to the repository might affect all other commands
+        targets.setExclusive();
+    }
+
 }
@@ -96,9 +96,9 @@ public class Copy extends SvnCommand {
                 }
             } else {
                 if( destPath != null ) {
-                    getClient().copy( srcUrl, destPath, revision );
+                    getClient().copy( srcUrl, destPath, pinRevision( revision, srcUrl ) );
                 } else {
-                    getClient().copy( srcUrl, destUrl, message, revision, makeparents );
+                    getClient().copy( srcUrl, destUrl, message, pinRevision( revision, srcUrl ), makeparents );
                 }
             }
         } catch( SVNClientException ex ) {
@@ -178,4 +178,24 @@ public class Copy extends SvnCommand {
         this.makeparents = newmakeparents;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        if( destUrl != null ) {
+            // changes to the repository might affect all other commands
+            targets.setExclusive();
+        }
+        targets.addPath( srcPath );
+        targets.addPath( destPath );
+        targets.addUrl( srcUrl );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    SVNRevision getRevision() {
+        return revision;
+    }
+
 }
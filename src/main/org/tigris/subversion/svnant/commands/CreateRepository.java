@@ -107,4 +107,12 @@ public class CreateRepository extends SvnCommand {
         this.repositoryType = repositoryType;
     }
     
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+    }
+
 }
@@ -59,6 +59,9 @@ import org.tigris.subversion.svnclientadapter.SVNUrl;
 
 import org.tigris.subversion.svnant.SvnAntUtilities;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import java.io.File;
 
 /**
@@ -82,6 +85,9 @@ public class Delete extends ResourceSetSvnCommand {
      * or modified items; use the force option to override this behaviour 
      */
     private boolean         force    = false;
+    
+    /** the resources which are removed using a single call */
+    private List<File>      files    = new ArrayList<File>();
 
     public Delete() {
         super( true, true );
@@ -91,25 +97,49 @@ public class Delete extends ResourceSetSvnCommand {
      * {@inheritDoc}
      */
     protected void handleDir( File dir, boolean recurse ) {
-        deleteFile( dir, force );
+        files.add( dir );
     }
 
     /**
      * {@inheritDoc}
      */
     protected void handleFile( File file ) {
-        deleteFile( file, force );
+        files.add( file );
     }
     
     /**
      * {@inheritDoc}
      */
     protected void handleBegin() {
+        files.clear();
         if( url != null ) {
             deleteUrl( url, message );
         }
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    protected void handleEnd() {
+        if( files.size() == 1 ) {
+            deleteFile( files.get(0), force );
+        } else if( ! files.isEmpty() ) {
+            try {
+                getClient().remove( files.toArray( new File[ files.size() ] ), force );
+            } catch( SVNClientException ex ) {
+                throw ex( ex, MSG_CANNOT_DELETE, files );
+            }
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean canJoin( ResourceSetSvnCommand other ) {
+        Delete delete = (Delete) other;
+        return (url == null) && (delete.url == null) && (force == delete.force);
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -173,4 +203,15 @@ public class Delete extends ResourceSetSvnCommand {
         this.force = force;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        if( url != null ) {
+            // changes to the repository might affect all other commands
+            targets.setExclusive();
+        }
+        super.collectTargets( targets );
+    }
+
 }
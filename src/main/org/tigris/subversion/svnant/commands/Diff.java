@@ -204,4 +204,15 @@ public class Diff extends SvnCommand {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addUrl( oldUrl );
+        targets.addUrl( newUrl );
+        targets.addPath( oldPath );
+        targets.addPath( newPath );
+        targets.addPath( outFile );
+    }
+
 }
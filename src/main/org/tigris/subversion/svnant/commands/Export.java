@@ -94,7 +94,7 @@ public class Export extends SvnCommand {
     public void execute() {
         try {
             if( srcUrl != null ) {
-                getClient().doExport( srcUrl, destPath, revision, force );
+                getClient().doExport( srcUrl, destPath, pinRevision( revision, srcUrl ), force );
             } else {
                 getClient().doExport( srcPath, destPath, force );
             }
@@ -152,4 +152,20 @@ public class Export extends SvnCommand {
         this.force = force;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addUrl( srcUrl );
+        targets.addPath( srcPath );
+        targets.addPath( destPath );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    SVNRevision getRevision() {
+        return revision;
+    }
+
 }
@@ -54,32 +54,78 @@
  */
 package org.tigris.subversion.svnant.commands;
 
+import org.tigris.subversion.svnant.types.ManifestResources.Change;
+
 import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
+import org.tigris.subversion.svnclientadapter.ISVNProgressListener;
 import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNProgressEvent;
+
+import java.util.concurrent.TimeUnit;
 
 import java.io.File;
 
 /**
+ * Listener for the notifications of the client adapter. By default the notifications are
+ * aggregated into counters which are reported periodically and after the command has finished.
+ * Each notification is only logged if <code>logNotifications</code> has been enabled.
+ * 
+ * The notifications of the client adapter only provide the path and the node kind, so the kind 
+ * of the change is taken from the action code of the message preceding the notification. If 
+ * there's no such message the change is implied by the command (f.e. <code>add</code>).
+ * 
  * @author Cdric Chabanois (cchabanois@ifrance.com)
  */
-public class Feedback implements ISVNNotifyListener {
+public class Feedback implements ISVNNotifyListener, ISVNProgressListener {
+
+    private static final String MSG_PROGRESS = "<%s> %d entries (%d added, %d updated, %d deleted, %d conflicts), %d KB transferred, %d entries/s";
 
-    private SvnCommand svnCommand;
+    private SvnCommand     svnCommand;
+    private ChangeManifest manifest;
+    
+    private boolean    lognotifications;
+    private long       interval;
+    private long       started;
+    private long       nextreport;
+    private boolean    reported;
+    private int        command;
+    private Change     pending;
+    
+    private long       entries;
+    private long       added;
+    private long       updated;
+    private long       deleted;
+    private long       conflicts;
+    private long       bytes;
+    private long       sessionbytes;
 
     /**
      * Constructor
      * @param command
      */
     public Feedback( SvnCommand command ) {
-        this.svnCommand = command;
+        this.svnCommand     = command;
+        lognotifications    = command.getSettings().getLogNotifications();
+        interval            = TimeUnit.SECONDS.toNanos( command.getSettings().getProgressInterval() );
+        started             = System.nanoTime();
+        nextreport          = started + interval;
+        reported            = false;
+        manifest            = command.getChangeManifest();
+        if( manifest != null ) {
+            manifest.open();
+        }
     }
 
     public void setCommand( int cmd ) {
-        //Do nothing
+        command = cmd;
     }
 
     public void logMessage( String message ) {
-        svnCommand.verbose( message );
+        pending = getChange( message );
+        if( lognotifications || (pending == null) ) {
+            // messages which belong to a single resource are only logged on demand
+            svnCommand.verbose( message );
+        }
     }
 
     public void logRevision( long revision, String path ) {
@@ -99,7 +145,166 @@ public class Feedback implements ISVNNotifyListener {
     }
 
     public void onNotify( File path, SVNNodeKind nodeKind ) {
-        //Do nothing
+        Change change = pending != null ? pending : getChange( command );
+        pending       = null;
+        entries++;
+        if( change != null ) {
+            count( change );
+        }
+        if( (manifest != null) && ((change != null) || (nodeKind == SVNNodeKind.FILE)) ) {
+            // directories without a known change (f.e. the target of an update) are not recorded
+            manifest.add( path, change != null ? change : Change.updated );
+        }
+        if( (interval > 0) && (System.nanoTime() - nextreport >= 0) ) {
+            report( false );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void onProgress( SVNProgressEvent event ) {
+        long progress = event.getProgress();
+        if( progress < sessionbytes ) {
+            // the progress is provided per repository session, so a new one has been started
+            bytes += sessionbytes;
+        }
+        sessionbytes = progress;
+    }
+
+    /**
+     * Returns the number of notifications received so far.
+     * 
+     * @return   The number of notifications received so far.
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the number of bytes transferred so far.
+     * 
+     * @return   The number of bytes transferred so far.
+     */
+    public long getBytes() {
+        return bytes + sessionbytes;
+    }
+
+    /**
+     * Reports the progress of the command after it has finished. The report is only visible 
+     * with verbose output unless the progress has been reported while it was running. The 
+     * manifest of the changed paths is completed, too.
+     */
+    public void finish() {
+        if( reported || (entries > 0) ) {
+            report( ! reported );
+        }
+        if( manifest != null ) {
+            manifest.close( svnCommand.getProject() );
+            manifest = null;
+        }
+    }
+
+    /**
+     * Reports the current state of the counters.
+     * 
+     * @param verbose   <code>true</code> <=> Report it as a verbose message.
+     */
+    private void report( boolean verbose ) {
+        long now     = System.nanoTime();
+        long elapsed = Math.max( TimeUnit.NANOSECONDS.toMillis( now - started ), 1 );
+        svnCommand.info( 
+            verbose, MSG_PROGRESS, svnCommand.getCommandname(), Long.valueOf( entries ), Long.valueOf( added ), 
+            Long.valueOf( updated ), Long.valueOf( deleted ), Long.valueOf( conflicts ), 
+            Long.valueOf( (bytes + sessionbytes) / 1024 ), Long.valueOf( entries * 1000 / elapsed ) 
+        );
+        nextreport = now + interval;
+        reported   = true;
+    }
+
+    /**
+     * Counts the supplied change.
+     * 
+     * @param change   The change of a single resource. Not <code>null</code>.
+     */
+    private void count( Change change ) {
+        switch( change ) {
+        case added      : added++; break;
+        case deleted    : deleted++; break;
+        case conflicted : conflicts++; break;
+        default         : updated++; break;
+        }
+    }
+
+    /**
+     * Returns the change described by the supplied message if it's a notification about a single
+     * resource. These notifications start with an action code (f.e. <code>U</code>) or an action 
+     * of a commit (f.e. <code>Sending</code>).
+     * 
+     * @param message   The message provided by the client adapter. Not <code>null</code>.
+     * 
+     * @return   The change. <code>null</code> if the message doesn't describe a change.
+     */
+    private Change getChange( String message ) {
+        String trimmed = message.trim();
+        int    end     = trimmed.indexOf( ' ' );
+        if( end == -1 ) {
+            return null;
+        }
+        String action  = trimmed.substring( 0, end );
+        if( (action.length() <= 2) && isActionCode( action ) ) {
+            // a code consists of the text status and (optionally) the property status
+            switch( action.charAt(0) ) {
+            case 'A' : return Change.added;
+            case 'D' : return Change.deleted;
+            case 'C' : return Change.conflicted;
+            case 'E' :
+            case 'G' :
+            case 'R' :
+            case 'U' : return Change.updated;
+            default  : return null;
+            }
+        } else if( "Adding".equals( action ) ) {
+            return Change.added;
+        } else if( "Deleting".equals( action ) ) {
+            return Change.deleted;
+        } else if( "Sending".equals( action ) || "Replacing".equals( action ) || "Reverted".equals( action ) || "Restored".equals( action ) ) {
+            return Change.updated;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the change which is implied by the supplied command.
+     * 
+     * @param cmd   The command as declared by {@link ISVNNotifyListener.Command}.
+     * 
+     * @return   The change. <code>null</code> if the command doesn't imply a single kind of change.
+     */
+    private Change getChange( int cmd ) {
+        switch( cmd ) {
+        case ISVNNotifyListener.Command.ADD      :
+        case ISVNNotifyListener.Command.CHECKOUT : return Change.added;
+        case ISVNNotifyListener.Command.REMOVE   : return Change.deleted;
+        case ISVNNotifyListener.Command.REVERT   : return Change.updated;
+        default                                  : return null;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied text is an action code.
+     * 
+     * @param action   The text which might be an action code. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The supplied text is an action code.
+     */
+    private boolean isActionCode( String action ) {
+        for( int i = 0; i < action.length(); i++ ) {
+            if( "ADCEGRU".indexOf( action.charAt(i) ) == -1 ) {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
@@ -194,4 +194,12 @@ public class Ignore extends SvnCommand implements FileFilter {
         this.pattern = pattern;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( file );
+        targets.addPath( dir );
+    }
+
 }
@@ -157,4 +157,12 @@ public class Import extends SvnCommand {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        // changes to the repository might affect all other commands
+        targets.setExclusive();
+    }
+
 }
\ No newline at end of file
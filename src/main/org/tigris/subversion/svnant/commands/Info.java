@@ -287,4 +287,12 @@ public class Info extends SvnCommand {
             this.propPrefix = propPrefix + '.';
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addTarget( target );
+    }
+
 }
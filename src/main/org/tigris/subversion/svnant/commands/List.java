@@ -98,7 +98,7 @@ public class List extends SvnCommand {
     public void execute() {
 
         try {
-            ISVNDirEntry[] content = getClient().getList( url, revision, recurse );
+            ISVNDirEntry[] content = getClient().getList( url, pinRevision( revision, url ), recurse );
             int ignored = 0;
             for( int i = 0; i < content.length; i++ ) {
                 if( content[i].getNodeKind() == SVNNodeKind.DIR ) {
@@ -215,4 +215,18 @@ public class List extends SvnCommand {
         this.recurse = recurse;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addUrl( url );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    SVNRevision getRevision() {
+        return revision;
+    }
+
 }
@@ -420,4 +420,13 @@ public class Log extends SvnCommand {
         msg.appendChild( msgText );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addUrl( url );
+        targets.addPath( path );
+        targets.addPath( destFile );
+    }
+
 }
@@ -171,4 +171,15 @@ public class Mkdir extends SvnCommand {
     }
     
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        if( url != null ) {
+            // changes to the repository might affect all other commands
+            targets.setExclusive();
+        }
+        targets.addPath( path );
+    }
+
 }
\ No newline at end of file
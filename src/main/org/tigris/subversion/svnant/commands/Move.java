@@ -163,4 +163,16 @@ public class Move extends SvnCommand {
         this.force = force;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        if( (srcUrl != null) || (destUrl != null) ) {
+            // changes to the repository might affect all other commands
+            targets.setExclusive();
+        }
+        targets.addPath( srcPath );
+        targets.addPath( destPath );
+    }
+
 }
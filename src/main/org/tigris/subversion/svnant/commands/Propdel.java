@@ -117,4 +117,11 @@ public class Propdel extends SvnCommand {
         this.recurse = recurse;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+    }
+
 }
@@ -169,4 +169,14 @@ public class Propget extends SvnCommand {
         this.name = name;
     }
     
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+        targets.addUrl( url );
+        targets.addPath( file );
+    }
+
 }
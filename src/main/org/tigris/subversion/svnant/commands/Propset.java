@@ -143,4 +143,12 @@ public class Propset extends SvnCommand {
         this.recurse = recurse;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+        targets.addPath( file );
+    }
+
 }
@@ -90,6 +90,8 @@ public class ResourceSetSvnCommand extends SvnCommand {
     private List<DirSet>    dirsets;
     private SVNStatusKind   unmanageddirs;
     private boolean         scanunmanaged;
+    
+    private List<ResourceSetSvnCommand>   joined;
 
     /**
      * Initialises this base command with the supplied defaults.
@@ -122,43 +124,42 @@ public class ResourceSetSvnCommand extends SvnCommand {
         file            = null;
         filesets        = new ArrayList<FileSet>();
         dirsets         = new ArrayList<DirSet>();
+        joined          = new ArrayList<ResourceSetSvnCommand>();
     }
     
     /**
-     * Returns a list of directories from the DirSets.
+     * Collects the directories from the DirSets of the supplied command.
      * 
+     * @param source      The command providing the resources. Either this one or a joined one.
+     *                    Not <code>null</code>.
+     * @param result      A receiver for the directories. Not <code>null</code>.
      * @param unmanaged   A receiver for unmanaged directories. Not <code>null</code>.
-     * 
-     * @return   A list of directories from the DirSets. Not <code>null</code>.
      */
-    private File[] collectDirectories( List<File> unmanaged ) {
-        List<File> result = new ArrayList<File>();
-        if( dir != null ) {
-            result.add( dir );
+    private void collectDirectories( ResourceSetSvnCommand source, List<File> result, List<File> unmanaged ) {
+        if( source.dir != null ) {
+            result.add( source.dir );
         }
-        for( DirSet dirset : dirsets ) {
+        for( DirSet dirset : source.dirsets ) {
             collect( result, unmanaged, dirset );
         }
-        return result.toArray( new File[ result.size() ] );
     }
     
     /**
-     * Returns a list of files from the FileSets (potentially including directories depending
-     * on the parameterisation of the constructor).
+     * Collects the files from the FileSets of the supplied command (potentially including 
+     * directories depending on the parameterisation of the constructor).
      * 
+     * @param source      The command providing the resources. Either this one or a joined one.
+     *                    Not <code>null</code>.
+     * @param result      A receiver for the files. Not <code>null</code>.
      * @param unmanaged   A receiver for unmanaged directories. Not <code>null</code>.
-     * 
-     * @return   A list of files from the FileSets. Not <code>null</code>.
      */
-    private File[] collectFiles( List<File> unmanaged ) {
-        List<File> result = new ArrayList<File>();
-        if( file != null ) {
-            result.add( file );
+    private void collectFiles( ResourceSetSvnCommand source, List<File> result, List<File> unmanaged ) {
+        if( source.file != null ) {
+            result.add( source.file );
         }
-        for( FileSet fileset : filesets ) {
+        for( FileSet fileset : source.filesets ) {
             collect( result, unmanaged, fileset );
         }
-        return result.toArray( new File[ result.size() ] );
     }
     
     /**
@@ -273,6 +274,9 @@ public class ResourceSetSvnCommand extends SvnCommand {
         if( dir != null ) {
             SvnAntUtilities.attrIsDirectory( "dir", dir );
         }
+        for( ResourceSetSvnCommand command : joined ) {
+            command.validateAttributes();
+        }
     }
 
     /**
@@ -286,10 +290,31 @@ public class ResourceSetSvnCommand extends SvnCommand {
         // just for the start
         handleBegin();
         
+        // the resources of the joined commands are handled in their declared order
+        handleResources( this );
+        for( ResourceSetSvnCommand command : joined ) {
+            handleResources( command );
+        }
+        
+        // just the end
+        handleEnd();
+        
+    }
+    
+    /**
+     * Handles the resources of the supplied command.
+     * 
+     * @param source   The command providing the resources. Either this one or a joined one.
+     *                 Not <code>null</code>.
+     */
+    private void handleResources( ResourceSetSvnCommand source ) {
+        
         // collect all data
         List<File> unmanaged   = new ArrayList<File>();
-        File[]     directories = collectDirectories ( unmanaged );
-        File[]     files       = collectFiles       ( unmanaged );
+        List<File> directories = new ArrayList<File>();
+        List<File> files       = new ArrayList<File>();
+        collectDirectories ( source, directories, unmanaged );
+        collectFiles       ( source, files, unmanaged );
 
         // process unmanaged directories first
         for( File dir : unmanaged ) {
@@ -317,9 +342,73 @@ public class ResourceSetSvnCommand extends SvnCommand {
             }
         }
         
-        // just the end
-        handleEnd();
-        
+    }
+    
+    /**
+     * Returns <code>true</code> if the supplied command directly following this one can be joined
+     * with this one, so the resources of both commands are handled using batched client calls.
+     * The resources of a joined command are collected before the preceding commands have been 
+     * executed, so the commands must neither share a local path nor use selectors which might
+     * depend on the outcome of a preceding command. Exclusive commands (f.e. commits) can be
+     * joined anyway as the joined command is still executed exclusively.
+     *
+     * @param next   The command declared directly after this one. Not <code>null</code>.
+     *
+     * @return   <code>true</code> <=> The supplied command can be joined with this one.
+     */
+    public boolean isJoinable( ResourceSetSvnCommand next ) {
+        if( (next.getClass() != getClass()) || (recurse != next.recurse) || (! next.joined.isEmpty()) ) {
+            return false;
+        }
+        if( hasSelectors() || next.hasSelectors() || getTargets().sharesPath( next.getTargets() ) ) {
+            return false;
+        }
+        return canJoin( next );
+    }
+    
+    /**
+     * Joins the supplied command with this one, so it's no longer executed on it's own. Only
+     * allowed if {@link #isJoinable(ResourceSetSvnCommand)} returned <code>true</code>.
+     *
+     * @param next   The command which will be handled by this one. Not <code>null</code>.
+     */
+    public void join( ResourceSetSvnCommand next ) {
+        // the task might be executed repeatedly
+        if( ! joined.contains( next ) ) {
+            joined.add( next );
+        }
+    }
+    
+    /**
+     * Returns <code>true</code> if one of the FileSets or DirSets of this command uses selectors.
+     * 
+     * @return   <code>true</code> <=> The resources of this command are filtered by selectors.
+     */
+    private boolean hasSelectors() {
+        for( FileSet fileset : filesets ) {
+            if( fileset.hasSelectors() ) {
+                return true;
+            }
+        }
+        for( DirSet dirset : dirsets ) {
+            if( dirset.hasSelectors() ) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Returns <code>true</code> if the supplied command uses the same options as this one, so 
+     * it's resources can be handled together with the resources of this command. Commands which 
+     * don't override this method are never joined.
+     * 
+     * @param other   A command of the same type with the same recurse flag. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The supplied command can be joined with this one.
+     */
+    protected boolean canJoin( ResourceSetSvnCommand other ) {
+        return false;
     }
     
     /**
@@ -412,4 +501,21 @@ public class ResourceSetSvnCommand extends SvnCommand {
         dirsets.add( set );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( file );
+        targets.addPath( dir );
+        for( FileSet fileset : filesets ) {
+            targets.addPath( fileset.getDir( getProject() ) );
+        }
+        for( DirSet dirset : dirsets ) {
+            targets.addPath( dirset.getDir( getProject() ) );
+        }
+        for( ResourceSetSvnCommand command : joined ) {
+            command.collectTargets( targets );
+        }
+    }
+
 }
@@ -281,4 +281,11 @@ public class SingleInfo extends SvnCommand {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addTarget( target );
+    }
+
 }
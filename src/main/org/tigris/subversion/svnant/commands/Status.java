@@ -206,4 +206,11 @@ public class Status extends SvnCommand {
         this.urlProperty = urlProperty;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+    }
+
 }
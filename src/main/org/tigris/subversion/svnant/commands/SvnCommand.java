@@ -55,20 +55,26 @@
 package org.tigris.subversion.svnant.commands;
 
 import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
 import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
 
+import org.tigris.subversion.svnant.ResolvedSetting;
 import org.tigris.subversion.svnant.SvnFacade;
 import org.tigris.subversion.svnant.SvnTask;
+import org.tigris.subversion.svnant.metrics.BuildTrace;
+import org.tigris.subversion.svnant.metrics.FlightEvents;
+import org.tigris.subversion.svnant.metrics.MetricsClientAdapter;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 
 import java.util.Date;
-import java.util.TimeZone;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+
+import java.io.File;
 
 /**
  * All ant svn commands inherits from this abstract class
@@ -79,6 +85,7 @@ public abstract class SvnCommand extends ProjectComponent {
 
     private SvnTask             task;
     private ISVNClientAdapter   svnClient;
+    private ResolvedSetting     settings;
 
     protected abstract void validateAttributes();
 
@@ -103,6 +110,10 @@ public abstract class SvnCommand extends ProjectComponent {
     public final void executeCommand( ISVNClientAdapter svnClientAdapter ) throws BuildException {
         this.svnClient = svnClientAdapter;
         verbose( "<%s> started ...", getCommandname() );
+        String previous = MetricsClientAdapter.setCommand( getCommandname() );
+        Object     event    = FlightEvents.COMMAND.begin();
+        BuildTrace trace    = BuildTrace.getActive();
+        long       started  = trace != null ? System.nanoTime() : 0;
         try {
             validateAttributes();
             execute();
@@ -113,9 +124,60 @@ public abstract class SvnCommand extends ProjectComponent {
         } catch( Exception ex ) {
             error( "<%s> failed.", getCommandname() );
             throw new BuildException(ex);
+        } finally {
+            MetricsClientAdapter.setCommand( previous );
+            if( event != null ) {
+                SVNRevision revision = getRevision();
+                FlightEvents.COMMAND.commit( 
+                    event, getCommandname(), getTargets().toString(), revision != null ? revision.toString() : null 
+                );
+            }
+            if( trace != null ) {
+                trace.addSpan( getCommandname(), "command", started, System.nanoTime(), "targets", getTargets().toString() );
+            }
         }
     }
 
+    /**
+     * Returns the local paths and repository urls accessed by this command, so independent 
+     * commands can be executed concurrently.
+     * 
+     * @return   The targets of this command. Not <code>null</code>.
+     */
+    public final CommandTargets getTargets() {
+        CommandTargets result = new CommandTargets();
+        collectTargets( result );
+        return result;
+    }
+
+    /**
+     * Registers the local paths and repository urls accessed by this command. Commands which
+     * don't override this method are executed exclusively.
+     * 
+     * @param targets   The receiver for the targets. Not <code>null</code>.
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.setExclusive();
+    }
+
+    /**
+     * Returns the manifest which records the paths changed by this command.
+     * 
+     * @return   The manifest of the changed paths. <code>null</code> if the changes aren't recorded.
+     */
+    ChangeManifest getChangeManifest() {
+        return null;
+    }
+
+    /**
+     * Returns the revision used by this command.
+     * 
+     * @return   The revision used by this command. <code>null</code> if it doesn't use a revision.
+     */
+    SVNRevision getRevision() {
+        return null;
+    }
+
     /**
      * @return the task
      */
@@ -141,7 +203,7 @@ public abstract class SvnCommand extends ProjectComponent {
      */
     public SVNRevision getRevisionFrom( String revision ) {
         try {
-            return SVNRevision.getRevision( revision, getDateFormatter() );
+            return task.getRevisions().parse( revision );
         } catch( ParseException e ) {
             warning( "Unable to parse revision string" );
             return null;
@@ -154,16 +216,52 @@ public abstract class SvnCommand extends ProjectComponent {
      * @return a String representation of the date
      */
     public String getDateStringFor( Date aDate ) {
-        return getDateFormatter().format( aDate );
+        return task.getRevisions().format( aDate );
+    }
+
+    /**
+     * Returns the revision which has to be used to access the supplied url. HEAD is replaced by
+     * a numeric revision if the task pins HEAD.
+     * 
+     * @param revision   The requested revision. Maybe <code>null</code>.
+     * @param url        The accessed url. Maybe <code>null</code>.
+     * 
+     * @return   The revision which has to be used. Maybe <code>null</code> if <code>revision</code> is.
+     * 
+     * @throws SVNClientException   HEAD could not be resolved.
+     */
+    protected SVNRevision pinRevision( SVNRevision revision, SVNUrl url ) throws SVNClientException {
+        return task.getRevisions().pin( getClient(), revision, url );
     }
 
-    private SimpleDateFormat getDateFormatter() {
-        SimpleDateFormat formatter = new SimpleDateFormat( SvnFacade.getDateFormatter( this ) );
-        TimeZone         timezone  = SvnFacade.getDateTimezone( this );
-        if( timezone != null ) {
-            formatter.setTimeZone( timezone );
+    /**
+     * Returns the revision which has to be used to update the supplied working copy path. HEAD 
+     * is replaced by a numeric revision if the task pins HEAD.
+     * 
+     * @param revision   The requested revision. Maybe <code>null</code>.
+     * @param path       The working copy path. Not <code>null</code>.
+     * 
+     * @return   The revision which has to be used. Maybe <code>null</code> if <code>revision</code> is.
+     * 
+     * @throws SVNClientException   HEAD could not be resolved.
+     */
+    protected SVNRevision pinRevision( SVNRevision revision, File path ) throws SVNClientException {
+        if( (!task.isPinHead()) || (revision == null) || (revision.getKind() != SVNRevision.Kind.head) ) {
+            return revision;
+        }
+        return pinRevision( revision, getClient().getInfoFromWorkingCopy( path ).getUrl() );
+    }
+
+    /**
+     * Returns the settings of this command. They are resolved once per command.
+     * 
+     * @return   The settings of this command. Not <code>null</code>.
+     */
+    protected ResolvedSetting getSettings() {
+        if( settings == null ) {
+            settings = SvnFacade.getResolvedSetting( this );
         }
-        return formatter;
+        return settings;
     }
 
     /**
@@ -78,13 +78,15 @@ public class Switch extends SvnCommand {
     private SVNUrl      url;
     private SVNRevision revision = SVNRevision.HEAD;
     private boolean     recurse  = true;
+    
+    private ChangeManifest changes = new ChangeManifest();
 
     /**
      * {@inheritDoc}
      */
     public void execute() {
         try {
-            getClient().switchToUrl( path, url, revision, recurse );
+            getClient().switchToUrl( path, url, pinRevision( revision, url ), recurse );
         } catch( SVNClientException ex ) {
             throw ex( ex, MSG_CANNOT_SWITCH, url.toString() );
         }
@@ -127,4 +129,45 @@ public class Switch extends SvnCommand {
         this.url = url;
     }
     
+    /**
+     * Sets the file which receives the changed paths (one path per line, preceded by the code of the change).
+     * 
+     * @param file   The file receiving the changed paths. Not <code>null</code>.
+     */
+    public void setChangesFile( File file ) {
+        changes.setFile( file );
+    }
+
+    /**
+     * Sets the id of a Path reference which provides the changed files afterwards.
+     * 
+     * @param refid   The id of the Path reference. Neither <code>null</code> nor empty.
+     */
+    public void setChangesRefid( String refid ) {
+        changes.setRefid( refid );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+        targets.addUrl( url );
+        changes.collectTargets( targets );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    ChangeManifest getChangeManifest() {
+        return changes.isEnabled() ? changes : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    SVNRevision getRevision() {
+        return revision;
+    }
+
 }
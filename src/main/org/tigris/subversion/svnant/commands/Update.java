@@ -59,6 +59,12 @@ import org.tigris.subversion.svnclientadapter.SVNRevision;
 
 import org.tigris.subversion.svnant.SvnAntUtilities;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import java.io.File;
 
 /**
@@ -70,24 +76,166 @@ import java.io.File;
 public class Update extends ResourceSetSvnCommand {
 
     private static final String MSG_CANNOT_UPDATE = "Cannot update file or dir %s";
+    private static final String MSG_CANNOT_PIN    = "Cannot pin HEAD for file or dir %s";
+    
+    private static final String[] ADMIN_DIRS = new String[] { ".svn", "_svn" };
     private SVNRevision   revision = SVNRevision.HEAD;
+    
+    private List<File>    pending;
+    private boolean       pendingrecurse;
+    
+    private Map<File,SVNRevision> pinnedroots;
+    
+    private ChangeManifest changes = new ChangeManifest();
 
     public Update() {
         super( true, true );
+        pending         = new ArrayList<File>();
+        pendingrecurse  = false;
+        pinnedroots     = new HashMap<File,SVNRevision>();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    protected void handleBegin() {
+        pending.clear();
+        pinnedroots.clear();
     }
     
     /**
      * {@inheritDoc}
      */
     protected void handleDir( File dir, boolean recurse ) {
-        update( dir, revision, recurse );
+        schedule( dir, recurse );
     }
 
     /**
      * {@inheritDoc}
      */
     protected void handleFile( File file ) {
-        update( file, revision, false );
+        schedule( file, false );
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    protected void handleEnd() {
+        update( pending, pendingrecurse );
+        pending.clear();
+    }
+
+    /**
+     * Schedules the supplied resource for an update. Adjacent resources using the same recurse
+     * flag are updated together, so the resources are still updated in their declared order.
+     * 
+     * @param file      The resource which has to be updated. Not <code>null</code>.
+     * @param recurse   <code>true</code> <=> Perform a recursive update.
+     */
+    private void schedule( File file, boolean recurse ) {
+        if( (! pending.isEmpty()) && (pendingrecurse != recurse) ) {
+            update( pending, pendingrecurse );
+            pending.clear();
+        }
+        pending.add( file );
+        pendingrecurse = recurse;
+    }
+
+    /**
+     * Updates the supplied resources. If HEAD is pinned the resources are grouped by the pinned 
+     * revision of their repository. The revision is only resolved once per working copy root.
+     * 
+     * @param files     The resources which have to be updated. Not <code>null</code>.
+     * @param recurse   <code>true</code> <=> Perform a recursive update.
+     */
+    private void update( List<File> files, boolean recurse ) {
+        if( (!getTask().isPinHead()) || files.isEmpty() ) {
+            update( files, revision, recurse );
+            return;
+        }
+        Map<SVNRevision,List<File>> groups = new LinkedHashMap<SVNRevision,List<File>>();
+        for( File file : files ) {
+            SVNRevision pinned = pin( file );
+            List<File>  group  = groups.get( pinned );
+            if( group == null ) {
+                group = new ArrayList<File>();
+                groups.put( pinned, group );
+            }
+            group.add( file );
+        }
+        for( Map.Entry<SVNRevision,List<File>> entry : groups.entrySet() ) {
+            update( entry.getValue(), entry.getKey(), recurse );
+        }
+    }
+
+    /**
+     * Returns the pinned revision for the supplied resource. The revision is shared by all 
+     * resources of the same working copy root which is the closest directory containing an 
+     * administrative directory. Externals are working copies of their own, so they are resolved
+     * separately.
+     * 
+     * @param file   The resource which is about to be updated. Not <code>null</code>.
+     * 
+     * @return   The pinned revision. Not <code>null</code>.
+     */
+    private SVNRevision pin( File file ) {
+        File        root   = getWorkingCopyRoot( file );
+        SVNRevision result = root != null ? pinnedroots.get( root ) : null;
+        if( result == null ) {
+            try {
+                result = pinRevision( revision, file );
+            } catch( SVNClientException ex ) {
+                // updating to an unpinned HEAD would break the consistency the user asked for
+                throw ex( ex, MSG_CANNOT_PIN, file.getAbsolutePath() );
+            }
+            if( root != null ) {
+                pinnedroots.put( root, result );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the root of the working copy containing the supplied resource.
+     * 
+     * @param file   The resource which root has to be determined. Not <code>null</code>.
+     * 
+     * @return   The root of the working copy. <code>null</code> if there's no administrative
+     *           directory on the disk.
+     */
+    private File getWorkingCopyRoot( File file ) {
+        File current = file.getAbsoluteFile();
+        if( ! current.isDirectory() ) {
+            current = current.getParentFile();
+        }
+        while( current != null ) {
+            for( String admin : ADMIN_DIRS ) {
+                if( new File( current, admin ).isDirectory() ) {
+                    return current;
+                }
+            }
+            current = current.getParentFile();
+        }
+        return null;
+    }
+
+    /**
+     * Updates the supplied resources using a single call if possible.
+     * 
+     * @param files      The resources which have to be updated. Not <code>null</code>.
+     * @param revision   The revision to be used for the update. Not <code>null</code>.
+     * @param recurse    <code>true</code> <=> Perform a recursive update.
+     */
+    private void update( List<File> files, SVNRevision revision, boolean recurse ) {
+        if( files.size() == 1 ) {
+            update( files.get(0), revision, recurse );
+        } else if( ! files.isEmpty() ) {
+            try {
+                getClient().update( files.toArray( new File[ files.size() ] ), revision, recurse, false );
+            } catch( SVNClientException ex ) {
+                throw ex( ex, MSG_CANNOT_UPDATE, files );
+            }
+        }
     }
 
     /**
@@ -129,4 +277,53 @@ public class Update extends ResourceSetSvnCommand {
         super.setRecurse( recurse );
     }
 
+    /**
+     * Sets the file which receives the changed paths (one path per line, preceded by the code of the change).
+     * 
+     * @param file   The file receiving the changed paths. Not <code>null</code>.
+     */
+    public void setChangesFile( File file ) {
+        changes.setFile( file );
+    }
+
+    /**
+     * Sets the id of a Path reference which provides the changed files afterwards.
+     * 
+     * @param refid   The id of the Path reference. Neither <code>null</code> nor empty.
+     */
+    public void setChangesRefid( String refid ) {
+        changes.setRefid( refid );
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean canJoin( ResourceSetSvnCommand other ) {
+        // the changes of a joined command would be recorded by the wrong manifest
+        Update update = (Update) other;
+        return (revision != null) && revision.equals( update.revision ) && (! changes.isEnabled()) && (! update.changes.isEnabled());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        super.collectTargets( targets );
+        changes.collectTargets( targets );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    ChangeManifest getChangeManifest() {
+        return changes.isEnabled() ? changes : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    SVNRevision getRevision() {
+        return revision;
+    }
+
 }
@@ -329,4 +329,12 @@ public class WcVersion extends SvnCommand {
         }
 
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void collectTargets( CommandTargets targets ) {
+        targets.addPath( path );
+    }
+
 }
@@ -61,8 +61,6 @@ import org.tigris.subversion.svnclientadapter.SVNNodeKind;
 import org.tigris.subversion.svnclientadapter.SVNRevision;
 import org.tigris.subversion.svnclientadapter.SVNUrl;
 
-import org.tigris.subversion.svnant.SvnFacade;
-
 import org.apache.tools.ant.types.EnumeratedAttribute;
 
 import org.apache.tools.ant.BuildException;
@@ -98,7 +96,7 @@ public class Available extends SvnCondition {
      */
     protected boolean internalEval() {
 
-        ISVNClientAdapter client = SvnFacade.getClientAdapter( this );
+        ISVNClientAdapter client = getClientAdapter();
 
         // Retrieve info for the requested element
         ISVNInfo info = null;
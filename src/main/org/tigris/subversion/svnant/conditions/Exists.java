@@ -60,8 +60,6 @@ import org.tigris.subversion.svnclientadapter.SVNClientException;
 import org.tigris.subversion.svnclientadapter.SVNRevision;
 import org.tigris.subversion.svnclientadapter.SVNUrl;
 
-import org.tigris.subversion.svnant.SvnFacade;
-
 import org.apache.tools.ant.Project;
 
 import java.io.File;
@@ -92,7 +90,7 @@ public class Exists extends SvnCondition {
      */
     public boolean internalEval() {
         // Obtain a svnClient according to javahl and svnkit properties
-        ISVNClientAdapter svnClient = SvnFacade.getClientAdapter( this );
+        ISVNClientAdapter svnClient = getClientAdapter();
 
         // Retrieve info for the requested element
         ISVNInfo info = null;
@@ -54,6 +54,8 @@
  */
 package org.tigris.subversion.svnant.conditions;
 
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+
 import org.tigris.subversion.svnant.SvnFacade;
 
 import org.apache.tools.ant.types.Reference;
@@ -75,6 +77,8 @@ import org.apache.tools.ant.taskdefs.condition.ConditionBase;
  */
 public abstract class SvnCondition extends ConditionBase implements Condition {
 
+    private ISVNClientAdapter clientadapter = null;
+
     /**
      * @see SvnFacade#setRefid(ProjectComponent, org.apache.tools.ant.types.Reference)
      */
@@ -87,7 +91,27 @@ public abstract class SvnCondition extends ConditionBase implements Condition {
      */
     public boolean eval() {
         preconditions();
-        return internalEval();
+        try {
+            return internalEval();
+        } finally {
+            if( clientadapter != null ) {
+                SvnFacade.releaseClientAdapter( this, clientadapter );
+                clientadapter = null;
+            }
+        }
+    }
+    
+    /**
+     * Returns the client adapter to be used while evaluating this condition. The adapter is
+     * released as soon as the evaluation has been finished.
+     * 
+     * @return   The client adapter to be used while evaluating this condition. Not <code>null</code>.
+     */
+    protected ISVNClientAdapter getClientAdapter() {
+        if( clientadapter == null ) {
+            clientadapter = SvnFacade.getClientAdapter( this );
+        }
+        return clientadapter;
     }
     
     /**
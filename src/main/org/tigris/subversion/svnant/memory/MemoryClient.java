@@ -0,0 +1,754 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.memory;
+
+import org.tigris.subversion.svnclientadapter.ISVNConflictResolver;
+import org.tigris.subversion.svnclientadapter.ISVNDirEntry;
+import org.tigris.subversion.svnclientadapter.ISVNInfo;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
+import org.tigris.subversion.svnclientadapter.ISVNProgressListener;
+import org.tigris.subversion.svnclientadapter.ISVNPromptUserPassword;
+import org.tigris.subversion.svnclientadapter.ISVNProperty;
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNDiffSummary;
+import org.tigris.subversion.svnclientadapter.SVNKeywords;
+import org.tigris.subversion.svnclientadapter.SVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNNotificationHandler;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNStatusUnversioned;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+import org.tigris.subversion.svnclientadapter.utils.Depth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.net.MalformedURLException;
+
+/**
+ * Implementation of the operations supported by the <code>memory</code> client. The methods 
+ * carry the signatures of their counterparts in 
+ * {@link org.tigris.subversion.svnclientadapter.ISVNClientAdapter} as they are dispatched by 
+ * {@link MemoryClientAdapter}.
+ */
+public class MemoryClient {
+
+    private static final String   ADMINDIR = ".svn";
+
+    private SVNNotificationHandler   notificationhandler;
+    private String                   username;
+
+    /**
+     * Initialises this client.
+     */
+    public MemoryClient() {
+        notificationhandler = new SVNNotificationHandler() {};
+        username            = null;
+    }
+
+    public void addNotifyListener( ISVNNotifyListener listener ) {
+        notificationhandler.add( listener );
+    }
+
+    public void removeNotifyListener( ISVNNotifyListener listener ) {
+        notificationhandler.remove( listener );
+    }
+
+    public SVNNotificationHandler getNotificationHandler() {
+        return notificationhandler;
+    }
+
+    public void setUsername( String newusername ) {
+        username = newusername;
+    }
+
+    public void setPassword( String password ) {
+        // the memory repositories don't need any authentication
+    }
+
+    public void addPasswordCallback( ISVNPromptUserPassword callback ) {
+        // the memory repositories don't need any authentication
+    }
+
+    public void addConflictResolutionCallback( ISVNConflictResolver callback ) {
+        // there are no conflicts
+    }
+
+    public void setProgressListener( ISVNProgressListener progresslistener ) {
+        // the operations don't report any progress
+    }
+
+    public void setConfigDirectory( File dir ) {
+        // there's no configuration
+    }
+
+    public void cancelOperation() {
+        // the operations can't be cancelled
+    }
+
+    public void dispose() {
+        // nothing to release
+    }
+
+    public String getAdminDirectoryName() {
+        return ADMINDIR;
+    }
+
+    public boolean isAdminDirectory( String name ) {
+        return ADMINDIR.equals( name );
+    }
+
+    public void createRepository( File path, String repositorytype ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.CREATE_REPOSITORY );
+        String location = MemoryWorkingCopy.normalize( path ).getPath().replace( File.separatorChar, '/' );
+        if( !location.startsWith( "/" ) ) {
+            location = "/" + location;
+        }
+        MemoryRepository.create( toUrl( "file://" + location ).toString() );
+    }
+
+    public void checkout( SVNUrl url, File dest, SVNRevision revision, boolean recurse ) throws SVNClientException {
+        checkout( url, dest, revision, recurse ? Depth.infinity : Depth.files, false, false );
+    }
+
+    public void checkout( SVNUrl url, File dest, SVNRevision revision, int depth, boolean ignoreexternals, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.CHECKOUT );
+        MemoryRepository repository = getRepository( url );
+        long             rev        = repository.resolve( revision );
+        MemoryWorkingCopy.checkout( repository, url.toString(), dest, rev, depth, createNotifier() );
+        notificationhandler.logCompleted( String.format( "Checked out revision %d.", Long.valueOf( rev ) ) );
+    }
+
+    public long update( File file, SVNRevision revision, boolean recurse ) throws SVNClientException {
+        return update( file, revision, recurse ? Depth.infinity : Depth.files, false, false, false );
+    }
+
+    public long update( File file, SVNRevision revision, int depth, boolean setdepth, boolean ignoreexternals, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.UPDATE );
+        MemoryWorkingCopy workingcopy = getWorkingCopy( file );
+        long              result      = workingcopy.update( file, workingcopy.getRepository().resolve( revision ), depth, createNotifier() );
+        notificationhandler.logCompleted( String.format( "At revision %d.", Long.valueOf( result ) ) );
+        return result;
+    }
+
+    public long[] update( File[] files, SVNRevision revision, boolean recurse, boolean ignoreexternals ) throws SVNClientException {
+        long[] result = new long[ files.length ];
+        for( int i = 0; i < files.length; i++ ) {
+            result[i] = update( files[i], revision, recurse );
+        }
+        return result;
+    }
+
+    public void switchToUrl( File file, SVNUrl url, SVNRevision revision, boolean recurse ) throws SVNClientException {
+        switchToUrl( file, url, revision, recurse ? Depth.infinity : Depth.files, false, false, false );
+    }
+
+    public void switchToUrl( File file, SVNUrl url, SVNRevision revision, int depth, boolean setdepth, boolean ignoreexternals, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.SWITCH );
+        MemoryWorkingCopy workingcopy = getWorkingCopy( file );
+        workingcopy.switchTo( file, url.toString(), workingcopy.getRepository().resolve( revision ), depth, createNotifier() );
+    }
+
+    public void addFile( File file ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.ADD );
+        getWorkingCopy( file ).add( file, false, false, createNotifier() );
+    }
+
+    public void addDirectory( File dir, boolean recurse ) throws SVNClientException {
+        addDirectory( dir, recurse, false );
+    }
+
+    public void addDirectory( File dir, boolean recurse, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.ADD );
+        getWorkingCopy( dir ).add( dir, recurse, force, createNotifier() );
+    }
+
+    public long commit( File[] files, String message, boolean recurse ) throws SVNClientException {
+        return commit( files, message, false, recurse );
+    }
+
+    public long commit( File[] files, String message, boolean keeplocks, boolean recurse ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.COMMIT );
+        // each working copy is committed on it's own
+        Map<MemoryWorkingCopy,List<File>> groups = new LinkedHashMap<MemoryWorkingCopy,List<File>>();
+        for( File file : files ) {
+            MemoryWorkingCopy workingcopy = getWorkingCopy( file );
+            List<File>        group       = groups.get( workingcopy );
+            if( group == null ) {
+                group = new ArrayList<File>();
+                groups.put( workingcopy, group );
+            }
+            group.add( file );
+        }
+        long result = SVNRevision.SVN_INVALID_REVNUM;
+        for( Map.Entry<MemoryWorkingCopy,List<File>> group : groups.entrySet() ) {
+            result = Math.max( result, group.getKey().commit( group.getValue(), recurse, getAuthor(), message, createNotifier() ) );
+        }
+        if( result != SVNRevision.SVN_INVALID_REVNUM ) {
+            notificationhandler.logCompleted( String.format( "Committed revision %d.", Long.valueOf( result ) ) );
+        }
+        return result;
+    }
+
+    public void remove( File[] files, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.REMOVE );
+        for( File file : files ) {
+            getWorkingCopy( file ).remove( file, force, createNotifier() );
+        }
+    }
+
+    public void remove( SVNUrl[] urls, String message ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.REMOVE );
+        Map<MemoryRepository,MemoryRepository.Transaction> transactions = new LinkedHashMap<MemoryRepository,MemoryRepository.Transaction>();
+        for( SVNUrl url : urls ) {
+            MemoryRepository             repository  = getRepository( url );
+            MemoryRepository.Transaction transaction = transactions.get( repository );
+            if( transaction == null ) {
+                transaction = repository.begin( getAuthor(), message );
+                transactions.put( repository, transaction );
+            }
+            transaction.delete( repository.getPath( url.toString() ) );
+        }
+        for( MemoryRepository.Transaction transaction : transactions.values() ) {
+            transaction.commit();
+        }
+    }
+
+    public void revert( File file, boolean recurse ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.REVERT );
+        getWorkingCopy( file ).revert( file, recurse, createNotifier() );
+    }
+
+    public void cleanup( File dir ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.CLEANUP );
+        getWorkingCopy( dir );
+    }
+
+    public ISVNStatus getSingleStatus( File file ) throws SVNClientException {
+        MemoryWorkingCopy workingcopy = MemoryWorkingCopy.find( file );
+        if( workingcopy == null ) {
+            return new SVNStatusUnversioned( file );
+        }
+        return workingcopy.getStatus( file );
+    }
+
+    public ISVNStatus[] getStatus( File[] files ) throws SVNClientException {
+        ISVNStatus[] result = new ISVNStatus[ files.length ];
+        for( int i = 0; i < files.length; i++ ) {
+            result[i] = getSingleStatus( files[i] );
+        }
+        return result;
+    }
+
+    public ISVNStatus[] getStatus( File file, boolean descend, boolean getall ) throws SVNClientException {
+        MemoryWorkingCopy workingcopy = MemoryWorkingCopy.find( file );
+        if( workingcopy == null ) {
+            return new ISVNStatus[] { new SVNStatusUnversioned( file ) };
+        }
+        List<ISVNStatus> result = workingcopy.getStatus( file, descend, getall );
+        return result.toArray( new ISVNStatus[ result.size() ] );
+    }
+
+    public ISVNStatus[] getStatus( File file, boolean descend, boolean getall, boolean contactserver ) throws SVNClientException {
+        return getStatus( file, descend, getall );
+    }
+
+    public ISVNStatus[] getStatus( File file, boolean descend, boolean getall, boolean contactserver, boolean ignoreexternals ) throws SVNClientException {
+        return getStatus( file, descend, getall );
+    }
+
+    public ISVNInfo getInfo( File file ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.INFO );
+        return getWorkingCopy( file ).getInfo( file );
+    }
+
+    public ISVNInfo getInfoFromWorkingCopy( File file ) throws SVNClientException {
+        return getInfo( file );
+    }
+
+    public ISVNInfo getInfo( SVNUrl url ) throws SVNClientException {
+        return getInfo( url, SVNRevision.HEAD, SVNRevision.HEAD );
+    }
+
+    public ISVNInfo getInfo( SVNUrl url, SVNRevision revision, SVNRevision peg ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.INFO );
+        MemoryRepository      repository = getRepository( url );
+        long                  rev        = repository.resolve( revision );
+        MemoryRepository.Node node       = getNode( repository, url, rev );
+        return MemoryStatus.createRemote( repository, url.toString(), rev, node );
+    }
+
+    public ISVNDirEntry[] getList( SVNUrl url, SVNRevision revision, boolean recurse ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.LS );
+        MemoryRepository                        repository = getRepository( url );
+        long                                    rev        = repository.resolve( revision );
+        SortedMap<String,MemoryRepository.Node> tree       = repository.getTree( repository.getPath( url.toString() ), rev );
+        List<ISVNDirEntry>                      result     = new ArrayList<ISVNDirEntry>();
+        if( tree.isEmpty() ) {
+            throw new SVNClientException( String.format( "The url '%s' doesn't exist !", url ) );
+        } else if( tree.get( "" ).getKind() == SVNNodeKind.FILE ) {
+            result.add( new MemoryDirEntry( url.getLastPathSegment(), tree.get( "" ) ) );
+        } else {
+            for( String path : recurse ? MemoryRepository.descendants( tree, "" ).keySet() : MemoryRepository.children( tree, "" ) ) {
+                result.add( new MemoryDirEntry( path, tree.get( path ) ) );
+            }
+        }
+        return result.toArray( new ISVNDirEntry[ result.size() ] );
+    }
+
+    public ISVNDirEntry[] getList( SVNUrl url, SVNRevision revision, SVNRevision peg, boolean recurse ) throws SVNClientException {
+        return getList( url, revision, recurse );
+    }
+
+    public InputStream getContent( SVNUrl url, SVNRevision revision ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.CAT );
+        MemoryRepository      repository = getRepository( url );
+        MemoryRepository.Node node       = getNode( repository, url, repository.resolve( revision ) );
+        if( node.getKind() != SVNNodeKind.FILE ) {
+            throw new SVNClientException( String.format( "The url '%s' refers to a directory !", url ) );
+        }
+        return new ByteArrayInputStream( node.getContent() );
+    }
+
+    public InputStream getContent( SVNUrl url, SVNRevision revision, SVNRevision peg ) throws SVNClientException {
+        return getContent( url, revision );
+    }
+
+    public InputStream getContent( File file, SVNRevision revision ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.CAT );
+        MemoryWorkingCopy workingcopy = getWorkingCopy( file );
+        if( (revision == null) || (revision.getKind() == SVNRevision.WORKING.getKind()) ) {
+            return new ByteArrayInputStream( workingcopy.getContent( file, true ) );
+        } else if( revision.getKind() == SVNRevision.BASE.getKind() ) {
+            return new ByteArrayInputStream( workingcopy.getContent( file, false ) );
+        } else {
+            return getContent( workingcopy.getInfo( file ).getUrl(), revision );
+        }
+    }
+
+    public void mkdir( SVNUrl url, String message ) throws SVNClientException {
+        mkdir( url, false, message );
+    }
+
+    public void mkdir( SVNUrl url, boolean makeparents, String message ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.MKDIR );
+        MemoryRepository             repository  = getRepository( url );
+        MemoryRepository.Transaction transaction = repository.begin( getAuthor(), message );
+        String                       path        = repository.getPath( url.toString() );
+        if( makeparents ) {
+            createParents( repository, transaction, path );
+        }
+        transaction.mkdir( path );
+        transaction.commit();
+    }
+
+    public void mkdir( File dir ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.MKDIR );
+        getWorkingCopy( dir ).mkdir( dir, createNotifier() );
+    }
+
+    public void copy( File source, File dest ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.COPY );
+        MemoryWorkingCopy workingcopy = getWorkingCopy( source );
+        if( workingcopy != getWorkingCopy( dest ) ) {
+            throw new SVNClientException( String.format( "'%s' and '%s' belong to different working copies !", source, dest ) );
+        }
+        workingcopy.copy( source, dest, createNotifier() );
+    }
+
+    public void copy( File source, SVNUrl dest, String message ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.COPY );
+        MemoryRepository             repository  = getRepository( dest );
+        MemoryRepository.Transaction transaction = repository.begin( getAuthor(), message );
+        getWorkingCopy( source ).export( source, transaction, repository.getPath( dest.toString() ) );
+        transaction.commit();
+    }
+
+    public void copy( SVNUrl source, File dest, SVNRevision revision ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.COPY );
+        MemoryWorkingCopy workingcopy = getWorkingCopy( dest );
+        MemoryRepository  repository  = getRepository( source );
+        if( repository != workingcopy.getRepository() ) {
+            throw new SVNClientException( String.format( "'%s' and '%s' belong to different repositories !", source, dest ) );
+        }
+        workingcopy.copy( source.toString(), repository.resolve( revision ), dest, createNotifier() );
+    }
+
+    public void copy( SVNUrl source, SVNUrl dest, String message, SVNRevision revision ) throws SVNClientException {
+        copy( source, dest, message, revision, false );
+    }
+
+    public void copy( SVNUrl source, SVNUrl dest, String message, SVNRevision revision, boolean makeparents ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.COPY );
+        MemoryRepository.Transaction transaction = createCopy( source, dest, message, revision, makeparents );
+        transaction.commit();
+    }
+
+    public void move( File source, File dest, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.MOVE );
+        MemoryWorkingCopy workingcopy = getWorkingCopy( source );
+        if( workingcopy != getWorkingCopy( dest ) ) {
+            throw new SVNClientException( String.format( "'%s' and '%s' belong to different working copies !", source, dest ) );
+        }
+        workingcopy.copy( source, dest, createNotifier() );
+        workingcopy.remove( source, force, createNotifier() );
+    }
+
+    public void move( SVNUrl source, SVNUrl dest, String message, SVNRevision revision ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.MOVE );
+        MemoryRepository.Transaction transaction = createCopy( source, dest, message, revision, false );
+        transaction.delete( getRepository( source ).getPath( source.toString() ) );
+        transaction.commit();
+    }
+
+    private MemoryRepository.Transaction createCopy( SVNUrl source, SVNUrl dest, String message, SVNRevision revision, boolean makeparents ) throws SVNClientException {
+        MemoryRepository repository = getRepository( source );
+        if( repository != getRepository( dest ) ) {
+            throw new SVNClientException( String.format( "'%s' and '%s' belong to different repositories !", source, dest ) );
+        }
+        MemoryRepository.Transaction result   = repository.begin( getAuthor(), message );
+        String                       destpath = repository.getPath( dest.toString() );
+        if( makeparents ) {
+            createParents( repository, result, destpath );
+        }
+        if( repository.getNode( destpath, repository.getHeadRevision() ) != null ) {
+            // like svn we copy into existing directories
+            destpath = destpath.length() == 0 ? source.getLastPathSegment() : destpath + "/" + source.getLastPathSegment();
+        }
+        result.copy( repository.getPath( source.toString() ), repository.resolve( revision ), destpath );
+        return result;
+    }
+
+    public void doExport( SVNUrl url, File dest, SVNRevision revision, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.EXPORT );
+        MemoryRepository                        repository = getRepository( url );
+        SortedMap<String,MemoryRepository.Node> tree       = repository.getTree( repository.getPath( url.toString() ), repository.resolve( revision ) );
+        if( tree.isEmpty() ) {
+            throw new SVNClientException( String.format( "The url '%s' doesn't exist !", url ) );
+        }
+        for( Map.Entry<String,MemoryRepository.Node> node : tree.entrySet() ) {
+            File target = node.getKey().length() == 0 ? dest : new File( dest, node.getKey() );
+            MemoryWorkingCopy.writeFile( target, node.getValue().getContent(), force );
+        }
+    }
+
+    public void doExport( File source, File dest, boolean force ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.EXPORT );
+        getWorkingCopy( source ).export( source, dest, force );
+    }
+
+    public void doImport( File path, SVNUrl url, String message, boolean recurse ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.IMPORT );
+        MemoryRepository             repository  = getRepository( url );
+        MemoryRepository.Transaction transaction = repository.begin( getAuthor(), message );
+        String                       dest        = repository.getPath( url.toString() );
+        createParents( repository, transaction, dest );
+        if( path.isDirectory() ) {
+            if( (dest.length() > 0) && (repository.getNode( dest, repository.getHeadRevision() ) == null) ) {
+                transaction.mkdir( dest );
+            }
+            importDirectory( path, dest, recurse, transaction );
+        } else {
+            transaction.put( dest, MemoryWorkingCopy.readFile( path ) );
+        }
+        transaction.commit();
+    }
+
+    private void importDirectory( File dir, String dest, boolean recurse, MemoryRepository.Transaction transaction ) throws SVNClientException {
+        File[] children = dir.listFiles();
+        if( children == null ) {
+            return;
+        }
+        for( File child : children ) {
+            String path = dest.length() == 0 ? child.getName() : dest + "/" + child.getName();
+            if( child.isFile() ) {
+                transaction.put( path, MemoryWorkingCopy.readFile( child ) );
+            } else if( recurse && (!isAdminDirectory( child.getName() )) ) {
+                transaction.mkdir( path );
+                importDirectory( child, path, true, transaction );
+            }
+        }
+    }
+
+    private void createParents( MemoryRepository repository, MemoryRepository.Transaction transaction, String path ) {
+        long         head    = repository.getHeadRevision();
+        List<String> missing = new ArrayList<String>();
+        int          slash   = path.lastIndexOf( '/' );
+        while( slash > 0 ) {
+            String parent = path.substring( 0, slash );
+            if( repository.getNode( parent, head ) != null ) {
+                break;
+            }
+            missing.add( 0, parent );
+            slash = parent.lastIndexOf( '/' );
+        }
+        for( String parent : missing ) {
+            transaction.mkdir( parent );
+        }
+    }
+
+    public ISVNLogMessage[] getLogMessages( File path, SVNRevision start, SVNRevision end, boolean stoponcopy, boolean fetchchangepath, long limit ) throws SVNClientException {
+        return getLogMessages( getWorkingCopy( path ).getInfo( path ).getUrl(), SVNRevision.HEAD, start, end, stoponcopy, fetchchangepath, limit );
+    }
+
+    public ISVNLogMessage[] getLogMessages( SVNUrl url, SVNRevision peg, SVNRevision start, SVNRevision end, boolean stoponcopy, boolean fetchchangepath, long limit ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.LOG );
+        MemoryRepository     repository = getRepository( url );
+        String               path       = repository.getPath( url.toString() );
+        long                 first      = repository.resolve( start );
+        long                 last       = repository.resolve( end );
+        long                 step       = first <= last ? 1 : -1;
+        List<ISVNLogMessage> result     = new ArrayList<ISVNLogMessage>();
+        for( long rev = first; (rev != last + step) && ((limit <= 0) || (result.size() < limit)); rev += step ) {
+            MemoryRepository.Revision          revision = repository.getRevision( rev );
+            List<ISVNLogMessageChangePath>     changes  = new ArrayList<ISVNLogMessageChangePath>();
+            boolean                            relevant = false;
+            for( Map.Entry<String,Character> change : revision.changes.entrySet() ) {
+                String changed = change.getKey();
+                if( (path.length() == 0) || changed.equals( path ) || changed.startsWith( path + "/" ) || path.startsWith( changed + "/" ) ) {
+                    relevant = true;
+                }
+                changes.add( new SVNLogMessageChangePath( "/" + changed, null, null, change.getValue().charValue() ) );
+            }
+            if( relevant ) {
+                ISVNLogMessageChangePath[] changedpaths = fetchchangepath ? changes.toArray( new ISVNLogMessageChangePath[ changes.size() ] ) : new ISVNLogMessageChangePath[0];
+                result.add( new MemoryLogMessage( revision, changedpaths ) );
+            }
+        }
+        return result.toArray( new ISVNLogMessage[ result.size() ] );
+    }
+
+    public void propertySet( File file, String name, String value, boolean recurse ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.PROPSET );
+        getWorkingCopy( file ).setProperty( file, name, value, recurse, createNotifier() );
+    }
+
+    public void propertySet( File file, String name, File valuefile, boolean recurse ) throws SVNClientException, IOException {
+        propertySet( file, name, new String( MemoryWorkingCopy.readFile( valuefile ), "UTF-8" ), recurse );
+    }
+
+    public ISVNProperty propertyGet( File file, String name ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.PROPGET );
+        String value = getWorkingCopy( file ).getProperties( file ).get( name );
+        return value != null ? new MemoryProperty( name, value, file, null ) : null;
+    }
+
+    public ISVNProperty propertyGet( SVNUrl url, String name ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.PROPGET );
+        MemoryRepository      repository = getRepository( url );
+        MemoryRepository.Node node       = getNode( repository, url, repository.getHeadRevision() );
+        String                value      = node.getProperties().get( name );
+        return value != null ? new MemoryProperty( name, value, null, url ) : null;
+    }
+
+    public void propertyDel( File file, String name, boolean recurse ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.PROPDEL );
+        getWorkingCopy( file ).setProperty( file, name, null, recurse, createNotifier() );
+    }
+
+    public ISVNProperty[] getProperties( File file ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.PROPLIST );
+        List<ISVNProperty> result = new ArrayList<ISVNProperty>();
+        for( Map.Entry<String,String> property : new TreeMap<String,String>( getWorkingCopy( file ).getProperties( file ) ).entrySet() ) {
+            result.add( new MemoryProperty( property.getKey(), property.getValue(), file, null ) );
+        }
+        return result.toArray( new ISVNProperty[ result.size() ] );
+    }
+
+    public ISVNProperty[] getProperties( SVNUrl url ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.PROPLIST );
+        MemoryRepository      repository = getRepository( url );
+        MemoryRepository.Node node       = getNode( repository, url, repository.getHeadRevision() );
+        List<ISVNProperty>    result     = new ArrayList<ISVNProperty>();
+        for( Map.Entry<String,String> property : new TreeMap<String,String>( node.getProperties() ).entrySet() ) {
+            result.add( new MemoryProperty( property.getKey(), property.getValue(), null, url ) );
+        }
+        return result.toArray( new ISVNProperty[ result.size() ] );
+    }
+
+    public void addToIgnoredPatterns( File dir, String pattern ) throws SVNClientException {
+        ISVNProperty existing = propertyGet( dir, ISVNProperty.IGNORE );
+        String       value    = existing != null ? existing.getValue() : "";
+        for( String line : value.split( "[\r\n]+" ) ) {
+            if( line.trim().equals( pattern ) ) {
+                return;
+            }
+        }
+        if( (value.length() > 0) && (!value.endsWith( "\n" )) ) {
+            value = value + "\n";
+        }
+        propertySet( dir, ISVNProperty.IGNORE, value + pattern + "\n", false );
+    }
+
+    public void setKeywords( File file, SVNKeywords keywords, boolean recurse ) throws SVNClientException {
+        String value = keywords.toString().trim();
+        propertySet( file, ISVNProperty.KEYWORDS, value.length() > 0 ? value : null, recurse );
+    }
+
+    public SVNKeywords addKeywords( File file, SVNKeywords keywords ) throws SVNClientException {
+        SVNKeywords result = getKeywords( file );
+        result.setHeadUrl( result.isHeadUrl() || keywords.isHeadUrl() );
+        result.setId( result.isId() || keywords.isId() );
+        result.setLastChangedBy( result.isLastChangedBy() || keywords.isLastChangedBy() );
+        result.setLastChangedDate( result.isLastChangedDate() || keywords.isLastChangedDate() );
+        result.setLastChangedRevision( result.isLastChangedRevision() || keywords.isLastChangedRevision() );
+        setKeywords( file, result, false );
+        return result;
+    }
+
+    public SVNKeywords removeKeywords( File file, SVNKeywords keywords ) throws SVNClientException {
+        SVNKeywords result = getKeywords( file );
+        result.setHeadUrl( result.isHeadUrl() && (!keywords.isHeadUrl()) );
+        result.setId( result.isId() && (!keywords.isId()) );
+        result.setLastChangedBy( result.isLastChangedBy() && (!keywords.isLastChangedBy()) );
+        result.setLastChangedDate( result.isLastChangedDate() && (!keywords.isLastChangedDate()) );
+        result.setLastChangedRevision( result.isLastChangedRevision() && (!keywords.isLastChangedRevision()) );
+        setKeywords( file, result, false );
+        return result;
+    }
+
+    private SVNKeywords getKeywords( File file ) throws SVNClientException {
+        ISVNProperty property = propertyGet( file, ISVNProperty.KEYWORDS );
+        return property != null ? new SVNKeywords( property.getValue() ) : new SVNKeywords();
+    }
+
+    public SVNDiffSummary[] diffSummarize( SVNUrl oldurl, SVNRevision oldrevision, SVNUrl newurl, SVNRevision newrevision, int depth, boolean ignoreancestry ) throws SVNClientException {
+        notificationhandler.setCommand( ISVNNotifyListener.Command.DIFF );
+        MemoryRepository                        oldrepos = getRepository( oldurl );
+        MemoryRepository                        newrepos = getRepository( newurl );
+        SortedMap<String,MemoryRepository.Node> oldtree  = oldrepos.getTree( oldrepos.getPath( oldurl.toString() ), oldrepos.resolve( oldrevision ) );
+        SortedMap<String,MemoryRepository.Node> newtree  = newrepos.getTree( newrepos.getPath( newurl.toString() ), newrepos.resolve( newrevision ) );
+        List<SVNDiffSummary>                    result   = new ArrayList<SVNDiffSummary>();
+        for( Map.Entry<String,MemoryRepository.Node> entry : oldtree.entrySet() ) {
+            if( !newtree.containsKey( entry.getKey() ) ) {
+                result.add( new SVNDiffSummary( entry.getKey(), SVNDiffSummary.SVNDiffKind.DELETED, false, entry.getValue().getKind().toInt() ) );
+            }
+        }
+        for( Map.Entry<String,MemoryRepository.Node> entry : newtree.entrySet() ) {
+            MemoryRepository.Node oldnode = oldtree.get( entry.getKey() );
+            MemoryRepository.Node newnode = entry.getValue();
+            int                   kind    = newnode.getKind().toInt();
+            if( oldnode == null ) {
+                result.add( new SVNDiffSummary( entry.getKey(), SVNDiffSummary.SVNDiffKind.ADDED, !newnode.getProperties().isEmpty(), kind ) );
+            } else if( oldnode != newnode ) {
+                boolean props   = !oldnode.getProperties().equals( newnode.getProperties() );
+                boolean content = (newnode.getKind() == SVNNodeKind.FILE) && (!Arrays.equals( oldnode.getContent(), newnode.getContent() ));
+                if( props || content ) {
+                    SVNDiffSummary.SVNDiffKind diffkind = content ? SVNDiffSummary.SVNDiffKind.MODIFIED : SVNDiffSummary.SVNDiffKind.NORMAL;
+                    result.add( new SVNDiffSummary( entry.getKey(), diffkind, props, kind ) );
+                }
+            }
+        }
+        return result.toArray( new SVNDiffSummary[ result.size() ] );
+    }
+
+    private MemoryRepository.Node getNode( MemoryRepository repository, SVNUrl url, long revision ) throws SVNClientException {
+        MemoryRepository.Node result = repository.getNode( repository.getPath( url.toString() ), revision );
+        if( result == null ) {
+            throw new SVNClientException( String.format( "The url '%s' doesn't exist in revision %d !", url, Long.valueOf( revision ) ) );
+        }
+        return result;
+    }
+
+    private MemoryRepository getRepository( SVNUrl url ) throws SVNClientException {
+        MemoryRepository result = MemoryRepository.find( url.toString() );
+        if( result == null ) {
+            throw new SVNClientException( String.format( "There's no memory repository for the url '%s' !", url ) );
+        }
+        return result;
+    }
+
+    private MemoryWorkingCopy getWorkingCopy( File file ) throws SVNClientException {
+        MemoryWorkingCopy result = MemoryWorkingCopy.find( file );
+        if( result == null ) {
+            throw new SVNClientException( String.format( "'%s' is not a working copy !", file ) );
+        }
+        return result;
+    }
+
+    private SVNUrl toUrl( String url ) throws SVNClientException {
+        try {
+            return new SVNUrl( url );
+        } catch( MalformedURLException ex ) {
+            throw new SVNClientException( ex );
+        }
+    }
+
+    private String getAuthor() {
+        return username != null ? username : System.getProperty( "user.name" );
+    }
+
+    private MemoryWorkingCopy.Notifier createNotifier() {
+        return new MemoryWorkingCopy.Notifier() {
+            public void notify( File file, SVNNodeKind kind ) {
+                notificationhandler.notifyListenersOfChange( file.getPath(), kind );
+            }
+        };
+    }
+
+} /* ENDCLASS */
@@ -0,0 +1,250 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.memory;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.LockSupport;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Client adapter which performs all operations in memory using a {@link MemoryClient}. Each 
+ * operation is delayed by a configurable latency, so the overhead of a real client can be 
+ * simulated. Operations accessing the repository are delayed by the remote latency while all 
+ * others are delayed by the local latency. Both are zero by default and can be configured 
+ * using the system properties <code>svnant.memory.latency.local</code> and 
+ * <code>svnant.memory.latency.remote</code> (milliseconds) or by {@link #setLatency(long, long)}.
+ */
+public class MemoryClientAdapter implements InvocationHandler {
+
+    /** System property providing the local latency in milliseconds. */
+    public static final String   PROP_LOCAL_LATENCY  = "svnant.memory.latency.local";
+
+    /** System property providing the remote latency in milliseconds. */
+    public static final String   PROP_REMOTE_LATENCY = "svnant.memory.latency.remote";
+
+    /** Operations which always access the repository. */
+    private static final Set<String>   REMOTE   = new HashSet<String>( Arrays.asList( new String[] {
+        "checkout", "commit", "doImport", "getLogMessages", "switchToUrl", "update"
+    } ) );
+
+    /** Operations which only change the configuration of the client. */
+    private static final Set<String>   SETUP    = new HashSet<String>( Arrays.asList( new String[] {
+        "addNotifyListener", "removeNotifyListener", "getNotificationHandler", "setUsername", "setPassword", 
+        "addPasswordCallback", "addConflictResolutionCallback", "setProgressListener", "setConfigDirectory", 
+        "cancelOperation", "dispose", "getAdminDirectoryName", "isAdminDirectory"
+    } ) );
+
+    private static final ConcurrentMap<Method,Method>   METHODS = new ConcurrentHashMap<Method,Method>();
+
+    private static volatile long   locallatency  = getLatency( PROP_LOCAL_LATENCY );
+    private static volatile long   remotelatency = getLatency( PROP_REMOTE_LATENCY );
+
+    private MemoryClient   client;
+
+    private MemoryClientAdapter() {
+        client = new MemoryClient();
+    }
+
+    /**
+     * Creates a new client adapter working in memory.
+     * 
+     * @return   A new client adapter. Not <code>null</code>.
+     */
+    public static ISVNClientAdapter create() {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( 
+            ISVNClientAdapter.class.getClassLoader(), 
+            new Class<?>[] { ISVNClientAdapter.class }, 
+            new MemoryClientAdapter() 
+        );
+    }
+
+    /**
+     * Changes the latencies of all memory client adapters.
+     * 
+     * @param localnanos    The delay of local operations in nanoseconds. Not negative.
+     * @param remotenanos   The delay of remote operations in nanoseconds. Not negative.
+     */
+    public static void setLatency( long localnanos, long remotenanos ) {
+        locallatency  = localnanos;
+        remotelatency = remotenanos;
+    }
+
+    /**
+     * Returns the latency provided by the supplied system property.
+     * 
+     * @param property   The name of the system property. Neither <code>null</code> nor empty.
+     * 
+     * @return   The latency in nanoseconds. Not negative.
+     */
+    private static long getLatency( String property ) {
+        String value = System.getProperty( property );
+        if( value != null ) {
+            try {
+                return Math.max( 0, (long) (Double.parseDouble( value.trim() ) * 1000000.0) );
+            } catch( NumberFormatException ex ) {
+                // we're just ignoring invalid values
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+        if( method.getDeclaringClass() == Object.class ) {
+            return invokeObjectMethod( proxy, method, args );
+        }
+        Method target = getTarget( method );
+        if( !SETUP.contains( method.getName() ) ) {
+            delay( isRemote( method, args ) ? remotelatency : locallatency );
+        }
+        try {
+            return target.invoke( client, args );
+        } catch( InvocationTargetException ex ) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Returns the method of the {@link MemoryClient} implementing the supplied one.
+     * 
+     * @param method   The method of the client adapter. Not <code>null</code>.
+     * 
+     * @return   The implementing method. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The operation is not supported.
+     */
+    private static Method getTarget( Method method ) throws SVNClientException {
+        Method result = METHODS.get( method );
+        if( result == null ) {
+            try {
+                result = MemoryClient.class.getMethod( method.getName(), method.getParameterTypes() );
+            } catch( NoSuchMethodException ex ) {
+                throw new SVNClientException( String.format( "The memory client doesn't support '%s' !", method.getName() ) );
+            }
+            METHODS.put( method, result );
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied invocation accesses the repository.
+     * 
+     * @param method   The invoked method. Not <code>null</code>.
+     * @param args     The arguments of the invocation. Maybe <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The invocation accesses the repository.
+     */
+    private boolean isRemote( Method method, Object[] args ) {
+        if( REMOTE.contains( method.getName() ) ) {
+            return true;
+        }
+        if( args != null ) {
+            for( Object arg : args ) {
+                if( (arg instanceof SVNUrl) || (arg instanceof SVNUrl[]) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Blocks the current thread for the supplied time.
+     * 
+     * @param nanos   The time to wait in nanoseconds.
+     */
+    private static void delay( long nanos ) {
+        if( nanos <= 0 ) {
+            return;
+        }
+        long deadline  = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while( remaining > 0 ) {
+            // parkNanos might return early, so we need to check the remaining time
+            LockSupport.parkNanos( remaining );
+            if( Thread.interrupted() ) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private Object invokeObjectMethod( Object proxy, Method method, Object[] args ) {
+        String name = method.getName();
+        if( "equals".equals( name ) ) {
+            return Boolean.valueOf( proxy == args[0] );
+        } else if( "hashCode".equals( name ) ) {
+            return Integer.valueOf( System.identityHashCode( proxy ) );
+        } else {
+            return "MemoryClientAdapter@" + Integer.toHexString( System.identityHashCode( proxy ) );
+        }
+    }
+
+} /* ENDCLASS */
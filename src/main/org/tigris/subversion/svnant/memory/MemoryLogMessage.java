@@ -0,0 +1,163 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.memory;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A log message of a memory repository.
+ */
+final class MemoryLogMessage implements ISVNLogMessage {
+
+    private MemoryRepository.Revision    revision;
+    private ISVNLogMessageChangePath[]   changedpaths;
+    private List<ISVNLogMessage>         children;
+
+    /**
+     * Initialises this log message.
+     * 
+     * @param rev     The revision described by this message. Not <code>null</code>.
+     * @param paths   The changed paths. Not <code>null</code>.
+     */
+    MemoryLogMessage( MemoryRepository.Revision rev, ISVNLogMessageChangePath[] paths ) {
+        revision     = rev;
+        changedpaths = paths;
+        children     = new ArrayList<ISVNLogMessage>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNRevision.Number getRevision() {
+        return new SVNRevision.Number( revision.number );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getAuthor() {
+        return revision.author;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getTimeMicros() {
+        return revision.date.getTime() * 1000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getTimeMillis() {
+        return revision.date.getTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Date getDate() {
+        return revision.date;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getMessage() {
+        return revision.message;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ISVNLogMessageChangePath[] getChangedPaths() {
+        return changedpaths;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getNumberOfChildren() {
+        return children.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ISVNLogMessage[] getChildMessages() {
+        return children.toArray( new ISVNLogMessage[ children.size() ] );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addChild( ISVNLogMessage msg ) {
+        children.add( msg );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasChildren() {
+        return !children.isEmpty();
+    }
+
+} /* ENDCLASS */
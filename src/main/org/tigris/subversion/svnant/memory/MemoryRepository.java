@@ -0,0 +1,659 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.memory;
+
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A repository which only lives in memory. Each revision keeps a snapshot of the whole tree while
+ * the nodes themselves are shared between the revisions. Repositories are registered by their 
+ * root url, so each <code>memory</code> client adapter has access to them.
+ * 
+ * Repositories can be populated without a client adapter using a {@link Transaction}:
+ * 
+ * <pre>
+ *   MemoryRepository            repository  = MemoryRepository.create( "file:///repos/test" );
+ *   MemoryRepository.Transaction transaction = repository.begin( "me", "initial import" );
+ *   transaction.mkdir( "trunk" );
+ *   transaction.put( "trunk/build.xml", content );
+ *   transaction.commit();
+ * </pre>
+ */
+public class MemoryRepository {
+
+    private static final ConcurrentMap<String,MemoryRepository>   REPOSITORIES = new ConcurrentHashMap<String,MemoryRepository>();
+
+    private static final Map<String,String>                       NOPROPERTIES = Collections.emptyMap();
+
+    private String           root;
+    private String           uuid;
+    private List<Revision>   revisions;
+
+    private MemoryRepository( String rooturl ) {
+        root            = rooturl;
+        uuid            = UUID.randomUUID().toString();
+        revisions       = new ArrayList<Revision>();
+        Date                   now  = new Date();
+        SortedMap<String,Node> tree = new TreeMap<String,Node>();
+        tree.put( "", new Node( SVNNodeKind.DIR, null, NOPROPERTIES, 0, now, null ) );
+        Map<String,Character>  none = Collections.emptyMap();
+        revisions.add( new Revision( 0, now, null, null, tree, none ) );
+    }
+
+    /**
+     * Creates a new empty repository. An existing repository with the same root url is replaced.
+     * 
+     * @param rooturl   The root url of the repository. Neither <code>null</code> nor empty.
+     * 
+     * @return   The new repository. Not <code>null</code>.
+     */
+    public static MemoryRepository create( String rooturl ) {
+        MemoryRepository result = new MemoryRepository( normalize( rooturl ) );
+        REPOSITORIES.put( result.root, result );
+        return result;
+    }
+
+    /**
+     * Returns the repository containing the supplied url.
+     * 
+     * @param url   The url of a node within the repository. Not <code>null</code>.
+     * 
+     * @return   The repository containing the url. <code>null</code> if there's none.
+     */
+    public static MemoryRepository find( String url ) {
+        String candidate = normalize( url );
+        while( candidate != null ) {
+            MemoryRepository result = REPOSITORIES.get( candidate );
+            if( result != null ) {
+                return result;
+            }
+            int slash = candidate.lastIndexOf( '/' );
+            candidate = slash > 0 ? candidate.substring( 0, slash ) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Drops all repositories.
+     */
+    public static void clear() {
+        REPOSITORIES.clear();
+    }
+
+    /**
+     * Removes trailing slashes from the supplied url.
+     * 
+     * @param url   The url which has to be normalized. Not <code>null</code>.
+     * 
+     * @return   The normalized url. Not <code>null</code>.
+     */
+    static String normalize( String url ) {
+        String result = url;
+        while( result.endsWith( "/" ) ) {
+            result = result.substring( 0, result.length() - 1 );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the root url of this repository.
+     * 
+     * @return   The root url of this repository. Neither <code>null</code> nor empty.
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the unique id of this repository.
+     * 
+     * @return   The unique id of this repository. Neither <code>null</code> nor empty.
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Returns the youngest revision of this repository.
+     * 
+     * @return   The youngest revision of this repository.
+     */
+    public synchronized long getHeadRevision() {
+        return revisions.size() - 1;
+    }
+
+    /**
+     * Returns the path of the supplied url within this repository.
+     * 
+     * @param url   An url within this repository. Not <code>null</code>.
+     * 
+     * @return   The path of the url without leading slash. The root is represented by an empty 
+     *           String. Not <code>null</code>.
+     *           
+     * @throws SVNClientException   The url doesn't belong to this repository.
+     */
+    public String getPath( String url ) throws SVNClientException {
+        String normalized = normalize( url );
+        if( normalized.equals( root ) ) {
+            return "";
+        } else if( normalized.startsWith( root + "/" ) ) {
+            return normalized.substring( root.length() + 1 );
+        } else {
+            throw new SVNClientException( String.format( "The url '%s' is not part of the repository '%s' !", url, root ) );
+        }
+    }
+
+    /**
+     * Returns the url of the supplied path.
+     * 
+     * @param path   The path within this repository. Not <code>null</code>.
+     * 
+     * @return   The url of the path. Neither <code>null</code> nor empty.
+     */
+    public String getUrl( String path ) {
+        return path.length() == 0 ? root : root + "/" + path;
+    }
+
+    /**
+     * Returns the revision number denoted by the supplied revision.
+     * 
+     * @param revision   The revision which has to be resolved. <code>null</code> means HEAD.
+     * 
+     * @return   The revision number.
+     * 
+     * @throws SVNClientException   The revision doesn't exist.
+     */
+    public synchronized long resolve( SVNRevision revision ) throws SVNClientException {
+        long head = revisions.size() - 1;
+        if( revision instanceof SVNRevision.Number ) {
+            long result = ((SVNRevision.Number) revision).getNumber();
+            if( (result < 0) || (result > head) ) {
+                throw new SVNClientException( String.format( "No such revision %d !", Long.valueOf( result ) ) );
+            }
+            return result;
+        } else if( revision instanceof SVNRevision.DateSpec ) {
+            Date date   = ((SVNRevision.DateSpec) revision).getDate();
+            long result = 0;
+            for( Revision candidate : revisions ) {
+                if( candidate.date.after( date ) ) {
+                    break;
+                }
+                result = candidate.number;
+            }
+            return result;
+        } else if( (revision != null) && (revision.getKind() == SVNRevision.START.getKind()) ) {
+            return 0;
+        } else {
+            return head;
+        }
+    }
+
+    /**
+     * Returns the supplied revision.
+     * 
+     * @param number   The revision number. Must be valid.
+     * 
+     * @return   The revision. Not <code>null</code>.
+     */
+    synchronized Revision getRevision( long number ) {
+        return revisions.get( (int) number );
+    }
+
+    /**
+     * Returns the node of the supplied path.
+     * 
+     * @param path       The path of the node. Not <code>null</code>.
+     * @param revision   The revision number. Must be valid.
+     * 
+     * @return   The node or <code>null</code> if it doesn't exist.
+     */
+    public synchronized Node getNode( String path, long revision ) {
+        return revisions.get( (int) revision ).tree.get( path );
+    }
+
+    /**
+     * Returns the supplied node and all its descendants.
+     * 
+     * @param path       The path of the node. Not <code>null</code>.
+     * @param revision   The revision number. Must be valid.
+     * 
+     * @return   The nodes by their path relative to the supplied one, so the node itself is 
+     *           registered with an empty path. Empty if the node doesn't exist. Not <code>null</code>.
+     */
+    public synchronized SortedMap<String,Node> getTree( String path, long revision ) {
+        SortedMap<String,Node> tree   = revisions.get( (int) revision ).tree;
+        SortedMap<String,Node> result = new TreeMap<String,Node>();
+        Node                   node   = tree.get( path );
+        if( node != null ) {
+            result.put( "", node );
+            if( node.getKind() == SVNNodeKind.DIR ) {
+                String prefix = path.length() == 0 ? "" : path + "/";
+                for( Map.Entry<String,Node> entry : descendants( tree, path ).entrySet() ) {
+                    result.put( entry.getKey().substring( prefix.length() ), entry.getValue() );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all descendants of the supplied path.
+     * 
+     * @param tree   The tree providing the nodes. Not <code>null</code>.
+     * @param path   The path of the parental directory. Not <code>null</code>.
+     * 
+     * @return   A view on the descendants. Not <code>null</code>.
+     */
+    static <T> SortedMap<String,T> descendants( SortedMap<String,T> tree, String path ) {
+        if( path.length() == 0 ) {
+            return tree.tailMap( "\0" );
+        } else {
+            // '0' directly follows '/' so the range covers exactly the children
+            return tree.subMap( path + "/", path + "0" );
+        }
+    }
+
+    /**
+     * Returns the immediate children of the supplied path. Descendants are skipped without 
+     * iterating them, so the costs only depend on the number of children.
+     * 
+     * @param tree   The tree providing the entries. Not <code>null</code>.
+     * @param path   The path of the parental directory. Not <code>null</code>.
+     * 
+     * @return   The paths of the children in their natural order. Not <code>null</code>.
+     */
+    static <T> List<String> children( SortedMap<String,T> tree, String path ) {
+        List<String>        result = new ArrayList<String>();
+        String              prefix = path.length() == 0 ? "" : path + "/";
+        SortedMap<String,T> range = descendants( tree, path );
+        while( !range.isEmpty() ) {
+            String key   = range.firstKey();
+            int    slash = key.indexOf( '/', prefix.length() );
+            if( slash == -1 ) {
+                result.add( key );
+                range = range.tailMap( key + "\0" );
+            } else {
+                // skip the descendants of the child
+                range = range.tailMap( key.substring( 0, slash ) + "0" );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Begins a new transaction.
+     * 
+     * @param author    The author of the changes. Maybe <code>null</code>.
+     * @param message   The log message. Maybe <code>null</code>.
+     * 
+     * @return   The transaction collecting the changes. Not <code>null</code>.
+     */
+    public Transaction begin( String author, String message ) {
+        return new Transaction( author, message );
+    }
+
+    private static String parent( String path ) {
+        int slash = path.lastIndexOf( '/' );
+        return slash == -1 ? "" : path.substring( 0, slash );
+    }
+
+    /**
+     * A node within the repository. Nodes are immutable.
+     */
+    public static final class Node {
+
+        private SVNNodeKind          kind;
+        private byte[]               content;
+        private Map<String,String>   properties;
+        private long                 revision;
+        private Date                 date;
+        private String               author;
+
+        Node( SVNNodeKind nodekind, byte[] data, Map<String,String> props, long changedrevision, Date changeddate, String changedauthor ) {
+            kind        = nodekind;
+            content     = data;
+            properties  = props;
+            revision    = changedrevision;
+            date        = changeddate;
+            author      = changedauthor;
+        }
+
+        /**
+         * Returns the kind of this node.
+         * 
+         * @return   The kind of this node. Either {@link SVNNodeKind#FILE} or {@link SVNNodeKind#DIR}.
+         */
+        public SVNNodeKind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the content of this node. The returned array must not be altered.
+         * 
+         * @return   The content of this file. <code>null</code> for directories.
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Returns the versioned properties of this node.
+         * 
+         * @return   The unmodifiable properties of this node. Not <code>null</code>.
+         */
+        public Map<String,String> getProperties() {
+            return properties;
+        }
+
+        /**
+         * Returns the revision which changed this node at last.
+         * 
+         * @return   The revision which changed this node at last.
+         */
+        public long getRevision() {
+            return revision;
+        }
+
+        /**
+         * Returns the date of the last change.
+         * 
+         * @return   The date of the last change. Not <code>null</code>.
+         */
+        public Date getDate() {
+            return date;
+        }
+
+        /**
+         * Returns the author of the last change.
+         * 
+         * @return   The author of the last change. Maybe <code>null</code>.
+         */
+        public String getAuthor() {
+            return author;
+        }
+
+    } /* ENDCLASS */
+
+    /**
+     * A committed revision.
+     */
+    static final class Revision {
+
+        long                     number;
+        Date                     date;
+        String                   author;
+        String                   message;
+        SortedMap<String,Node>   tree;
+        Map<String,Character>    changes;
+
+        Revision( long revnumber, Date revdate, String revauthor, String revmessage, SortedMap<String,Node> revtree, Map<String,Character> revchanges ) {
+            number  = revnumber;
+            date    = revdate;
+            author  = revauthor;
+            message = revmessage;
+            tree    = revtree;
+            changes = revchanges;
+        }
+
+    } /* ENDCLASS */
+
+    /**
+     * Collects changes which are committed atomically. The changes are applied in the order they
+     * have been declared.
+     */
+    public final class Transaction {
+
+        private String            author;
+        private String            message;
+        private List<Operation>   operations;
+
+        private Transaction( String txauthor, String txmessage ) {
+            author      = txauthor;
+            message     = txmessage;
+            operations  = new ArrayList<Operation>();
+        }
+
+        /**
+         * Creates a directory. The parent must exist at the time the change is applied.
+         * 
+         * @param path   The path of the new directory. Neither <code>null</code> nor empty.
+         */
+        public void mkdir( final String path ) {
+            operations.add( new Operation() {
+                void apply( SortedMap<String,Node> tree, Map<String,Character> changes, long rev, Date date ) throws SVNClientException {
+                    if( tree.containsKey( path ) ) {
+                        throw new SVNClientException( String.format( "The path '%s' already exists !", path ) );
+                    }
+                    requireDirectory( tree, parent( path ) );
+                    tree.put( path, new Node( SVNNodeKind.DIR, null, NOPROPERTIES, rev, date, author ) );
+                    changes.put( path, Character.valueOf( 'A' ) );
+                }
+            } );
+        }
+
+        /**
+         * Adds or modifies a file. The parent must exist at the time the change is applied.
+         * 
+         * @param path      The path of the file. Neither <code>null</code> nor empty.
+         * @param content   The new content. Not <code>null</code>.
+         */
+        public void put( final String path, final byte[] content ) {
+            operations.add( new Operation() {
+                void apply( SortedMap<String,Node> tree, Map<String,Character> changes, long rev, Date date ) throws SVNClientException {
+                    Node existing = tree.get( path );
+                    if( (existing != null) && (existing.kind != SVNNodeKind.FILE) ) {
+                        throw new SVNClientException( String.format( "The path '%s' is not a file !", path ) );
+                    }
+                    requireDirectory( tree, parent( path ) );
+                    Map<String,String> props = existing != null ? existing.properties : NOPROPERTIES;
+                    tree.put( path, new Node( SVNNodeKind.FILE, content, props, rev, date, author ) );
+                    change( changes, path, existing != null ? 'M' : 'A' );
+                }
+            } );
+        }
+
+        /**
+         * Changes or removes a versioned property.
+         * 
+         * @param path    The path of the node. Not <code>null</code>.
+         * @param name    The name of the property. Neither <code>null</code> nor empty.
+         * @param value   The new value. <code>null</code> removes the property.
+         */
+        public void propset( final String path, final String name, final String value ) {
+            operations.add( new Operation() {
+                void apply( SortedMap<String,Node> tree, Map<String,Character> changes, long rev, Date date ) throws SVNClientException {
+                    Node existing = tree.get( path );
+                    if( existing == null ) {
+                        throw new SVNClientException( String.format( "The path '%s' does not exist !", path ) );
+                    }
+                    Map<String,String> props = new HashMap<String,String>( existing.properties );
+                    if( value != null ) {
+                        props.put( name, value );
+                    } else {
+                        props.remove( name );
+                    }
+                    tree.put( path, new Node( existing.kind, existing.content, Collections.unmodifiableMap( props ), rev, date, author ) );
+                    change( changes, path, 'M' );
+                }
+            } );
+        }
+
+        /**
+         * Deletes a node and all its descendants.
+         * 
+         * @param path   The path of the node. Neither <code>null</code> nor empty.
+         */
+        public void delete( final String path ) {
+            operations.add( new Operation() {
+                void apply( SortedMap<String,Node> tree, Map<String,Character> changes, long rev, Date date ) throws SVNClientException {
+                    if( (path.length() == 0) || (!tree.containsKey( path )) ) {
+                        throw new SVNClientException( String.format( "The path '%s' can't be deleted !", path ) );
+                    }
+                    tree.remove( path );
+                    descendants( tree, path ).clear();
+                    changes.put( path, Character.valueOf( 'D' ) );
+                }
+            } );
+        }
+
+        /**
+         * Copies a node and all its descendants.
+         * 
+         * @param from       The path of the source. Not <code>null</code>.
+         * @param revision   The revision of the source. Must be valid.
+         * @param to         The path of the destination. Neither <code>null</code> nor empty.
+         */
+        public void copy( final String from, final long revision, final String to ) {
+            operations.add( new Operation() {
+                void apply( SortedMap<String,Node> tree, Map<String,Character> changes, long rev, Date date ) throws SVNClientException {
+                    SortedMap<String,Node> source = getTree( from, revision );
+                    if( source.isEmpty() ) {
+                        throw new SVNClientException( String.format( "The path '%s' does not exist in revision %d !", from, Long.valueOf( revision ) ) );
+                    }
+                    if( tree.containsKey( to ) ) {
+                        throw new SVNClientException( String.format( "The path '%s' already exists !", to ) );
+                    }
+                    requireDirectory( tree, parent( to ) );
+                    for( Map.Entry<String,Node> entry : source.entrySet() ) {
+                        String path = entry.getKey().length() == 0 ? to : to + "/" + entry.getKey();
+                        Node   node = entry.getValue();
+                        if( entry.getKey().length() == 0 ) {
+                            node = new Node( node.kind, node.content, node.properties, rev, date, author );
+                        }
+                        tree.put( path, node );
+                    }
+                    changes.put( to, Character.valueOf( 'A' ) );
+                }
+            } );
+        }
+
+        /**
+         * Returns <code>true</code> if there are no changes.
+         * 
+         * @return   <code>true</code> <=> There are no changes.
+         */
+        public boolean isEmpty() {
+            return operations.isEmpty();
+        }
+
+        /**
+         * Applies all changes as a new revision. Nothing is changed if one of the changes fails.
+         * 
+         * @return   The number of the new revision.
+         * 
+         * @throws SVNClientException   One of the changes could not be applied.
+         */
+        public long commit() throws SVNClientException {
+            synchronized( MemoryRepository.this ) {
+                long                   rev     = revisions.size();
+                Date                   date    = new Date();
+                SortedMap<String,Node> tree    = new TreeMap<String,Node>( revisions.get( (int) rev - 1 ).tree );
+                Map<String,Character>  changes = new LinkedHashMap<String,Character>();
+                for( Operation operation : operations ) {
+                    operation.apply( tree, changes, rev, date );
+                }
+                // all parental directories are changed, too
+                for( String path : new ArrayList<String>( changes.keySet() ) ) {
+                    while( path.length() > 0 ) {
+                        path = parent( path );
+                        Node dir = tree.get( path );
+                        tree.put( path, new Node( dir.kind, dir.content, dir.properties, rev, date, author ) );
+                    }
+                }
+                revisions.add( new Revision( rev, date, author, message, tree, Collections.unmodifiableMap( changes ) ) );
+                return rev;
+            }
+        }
+
+        private void requireDirectory( Map<String,Node> tree, String path ) throws SVNClientException {
+            Node node = tree.get( path );
+            if( (node == null) || (node.kind != SVNNodeKind.DIR) ) {
+                throw new SVNClientException( String.format( "The directory '%s' does not exist !", getUrl( path ) ) );
+            }
+        }
+
+        private void change( Map<String,Character> changes, String path, char action ) {
+            if( !changes.containsKey( path ) ) {
+                changes.put( path, Character.valueOf( action ) );
+            }
+        }
+
+    } /* ENDCLASS */
+
+    /**
+     * A single change within a transaction.
+     */
+    private abstract static class Operation {
+
+        abstract void apply( SortedMap<String,Node> tree, Map<String,Character> changes, long rev, Date date ) throws SVNClientException;
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
@@ -0,0 +1,395 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.memory;
+
+import org.tigris.subversion.svnclientadapter.ISVNInfo;
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNConflictDescriptor;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNScheduleKind;
+import org.tigris.subversion.svnclientadapter.SVNStatusKind;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+import org.tigris.subversion.svnclientadapter.utils.Depth;
+
+import java.util.Date;
+
+import java.io.File;
+
+import java.net.MalformedURLException;
+
+/**
+ * Snapshot of a node within a memory working copy or repository. It serves as status and info 
+ * at the same time as both provide more or less the same information.
+ */
+final class MemoryStatus implements ISVNStatus, ISVNInfo {
+
+    private File                    file;
+    private String                  url;
+    private MemoryRepository        repository;
+    private SVNNodeKind             kind;
+    private long                    revision;
+    private MemoryRepository.Node   node;
+    private SVNStatusKind           textstatus;
+    private SVNStatusKind           propstatus;
+    private SVNScheduleKind         schedule;
+    private boolean                 copied;
+    private String                  copyurl;
+    private long                    copyrevision;
+
+    /**
+     * Initialises this snapshot.
+     * 
+     * @param nodefile       The file within the working copy. <code>null</code> for remote nodes.
+     * @param nodeurl        The url of the node. Maybe <code>null</code> for unversioned files.
+     * @param repos          The repository of the node. Not <code>null</code>.
+     * @param nodekind       The kind of the node. Not <code>null</code>.
+     * @param rev            The revision of the node. -1 if unknown.
+     * @param base           The node within the repository. Maybe <code>null</code>.
+     * @param text           The status of the content. Not <code>null</code>.
+     * @param props          The status of the properties. Not <code>null</code>.
+     * @param schedulekind   The scheduled operation. <code>null</code> for unversioned files.
+     * @param iscopied       <code>true</code> <=> The node has been copied.
+     * @param fromurl        The url of the copy source. Maybe <code>null</code>.
+     * @param fromrev        The revision of the copy source. -1 if unknown.
+     */
+    MemoryStatus( 
+        File nodefile, String nodeurl, MemoryRepository repos, SVNNodeKind nodekind, long rev, 
+        MemoryRepository.Node base, SVNStatusKind text, SVNStatusKind props, SVNScheduleKind schedulekind, 
+        boolean iscopied, String fromurl, long fromrev 
+    ) {
+        file         = nodefile;
+        url          = nodeurl;
+        repository   = repos;
+        kind         = nodekind;
+        revision     = rev;
+        node         = base;
+        textstatus   = text;
+        propstatus   = props;
+        schedule     = schedulekind;
+        copied       = iscopied;
+        copyurl      = fromurl;
+        copyrevision = fromrev;
+    }
+
+    /**
+     * Creates a snapshot for a node of the repository.
+     * 
+     * @param repos     The repository of the node. Not <code>null</code>.
+     * @param nodeurl   The url of the node. Not <code>null</code>.
+     * @param rev       The revision of the node.
+     * @param base      The node itself. Not <code>null</code>.
+     * 
+     * @return   The snapshot of the node. Not <code>null</code>.
+     */
+    static MemoryStatus createRemote( MemoryRepository repos, String nodeurl, long rev, MemoryRepository.Node base ) {
+        SVNStatusKind props = base.getProperties().isEmpty() ? SVNStatusKind.NONE : SVNStatusKind.NORMAL;
+        return new MemoryStatus( null, nodeurl, repos, base.getKind(), rev, base, SVNStatusKind.NORMAL, props, SVNScheduleKind.NORMAL, false, null, -1 );
+    }
+
+    /**
+     * Converts the supplied String into an url.
+     * 
+     * @param str   The String which has to be converted. Maybe <code>null</code>.
+     * 
+     * @return   The url or <code>null</code> if the String is not a valid url.
+     */
+    static SVNUrl toUrl( String str ) {
+        if( str != null ) {
+            try {
+                return new SVNUrl( str );
+            } catch( MalformedURLException ex ) {
+                // the repository only contains valid urls
+            }
+        }
+        return null;
+    }
+
+    private static SVNRevision.Number toNumber( long rev ) {
+        return rev >= 0 ? new SVNRevision.Number( rev ) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getPath() {
+        return file != null ? file.getPath() : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNUrl getUrl() {
+        return toUrl( url );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlString() {
+        return url;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUuid() {
+        return repository.getUuid();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNUrl getRepository() {
+        return toUrl( repository.getRoot() );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNScheduleKind getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNNodeKind getNodeKind() {
+        return kind;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getLastCommitAuthor() {
+        return node != null ? node.getAuthor() : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNRevision.Number getRevision() {
+        return toNumber( revision );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNRevision.Number getLastChangedRevision() {
+        return node != null ? toNumber( node.getRevision() ) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Date getLastChangedDate() {
+        return node != null ? node.getDate() : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Date getLastDateTextUpdate() {
+        return getLastChangedDate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Date getLastDatePropsUpdate() {
+        return getLastChangedDate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNStatusKind getTextStatus() {
+        return textstatus;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNStatusKind getPropStatus() {
+        return propstatus;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNStatusKind getRepositoryTextStatus() {
+        return SVNStatusKind.NONE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNStatusKind getRepositoryPropStatus() {
+        return SVNStatusKind.NONE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isCopied() {
+        return copied;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNRevision.Number getCopyRev() {
+        return toNumber( copyrevision );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNUrl getCopyUrl() {
+        return toUrl( copyurl );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isWcLocked() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isSwitched() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isFileExternal() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public File getConflictNew() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public File getConflictOld() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public File getConflictWorking() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasTreeConflict() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SVNConflictDescriptor getConflictDescriptor() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getLockOwner() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Date getLockCreationDate() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getLockComment() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getDepth() {
+        return Depth.infinity;
+    }
+
+} /* ENDCLASS */
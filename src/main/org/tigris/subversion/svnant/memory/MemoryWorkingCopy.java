@@ -0,0 +1,1309 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.memory;
+
+import org.tigris.subversion.svnclientadapter.ISVNProperty;
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNScheduleKind;
+import org.tigris.subversion.svnclientadapter.SVNStatusKind;
+import org.tigris.subversion.svnclientadapter.SVNStatusUnversioned;
+import org.tigris.subversion.svnclientadapter.utils.Depth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A working copy which only lives in memory. Files of the working copy are never written to the
+ * disk, so local changes have to be applied through {@link #write(File, byte[])} and 
+ * {@link #delete(File)}. Adding a file which is unknown to the working copy takes its content 
+ * from the disk, so the usual <code>add</code> and <code>commit</code> sequences work as well.
+ * 
+ * Updates replace unmodified files and keep local modifications without merging them.
+ */
+public class MemoryWorkingCopy {
+
+    private static final ConcurrentMap<File,MemoryWorkingCopy>   WORKINGCOPIES = new ConcurrentHashMap<File,MemoryWorkingCopy>();
+
+    private static final Map<String,String>                      NOPROPERTIES  = Collections.emptyMap();
+
+    private File                      root;
+    private MemoryRepository          repository;
+    private SortedMap<String,Entry>   entries;
+
+    private MemoryWorkingCopy( File rootdir, MemoryRepository repos ) {
+        root        = rootdir;
+        repository  = repos;
+        entries     = new TreeMap<String,Entry>();
+    }
+
+    /**
+     * Returns the working copy containing the supplied file.
+     * 
+     * @param file   A file which might be part of a working copy. Not <code>null</code>.
+     * 
+     * @return   The innermost working copy containing the file. <code>null</code> if there's none.
+     */
+    public static MemoryWorkingCopy find( File file ) {
+        File current = normalize( file );
+        while( current != null ) {
+            MemoryWorkingCopy result = WORKINGCOPIES.get( current );
+            if( result != null ) {
+                return result;
+            }
+            current = current.getParentFile();
+        }
+        return null;
+    }
+
+    /**
+     * Drops all working copies.
+     */
+    public static void clear() {
+        WORKINGCOPIES.clear();
+    }
+
+    /**
+     * Returns the absolute form of the supplied file without accessing the disk.
+     * 
+     * @param file   The file which has to be normalized. Not <code>null</code>.
+     * 
+     * @return   The absolute file without '.' and '..' segments. Not <code>null</code>.
+     */
+    static File normalize( File file ) {
+        File   absolute = file.getAbsoluteFile();
+        String path     = absolute.getPath();
+        String sep      = File.separator;
+        if( (path.indexOf( sep + "." ) == -1) && (!path.endsWith( sep )) ) {
+            return absolute;
+        }
+        List<String> segments = new ArrayList<String>();
+        for( String segment : path.split( Pattern.quote( sep ) ) ) {
+            if( ".".equals( segment ) || (segment.length() == 0 && !segments.isEmpty()) ) {
+                continue;
+            } else if( "..".equals( segment ) ) {
+                if( segments.size() > 1 ) {
+                    segments.remove( segments.size() - 1 );
+                }
+            } else {
+                segments.add( segment );
+            }
+        }
+        StringBuffer buffer = new StringBuffer();
+        for( int i = 0; i < segments.size(); i++ ) {
+            if( i > 0 ) {
+                buffer.append( sep );
+            }
+            buffer.append( segments.get(i) );
+        }
+        if( segments.size() == 1 ) {
+            buffer.append( sep );
+        }
+        return new File( buffer.toString() );
+    }
+
+    /**
+     * Returns the root directory of this working copy.
+     * 
+     * @return   The root directory of this working copy. Not <code>null</code>.
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the repository of this working copy.
+     * 
+     * @return   The repository of this working copy. Not <code>null</code>.
+     */
+    public MemoryRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Changes the content of a file. Unknown files and their parental directories become 
+     * unversioned entries of this working copy.
+     * 
+     * @param file      The file which content has to be changed. Not <code>null</code>.
+     * @param content   The new content. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not part of this working copy or it's a directory.
+     */
+    public synchronized void write( File file, byte[] content ) throws SVNClientException {
+        String key   = getKey( file );
+        Entry  entry = entries.get( key );
+        if( entry == null ) {
+            createParents( key );
+            entry = new Entry( SVNNodeKind.FILE );
+            entries.put( key, entry );
+        } else if( entry.kind != SVNNodeKind.FILE ) {
+            throw new SVNClientException( String.format( "The path '%s' is a directory !", file ) );
+        }
+        entry.content = content;
+        entry.missing = false;
+    }
+
+    /**
+     * Creates an unversioned directory. Parental directories are created as well.
+     * 
+     * @param dir   The directory which has to be created. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The directory is not part of this working copy.
+     */
+    public synchronized void mkdirs( File dir ) throws SVNClientException {
+        String key = getKey( dir );
+        createParents( key );
+        if( !entries.containsKey( key ) ) {
+            entries.put( key, new Entry( SVNNodeKind.DIR ) );
+        }
+    }
+
+    /**
+     * Returns the working content of a file.
+     * 
+     * @param file   The file which content is requested. Not <code>null</code>.
+     * 
+     * @return   The content of the file. <code>null</code> if it doesn't exist.
+     * 
+     * @throws SVNClientException   The file is not part of this working copy.
+     */
+    public synchronized byte[] read( File file ) throws SVNClientException {
+        Entry entry = entries.get( getKey( file ) );
+        return (entry != null) && (!entry.missing) && (entry.schedule != SVNScheduleKind.DELETE) ? entry.content : null;
+    }
+
+    /**
+     * Deletes a file or directory without telling svn about it. Versioned entries become missing 
+     * while unversioned ones vanish.
+     * 
+     * @param file   The file which has to be removed. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not part of this working copy.
+     */
+    public synchronized void delete( File file ) throws SVNClientException {
+        String key = getKey( file );
+        for( String path : subtree( key, true ) ) {
+            Entry entry = entries.get( path );
+            if( entry.isVersioned() ) {
+                entry.missing = true;
+            } else {
+                entries.remove( path );
+            }
+        }
+    }
+
+    /**
+     * Creates a working copy by checking out the supplied url. If the destination already is
+     * a working copy of the same url it will be updated.
+     * 
+     * @param repos      The repository providing the content. Not <code>null</code>.
+     * @param url        The url which has to be checked out. Not <code>null</code>.
+     * @param dest       The root directory of the working copy. Not <code>null</code>.
+     * @param revision   The revision which has to be checked out. Must be valid.
+     * @param depth      The depth as declared by {@link Depth}.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The checkout failed.
+     */
+    static void checkout( MemoryRepository repos, String url, File dest, long revision, int depth, Notifier notifier ) throws SVNClientException {
+        File              rootdir  = normalize( dest );
+        MemoryWorkingCopy existing = WORKINGCOPIES.get( rootdir );
+        if( (existing != null) && (existing.repository == repos) ) {
+            synchronized( existing ) {
+                Entry rootentry = existing.entries.get( "" );
+                if( !MemoryRepository.normalize( url ).equals( rootentry.url ) ) {
+                    throw new SVNClientException( String.format( "'%s' is already a working copy for a different url !", dest ) );
+                }
+            }
+            existing.update( rootdir, revision, depth, notifier );
+            return;
+        }
+        SortedMap<String,MemoryRepository.Node> tree = repos.getTree( repos.getPath( url ), revision );
+        if( tree.isEmpty() ) {
+            throw new SVNClientException( String.format( "The url '%s' doesn't exist !", url ) );
+        }
+        if( tree.get( "" ).getKind() != SVNNodeKind.DIR ) {
+            throw new SVNClientException( String.format( "The url '%s' refers to a file !", url ) );
+        }
+        MemoryWorkingCopy result = new MemoryWorkingCopy( rootdir, repos );
+        synchronized( result ) {
+            String base = MemoryRepository.normalize( url );
+            for( Map.Entry<String,MemoryRepository.Node> node : tree.entrySet() ) {
+                if( isWithinDepth( node.getKey(), node.getValue().getKind(), depth ) ) {
+                    result.entries.put( node.getKey(), new Entry( join( base, node.getKey() ), revision, node.getValue() ) );
+                    notifier.notify( result.getFile( node.getKey() ), node.getValue().getKind() );
+                }
+            }
+        }
+        WORKINGCOPIES.put( rootdir, result );
+    }
+
+    /**
+     * Updates the supplied file to the supplied revision.
+     * 
+     * @param file       The file which has to be updated. Not <code>null</code>.
+     * @param revision   The revision to update to. Must be valid.
+     * @param depth      The depth as declared by {@link Depth}.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @return   The revision which has been updated to.
+     * 
+     * @throws SVNClientException   The file is not versioned.
+     */
+    synchronized long update( File file, long revision, int depth, Notifier notifier ) throws SVNClientException {
+        String key    = getKey( file );
+        Entry  target = getVersioned( key );
+        SortedMap<String,MemoryRepository.Node> tree = repository.getTree( repository.getPath( target.url ), revision );
+        for( String path : subtree( key, true ) ) {
+            String relative = relativize( key, path );
+            Entry  entry    = entries.get( path );
+            if( entry.isVersioned() && (entry.schedule == SVNScheduleKind.NORMAL) && (!tree.containsKey( relative )) ) {
+                if( entries.remove( path ) != null ) {
+                    notifier.notify( getFile( path ), entry.kind );
+                }
+            }
+        }
+        for( Map.Entry<String,MemoryRepository.Node> node : tree.entrySet() ) {
+            if( !isWithinDepth( node.getKey(), node.getValue().getKind(), depth ) ) {
+                continue;
+            }
+            String path  = key.length() == 0 ? node.getKey() : join( key, node.getKey() );
+            Entry  entry = entries.get( path );
+            if( (entry == null) || (!entry.isVersioned()) ) {
+                Entry created = new Entry( join( target.url, node.getKey() ), revision, node.getValue() );
+                if( entry != null ) {
+                    // an unversioned file keeps its content
+                    created.content = entry.content;
+                }
+                entries.put( path, created );
+                notifier.notify( getFile( path ), node.getValue().getKind() );
+            } else if( entry.schedule == SVNScheduleKind.NORMAL ) {
+                boolean changed = entry.base.getRevision() != node.getValue().getRevision();
+                if( !entry.isTextModified() ) {
+                    entry.content = node.getValue().getContent();
+                }
+                if( !entry.isPropertiesModified() ) {
+                    entry.properties = node.getValue().getProperties();
+                }
+                entry.base     = node.getValue();
+                entry.revision = revision;
+                if( changed ) {
+                    notifier.notify( getFile( path ), entry.kind );
+                }
+            }
+        }
+        return revision;
+    }
+
+    /**
+     * Changes the url of the supplied file and updates it afterwards.
+     * 
+     * @param file       The file which has to be switched. Not <code>null</code>.
+     * @param url        The new url. Not <code>null</code>.
+     * @param revision   The revision to update to. Must be valid.
+     * @param depth      The depth as declared by {@link Depth}.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not versioned or the url is not part of the repository.
+     */
+    synchronized void switchTo( File file, String url, long revision, int depth, Notifier notifier ) throws SVNClientException {
+        String key    = getKey( file );
+        String newurl = MemoryRepository.normalize( url );
+        getVersioned( key );
+        repository.getPath( newurl );
+        for( String path : subtree( key, true ) ) {
+            Entry entry = entries.get( path );
+            if( entry.isVersioned() ) {
+                entry.url = join( newurl, relativize( key, path ) );
+                if( entry.schedule == SVNScheduleKind.NORMAL ) {
+                    // the old base doesn't match the new location
+                    entry.base = repository.getNode( repository.getPath( entry.url ), revision );
+                    if( entry.base == null ) {
+                        entries.remove( path );
+                    }
+                }
+            }
+        }
+        update( file, revision, depth, notifier );
+    }
+
+    /**
+     * Schedules the supplied file for addition.
+     * 
+     * @param file        The file which has to be added. Not <code>null</code>.
+     * @param recursive   <code>true</code> <=> Add the content of directories, too.
+     * @param force       <code>true</code> <=> Don't fail if the file is already versioned.
+     * @param notifier    Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file could not be added.
+     */
+    synchronized void add( File file, boolean recursive, boolean force, Notifier notifier ) throws SVNClientException {
+        String key = getKey( file );
+        if( key.length() == 0 ) {
+            if( force ) {
+                return;
+            }
+            throw new SVNClientException( String.format( "'%s' is already under version control !", file ) );
+        }
+        Entry parent = entries.get( parent( key ) );
+        if( (parent == null) || (!parent.isVersioned()) || (parent.schedule == SVNScheduleKind.DELETE) ) {
+            throw new SVNClientException( String.format( "The parent of '%s' is not under version control !", file ) );
+        }
+        Entry entry = entries.get( key );
+        if( entry == null ) {
+            if( !file.exists() ) {
+                throw new SVNClientException( String.format( "'%s' not found !", file ) );
+            }
+            load( file, key, recursive );
+            entry = entries.get( key );
+        }
+        if( entry.isVersioned() && (entry.schedule != SVNScheduleKind.DELETE) ) {
+            if( !force ) {
+                throw new SVNClientException( String.format( "'%s' is already under version control !", file ) );
+            }
+        } else {
+            schedule( key, entry, parent.url );
+            notifier.notify( getFile( key ), entry.kind );
+        }
+        if( recursive && (entry.kind == SVNNodeKind.DIR) ) {
+            for( String path : subtree( key, false ) ) {
+                Entry child = entries.get( path );
+                if( (!child.isVersioned()) && (!isIgnored( path )) && entries.get( parent( path ) ).isVersioned() ) {
+                    schedule( path, child, entries.get( parent( path ) ).url );
+                    notifier.notify( getFile( path ), child.kind );
+                }
+            }
+        }
+    }
+
+    private void schedule( String key, Entry entry, String parenturl ) {
+        entry.url      = join( parenturl, name( key ) );
+        entry.schedule = entry.schedule == SVNScheduleKind.DELETE ? SVNScheduleKind.REPLACE : SVNScheduleKind.ADD;
+        entry.missing  = false;
+        if( entry.properties == null ) {
+            entry.properties = NOPROPERTIES;
+        }
+    }
+
+    /**
+     * Loads unversioned entries from the disk.
+     * 
+     * @param file        The file which has to be loaded. Not <code>null</code>.
+     * @param key         The key of the file. Not <code>null</code>.
+     * @param recursive   <code>true</code> <=> Load the content of directories, too.
+     * 
+     * @throws SVNClientException   Reading the file failed.
+     */
+    private void load( File file, String key, boolean recursive ) throws SVNClientException {
+        if( file.isDirectory() ) {
+            entries.put( key, new Entry( SVNNodeKind.DIR ) );
+            File[] children = file.listFiles();
+            if( recursive && (children != null) ) {
+                for( File child : children ) {
+                    if( !".svn".equals( child.getName() ) ) {
+                        load( child, join( key, child.getName() ), true );
+                    }
+                }
+            }
+        } else {
+            Entry entry   = new Entry( SVNNodeKind.FILE );
+            entry.content = readFile( file );
+            entries.put( key, entry );
+        }
+    }
+
+    /**
+     * Creates a new directory which is scheduled for addition.
+     * 
+     * @param dir        The directory which has to be created. Not <code>null</code>.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The directory already exists or the parent isn't versioned.
+     */
+    synchronized void mkdir( File dir, Notifier notifier ) throws SVNClientException {
+        String key = getKey( dir );
+        if( entries.containsKey( key ) ) {
+            throw new SVNClientException( String.format( "'%s' already exists !", dir ) );
+        }
+        Entry parent = entries.get( parent( key ) );
+        if( (parent == null) || (!parent.isVersioned()) ) {
+            throw new SVNClientException( String.format( "The parent of '%s' is not under version control !", dir ) );
+        }
+        Entry entry = new Entry( SVNNodeKind.DIR );
+        schedule( key, entry, parent.url );
+        entries.put( key, entry );
+        notifier.notify( dir, SVNNodeKind.DIR );
+    }
+
+    /**
+     * Schedules the supplied file for removal.
+     * 
+     * @param file       The file which has to be removed. Not <code>null</code>.
+     * @param force      <code>true</code> <=> Remove local modifications and unversioned files.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not versioned or locally modified.
+     */
+    synchronized void remove( File file, boolean force, Notifier notifier ) throws SVNClientException {
+        String key   = getKey( file );
+        Entry  entry = entries.get( key );
+        if( (entry == null) || ((!entry.isVersioned()) && (!force)) ) {
+            throw new SVNClientException( String.format( "'%s' is not under version control !", file ) );
+        }
+        List<String> paths = subtree( key, true );
+        if( !force ) {
+            for( String path : paths ) {
+                Entry candidate = entries.get( path );
+                if( (!candidate.isVersioned()) || candidate.isModified() || (candidate.schedule == SVNScheduleKind.ADD) ) {
+                    throw new SVNClientException( String.format( "'%s' has local modifications !", getFile( path ) ) );
+                }
+            }
+        }
+        for( String path : paths ) {
+            Entry candidate = entries.get( path );
+            if( (!candidate.isVersioned()) || (candidate.schedule == SVNScheduleKind.ADD) ) {
+                entries.remove( path );
+            } else {
+                candidate.schedule = SVNScheduleKind.DELETE;
+                candidate.content  = candidate.base.getContent();
+            }
+            notifier.notify( getFile( path ), candidate.kind );
+        }
+    }
+
+    /**
+     * Reverts all local changes of the supplied file.
+     * 
+     * @param file       The file which has to be reverted. Not <code>null</code>.
+     * @param recurse    <code>true</code> <=> Revert the content of directories, too.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not part of this working copy.
+     */
+    synchronized void revert( File file, boolean recurse, Notifier notifier ) throws SVNClientException {
+        String key = getKey( file );
+        for( String path : recurse ? subtree( key, true ) : Collections.singletonList( key ) ) {
+            Entry entry = entries.get( path );
+            if( (entry == null) || (!entry.isVersioned()) ) {
+                continue;
+            }
+            boolean changed = entry.isModified() || (entry.schedule != SVNScheduleKind.NORMAL) || entry.missing;
+            if( entry.schedule == SVNScheduleKind.ADD ) {
+                entry.schedule   = null;
+                entry.url        = null;
+                entry.base       = null;
+                entry.revision   = -1;
+                entry.copyurl    = null;
+                entry.copied     = false;
+            } else {
+                entry.schedule   = SVNScheduleKind.NORMAL;
+                entry.content    = entry.base.getContent();
+                entry.properties = entry.base.getProperties();
+                entry.missing    = false;
+            }
+            if( changed ) {
+                notifier.notify( getFile( path ), entry.kind );
+            }
+        }
+    }
+
+    /**
+     * Commits the local changes of the supplied files.
+     * 
+     * @param files      The files which changes have to be committed. Not <code>null</code>.
+     * @param recurse    <code>true</code> <=> Commit the content of directories, too.
+     * @param author     The author of the changes. Maybe <code>null</code>.
+     * @param message    The log message. Maybe <code>null</code>.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @return   The new revision or {@link org.tigris.subversion.svnclientadapter.SVNRevision#SVN_INVALID_REVNUM}
+     *           if there was nothing to commit.
+     * 
+     * @throws SVNClientException   The changes could not be committed.
+     */
+    synchronized long commit( List<File> files, boolean recurse, String author, String message, Notifier notifier ) throws SVNClientException {
+        TreeSet<String> keys = new TreeSet<String>();
+        for( File file : files ) {
+            String key = getKey( file );
+            if( recurse ) {
+                keys.addAll( subtree( key, true ) );
+            } else {
+                keys.add( key );
+            }
+        }
+        MemoryRepository.Transaction transaction = repository.begin( author, message );
+        List<String>                 committed   = new ArrayList<String>();
+        String                       skipped     = null;
+        for( String key : keys ) {
+            if( (skipped != null) && key.startsWith( skipped ) ) {
+                // the descendants of deleted directories are deleted implicitly
+                continue;
+            }
+            Entry entry = entries.get( key );
+            if( (entry == null) || (!entry.isVersioned()) || entry.missing ) {
+                continue;
+            }
+            String path = repository.getPath( entry.url );
+            if( (entry.schedule == SVNScheduleKind.DELETE) || (entry.schedule == SVNScheduleKind.REPLACE) ) {
+                checkUpToDate( key, entry, path );
+                transaction.delete( path );
+                if( entry.schedule == SVNScheduleKind.DELETE ) {
+                    skipped = key + "/";
+                }
+            }
+            if( (entry.schedule == SVNScheduleKind.ADD) || (entry.schedule == SVNScheduleKind.REPLACE) ) {
+                if( entry.copyurl != null ) {
+                    transaction.copy( repository.getPath( entry.copyurl ), entry.copyrevision, path );
+                    commitModifications( transaction, entry, path );
+                } else if( entry.copied ) {
+                    commitModifications( transaction, entry, path );
+                } else {
+                    if( entry.kind == SVNNodeKind.DIR ) {
+                        transaction.mkdir( path );
+                    } else {
+                        transaction.put( path, entry.content );
+                    }
+                    for( Map.Entry<String,String> property : entry.properties.entrySet() ) {
+                        transaction.propset( path, property.getKey(), property.getValue() );
+                    }
+                }
+            } else if( (entry.schedule == SVNScheduleKind.NORMAL) && entry.isModified() ) {
+                if( entry.kind == SVNNodeKind.FILE ) {
+                    checkUpToDate( key, entry, path );
+                }
+                commitModifications( transaction, entry, path );
+            } else if( entry.schedule == SVNScheduleKind.NORMAL ) {
+                continue;
+            }
+            committed.add( key );
+        }
+        if( transaction.isEmpty() ) {
+            return -1;
+        }
+        long revision = transaction.commit();
+        for( String key : committed ) {
+            Entry entry = entries.get( key );
+            if( entry == null ) {
+                continue;
+            }
+            if( entry.schedule == SVNScheduleKind.DELETE ) {
+                for( String path : subtree( key, true ) ) {
+                    entries.remove( path );
+                }
+            } else {
+                for( String path : entry.copyurl != null ? subtree( key, true ) : Collections.singletonList( key ) ) {
+                    Entry current     = entries.get( path );
+                    if( !current.isVersioned() ) {
+                        continue;
+                    }
+                    current.base      = repository.getNode( repository.getPath( current.url ), revision );
+                    current.revision  = revision;
+                    current.schedule  = SVNScheduleKind.NORMAL;
+                    current.copied    = false;
+                    current.copyurl   = null;
+                }
+            }
+            notifier.notify( getFile( key ), entry.kind );
+        }
+        return revision;
+    }
+
+    private void commitModifications( MemoryRepository.Transaction transaction, Entry entry, String path ) {
+        if( entry.isTextModified() ) {
+            transaction.put( path, entry.content );
+        }
+        if( entry.isPropertiesModified() ) {
+            Map<String,String> old = entry.base != null ? entry.base.getProperties() : NOPROPERTIES;
+            for( Map.Entry<String,String> property : entry.properties.entrySet() ) {
+                if( !property.getValue().equals( old.get( property.getKey() ) ) ) {
+                    transaction.propset( path, property.getKey(), property.getValue() );
+                }
+            }
+            for( String name : old.keySet() ) {
+                if( !entry.properties.containsKey( name ) ) {
+                    transaction.propset( path, name, null );
+                }
+            }
+        }
+    }
+
+    private void checkUpToDate( String key, Entry entry, String path ) throws SVNClientException {
+        MemoryRepository.Node head = repository.getNode( path, repository.getHeadRevision() );
+        if( (head == null) || (entry.base == null) || (head.getRevision() != entry.base.getRevision()) ) {
+            throw new SVNClientException( String.format( "'%s' is out of date !", getFile( key ) ) );
+        }
+    }
+
+    /**
+     * Copies a versioned file within this working copy.
+     * 
+     * @param source     The source which has to be copied. Not <code>null</code>.
+     * @param dest       The destination of the copy. Not <code>null</code>.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The source isn't versioned or the destination exists.
+     */
+    synchronized void copy( File source, File dest, Notifier notifier ) throws SVNClientException {
+        String sourcekey = getKey( source );
+        Entry  original  = getVersioned( sourcekey );
+        String destkey   = getDestination( dest );
+        String parenturl = entries.get( parent( destkey ) ).url;
+        for( String path : subtree( sourcekey, true ) ) {
+            Entry entry = entries.get( path );
+            if( (!entry.isVersioned()) || (entry.schedule == SVNScheduleKind.DELETE) ) {
+                continue;
+            }
+            String relative = relativize( sourcekey, path );
+            Entry  copy     = entry.copy();
+            copy.url        = join( join( parenturl, name( destkey ) ), relative );
+            copy.schedule   = SVNScheduleKind.ADD;
+            copy.copied     = true;
+            if( relative.length() == 0 ) {
+                copy.copyurl      = original.url;
+                copy.copyrevision = original.revision;
+            }
+            String key = join( destkey, relative );
+            entries.put( key, copy );
+            notifier.notify( getFile( key ), copy.kind );
+        }
+    }
+
+    /**
+     * Copies a node of the repository into this working copy.
+     * 
+     * @param url        The url of the node. Not <code>null</code>.
+     * @param revision   The revision of the node. Must be valid.
+     * @param dest       The destination of the copy. Not <code>null</code>.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The node doesn't exist or the destination exists.
+     */
+    synchronized void copy( String url, long revision, File dest, Notifier notifier ) throws SVNClientException {
+        SortedMap<String,MemoryRepository.Node> tree = repository.getTree( repository.getPath( url ), revision );
+        if( tree.isEmpty() ) {
+            throw new SVNClientException( String.format( "The url '%s' doesn't exist !", url ) );
+        }
+        String destkey   = getDestination( dest );
+        String parenturl = entries.get( parent( destkey ) ).url;
+        for( Map.Entry<String,MemoryRepository.Node> node : tree.entrySet() ) {
+            String relative = node.getKey();
+            Entry  copy     = new Entry( join( join( parenturl, name( destkey ) ), relative ), revision, node.getValue() );
+            copy.schedule   = SVNScheduleKind.ADD;
+            copy.copied     = true;
+            if( relative.length() == 0 ) {
+                copy.copyurl      = MemoryRepository.normalize( url );
+                copy.copyrevision = revision;
+            }
+            String key = join( destkey, relative );
+            entries.put( key, copy );
+            notifier.notify( getFile( key ), copy.kind );
+        }
+    }
+
+    private String getDestination( File dest ) throws SVNClientException {
+        String destkey = getKey( dest );
+        Entry  target  = entries.get( destkey );
+        if( (target != null) && (target.kind == SVNNodeKind.DIR) && target.isVersioned() ) {
+            throw new SVNClientException( String.format( "'%s' already exists !", dest ) );
+        }
+        if( (target != null) && target.isVersioned() ) {
+            throw new SVNClientException( String.format( "'%s' is already under version control !", dest ) );
+        }
+        Entry parent = entries.get( parent( destkey ) );
+        if( (destkey.length() == 0) || (parent == null) || (!parent.isVersioned()) ) {
+            throw new SVNClientException( String.format( "The parent of '%s' is not under version control !", dest ) );
+        }
+        return destkey;
+    }
+
+    /**
+     * Adds the working state of the supplied file to a transaction.
+     * 
+     * @param file          The file which has to be committed. Not <code>null</code>.
+     * @param transaction   The transaction receiving the changes. Not <code>null</code>.
+     * @param path          The destination path within the repository. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file isn't versioned.
+     */
+    synchronized void export( File file, MemoryRepository.Transaction transaction, String path ) throws SVNClientException {
+        String key = getKey( file );
+        getVersioned( key );
+        for( String current : subtree( key, true ) ) {
+            Entry entry = entries.get( current );
+            if( (!entry.isVersioned()) || (entry.schedule == SVNScheduleKind.DELETE) || entry.missing ) {
+                continue;
+            }
+            String dest = join( path, relativize( key, current ) );
+            if( entry.kind == SVNNodeKind.DIR ) {
+                transaction.mkdir( dest );
+            } else {
+                transaction.put( dest, entry.content );
+            }
+            for( Map.Entry<String,String> property : entry.properties.entrySet() ) {
+                transaction.propset( dest, property.getKey(), property.getValue() );
+            }
+        }
+    }
+
+    /**
+     * Writes the working state of the supplied file to the disk.
+     * 
+     * @param file    The file which has to be exported. Not <code>null</code>.
+     * @param dest    The destination on the disk. Not <code>null</code>.
+     * @param force   <code>true</code> <=> Overwrite existing files.
+     * 
+     * @throws SVNClientException   The file isn't versioned or writing failed.
+     */
+    synchronized void export( File file, File dest, boolean force ) throws SVNClientException {
+        String key = getKey( file );
+        getVersioned( key );
+        for( String current : subtree( key, true ) ) {
+            Entry entry = entries.get( current );
+            if( entry.isVersioned() && (entry.schedule != SVNScheduleKind.DELETE) && (!entry.missing) ) {
+                String relative = relativize( key, current );
+                File   target   = relative.length() == 0 ? dest : new File( dest, relative );
+                writeFile( target, entry.kind == SVNNodeKind.DIR ? null : entry.content, force );
+            }
+        }
+    }
+
+    /**
+     * Returns the status of a single file.
+     * 
+     * @param file   The file which status is requested. Not <code>null</code>.
+     * 
+     * @return   The status of the file. Not <code>null</code>.
+     */
+    synchronized ISVNStatus getStatus( File file ) {
+        String key = getRelativePath( file );
+        Entry  entry = key != null ? entries.get( key ) : null;
+        if( entry == null ) {
+            return new SVNStatusUnversioned( file );
+        }
+        return createStatus( key, entry );
+    }
+
+    /**
+     * Returns the status of a directory and its content.
+     * 
+     * @param dir       The directory which content is requested. Not <code>null</code>.
+     * @param descend   <code>true</code> <=> Include all descendants, otherwise only the children.
+     * @param all       <code>true</code> <=> Include unmodified and ignored entries.
+     * 
+     * @return   The status of the files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The directory is not part of this working copy.
+     */
+    synchronized List<ISVNStatus> getStatus( File dir, boolean descend, boolean all ) throws SVNClientException {
+        String       key    = getKey( dir );
+        List<String> paths  = new ArrayList<String>();
+        List<ISVNStatus> result = new ArrayList<ISVNStatus>();
+        if( !entries.containsKey( key ) ) {
+            result.add( new SVNStatusUnversioned( dir ) );
+            return result;
+        }
+        paths.add( key );
+        if( entries.get( key ).kind == SVNNodeKind.DIR ) {
+            paths.addAll( descend ? subtree( key, false ) : MemoryRepository.children( entries, key ) );
+        }
+        for( String path : paths ) {
+            ISVNStatus status = createStatus( path, entries.get( path ) );
+            if( all || isInteresting( status ) ) {
+                result.add( status );
+            }
+        }
+        return result;
+    }
+
+    private boolean isInteresting( ISVNStatus status ) {
+        SVNStatusKind text = status.getTextStatus();
+        if( (text == SVNStatusKind.NORMAL) || (text == SVNStatusKind.IGNORED) ) {
+            SVNStatusKind props = status.getPropStatus();
+            return (props != SVNStatusKind.NORMAL) && (props != SVNStatusKind.NONE);
+        }
+        return true;
+    }
+
+    private MemoryStatus createStatus( String key, Entry entry ) {
+        SVNStatusKind text  = null;
+        SVNStatusKind props = SVNStatusKind.NONE;
+        if( !entry.isVersioned() ) {
+            text = isIgnored( key ) ? SVNStatusKind.IGNORED : SVNStatusKind.UNVERSIONED;
+        } else if( entry.missing ) {
+            text = SVNStatusKind.MISSING;
+        } else if( entry.schedule == SVNScheduleKind.ADD ) {
+            text = SVNStatusKind.ADDED;
+        } else if( entry.schedule == SVNScheduleKind.DELETE ) {
+            text = SVNStatusKind.DELETED;
+        } else if( entry.schedule == SVNScheduleKind.REPLACE ) {
+            text = SVNStatusKind.REPLACED;
+        } else if( entry.isTextModified() ) {
+            text = SVNStatusKind.MODIFIED;
+        } else {
+            text = SVNStatusKind.NORMAL;
+        }
+        if( entry.isVersioned() ) {
+            if( entry.isPropertiesModified() ) {
+                props = SVNStatusKind.MODIFIED;
+            } else if( !entry.properties.isEmpty() ) {
+                props = SVNStatusKind.NORMAL;
+            }
+        }
+        return new MemoryStatus( 
+            getFile( key ), entry.url, repository, entry.kind, entry.revision, entry.base, text, props, 
+            entry.schedule, entry.copied, entry.copyurl, entry.copyrevision 
+        );
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied entry matches the <code>svn:ignore</code> 
+     * patterns of its parent.
+     * 
+     * @param key   The key of the entry. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The entry is ignored.
+     */
+    private boolean isIgnored( String key ) {
+        if( key.length() == 0 ) {
+            return false;
+        }
+        Entry parent = entries.get( parent( key ) );
+        if( (parent == null) || (parent.properties == null) ) {
+            return false;
+        }
+        String patterns = parent.properties.get( ISVNProperty.IGNORE );
+        if( patterns == null ) {
+            return false;
+        }
+        String name = name( key );
+        for( String pattern : patterns.split( "[\r\n]+" ) ) {
+            if( (pattern.trim().length() > 0) && matches( pattern.trim(), name ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches( String glob, String name ) {
+        StringBuffer regex = new StringBuffer();
+        for( char ch : glob.toCharArray() ) {
+            if( ch == '*' ) {
+                regex.append( ".*" );
+            } else if( ch == '?' ) {
+                regex.append( '.' );
+            } else {
+                regex.append( Pattern.quote( String.valueOf( ch ) ) );
+            }
+        }
+        return name.matches( regex.toString() );
+    }
+
+    /**
+     * Returns a snapshot of the supplied versioned file.
+     * 
+     * @param file   The file which information is requested. Not <code>null</code>.
+     * 
+     * @return   A snapshot of the file. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not versioned.
+     */
+    synchronized MemoryStatus getInfo( File file ) throws SVNClientException {
+        String key = getKey( file );
+        return createStatus( key, getVersioned( key ) );
+    }
+
+    /**
+     * Returns the content of a versioned file.
+     * 
+     * @param file      The file which content is requested. Not <code>null</code>.
+     * @param working   <code>true</code> <=> Return the working content, otherwise the base content.
+     * 
+     * @return   The content of the file. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not versioned or a directory.
+     */
+    synchronized byte[] getContent( File file, boolean working ) throws SVNClientException {
+        Entry entry = getVersioned( getKey( file ) );
+        if( entry.kind != SVNNodeKind.FILE ) {
+            throw new SVNClientException( String.format( "'%s' is not a file !", file ) );
+        }
+        byte[] result = working ? entry.content : (entry.base != null ? entry.base.getContent() : null);
+        if( result == null ) {
+            throw new SVNClientException( String.format( "'%s' has no base revision !", file ) );
+        }
+        return result;
+    }
+
+    /**
+     * Changes or removes a property of a versioned file.
+     * 
+     * @param file       The file which property has to be changed. Not <code>null</code>.
+     * @param name       The name of the property. Neither <code>null</code> nor empty.
+     * @param value      The new value. <code>null</code> removes the property.
+     * @param recurse    <code>true</code> <=> Change the content of directories, too.
+     * @param notifier   Receives the affected files. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not versioned.
+     */
+    synchronized void setProperty( File file, String name, String value, boolean recurse, Notifier notifier ) throws SVNClientException {
+        String key = getKey( file );
+        getVersioned( key );
+        for( String path : recurse ? subtree( key, true ) : Collections.singletonList( key ) ) {
+            Entry entry = entries.get( path );
+            if( (!entry.isVersioned()) || (entry.schedule == SVNScheduleKind.DELETE) ) {
+                continue;
+            }
+            Map<String,String> properties = new HashMap<String,String>( entry.properties );
+            if( value != null ) {
+                properties.put( name, value );
+            } else {
+                properties.remove( name );
+            }
+            entry.properties = Collections.unmodifiableMap( properties );
+            notifier.notify( getFile( path ), entry.kind );
+        }
+    }
+
+    /**
+     * Returns the properties of a versioned file.
+     * 
+     * @param file   The file which properties are requested. Not <code>null</code>.
+     * 
+     * @return   The working properties of the file. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The file is not versioned.
+     */
+    synchronized Map<String,String> getProperties( File file ) throws SVNClientException {
+        return getVersioned( getKey( file ) ).properties;
+    }
+
+    private Entry getVersioned( String key ) throws SVNClientException {
+        Entry entry = entries.get( key );
+        if( (entry == null) || (!entry.isVersioned()) ) {
+            throw new SVNClientException( String.format( "'%s' is not under version control !", getFile( key ) ) );
+        }
+        return entry;
+    }
+
+    private void createParents( String key ) {
+        String current = key;
+        while( current.length() > 0 ) {
+            current = parent( current );
+            if( entries.containsKey( current ) ) {
+                break;
+            }
+            entries.put( current, new Entry( SVNNodeKind.DIR ) );
+        }
+    }
+
+    /**
+     * Returns the keys of the supplied entry and its descendants.
+     * 
+     * @param key       The key of the entry. Not <code>null</code>.
+     * @param include   <code>true</code> <=> Include the entry itself.
+     * 
+     * @return   The keys in their natural order, so parents precede their children. Not <code>null</code>.
+     */
+    private List<String> subtree( String key, boolean include ) {
+        List<String> result = new ArrayList<String>();
+        if( include && entries.containsKey( key ) ) {
+            result.add( key );
+        }
+        result.addAll( MemoryRepository.descendants( entries, key ).keySet() );
+        return result;
+    }
+
+    private String getKey( File file ) throws SVNClientException {
+        String result = getRelativePath( file );
+        if( result == null ) {
+            throw new SVNClientException( String.format( "'%s' is not part of the working copy '%s' !", file, root ) );
+        }
+        return result;
+    }
+
+    private String getRelativePath( File file ) {
+        String rootpath = root.getPath();
+        String path     = normalize( file ).getPath();
+        if( path.equals( rootpath ) ) {
+            return "";
+        }
+        String prefix = rootpath.endsWith( File.separator ) ? rootpath : rootpath + File.separator;
+        if( !path.startsWith( prefix ) ) {
+            return null;
+        }
+        return path.substring( prefix.length() ).replace( File.separatorChar, '/' );
+    }
+
+    private File getFile( String key ) {
+        return key.length() == 0 ? root : new File( root, key.replace( '/', File.separatorChar ) );
+    }
+
+    private static boolean isWithinDepth( String path, SVNNodeKind kind, int depth ) {
+        if( path.length() == 0 ) {
+            return true;
+        }
+        switch( depth ) {
+        case Depth.empty        : return false;
+        case Depth.files        : return (path.indexOf( '/' ) == -1) && (kind == SVNNodeKind.FILE);
+        case Depth.immediates   : return path.indexOf( '/' ) == -1;
+        default                 : return true;
+        }
+    }
+
+    private static String join( String base, String path ) {
+        if( path.length() == 0 ) {
+            return base;
+        } else if( base.length() == 0 ) {
+            return path;
+        } else {
+            return base + "/" + path;
+        }
+    }
+
+    private static String relativize( String base, String path ) {
+        return base.length() == 0 ? path : path.substring( Math.min( path.length(), base.length() + 1 ) );
+    }
+
+    private static String parent( String key ) {
+        int slash = key.lastIndexOf( '/' );
+        return slash == -1 ? "" : key.substring( 0, slash );
+    }
+
+    private static String name( String key ) {
+        return key.substring( key.lastIndexOf( '/' ) + 1 );
+    }
+
+    /**
+     * Reads the content of a file from the disk.
+     * 
+     * @param file   The file which has to be read. Not <code>null</code>.
+     * 
+     * @return   The content of the file. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   Reading the file failed.
+     */
+    static byte[] readFile( File file ) throws SVNClientException {
+        InputStream input = null;
+        try {
+            input = new FileInputStream( file );
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[]                buffer = new byte[ 8192 ];
+            int                   read   = input.read( buffer );
+            while( read != -1 ) {
+                result.write( buffer, 0, read );
+                read = input.read( buffer );
+            }
+            return result.toByteArray();
+        } catch( IOException ex ) {
+            throw new SVNClientException( ex );
+        } finally {
+            close( input );
+        }
+    }
+
+    /**
+     * Writes a file or creates a directory on the disk.
+     * 
+     * @param file      The destination. Not <code>null</code>.
+     * @param content   The content of the file. <code>null</code> for directories.
+     * @param force     <code>true</code> <=> Overwrite existing files.
+     * 
+     * @throws SVNClientException   Writing the file failed.
+     */
+    static void writeFile( File file, byte[] content, boolean force ) throws SVNClientException {
+        if( content == null ) {
+            file.mkdirs();
+            return;
+        }
+        if( file.exists() && (!force) ) {
+            throw new SVNClientException( String.format( "'%s' already exists !", file ) );
+        }
+        file.getParentFile().mkdirs();
+        OutputStream output = null;
+        try {
+            output = new FileOutputStream( file );
+            output.write( content );
+        } catch( IOException ex ) {
+            throw new SVNClientException( ex );
+        } finally {
+            close( output );
+        }
+    }
+
+    private static void close( Closeable closeable ) {
+        if( closeable != null ) {
+            try {
+                closeable.close();
+            } catch( IOException ex ) {
+                // nothing we can do about it
+            }
+        }
+    }
+
+    /**
+     * Receives the files affected by an operation.
+     */
+    interface Notifier {
+
+        void notify( File file, SVNNodeKind kind );
+
+    } /* ENDINTERFACE */
+
+    /**
+     * The state of a single file within the working copy.
+     */
+    private static final class Entry {
+
+        private SVNNodeKind             kind;
+        private String                  url;
+        private long                    revision;
+        private MemoryRepository.Node   base;
+        private byte[]                  content;
+        private Map<String,String>      properties;
+        private SVNScheduleKind         schedule;
+        private boolean                 missing;
+        private boolean                 copied;
+        private String                  copyurl;
+        private long                    copyrevision;
+
+        /**
+         * Creates an unversioned entry.
+         */
+        Entry( SVNNodeKind nodekind ) {
+            kind         = nodekind;
+            url          = null;
+            revision     = -1;
+            base         = null;
+            content      = nodekind == SVNNodeKind.FILE ? new byte[0] : null;
+            properties   = null;
+            schedule     = null;
+            missing      = false;
+            copied       = false;
+            copyurl      = null;
+            copyrevision = -1;
+        }
+
+        /**
+         * Creates an unmodified versioned entry.
+         */
+        Entry( String nodeurl, long rev, MemoryRepository.Node node ) {
+            this( node.getKind() );
+            url         = nodeurl;
+            revision    = rev;
+            base        = node;
+            content     = node.getContent();
+            properties  = node.getProperties();
+            schedule    = SVNScheduleKind.NORMAL;
+        }
+
+        Entry copy() {
+            Entry result        = new Entry( kind );
+            result.url          = url;
+            result.revision     = revision;
+            result.base         = base;
+            result.content      = content;
+            result.properties   = properties;
+            result.schedule     = schedule;
+            result.missing      = missing;
+            result.copied       = copied;
+            result.copyurl      = copyurl;
+            result.copyrevision = copyrevision;
+            return result;
+        }
+
+        boolean isVersioned() {
+            return schedule != null;
+        }
+
+        boolean isTextModified() {
+            if( (kind != SVNNodeKind.FILE) || (content == null) ) {
+                return false;
+            }
+            byte[] basecontent = base != null ? base.getContent() : null;
+            return (content != basecontent) && (!Arrays.equals( content, basecontent ));
+        }
+
+        boolean isPropertiesModified() {
+            Map<String,String> baseproperties = base != null ? base.getProperties() : NOPROPERTIES;
+            return (properties != null) && (properties != baseproperties) && (!properties.equals( baseproperties ));
+        }
+
+        boolean isModified() {
+            return isTextModified() || isPropertiesModified();
+        }
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
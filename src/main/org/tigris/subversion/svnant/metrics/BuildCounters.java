@@ -0,0 +1,197 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import org.apache.tools.ant.Project;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the whole build, f.e. the number of executed commands or the hits of a cache. 
+ * Each counter is identified by it's name and optional labels as used by Prometheus. Counters 
+ * which names end with {@link #SECONDS} accumulate durations in nanoseconds. The counters of 
+ * the whole build are available as the Ant reference {@link #REFID}.
+ */
+public class BuildCounters {
+
+    public static final String   REFID   = "svnant.counters";
+
+    public static final String   SECONDS = "_seconds_total";
+
+    private ConcurrentMap<String,AtomicLong>   counters;
+
+    /**
+     * Initialises these counters.
+     */
+    public BuildCounters() {
+        counters = new ConcurrentHashMap<String,AtomicLong>();
+    }
+
+    /**
+     * Returns the counters of the whole build. They are created on demand.
+     * 
+     * @param project   The project which counters are requested. Not <code>null</code>.
+     * 
+     * @return   The counters of the whole build. Not <code>null</code>.
+     */
+    public static BuildCounters getCounters( Project project ) {
+        Object result = project.getReference( REFID );
+        if( !(result instanceof BuildCounters) ) {
+            synchronized( project ) {
+                result = project.getReference( REFID );
+                if( !(result instanceof BuildCounters) ) {
+                    result = new BuildCounters();
+                    project.addReference( REFID, result );
+                }
+            }
+        }
+        return (BuildCounters) result;
+    }
+
+    /**
+     * Increments a counter.
+     * 
+     * @param name     The name of the counter. Neither <code>null</code> nor empty.
+     * @param delta    The value which has to be added.
+     * @param labels   Pairs of label names and values. Not <code>null</code>.
+     */
+    public void add( String name, long delta, String ... labels ) {
+        String     key     = getKey( name, labels );
+        AtomicLong counter = counters.get( key );
+        if( counter == null ) {
+            AtomicLong created = new AtomicLong();
+            counter            = counters.putIfAbsent( key, created );
+            if( counter == null ) {
+                counter = created;
+            }
+        }
+        counter.addAndGet( delta );
+    }
+
+    /**
+     * Returns the current value of a counter.
+     * 
+     * @param name     The name of the counter. Neither <code>null</code> nor empty.
+     * @param labels   Pairs of label names and values. Not <code>null</code>.
+     * 
+     * @return   The current value of the counter.
+     */
+    public long get( String name, String ... labels ) {
+        AtomicLong counter = counters.get( getKey( name, labels ) );
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Returns the values of all counters ordered by their identifiers. An identifier consists 
+     * of the name followed by the labels in the Prometheus notation, f.e. 
+     * <code>svnant_commands_total{command="Update"}</code>.
+     * 
+     * @return   The values of all counters. Not <code>null</code>.
+     */
+    public SortedMap<String,Long> getValues() {
+        SortedMap<String,Long> result = new TreeMap<String,Long>();
+        for( Map.Entry<String,AtomicLong> entry : counters.entrySet() ) {
+            result.put( entry.getKey(), Long.valueOf( entry.getValue().get() ) );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the identifier of a counter.
+     * 
+     * @param name     The name of the counter. Neither <code>null</code> nor empty.
+     * @param labels   Pairs of label names and values. Not <code>null</code>.
+     * 
+     * @return   The identifier of the counter. Neither <code>null</code> nor empty.
+     */
+    public static String getKey( String name, String ... labels ) {
+        if( labels.length == 0 ) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder( name ).append( '{' );
+        for( int i = 0; i + 1 < labels.length; i += 2 ) {
+            if( i > 0 ) {
+                builder.append( ',' );
+            }
+            builder.append( labels[i] ).append( "=\"" );
+            String value = String.valueOf( labels[i + 1] );
+            for( int j = 0; j < value.length(); j++ ) {
+                char ch = value.charAt( j );
+                if( (ch == '\\') || (ch == '"') ) {
+                    builder.append( '\\' ).append( ch );
+                } else if( ch == '\n' ) {
+                    builder.append( "\\n" );
+                } else {
+                    builder.append( ch );
+                }
+            }
+            builder.append( '"' );
+        }
+        return builder.append( '}' ).toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        return getValues().toString();
+    }
+
+} /* ENDCLASS */
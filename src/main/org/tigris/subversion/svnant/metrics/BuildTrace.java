@@ -0,0 +1,194 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Timeline of the svn operations of a build in the Chrome Trace Event format which can be 
+ * viewed with Perfetto or <code>chrome://tracing</code>. Each operation is recorded as a span
+ * on the thread which performed it. At most one trace is active per jvm, so the operations 
+ * of sub builds are recorded as well. As long as no trace is active an operation costs a 
+ * single volatile read.
+ */
+public class BuildTrace {
+
+    private static volatile BuildTrace   active = null;
+
+    private long                     origin;
+    private Queue<String>            events;
+    private ConcurrentMap<Long,String>   threads;
+
+    private BuildTrace() {
+        origin  = System.nanoTime();
+        events  = new ConcurrentLinkedQueue<String>();
+        threads = new ConcurrentHashMap<Long,String>();
+    }
+
+    /**
+     * Returns the active trace.
+     * 
+     * @return   The active trace. <code>null</code> if no trace is active.
+     */
+    public static BuildTrace getActive() {
+        return active;
+    }
+
+    /**
+     * Starts a trace unless one is already active.
+     * 
+     * @return   The active trace. Not <code>null</code>.
+     */
+    public static synchronized BuildTrace start() {
+        if( active == null ) {
+            active = new BuildTrace();
+        }
+        return active;
+    }
+
+    /**
+     * Stops the supplied trace, so no further operations are recorded.
+     * 
+     * @param trace   The trace which has to be stopped. Not <code>null</code>.
+     */
+    public static synchronized void stop( BuildTrace trace ) {
+        if( active == trace ) {
+            active = null;
+        }
+    }
+
+    /**
+     * Records an operation of the current thread.
+     * 
+     * @param name       The name of the operation. Not <code>null</code>.
+     * @param category   The category of the operation, f.e. <code>command</code>. Not <code>null</code>.
+     * @param started    The start of the operation as provided by {@link System#nanoTime()}.
+     * @param finished   The end of the operation as provided by {@link System#nanoTime()}.
+     * @param args       Pairs of argument names and values. Not <code>null</code>.
+     */
+    public void addSpan( String name, String category, long started, long finished, String ... args ) {
+        Thread current = Thread.currentThread();
+        Long   tid     = Long.valueOf( current.getId() );
+        if( !threads.containsKey( tid ) ) {
+            threads.putIfAbsent( tid, current.getName() );
+        }
+        StringBuilder builder = new StringBuilder( 160 );
+        builder.append( "{\"name\": " ).append( TaskReport.quote( name ) );
+        builder.append( ", \"cat\": " ).append( TaskReport.quote( category ) );
+        builder.append( ", \"ph\": \"X\", \"pid\": 1, \"tid\": " ).append( tid );
+        builder.append( ", \"ts\": " ).append( micros( started - origin ) );
+        builder.append( ", \"dur\": " ).append( micros( finished - started ) );
+        if( args.length > 1 ) {
+            builder.append( ", \"args\": {" );
+            for( int i = 0; i + 1 < args.length; i += 2 ) {
+                if( i > 0 ) {
+                    builder.append( ", " );
+                }
+                builder.append( TaskReport.quote( args[i] ) ).append( ": " ).append( TaskReport.quote( args[i + 1] ) );
+            }
+            builder.append( '}' );
+        }
+        builder.append( '}' );
+        events.add( builder.toString() );
+    }
+
+    /**
+     * Writes this trace into the supplied file.
+     * 
+     * @param file   The file receiving the trace. Not <code>null</code>.
+     * 
+     * @throws IOException   Writing the file failed.
+     */
+    public void write( File file ) throws IOException {
+        Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" ) );
+        try {
+            writer.write( "{\"displayTimeUnit\": \"ms\", \"traceEvents\": [\n" );
+            writer.write( "{\"name\": \"process_name\", \"ph\": \"M\", \"pid\": 1, \"args\": {\"name\": \"ant\"}}" );
+            for( Map.Entry<Long,String> entry : threads.entrySet() ) {
+                writer.write( ",\n{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": " );
+                writer.write( String.valueOf( entry.getKey() ) );
+                writer.write( ", \"args\": {\"name\": " );
+                writer.write( TaskReport.quote( entry.getValue() ) );
+                writer.write( "}}" );
+            }
+            Iterator<String> iterator = events.iterator();
+            while( iterator.hasNext() ) {
+                writer.write( ",\n" );
+                writer.write( iterator.next() );
+            }
+            writer.write( "\n]}\n" );
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String micros( long nanos ) {
+        return String.format( Locale.US, "%.3f", Double.valueOf( nanos / 1000.0 ) );
+    }
+
+} /* ENDCLASS */
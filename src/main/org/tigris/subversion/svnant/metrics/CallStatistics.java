@@ -0,0 +1,226 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import java.util.Locale;
+
+/**
+ * Statistics about the calls of a single kind: the number of calls, the total, minimum and 
+ * maximum duration and a histogram of the durations. The histogram uses decimal buckets which
+ * upper limits are provided by {@link #getBucketLimits()}.
+ */
+public class CallStatistics {
+
+    // upper limits of the histogram buckets in nanoseconds, the last bucket is unbounded
+    private static final long[]   LIMITS = new long[] {
+        100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L
+    };
+
+    private long     count;
+    private long     total;
+    private long     min;
+    private long     max;
+    private long[]   histogram;
+
+    /**
+     * Initialises empty statistics.
+     */
+    public CallStatistics() {
+        count       = 0;
+        total       = 0;
+        min         = Long.MAX_VALUE;
+        max         = 0;
+        histogram   = new long[ LIMITS.length + 1 ];
+    }
+
+    /**
+     * Records a single call.
+     * 
+     * @param nanos   The duration of the call in nanoseconds.
+     */
+    public synchronized void record( long nanos ) {
+        count++;
+        total += nanos;
+        min    = Math.min( min, nanos );
+        max    = Math.max( max, nanos );
+        int bucket = 0;
+        while( (bucket < LIMITS.length) && (nanos >= LIMITS[ bucket ]) ) {
+            bucket++;
+        }
+        histogram[ bucket ]++;
+    }
+
+    /**
+     * Adds the supplied statistics to this one.
+     * 
+     * @param other   The statistics which have to be added. Not <code>null</code>.
+     */
+    public void add( CallStatistics other ) {
+        CallStatistics copy = other.copy();
+        synchronized( this ) {
+            count += copy.count;
+            total += copy.total;
+            min    = Math.min( min, copy.min );
+            max    = Math.max( max, copy.max );
+            for( int i = 0; i < histogram.length; i++ ) {
+                histogram[i] += copy.histogram[i];
+            }
+        }
+    }
+
+    /**
+     * Returns a consistent copy of these statistics.
+     * 
+     * @return   A consistent copy of these statistics. Not <code>null</code>.
+     */
+    public synchronized CallStatistics copy() {
+        CallStatistics result = new CallStatistics();
+        result.count          = count;
+        result.total          = total;
+        result.min            = min;
+        result.max            = max;
+        result.histogram      = histogram.clone();
+        return result;
+    }
+
+    /**
+     * Returns the number of recorded calls.
+     * 
+     * @return   The number of recorded calls.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the total duration of all calls.
+     * 
+     * @return   The total duration of all calls in nanoseconds.
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the duration of the fastest call.
+     * 
+     * @return   The duration of the fastest call in nanoseconds. 0 if there was no call.
+     */
+    public synchronized long getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    /**
+     * Returns the duration of the slowest call.
+     * 
+     * @return   The duration of the slowest call in nanoseconds.
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the number of calls per histogram bucket.
+     * 
+     * @return   The number of calls per bucket. Not <code>null</code>.
+     */
+    public synchronized long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Returns the upper limits of the histogram buckets. The last bucket has no limit.
+     * 
+     * @return   The upper limits of the buckets in nanoseconds. Not <code>null</code>.
+     */
+    public static long[] getBucketLimits() {
+        return LIMITS.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        CallStatistics copy   = copy();
+        StringBuffer   result = new StringBuffer();
+        result.append( String.format( Locale.ENGLISH, "calls=%d, total=%s, min=%s, max=%s, avg=%s", 
+            Long.valueOf( copy.count ), millis( copy.total ), millis( copy.getMin() ), millis( copy.max ), 
+            millis( copy.count > 0 ? copy.total / copy.count : 0 ) 
+        ) );
+        result.append( ", histogram=[" );
+        String separator = "";
+        for( int i = 0; i < copy.histogram.length; i++ ) {
+            if( copy.histogram[i] == 0 ) {
+                // empty buckets are just noise
+                continue;
+            }
+            result.append( separator );
+            separator = ", ";
+            if( i < LIMITS.length ) {
+                result.append( "<" ).append( millis( LIMITS[i] ) );
+            } else {
+                result.append( ">=" ).append( millis( LIMITS[ LIMITS.length - 1 ] ) );
+            }
+            result.append( ":" ).append( copy.histogram[i] );
+        }
+        result.append( "]" );
+        return result.toString();
+    }
+
+    private static String millis( long nanos ) {
+        return String.format( Locale.ENGLISH, "%.1fms", Double.valueOf( nanos / 1000000.0 ) );
+    }
+
+} /* ENDCLASS */
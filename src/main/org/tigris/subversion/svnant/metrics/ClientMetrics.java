@@ -0,0 +1,225 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import org.apache.tools.ant.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects statistics about the calls of client adapters. The calls are recorded per adapter 
+ * method and per svn command which issued them. The metrics of the whole build are available 
+ * as the Ant reference {@link #REFID}.
+ */
+public class ClientMetrics {
+
+    /** The id of the reference providing the metrics of the whole build. */
+    public static final String   REFID = "svnant.metrics";
+
+    private ConcurrentMap<String,CallStatistics>   methods;
+    private ConcurrentMap<String,CallStatistics>   commands;
+
+    /**
+     * Initialises empty metrics.
+     */
+    public ClientMetrics() {
+        methods  = new ConcurrentHashMap<String,CallStatistics>();
+        commands = new ConcurrentHashMap<String,CallStatistics>();
+    }
+
+    /**
+     * Returns the metrics of the whole build. They are created on demand.
+     * 
+     * @param project   The project which metrics are requested. Not <code>null</code>.
+     * 
+     * @return   The metrics of the whole build. Not <code>null</code>.
+     */
+    public static ClientMetrics getMetrics( Project project ) {
+        Object result = project.getReference( REFID );
+        if( !(result instanceof ClientMetrics) ) {
+            synchronized( project ) {
+                result = project.getReference( REFID );
+                if( !(result instanceof ClientMetrics) ) {
+                    result = new ClientMetrics();
+                    project.addReference( REFID, result );
+                }
+            }
+        }
+        return (ClientMetrics) result;
+    }
+
+    /**
+     * Records a single call.
+     * 
+     * @param command   The name of the command which issued the call. Not <code>null</code>.
+     * @param method    The name of the adapter method. Not <code>null</code>.
+     * @param nanos     The duration of the call in nanoseconds.
+     */
+    public void record( String command, String method, long nanos ) {
+        getStatistics( methods, method ).record( nanos );
+        getStatistics( commands, command ).record( nanos );
+    }
+
+    /**
+     * Adds the supplied metrics to these ones.
+     * 
+     * @param other   The metrics which have to be added. Not <code>null</code>.
+     */
+    public void add( ClientMetrics other ) {
+        for( Map.Entry<String,CallStatistics> entry : other.methods.entrySet() ) {
+            getStatistics( methods, entry.getKey() ).add( entry.getValue() );
+        }
+        for( Map.Entry<String,CallStatistics> entry : other.commands.entrySet() ) {
+            getStatistics( commands, entry.getKey() ).add( entry.getValue() );
+        }
+    }
+
+    private static CallStatistics getStatistics( ConcurrentMap<String,CallStatistics> map, String key ) {
+        CallStatistics result = map.get( key );
+        if( result == null ) {
+            CallStatistics statistics = new CallStatistics();
+            result                    = map.putIfAbsent( key, statistics );
+            if( result == null ) {
+                result = statistics;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the statistics per adapter method.
+     * 
+     * @return   A copy of the statistics ordered by the method name. Not <code>null</code>.
+     */
+    public SortedMap<String,CallStatistics> getMethodStatistics() {
+        return copy( methods );
+    }
+
+    /**
+     * Returns the statistics per svn command.
+     * 
+     * @return   A copy of the statistics ordered by the command name. Not <code>null</code>.
+     */
+    public SortedMap<String,CallStatistics> getCommandStatistics() {
+        return copy( commands );
+    }
+
+    private static SortedMap<String,CallStatistics> copy( Map<String,CallStatistics> map ) {
+        SortedMap<String,CallStatistics> result = new TreeMap<String,CallStatistics>();
+        for( Map.Entry<String,CallStatistics> entry : map.entrySet() ) {
+            result.put( entry.getKey(), entry.getValue().copy() );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the statistics of all calls.
+     * 
+     * @return   The statistics of all calls. Not <code>null</code>.
+     */
+    public CallStatistics getTotal() {
+        CallStatistics result = new CallStatistics();
+        for( CallStatistics statistics : methods.values() ) {
+            result.add( statistics );
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if no call has been recorded.
+     * 
+     * @return   <code>true</code> <=> No call has been recorded.
+     */
+    public boolean isEmpty() {
+        return methods.isEmpty();
+    }
+
+    /**
+     * Returns a human readable summary of these metrics.
+     * 
+     * @return   The lines of the summary. Not <code>null</code>.
+     */
+    public List<String> getSummary() {
+        List<String> result = new ArrayList<String>();
+        result.add( "svn client calls: " + getTotal() );
+        result.add( "per method:" );
+        for( Map.Entry<String,CallStatistics> entry : getMethodStatistics().entrySet() ) {
+            result.add( "  " + entry.getKey() + ": " + entry.getValue() );
+        }
+        result.add( "per command:" );
+        for( Map.Entry<String,CallStatistics> entry : getCommandStatistics().entrySet() ) {
+            result.add( "  " + entry.getKey() + ": " + entry.getValue() );
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        StringBuffer result = new StringBuffer();
+        for( String line : getSummary() ) {
+            result.append( line ).append( "\n" );
+        }
+        return result.toString();
+    }
+
+} /* ENDCLASS */
@@ -0,0 +1,151 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Client adapter which emits a flight recorder event and a trace span for each call. It's only 
+ * used while a flight recording is running (see {@link FlightEvents#isRecording()}) or a trace
+ * is active (see {@link BuildTrace#getActive()}), so the calls aren't affected otherwise.
+ */
+public class EventClientAdapter implements InvocationHandler {
+
+    private ISVNClientAdapter   adapter;
+    private String              component;
+
+    private EventClientAdapter( ISVNClientAdapter delegate, String name ) {
+        adapter     = delegate;
+        component   = name;
+    }
+
+    /**
+     * Creates an adapter which emits an event for each call to the supplied adapter.
+     * 
+     * @param delegate   The adapter performing the calls. Not <code>null</code>.
+     * @param name       The name used for calls which aren't issued by a command. Not <code>null</code>.
+     * 
+     * @return   The adapter emitting the events. Not <code>null</code>.
+     */
+    public static ISVNClientAdapter wrap( ISVNClientAdapter delegate, String name ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( 
+            ISVNClientAdapter.class.getClassLoader(), 
+            new Class<?>[] { ISVNClientAdapter.class }, 
+            new EventClientAdapter( delegate, name ) 
+        );
+    }
+
+    /**
+     * Returns the adapter which has been wrapped by {@link #wrap(ISVNClientAdapter, String)}.
+     * 
+     * @param adapter   The adapter which might be an emitting one. Maybe <code>null</code>.
+     * 
+     * @return   The wrapped adapter or the supplied one if it's not emitting events. Maybe <code>null</code>.
+     */
+    public static ISVNClientAdapter unwrap( ISVNClientAdapter adapter ) {
+        if( (adapter != null) && Proxy.isProxyClass( adapter.getClass() ) ) {
+            InvocationHandler handler = Proxy.getInvocationHandler( adapter );
+            if( handler instanceof EventClientAdapter ) {
+                return ((EventClientAdapter) handler).adapter;
+            }
+        }
+        return adapter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+        if( method.getDeclaringClass() == Object.class ) {
+            return invokeObjectMethod( proxy, method, args );
+        }
+        Object     event   = FlightEvents.CALL.begin();
+        BuildTrace trace   = BuildTrace.getActive();
+        long       started = trace != null ? System.nanoTime() : 0;
+        try {
+            return method.invoke( adapter, args );
+        } catch( InvocationTargetException ex ) {
+            throw ex.getCause();
+        } finally {
+            String command = MetricsClientAdapter.getCommand();
+            if( command == null ) {
+                command = component;
+            }
+            if( event != null ) {
+                FlightEvents.CALL.commit( event, command, method.getName() );
+            }
+            if( trace != null ) {
+                trace.addSpan( method.getName(), "adapter", started, System.nanoTime(), "command", command );
+            }
+        }
+    }
+
+    private Object invokeObjectMethod( Object proxy, Method method, Object[] args ) {
+        String name = method.getName();
+        if( "equals".equals( name ) ) {
+            return Boolean.valueOf( proxy == args[0] );
+        } else if( "hashCode".equals( name ) ) {
+            return Integer.valueOf( System.identityHashCode( proxy ) );
+        } else {
+            return "events[" + adapter + "]";
+        }
+    }
+
+} /* ENDCLASS */
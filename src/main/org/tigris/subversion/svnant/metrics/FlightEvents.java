@@ -0,0 +1,286 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Custom events for the Java Flight Recorder, so the work of svnant can be correlated with 
+ * other events (f.e. GC or I/O) in JDK Mission Control. The flight recorder API is only 
+ * available since Java 9, so it's accessed through reflection and the event types are created 
+ * dynamically once a recording has been started. As long as no recording is running an event 
+ * costs a single volatile read.
+ * <p>
+ * Usage:
+ * <pre>
+ *   Object event = FlightEvents.COMMAND.begin();
+ *   try {
+ *     ...
+ *   } finally {
+ *     if( event != null ) {
+ *       FlightEvents.COMMAND.commit( event, ... );
+ *     }
+ *   }
+ * </pre>
+ */
+public final class FlightEvents {
+
+    private static final String   CATEGORY = "Subversion";
+
+    /** The execution of a nested command of the svn task: command, targets, revision. */
+    public static final FlightEvents   COMMAND  = new FlightEvents( 
+        "svnant.Command", "Svn Command", "Execution of a command nested within the svn task", 
+        "command", "Command", "targets", "Targets", "revision", "Revision" 
+    );
+
+    /** A call of a client adapter: command, method. */
+    public static final FlightEvents   CALL     = new FlightEvents( 
+        "svnant.AdapterCall", "Svn Adapter Call", "Call of a svn client adapter", 
+        "command", "Command", "method", "Method" 
+    );
+
+    /** A phase of the svn directory scanner: phase, directory. */
+    public static final FlightEvents   SCAN     = new FlightEvents( 
+        "svnant.ScannerPhase", "Svn Scanner Phase", "Phase of scanning a svn fileset", 
+        "phase", "Phase", "directory", "Directory" 
+    );
+
+    private static final Set<Long>   RUNNING   = new HashSet<Long>();
+
+    private static volatile boolean   recording = false;
+
+    private static Method   newEvent;
+    private static Method   begin;
+    private static Method   end;
+    private static Method   set;
+    private static Method   commit;
+
+    static {
+        try {
+            Class<?> recorderclass = Class.forName( "jdk.jfr.FlightRecorder" );
+            Class<?> listenerclass = Class.forName( "jdk.jfr.FlightRecorderListener" );
+            Class<?> eventclass    = Class.forName( "jdk.jfr.Event" );
+            newEvent               = Class.forName( "jdk.jfr.EventFactory" ).getMethod( "newEvent" );
+            begin                  = eventclass.getMethod( "begin" );
+            end                    = eventclass.getMethod( "end" );
+            set                    = eventclass.getMethod( "set", int.class, Object.class );
+            commit                 = eventclass.getMethod( "commit" );
+            Object listener        = Proxy.newProxyInstance( 
+                FlightEvents.class.getClassLoader(), new Class<?>[] { listenerclass }, new RecordingListener() 
+            );
+            recorderclass.getMethod( "addListener", listenerclass ).invoke( null, listener );
+        } catch( Exception ex ) {
+            // the flight recorder isn't available with this jvm
+        } catch( LinkageError ex ) {
+            // the flight recorder isn't available with this jvm
+        }
+    }
+
+    private String     name;
+    private String     label;
+    private String     description;
+    private String[]   fields;
+    private Object     factory;
+    private boolean    failed;
+
+    private FlightEvents( String eventname, String eventlabel, String eventdescription, String ... namesandlabels ) {
+        name        = eventname;
+        label       = eventlabel;
+        description = eventdescription;
+        fields      = namesandlabels;
+        factory     = null;
+        failed      = false;
+    }
+
+    /**
+     * Returns <code>true</code> if a flight recording is currently running.
+     * 
+     * @return   <code>true</code> <=> A flight recording is currently running.
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Starts a new event.
+     * 
+     * @return   The started event or <code>null</code> if no recording is running.
+     */
+    public Object begin() {
+        if( !recording ) {
+            return null;
+        }
+        Object eventfactory = getFactory();
+        if( eventfactory == null ) {
+            return null;
+        }
+        try {
+            Object result = newEvent.invoke( eventfactory );
+            begin.invoke( result );
+            return result;
+        } catch( Exception ex ) {
+            return null;
+        }
+    }
+
+    /**
+     * Ends the supplied event and commits it with the supplied values which have to be provided 
+     * in the declared order of the fields.
+     * 
+     * @param event    The event provided by {@link #begin()}. Maybe <code>null</code>.
+     * @param values   The values of the fields. Not <code>null</code>.
+     */
+    public void commit( Object event, String ... values ) {
+        if( event == null ) {
+            return;
+        }
+        try {
+            end.invoke( event );
+            for( int i = 0; i < values.length; i++ ) {
+                set.invoke( event, Integer.valueOf( i ), values[i] );
+            }
+            commit.invoke( event );
+        } catch( Exception ex ) {
+            // the event is lost which doesn't affect the build
+        }
+    }
+
+    /**
+     * Returns the factory of this event type which is created on the first use.
+     * 
+     * @return   The factory of this event type or <code>null</code> if it's not available.
+     */
+    private synchronized Object getFactory() {
+        if( (factory == null) && (!failed) ) {
+            try {
+                factory = createFactory();
+            } catch( Exception ex ) {
+                failed = true;
+            }
+        }
+        return factory;
+    }
+
+    private Object createFactory() throws Exception {
+        Class<?>       elementclass    = Class.forName( "jdk.jfr.AnnotationElement" );
+        Class<?>       descriptorclass = Class.forName( "jdk.jfr.ValueDescriptor" );
+        Constructor<?> newelement      = elementclass.getConstructor( Class.class, Object.class );
+        Constructor<?> newdescriptor   = descriptorclass.getConstructor( Class.class, String.class, List.class );
+        List<Object>   annotations     = new ArrayList<Object>();
+        annotations.add( newelement.newInstance( Class.forName( "jdk.jfr.Name" ), name ) );
+        annotations.add( newelement.newInstance( Class.forName( "jdk.jfr.Label" ), label ) );
+        annotations.add( newelement.newInstance( Class.forName( "jdk.jfr.Description" ), description ) );
+        annotations.add( newelement.newInstance( Class.forName( "jdk.jfr.Category" ), new String[] { CATEGORY } ) );
+        List<Object>   descriptors     = new ArrayList<Object>();
+        for( int i = 0; i < fields.length; i += 2 ) {
+            Object fieldlabel = newelement.newInstance( Class.forName( "jdk.jfr.Label" ), fields[i + 1] );
+            descriptors.add( newdescriptor.newInstance( String.class, fields[i], Arrays.asList( fieldlabel ) ) );
+        }
+        Method create = Class.forName( "jdk.jfr.EventFactory" ).getMethod( "create", List.class, List.class );
+        return create.invoke( null, annotations, descriptors );
+    }
+
+    /**
+     * Keeps track of the running recordings. Implements <code>jdk.jfr.FlightRecorderListener</code>.
+     */
+    private static class RecordingListener implements InvocationHandler {
+
+        /**
+         * {@inheritDoc}
+         */
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+            String methodname = method.getName();
+            if( "recorderInitialized".equals( methodname ) ) {
+                List<?> recordings = (List<?>) args[0].getClass().getMethod( "getRecordings" ).invoke( args[0] );
+                for( Object recording : recordings ) {
+                    update( recording );
+                }
+            } else if( "recordingStateChanged".equals( methodname ) ) {
+                update( args[0] );
+            } else if( "equals".equals( methodname ) ) {
+                return Boolean.valueOf( proxy == args[0] );
+            } else if( "hashCode".equals( methodname ) ) {
+                return Integer.valueOf( System.identityHashCode( proxy ) );
+            } else if( "toString".equals( methodname ) ) {
+                return "svnant recording listener";
+            }
+            return null;
+        }
+
+        private void update( Object changed ) throws Exception {
+            Long   id    = (Long) changed.getClass().getMethod( "getId" ).invoke( changed );
+            String state = String.valueOf( changed.getClass().getMethod( "getState" ).invoke( changed ) );
+            synchronized( RUNNING ) {
+                if( "RUNNING".equals( state ) ) {
+                    RUNNING.add( id );
+                } else {
+                    RUNNING.remove( id );
+                }
+                recording = !RUNNING.isEmpty();
+            }
+        }
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
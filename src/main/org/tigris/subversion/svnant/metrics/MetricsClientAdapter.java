@@ -0,0 +1,196 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Client adapter which measures the duration of each call and records it per method and per
+ * issuing svn command. The calls are recorded within the metrics of the adapter itself and 
+ * within the metrics of the whole build.
+ */
+public class MetricsClientAdapter implements InvocationHandler {
+
+    private static final ThreadLocal<String>   COMMAND = new ThreadLocal<String>();
+
+    private ISVNClientAdapter   adapter;
+    private String              component;
+    private ClientMetrics       local;
+    private ClientMetrics       global;
+
+    private MetricsClientAdapter( ISVNClientAdapter delegate, String name, ClientMetrics buildmetrics ) {
+        adapter     = delegate;
+        component   = name;
+        local       = new ClientMetrics();
+        global      = buildmetrics;
+    }
+
+    /**
+     * Creates an adapter which records all calls to the supplied adapter.
+     * 
+     * @param delegate       The adapter performing the calls. Not <code>null</code>.
+     * @param name           The name used for calls which aren't issued by a command. Not <code>null</code>.
+     * @param buildmetrics   The metrics of the whole build. Not <code>null</code>.
+     * 
+     * @return   The adapter recording the calls. Not <code>null</code>.
+     */
+    public static ISVNClientAdapter wrap( ISVNClientAdapter delegate, String name, ClientMetrics buildmetrics ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( 
+            ISVNClientAdapter.class.getClassLoader(), 
+            new Class<?>[] { ISVNClientAdapter.class }, 
+            new MetricsClientAdapter( delegate, name, buildmetrics ) 
+        );
+    }
+
+    /**
+     * Returns the adapter which has been wrapped by {@link #wrap(ISVNClientAdapter, String, ClientMetrics)}.
+     * 
+     * @param adapter   The adapter which might be a recording one. Maybe <code>null</code>.
+     * 
+     * @return   The wrapped adapter or the supplied one if it's not recording calls. Maybe <code>null</code>.
+     */
+    public static ISVNClientAdapter unwrap( ISVNClientAdapter adapter ) {
+        MetricsClientAdapter handler = getHandler( adapter );
+        return handler != null ? handler.adapter : adapter;
+    }
+
+    /**
+     * Returns the metrics recorded by the supplied adapter.
+     * 
+     * @param adapter   The adapter which might be a recording one. Maybe <code>null</code>.
+     * 
+     * @return   The metrics of the adapter or <code>null</code> if it's not recording calls.
+     */
+    public static ClientMetrics getMetrics( ISVNClientAdapter adapter ) {
+        MetricsClientAdapter handler = getHandler( adapter );
+        return handler != null ? handler.local : null;
+    }
+
+    private static MetricsClientAdapter getHandler( ISVNClientAdapter adapter ) {
+        if( (adapter != null) && Proxy.isProxyClass( adapter.getClass() ) ) {
+            InvocationHandler handler = Proxy.getInvocationHandler( adapter );
+            if( handler instanceof MetricsClientAdapter ) {
+                return (MetricsClientAdapter) handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Declares the svn command which issues the following calls of the current thread.
+     * 
+     * @param command   The name of the command. <code>null</code> if no command is active.
+     * 
+     * @return   The previously active command. Maybe <code>null</code>.
+     */
+    public static String setCommand( String command ) {
+        String result = COMMAND.get();
+        if( command != null ) {
+            COMMAND.set( command );
+        } else {
+            COMMAND.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the svn command which issues the calls of the current thread.
+     * 
+     * @return   The name of the active command. <code>null</code> if no command is active.
+     */
+    static String getCommand() {
+        return COMMAND.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+        if( method.getDeclaringClass() == Object.class ) {
+            return invokeObjectMethod( proxy, method, args );
+        }
+        long start = System.nanoTime();
+        try {
+            return method.invoke( adapter, args );
+        } catch( InvocationTargetException ex ) {
+            throw ex.getCause();
+        } finally {
+            long   duration = System.nanoTime() - start;
+            String command  = COMMAND.get();
+            if( command == null ) {
+                command = component;
+            }
+            local.record( command, method.getName(), duration );
+            global.record( command, method.getName(), duration );
+        }
+    }
+
+    private Object invokeObjectMethod( Object proxy, Method method, Object[] args ) {
+        String name = method.getName();
+        if( "equals".equals( name ) ) {
+            return Boolean.valueOf( proxy == args[0] );
+        } else if( "hashCode".equals( name ) ) {
+            return Integer.valueOf( System.identityHashCode( proxy ) );
+        } else {
+            return "metrics[" + adapter + "]";
+        }
+    }
+
+} /* ENDCLASS */
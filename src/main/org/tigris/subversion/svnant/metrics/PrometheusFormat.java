@@ -0,0 +1,201 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeSet;
+
+/**
+ * Renders the counters and client metrics of a build in the Prometheus text exposition format,
+ * so they can be picked up by the textfile collector of the node exporter.
+ */
+public class PrometheusFormat {
+
+    private static final String   CACHE_HITS     = "svnant_cache_hits_total";
+    private static final String   CACHE_MISSES   = "svnant_cache_misses_total";
+    private static final String   CACHE_RATIO    = "svnant_cache_hit_ratio";
+    private static final String   ADAPTER_CALLS  = "svnant_adapter_calls_total";
+    private static final String   ADAPTER_TIME   = "svnant_adapter_call_seconds";
+
+    private static final Map<String,String>   HELP = new HashMap<String,String>();
+
+    static {
+        HELP.put( "svnant_commands_total"               , "Number of executed svn commands." );
+        HELP.put( "svnant_command_seconds_total"        , "Time spent executing svn commands." );
+        HELP.put( "svnant_notifications_total"          , "Number of notifications sent by the client adapters." );
+        HELP.put( "svnant_transferred_bytes_total"      , "Number of bytes transferred as reported by the client adapters." );
+        HELP.put( "svnant_content_bytes_total"          , "Number of bytes of file contents read from the repository." );
+        HELP.put( "svnant_scanner_directories_total"    , "Number of directories listed by svn fileset scans." );
+        HELP.put( "svnant_scanner_entries_total"        , "Number of entries visited by svn fileset scans." );
+        HELP.put( CACHE_HITS                            , "Number of requests answered by a cache." );
+        HELP.put( CACHE_MISSES                          , "Number of requests not answered by a cache." );
+        HELP.put( CACHE_RATIO                           , "Ratio of the requests answered by a cache." );
+        HELP.put( ADAPTER_CALLS                         , "Number of client adapter calls." );
+        HELP.put( ADAPTER_TIME                          , "Duration of client adapter calls." );
+    }
+
+    private StringBuilder   builder;
+    private String          family;
+
+    private PrometheusFormat() {
+        builder = new StringBuilder();
+        family  = null;
+    }
+
+    /**
+     * Renders the supplied counters and metrics.
+     * 
+     * @param counters   The counters of the build. Not <code>null</code>.
+     * @param metrics    The client metrics of the build. <code>null</code> if metrics are disabled.
+     * 
+     * @return   The metrics in the text exposition format. Not <code>null</code>.
+     */
+    public static String format( BuildCounters counters, ClientMetrics metrics ) {
+        PrometheusFormat format = new PrometheusFormat();
+        format.addCounters( counters.getValues() );
+        if( metrics != null ) {
+            format.addClientMetrics( metrics.getMethodStatistics() );
+        }
+        return format.builder.toString();
+    }
+
+    private void addCounters( SortedMap<String,Long> values ) {
+        for( Map.Entry<String,Long> entry : values.entrySet() ) {
+            String name  = getName( entry.getKey() );
+            long   value = entry.getValue().longValue();
+            startFamily( name, "counter" );
+            if( name.endsWith( BuildCounters.SECONDS ) ) {
+                addSample( entry.getKey(), seconds( value ) );
+            } else {
+                addSample( entry.getKey(), String.valueOf( value ) );
+            }
+        }
+        // the labels of the caches which have been requested at least once
+        Set<String> caches = new TreeSet<String>();
+        for( String key : values.keySet() ) {
+            String name = getName( key );
+            if( CACHE_HITS.equals( name ) || CACHE_MISSES.equals( name ) ) {
+                caches.add( key.substring( name.length() ) );
+            }
+        }
+        for( String labels : caches ) {
+            double hits   = getValue( values, CACHE_HITS + labels );
+            double misses = getValue( values, CACHE_MISSES + labels );
+            startFamily( CACHE_RATIO, "gauge" );
+            addSample( CACHE_RATIO + labels, String.format( Locale.US, "%.4f", Double.valueOf( hits / (hits + misses) ) ) );
+        }
+    }
+
+    private void addClientMetrics( SortedMap<String,CallStatistics> methods ) {
+        for( Map.Entry<String,CallStatistics> entry : methods.entrySet() ) {
+            startFamily( ADAPTER_CALLS, "counter" );
+            addSample( BuildCounters.getKey( ADAPTER_CALLS, "method", entry.getKey() ), String.valueOf( entry.getValue().getCount() ) );
+        }
+        long[] limits = CallStatistics.getBucketLimits();
+        for( Map.Entry<String,CallStatistics> entry : methods.entrySet() ) {
+            CallStatistics statistics = entry.getValue().copy();
+            long[]         histogram  = statistics.getHistogram();
+            long           cumulated  = 0;
+            startFamily( ADAPTER_TIME, "histogram" );
+            for( int i = 0; i < limits.length; i++ ) {
+                cumulated += histogram[i];
+                String key = BuildCounters.getKey( ADAPTER_TIME + "_bucket", "method", entry.getKey(), "le", seconds( limits[i] ) );
+                addSample( key, String.valueOf( cumulated ) );
+            }
+            String key = BuildCounters.getKey( ADAPTER_TIME + "_bucket", "method", entry.getKey(), "le", "+Inf" );
+            addSample( key, String.valueOf( statistics.getCount() ) );
+            addSample( BuildCounters.getKey( ADAPTER_TIME + "_sum", "method", entry.getKey() ), seconds( statistics.getTotal() ) );
+            addSample( BuildCounters.getKey( ADAPTER_TIME + "_count", "method", entry.getKey() ), String.valueOf( statistics.getCount() ) );
+        }
+    }
+
+    /**
+     * Writes the header of a metric family unless it has just been written.
+     * 
+     * @param name   The name of the family. Neither <code>null</code> nor empty.
+     * @param type   The type of the family. Neither <code>null</code> nor empty.
+     */
+    private void startFamily( String name, String type ) {
+        if( !name.equals( family ) ) {
+            String help = HELP.get( name );
+            builder.append( "# HELP " ).append( name ).append( ' ' ).append( help != null ? help : "svnant counter." ).append( '\n' );
+            builder.append( "# TYPE " ).append( name ).append( ' ' ).append( type ).append( '\n' );
+            family = name;
+        }
+    }
+
+    private void addSample( String key, String value ) {
+        builder.append( key ).append( ' ' ).append( value ).append( '\n' );
+    }
+
+    private static double getValue( SortedMap<String,Long> values, String key ) {
+        Long result = values.get( key );
+        return result != null ? result.doubleValue() : 0;
+    }
+
+    private static String getName( String key ) {
+        int index = key.indexOf( '{' );
+        return index != -1 ? key.substring( 0, index ) : key;
+    }
+
+    private static String seconds( long nanos ) {
+        return String.format( Locale.US, "%.6f", Double.valueOf( nanos / 1000000000.0 ) );
+    }
+
+} /* ENDCLASS */
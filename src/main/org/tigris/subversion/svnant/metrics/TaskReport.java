@@ -0,0 +1,289 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.metrics;
+
+import org.apache.tools.ant.util.FileUtils;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * The timings of a single svn task and it's commands. The reports of all tasks sharing a report
+ * file are collected per build and the file is rewritten as a JSON array after each task, so 
+ * it's complete even if the build fails later on.
+ */
+public class TaskReport {
+
+    private static final String      REFID            = "svnant.reports";
+
+    private static final String      MSG_CANNOT_WRITE = "Cannot write the report file '%s'.";
+
+    @SuppressWarnings("deprecation") // FileUtils.getFileUtils() isn't available with Ant 1.6
+    private static final FileUtils   FILEUTILS        = FileUtils.newFileUtils();
+
+    private String         task;
+    private String         target;
+    private String         location;
+    private long           started;
+    private long           acquisitiontime;
+    private int            acquisitions;
+    private List<String>   commands;
+
+    /**
+     * Initialises an empty report.
+     * 
+     * @param taskname   The name of the task. Not <code>null</code>.
+     * @param targetname The name of the target containing the task. Maybe <code>null</code>.
+     * @param where      The location of the task within the build file. Not <code>null</code>.
+     */
+    public TaskReport( String taskname, String targetname, String where ) {
+        task            = taskname;
+        target          = targetname;
+        location        = where;
+        started         = System.currentTimeMillis();
+        acquisitiontime = 0;
+        acquisitions    = 0;
+        commands        = new ArrayList<String>();
+    }
+
+    /**
+     * Records the acquisition of a client adapter.
+     * 
+     * @param nanos   The time needed to provide the adapter in nanoseconds.
+     */
+    public synchronized void addAcquisition( long nanos ) {
+        acquisitiontime += nanos;
+        acquisitions++;
+    }
+
+    /**
+     * Records the execution of a single command.
+     * 
+     * @param name            The name of the command. Not <code>null</code>.
+     * @param targets         The local paths and urls accessed by the command. Not <code>null</code>.
+     * @param walltime        The duration of the command in nanoseconds.
+     * @param adaptertime     The time spent within client adapter calls in nanoseconds.
+     * @param calls           The number of client adapter calls.
+     * @param notifications   The number of notifications sent by the client adapter.
+     * @param error           The message of the failure. <code>null</code> if the command succeeded.
+     */
+    public synchronized void addCommand( 
+        String name, List<String> targets, long walltime, long adaptertime, long calls, long notifications, String error 
+    ) {
+        StringBuilder builder = new StringBuilder( "    {" );
+        builder.append( "\"name\": " ).append( quote( name ) );
+        builder.append( ", \"targets\": [" );
+        for( int i = 0; i < targets.size(); i++ ) {
+            if( i > 0 ) {
+                builder.append( ", " );
+            }
+            builder.append( quote( targets.get( i ) ) );
+        }
+        builder.append( "]" );
+        builder.append( ", \"wallMillis\": " ).append( millis( walltime ) );
+        builder.append( ", \"adapterMillis\": " ).append( millis( adaptertime ) );
+        builder.append( ", \"adapterCalls\": " ).append( calls );
+        builder.append( ", \"notifications\": " ).append( notifications );
+        builder.append( ", \"success\": " ).append( error == null );
+        if( error != null ) {
+            builder.append( ", \"error\": " ).append( quote( error ) );
+        }
+        builder.append( "}" );
+        commands.add( builder.toString() );
+    }
+
+    /**
+     * Returns this report as a JSON object.
+     * 
+     * @return   This report as a JSON object. Not <code>null</code>.
+     */
+    public synchronized String toJson() {
+        StringBuilder builder = new StringBuilder( "  {\n" );
+        builder.append( "   \"task\": " ).append( quote( task ) ).append( ",\n" );
+        builder.append( "   \"target\": " ).append( quote( target ) ).append( ",\n" );
+        builder.append( "   \"location\": " ).append( quote( location ) ).append( ",\n" );
+        builder.append( "   \"started\": " ).append( started ).append( ",\n" );
+        builder.append( "   \"adapterAcquisitions\": " ).append( acquisitions ).append( ",\n" );
+        builder.append( "   \"adapterAcquisitionMillis\": " ).append( millis( acquisitiontime ) ).append( ",\n" );
+        builder.append( "   \"commands\": [" );
+        for( int i = 0; i < commands.size(); i++ ) {
+            builder.append( i > 0 ? ",\n" : "\n" ).append( commands.get( i ) );
+        }
+        builder.append( commands.isEmpty() ? "]\n" : "\n   ]\n" );
+        builder.append( "  }" );
+        return builder.toString();
+    }
+
+    /**
+     * Adds this report to the supplied report file which is rewritten afterwards. A file is 
+     * overwritten when it's used for the first time within a build.
+     * 
+     * @param project   The project used to collect the reports of the build. Not <code>null</code>.
+     * @param file      The report file. Not <code>null</code>.
+     * 
+     * @throws BuildException   Writing the report file failed.
+     */
+    public void write( Project project, File file ) throws BuildException {
+        Map<File,List<String>> reports = getReports( project );
+        synchronized( reports ) {
+            // different spellings of a path have to collect the same reports
+            File         key     = FILEUTILS.normalize( file.getAbsolutePath() );
+            List<String> written = reports.get( key );
+            if( written == null ) {
+                written = new ArrayList<String>();
+                reports.put( key, written );
+            }
+            written.add( toJson() );
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter( new FileOutputStream( key ), "UTF-8" );
+                writer.write( "[\n" );
+                for( int i = 0; i < written.size(); i++ ) {
+                    writer.write( written.get( i ) );
+                    writer.write( i < written.size() - 1 ? ",\n" : "\n" );
+                }
+                writer.write( "]\n" );
+                writer.close();
+                writer = null;
+            } catch( IOException ex ) {
+                throw new BuildException( String.format( MSG_CANNOT_WRITE, key ), ex );
+            } finally {
+                if( writer != null ) {
+                    try {
+                        writer.close();
+                    } catch( IOException ex ) {
+                        // the original failure is more important
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the reports of the build per report file. They are created on demand.
+     * 
+     * @param project   The project which reports are requested. Not <code>null</code>.
+     * 
+     * @return   The reports of the build per report file. Not <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<File,List<String>> getReports( Project project ) {
+        synchronized( project ) {
+            Object result = project.getReference( REFID );
+            if( !(result instanceof Map) ) {
+                result = new HashMap<File,List<String>>();
+                project.addReference( REFID, result );
+            }
+            return (Map<File,List<String>>) result;
+        }
+    }
+
+    /**
+     * Converts the supplied duration into milliseconds.
+     * 
+     * @param nanos   The duration in nanoseconds.
+     * 
+     * @return   The duration in milliseconds with a fraction. Not <code>null</code>.
+     */
+    static String millis( long nanos ) {
+        return String.format( Locale.US, "%.3f", Double.valueOf( nanos / 1000000.0 ) );
+    }
+
+    /**
+     * Returns the supplied text as a JSON string.
+     * 
+     * @param text   The text which has to be quoted. Maybe <code>null</code>.
+     * 
+     * @return   The JSON string or the literal <code>null</code>. Not <code>null</code>.
+     */
+    static String quote( String text ) {
+        if( text == null ) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder( text.length() + 2 );
+        builder.append( '"' );
+        for( int i = 0; i < text.length(); i++ ) {
+            char ch = text.charAt( i );
+            if( (ch == '"') || (ch == '\\') ) {
+                builder.append( '\\' ).append( ch );
+            } else if( ch == '\n' ) {
+                builder.append( "\\n" );
+            } else if( ch == '\r' ) {
+                builder.append( "\\r" );
+            } else if( ch == '\t' ) {
+                builder.append( "\\t" );
+            } else if( ch < ' ' ) {
+                builder.append( String.format( "\\u%04x", Integer.valueOf( ch ) ) );
+            } else {
+                builder.append( ch );
+            }
+        }
+        builder.append( '"' );
+        return builder.toString();
+    }
+
+} /* ENDCLASS */
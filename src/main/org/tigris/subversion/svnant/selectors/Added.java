@@ -74,4 +74,11 @@ public class Added extends StatusBasedSelector {
         return SVNStatusKind.ADDED.equals( status.getTextStatus() );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isChangeSelector() {
+        return true;
+    }
+
 }
@@ -57,6 +57,7 @@ package org.tigris.subversion.svnant.selectors;
 import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
 
 import org.tigris.subversion.svnant.SvnFacade;
+import org.tigris.subversion.svnant.metrics.BuildTrace;
 
 import org.apache.tools.ant.types.Reference;
 import org.apache.tools.ant.types.selectors.BaseExtendSelector;
@@ -77,8 +78,8 @@ import java.io.File;
  */
 public abstract class BaseSvnSelector extends BaseExtendSelector {
 
-    private ISVNClientAdapter clientadapter = null;
-    
+    private volatile SelectorContext   context;
+
     /**
      * @see SvnFacade#setRefid(org.apache.tools.ant.ProjectComponent, Reference)
      */
@@ -90,10 +91,30 @@ public abstract class BaseSvnSelector extends BaseExtendSelector {
      * {@inheritDoc}
      */
     public final boolean isSelected( File basedir_, String filename_, File file_ ) {
-        if( clientadapter == null ) {
-            clientadapter = SvnFacade.getClientAdapter( this );
+        BuildTrace trace   = BuildTrace.getActive();
+        long       started = trace != null ? System.nanoTime() : 0;
+        try {
+            return isSelected( getContext().getClientAdapter(), basedir_, filename_, file_ );
+        } finally {
+            if( trace != null ) {
+                trace.addSpan( getClass().getSimpleName(), "selector", started, System.nanoTime(), "file", filename_ );
+            }
+        }
+    }
+
+    /**
+     * Returns the context shared with all selectors using the same settings. The context is
+     * looked up once per selector as long as it's not discarded at the end of the build.
+     * 
+     * @return   The context shared with all selectors using the same settings. Not <code>null</code>.
+     */
+    SelectorContext getContext() {
+        SelectorContext result = context;
+        if( (result == null) || result.isDisposed() ) {
+            result  = SelectorContext.getContext( this );
+            context = result;
         }
-        return isSelected( clientadapter, basedir_, filename_, file_ );
+        return result;
     }
 
     /**
@@ -73,4 +73,11 @@ public class Conflicted extends StatusBasedSelector {
         return status.getConflictWorking() != null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isChangeSelector() {
+        return true;
+    }
+
 }
@@ -74,4 +74,11 @@ public class Deleted extends StatusBasedSelector {
         return SVNStatusKind.DELETED.equals( status.getTextStatus() );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isChangeSelector() {
+        return true;
+    }
+
 }
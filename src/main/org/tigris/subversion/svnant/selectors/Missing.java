@@ -74,4 +74,11 @@ public class Missing extends StatusBasedSelector {
         return SVNStatusKind.MISSING.equals( status.getTextStatus() );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isChangeSelector() {
+        return true;
+    }
+
 }
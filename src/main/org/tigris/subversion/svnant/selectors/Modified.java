@@ -74,4 +74,11 @@ public class Modified extends StatusBasedSelector {
         return SVNStatusKind.MODIFIED.equals( status.getTextStatus() );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isChangeSelector() {
+        return true;
+    }
+
 }
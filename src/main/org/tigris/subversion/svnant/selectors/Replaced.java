@@ -74,4 +74,11 @@ public class Replaced extends StatusBasedSelector {
         return SVNStatusKind.REPLACED.equals( status.getTextStatus() );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isChangeSelector() {
+        return true;
+    }
+
 }
@@ -0,0 +1,307 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.selectors;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+
+import org.tigris.subversion.svnant.InternalListener;
+import org.tigris.subversion.svnant.SvnFacade;
+import org.tigris.subversion.svnant.metrics.BuildCounters;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.Project;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.io.File;
+
+/**
+ * State shared by all svn selectors of a project which are configured the same way. The
+ * selectors share the status information of the files being selected while each thread leases 
+ * it's own client adapter. 
+ * 
+ * The status information is discarded whenever a task starts or finishes and after each svn 
+ * command. It's not kept for the whole build as any task may alter the working copy (f.e. 
+ * <code>replace</code> or <code>copy</code>) while only svn commands can tell about it. The 
+ * repeated evaluation of filesets within a task still benefits from it. The adapters are 
+ * returned to the adapter pool when the task using them has finished, so they're reused by
+ * subsequent tasks without being kept beyond sub builds which don't report the end of the build.
+ */
+public class SelectorContext {
+
+    private static final String  KEY_CONTEXTS    = "org.tigris.subversion.svnant.selectors.SelectorContext";
+
+    private BaseSvnSelector                         owner;
+    private ConcurrentMap<Thread,ISVNClientAdapter> leases;
+    private ConcurrentMap<File,ISVNStatus>          statuses;
+    private volatile boolean                        disposed;
+
+    private SelectorContext( BaseSvnSelector selector ) {
+        owner           = selector;
+        leases          = new ConcurrentHashMap<Thread,ISVNClientAdapter>();
+        statuses        = new ConcurrentHashMap<File,ISVNStatus>();
+        disposed        = false;
+    }
+
+    /**
+     * Returns the context used by the supplied selector.
+     * 
+     * @param selector   The selector which needs to access svn. Not <code>null</code>.
+     * 
+     * @return   The context shared with all selectors using the same settings. Not <code>null</code>.
+     */
+    static SelectorContext getContext( BaseSvnSelector selector ) {
+        ConcurrentMap<List<Object>,SelectorContext> contexts = getContexts( selector.getProject(), true );
+        List<Object>                                key      = SvnFacade.getResolvedSetting( selector ).getPoolKey();
+        SelectorContext                             result   = contexts.get( key );
+        if( result == null ) {
+            SelectorContext context = new SelectorContext( selector );
+            result                  = contexts.putIfAbsent( key, context );
+            if( result == null ) {
+                result = context;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the contexts used within the supplied project. When they are created a listener is
+     * installed which discards cached status information and releases the client adapters.
+     * 
+     * @param project   The project which contexts are requested. Not <code>null</code>.
+     * @param create    <code>true</code> <=> Create the contexts if there are none yet.
+     * 
+     * @return   The contexts used within the project. <code>null</code> if there are none and 
+     *           <code>create</code> is <code>false</code>.
+     */
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<List<Object>,SelectorContext> getContexts( Project project, boolean create ) {
+        Object result = project.getReference( KEY_CONTEXTS );
+        if( (result == null) && create ) {
+            // only happens once per project
+            synchronized( project ) {
+                result = project.getReference( KEY_CONTEXTS );
+                if( result == null ) {
+                    ConcurrentMap<List<Object>,SelectorContext> contexts = new ConcurrentHashMap<List<Object>,SelectorContext>();
+                    project.addReference( KEY_CONTEXTS, contexts );
+                    project.addBuildListener( new ContextCleanup( contexts ) );
+                    result = contexts;
+                }
+            }
+        }
+        return (ConcurrentMap<List<Object>,SelectorContext>) result;
+    }
+
+    /**
+     * Discards the status information of all selectors within the supplied project. This must 
+     * be called whenever the working copy might have been changed.
+     * 
+     * @param project   The project which selectors are affected. Not <code>null</code>.
+     */
+    public static void invalidate( Project project ) {
+        ConcurrentMap<List<Object>,SelectorContext> contexts = getContexts( project, false );
+        if( contexts != null ) {
+            for( SelectorContext context : contexts.values() ) {
+                context.statuses.clear();
+            }
+        }
+    }
+
+    /**
+     * Releases the client adapters leased by the current thread (and by threads which already
+     * terminated) for the selectors within the supplied project.
+     * 
+     * @param project   The project which selectors are affected. Not <code>null</code>.
+     */
+    public static void release( Project project ) {
+        ConcurrentMap<List<Object>,SelectorContext> contexts = getContexts( project, false );
+        if( contexts != null ) {
+            for( SelectorContext context : contexts.values() ) {
+                context.release( false );
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if this context has been discarded at the end of the build.
+     * 
+     * @return   <code>true</code> <=> This context must no longer be used.
+     */
+    boolean isDisposed() {
+        return disposed;
+    }
+
+    /**
+     * Returns the client adapter leased by the current thread.
+     * 
+     * @return   The client adapter leased by the current thread. Not <code>null</code>.
+     */
+    ISVNClientAdapter getClientAdapter() {
+        Thread            current = Thread.currentThread();
+        ISVNClientAdapter result  = leases.get( current );
+        if( result == null ) {
+            // only the current thread adds it's own lease, so there's no race
+            result = SvnFacade.getClientAdapter( owner );
+            leases.put( current, result );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the status of the supplied file. The status is only queried once as long as the
+     * working copy isn't touched by another task or command.
+     * 
+     * @param svnclient   The client adapter of the current thread. Not <code>null</code>.
+     * @param file        The file which status is requested. Not <code>null</code>.
+     * 
+     * @return   The status of the file. Not <code>null</code>.
+     * 
+     * @throws SVNClientException   The status could not be determined.
+     */
+    ISVNStatus getSingleStatus( ISVNClientAdapter svnclient, File file ) throws SVNClientException {
+        ISVNStatus result  = statuses.get( file );
+        String     counter = result != null ? "svnant_cache_hits_total" : "svnant_cache_misses_total";
+        BuildCounters.getCounters( owner.getProject() ).add( counter, 1, "cache", "selectorStatus" );
+        if( result == null ) {
+            result = svnclient.getSingleStatus( file );
+            statuses.put( file, result );
+        }
+        return result;
+    }
+
+    /**
+     * Releases client adapters and discards the status information.
+     * 
+     * @param all   <code>true</code> <=> Release the adapters of all threads, otherwise only the 
+     *              adapters of the current thread and of terminated threads are released.
+     */
+    private void release( boolean all ) {
+        statuses.clear();
+        Thread                                             current = Thread.currentThread();
+        Iterator<Map.Entry<Thread,ISVNClientAdapter>>      it      = leases.entrySet().iterator();
+        while( it.hasNext() ) {
+            Map.Entry<Thread,ISVNClientAdapter> entry = it.next();
+            if( all || (entry.getKey() == current) || (!entry.getKey().isAlive()) ) {
+                it.remove();
+                SvnFacade.releaseClientAdapter( owner, entry.getValue() );
+            }
+        }
+    }
+
+    /**
+     * Discards the status information whenever a task starts, releases the adapters of a task 
+     * when it has finished and all remaining adapters at the end of the build. Sub builds 
+     * (<code>ant</code>, <code>antcall</code>) don't report the end of the build, so the adapters
+     * must not be kept until then.
+     */
+    private static class ContextCleanup implements InternalListener {
+
+        private ConcurrentMap<List<Object>,SelectorContext>   contexts;
+
+        public ContextCleanup( ConcurrentMap<List<Object>,SelectorContext> newcontexts ) {
+            contexts = newcontexts;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void buildFinished( BuildEvent event ) {
+            for( SelectorContext context : contexts.values() ) {
+                context.disposed = true;
+                context.release( true );
+            }
+            contexts.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void taskStarted( BuildEvent event ) {
+            for( SelectorContext context : contexts.values() ) {
+                context.statuses.clear();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void taskFinished( BuildEvent event ) {
+            // the event is fired by the thread which executed the task
+            for( SelectorContext context : contexts.values() ) {
+                context.release( false );
+            }
+        }
+
+        public void buildStarted( BuildEvent event ) {
+        }
+
+        public void targetStarted( BuildEvent event ) {
+        }
+
+        public void targetFinished( BuildEvent event ) {
+        }
+
+        public void messageLogged( BuildEvent event ) {
+        }
+
+    } /* ENDCLASS */
+
+} /* ENDCLASS */
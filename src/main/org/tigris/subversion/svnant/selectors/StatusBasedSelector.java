@@ -78,7 +78,7 @@ public abstract class StatusBasedSelector extends BaseSvnSelector {
      */
     public final boolean isSelected( ISVNClientAdapter svnClient, File basedir, String filename, File file ) {
         try {
-            ISVNStatus status = svnClient.getSingleStatus( file );
+            ISVNStatus status = getContext().getSingleStatus( svnClient, file );
             return isSelected( status );
         } catch( SVNClientException ex ) {
             throw new BuildException( ex );
@@ -93,4 +93,15 @@ public abstract class StatusBasedSelector extends BaseSvnSelector {
      */
     public abstract boolean isSelected( ISVNStatus status_ );
 
+    /**
+     * Returns <code>true</code> if this selector only accepts entries which differ from their
+     * base, so entries with a 'normal' status can never be selected. This allows a scanner to 
+     * query the status of the changed entries only.
+     * 
+     * @return   <code>true</code> <=> This selector only accepts changed entries.
+     */
+    public boolean isChangeSelector() {
+        return false;
+    }
+
 }
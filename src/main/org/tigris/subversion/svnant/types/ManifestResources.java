@@ -0,0 +1,267 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.types;
+
+import org.tigris.subversion.svnant.SvnAntUtilities;
+
+import org.apache.tools.ant.types.Path;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * A Path providing the files listed within a manifest (one path per line, UTF-8 encoded). Each 
+ * path is preceded by the code of the change and a space (f.e. <code>U /work/a.txt</code>). Lines
+ * without such a code are considered to be updated. The manifest is only read again if it has 
+ * been modified. Entries which are not existing files (f.e. directories) are skipped unless
+ * deleted paths have been selected.
+ */
+public class ManifestResources extends Path {
+
+    private static final String MSG_CANNOT_READ = "Cannot read the manifest '%s'.";
+
+    /**
+     * The kinds of changes which are recorded within a manifest.
+     */
+    public static enum Change {
+        
+        added       ( 'A' ),
+        updated     ( 'U' ),
+        deleted     ( 'D' ),
+        conflicted  ( 'C' );
+        
+        private char   code;
+        
+        Change( char newcode ) {
+            code = newcode;
+        }
+        
+        /**
+         * Returns the code used within the manifest.
+         * 
+         * @return   The code used within the manifest.
+         */
+        public char getCode() {
+            return code;
+        }
+        
+        /**
+         * Returns the change identified by the supplied code.
+         * 
+         * @param code   The code used within the manifest.
+         * 
+         * @return   The change. <code>null</code> if the code is unknown.
+         */
+        public static Change valueOf( char code ) {
+            for( Change change : values() ) {
+                if( change.code == code ) {
+                    return change;
+                }
+            }
+            return null;
+        }
+        
+    }
+
+    private File          manifest;
+    private Set<Change>   selected;
+    private List<Entry>   entries;
+    private long          modified;
+    private long          length;
+
+    /**
+     * Initialises this Path which provides the added, updated and conflicting files.
+     * 
+     * @param project    The project this Path belongs to. Not <code>null</code>.
+     * @param location   The location of the manifest. Not <code>null</code>.
+     */
+    public ManifestResources( Project project, File location ) {
+        this( project, location, EnumSet.of( Change.added, Change.updated, Change.conflicted ) );
+    }
+
+    /**
+     * Initialises this Path which provides the paths with the supplied changes.
+     * 
+     * @param project    The project this Path belongs to. Not <code>null</code>.
+     * @param location   The location of the manifest. Not <code>null</code>.
+     * @param changes    The changes of the provided paths. Not <code>null</code>.
+     */
+    public ManifestResources( Project project, File location, Set<Change> changes ) {
+        super( project );
+        manifest = location;
+        selected = EnumSet.copyOf( changes );
+        entries  = null;
+        modified = 0;
+        length   = 0;
+    }
+
+    /**
+     * Returns the location of the manifest providing the entries of this Path.
+     * 
+     * @return   The location of the manifest. Not <code>null</code>.
+     */
+    public File getManifest() {
+        return manifest;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String[] list() {
+        List<String> result = new ArrayList<String>();
+        for( Entry entry : getEntries() ) {
+            if( selected.contains( entry.change ) && ((entry.change == Change.deleted) || entry.file.isFile()) ) {
+                result.add( entry.file.getAbsolutePath() );
+            }
+        }
+        return result.toArray( new String[ result.size() ] );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return list().length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        StringBuffer result = new StringBuffer();
+        for( String entry : list() ) {
+            if( result.length() > 0 ) {
+                result.append( File.pathSeparatorChar );
+            }
+            result.append( entry );
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the entries of the manifest. The manifest is only read if it has been changed 
+     * since it has been read the last time.
+     * 
+     * @return   The entries of the manifest. Not <code>null</code>.
+     */
+    private synchronized List<Entry> getEntries() {
+        long lastmodified = manifest.lastModified();
+        long size         = manifest.length();
+        if( (entries == null) || (lastmodified != modified) || (size != length) ) {
+            entries  = read();
+            modified = lastmodified;
+            length   = size;
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the entries of the manifest.
+     * 
+     * @return   The entries of the manifest. Not <code>null</code>.
+     */
+    private List<Entry> read() {
+        List<Entry> result = new ArrayList<Entry>();
+        if( ! manifest.isFile() ) {
+            return result;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( manifest ), "UTF-8" ) );
+            String line = reader.readLine();
+            while( line != null ) {
+                Change change = (line.length() > 2) && (line.charAt(1) == ' ') ? Change.valueOf( line.charAt(0) ) : null;
+                if( change != null ) {
+                    result.add( new Entry( new File( line.substring(2) ), change ) );
+                } else if( line.length() > 0 ) {
+                    result.add( new Entry( new File( line ), Change.updated ) );
+                }
+                line = reader.readLine();
+            }
+        } catch( IOException ex ) {
+            throw new BuildException( String.format( MSG_CANNOT_READ, manifest ), ex );
+        } finally {
+            SvnAntUtilities.close( reader );
+        }
+        return result;
+    }
+
+    /**
+     * A single path of the manifest together with it's change.
+     */
+    private static class Entry {
+
+        private File     file;
+        private Change   change;
+
+        public Entry( File path, Change kind ) {
+            file   = path;
+            change = kind;
+        }
+
+    }
+
+}
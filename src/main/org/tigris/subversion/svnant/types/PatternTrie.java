@@ -0,0 +1,357 @@
+/* ====================================================================
+ * The Apache Software License, Version 1.1
+ *
+ * Copyright (c) 2000 The Apache Software Foundation.  All rights
+ * reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:
+ *       "This product includes software developed by the
+ *        Apache Software Foundation (http://www.apache.org/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "Apache" and "Apache Software Foundation" must
+ *    not be used to endorse or promote products derived from this
+ *    software without prior written permission. For written
+ *    permission, please contact apache@apache.org.
+ *
+ * 5. Products derived from this software may not be called "Apache",
+ *    nor may "Apache" appear in their name, without prior written
+ *    permission of the Apache Software Foundation.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL THE APACHE SOFTWARE FOUNDATION OR
+ * ITS CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF
+ * USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.tigris.subversion.svnant.types;
+
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.io.File;
+
+/**
+ * Include or exclude patterns compiled into a trie over the path segments. A path is matched
+ * segment by segment against all patterns at once, so neither the patterns nor the path are
+ * tokenised for each pattern. The semantics are the ones of <code>SelectorUtils.matchPath</code>
+ * ({@link #matches(Position)}) and <code>SelectorUtils.matchPatternStart</code> 
+ * ({@link #isAlive(Position)}). Compiled patterns are immutable and shared by all scanners using
+ * the same patterns.
+ */
+final class PatternTrie {
+
+    private static final String                           DEEP      = "**";
+
+    /** The maximum number of compiled pattern sets which are kept for reuse. */
+    private static final int                              CACHESIZE = 64;
+
+    private static final ConcurrentMap<List<Object>,PatternTrie> CACHE = new ConcurrentHashMap<List<Object>,PatternTrie>();
+
+    private Set<String>   patterns;
+    private boolean       casesensitive;
+    private Position      root;
+
+    /**
+     * Compiles the supplied patterns.
+     * 
+     * @param newpatterns        The patterns using the platform specific separator. Not <code>null</code>.
+     * @param iscasesensitive    <code>true</code> <=> The segments are matched case sensitively.
+     */
+    private PatternTrie( String[] newpatterns, boolean iscasesensitive ) {
+        patterns      = new HashSet<String>( Arrays.asList( newpatterns ) );
+        casesensitive = iscasesensitive;
+        Node start    = new Node();
+        for( String pattern : patterns ) {
+            Node node = start;
+            for( String segment : tokenize( pattern ) ) {
+                node = node.add( segment, casesensitive );
+            }
+            node.terminal = true;
+        }
+        root = closure( new Node[] { start } );
+    }
+
+    /**
+     * Returns the compiled form of the supplied patterns.
+     * 
+     * @param patterns          The patterns using the platform specific separator. Not <code>null</code>.
+     * @param casesensitive     <code>true</code> <=> The segments are matched case sensitively.
+     * 
+     * @return   The compiled patterns. Not <code>null</code>.
+     */
+    static PatternTrie compile( String[] patterns, boolean casesensitive ) {
+        List<Object> key    = new ArrayList<Object>( Arrays.asList( (Object[]) patterns ) );
+        key.add( Boolean.valueOf( casesensitive ) );
+        PatternTrie  result = CACHE.get( key );
+        if( result == null ) {
+            result = new PatternTrie( patterns, casesensitive );
+            if( CACHE.size() >= CACHESIZE ) {
+                CACHE.clear();
+            }
+            CACHE.put( key, result );
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied pattern is part of the compiled ones.
+     * 
+     * @param pattern   The pattern using the platform specific separator. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The pattern is part of the compiled ones.
+     */
+    boolean contains( String pattern ) {
+        return patterns.contains( pattern );
+    }
+
+    /**
+     * Returns the position before the first segment.
+     * 
+     * @return   The position before the first segment. Not <code>null</code>.
+     */
+    Position getRoot() {
+        return root;
+    }
+
+    /**
+     * Advances the supplied position by all segments of a path.
+     * 
+     * @param position   The current position. Not <code>null</code>.
+     * @param path       The path using the platform specific separator. Not <code>null</code>.
+     * 
+     * @return   The new position. Not <code>null</code>.
+     */
+    Position advancePath( Position position, String path ) {
+        Position result = position;
+        for( String segment : tokenize( path ) ) {
+            if( !isAlive( result ) ) {
+                break;
+            }
+            result = advance( result, segment );
+        }
+        return result;
+    }
+
+    /**
+     * Advances the supplied position by a single segment.
+     * 
+     * @param position   The current position. Not <code>null</code>.
+     * @param segment    The next segment of the path. Not <code>null</code>.
+     * 
+     * @return   The new position. Not <code>null</code>.
+     */
+    Position advance( Position position, String segment ) {
+        List<Node> next = new ArrayList<Node>();
+        for( Node node : position.nodes ) {
+            if( node.deep ) {
+                add( next, node );
+            }
+            if( node.literals != null ) {
+                Node literal = node.literals.get( segment );
+                if( literal != null ) {
+                    add( next, literal );
+                }
+            }
+            for( int i = 0; i < node.wildcards.size(); i++ ) {
+                if( SelectorUtils.match( node.wildcards.get(i), segment, casesensitive ) ) {
+                    add( next, node.wildcardnodes.get(i) );
+                }
+            }
+        }
+        return closure( next.toArray( new Node[next.size()] ) );
+    }
+
+    /**
+     * Returns <code>true</code> if a path leading to the supplied position matches at least one
+     * of the patterns.
+     * 
+     * @param position   The position after the last segment of the path. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The path matches at least one pattern.
+     */
+    boolean matches( Position position ) {
+        for( Node node : position.nodes ) {
+            if( node.terminal ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if a path leading to the supplied position matches the start of 
+     * at least one pattern, so it could contain matching paths.
+     * 
+     * @param position   The position after the last segment of the path. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The path matches the start of at least one pattern.
+     */
+    boolean isAlive( Position position ) {
+        return position.nodes.length > 0;
+    }
+
+    /**
+     * Adds the nodes which are reachable without consuming a segment ('**' matches zero segments).
+     * 
+     * @param nodes   The nodes of a position. Not <code>null</code>.
+     * 
+     * @return   The position containing the supplied nodes. Not <code>null</code>.
+     */
+    private static Position closure( Node[] nodes ) {
+        List<Node> result = new ArrayList<Node>( Arrays.asList( nodes ) );
+        for( Node node : nodes ) {
+            if( node.deepnode != null ) {
+                add( result, node.deepnode );
+            }
+        }
+        return new Position( result.toArray( new Node[result.size()] ) );
+    }
+
+    private static void add( List<Node> nodes, Node node ) {
+        if( !nodes.contains( node ) ) {
+            nodes.add( node );
+        }
+    }
+
+    /**
+     * Splits a path into it's segments. A leading separator is a segment on it's own, so
+     * absolute patterns only match absolute paths.
+     * 
+     * @param path   The path using the platform specific separator. Not <code>null</code>.
+     * 
+     * @return   The segments of the path. Not <code>null</code>.
+     */
+    private static List<String> tokenize( String path ) {
+        List<String> result = new ArrayList<String>();
+        if( path.startsWith( File.separator ) ) {
+            result.add( File.separator );
+        }
+        int start = 0;
+        while( start < path.length() ) {
+            int end = path.indexOf( File.separatorChar, start );
+            if( end == -1 ) {
+                end = path.length();
+            }
+            if( end > start ) {
+                String segment = path.substring( start, end );
+                // consecutive '**' are equivalent to a single one
+                if( !(DEEP.equals( segment ) && (!result.isEmpty()) && DEEP.equals( result.get( result.size() - 1 ) )) ) {
+                    result.add( segment );
+                }
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    /**
+     * The nodes which have been reached after a number of segments.
+     */
+    static final class Position {
+
+        private Node[]   nodes;
+
+        private Position( Node[] newnodes ) {
+            nodes = newnodes;
+        }
+
+    }
+
+    /**
+     * A node of the trie. The node following a '**' segment accepts any number of segments.
+     */
+    private static final class Node {
+
+        /** The successors for segments without wildcards (case sensitive matching only). */
+        private Map<String,Node>   literals      = null;
+
+        private List<String>       wildcards     = new ArrayList<String>();
+        private List<Node>         wildcardnodes = new ArrayList<Node>();
+
+        /** The successor for a '**' segment. */
+        private Node               deepnode      = null;
+
+        /** <code>true</code> <=> This node follows a '**' segment and accepts any segment. */
+        private boolean            deep          = false;
+
+        /** <code>true</code> <=> A pattern ends with this node. */
+        private boolean            terminal      = false;
+
+        /**
+         * Returns the successor for the supplied pattern segment. The successor is created if
+         * necessary.
+         * 
+         * @param segment         The segment of a pattern. Not <code>null</code>.
+         * @param casesensitive   <code>true</code> <=> The segments are matched case sensitively.
+         * 
+         * @return   The successor. Not <code>null</code>.
+         */
+        private Node add( String segment, boolean casesensitive ) {
+            if( DEEP.equals( segment ) ) {
+                if( deepnode == null ) {
+                    deepnode      = new Node();
+                    deepnode.deep = true;
+                }
+                return deepnode;
+            }
+            if( casesensitive && (segment.indexOf( '*' ) == -1) && (segment.indexOf( '?' ) == -1) ) {
+                if( literals == null ) {
+                    literals = new HashMap<String,Node>();
+                }
+                Node result = literals.get( segment );
+                if( result == null ) {
+                    result = new Node();
+                    literals.put( segment, result );
+                }
+                return result;
+            }
+            int index = wildcards.indexOf( segment );
+            if( index == -1 ) {
+                wildcards.add( segment );
+                wildcardnodes.add( new Node() );
+                index = wildcards.size() - 1;
+            }
+            return wildcardnodes.get( index );
+        }
+
+    }
+
+}
@@ -57,25 +57,56 @@ package org.tigris.subversion.svnant.types;
 import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
 import org.tigris.subversion.svnclientadapter.ISVNStatus;
 import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNConflictDescriptor;
 import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNStatusKind;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.tigris.subversion.svnant.SvnFacade;
+import org.tigris.subversion.svnant.metrics.BuildCounters;
+import org.tigris.subversion.svnant.metrics.BuildTrace;
+import org.tigris.subversion.svnant.metrics.FlightEvents;
+import org.tigris.subversion.svnant.selectors.BaseSvnSelector;
+import org.tigris.subversion.svnant.selectors.SelectorContext;
+import org.tigris.subversion.svnant.selectors.StatusBasedSelector;
 
 import org.apache.tools.ant.types.Resource;
+import org.apache.tools.ant.types.selectors.AndSelector;
+import org.apache.tools.ant.types.selectors.BaseSelectorContainer;
 import org.apache.tools.ant.types.selectors.FileSelector;
+import org.apache.tools.ant.types.selectors.NotSelector;
+import org.apache.tools.ant.types.selectors.OrSelector;
 import org.apache.tools.ant.types.selectors.SelectorUtils;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.ProjectComponent;
 import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.util.FileUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import java.io.File;
 import java.io.IOException;
@@ -105,6 +136,11 @@ public class SvnDirScanner extends DirectoryScanner {
     /** Is OpenVMS the operating system we're running on? */
     private static final boolean    ON_VMS             = Os.isFamily( "openvms" );
 
+    /** The default number of threads used for a parallel scan. */
+    public static final int         DEFAULT_THREADS    = 4;
+
+    private static final AtomicInteger THREADCOUNT     = new AtomicInteger();
+
     /**
      * Patterns which should be excluded by default.
      *
@@ -151,9 +187,12 @@ public class SvnDirScanner extends DirectoryScanner {
     }
 
     private ISVNClientAdapter           svnClient;
-    
+
+    /** The client adapter of the current worker thread while a parallel scan is running. */
+    private ThreadLocal<ISVNClientAdapter> workerClient = new ThreadLocal<ISVNClientAdapter>();
+
     /** temporary table to speed up the various scanning methods below  */
-    private Map<File,ISVNStatus[]>      fileListMap = new HashMap<File,ISVNStatus[]>();
+    private Map<File,ISVNStatus[]>      fileListMap = new ConcurrentHashMap<File,ISVNStatus[]>();
 
     /** The base directory to be scanned. */
     private File                        basedir;
@@ -164,34 +203,40 @@ public class SvnDirScanner extends DirectoryScanner {
     /** The patterns for the files to be excluded. */
     private String[]                    excludes;
 
+    /** The compiled include patterns. */
+    private PatternTrie                 includePatterns;
+
+    /** The compiled exclude patterns. */
+    private PatternTrie                 excludePatterns;
+
     /** Selectors that will filter which files are in our candidate list. */
     private FileSelector[]              selectors          = null;
 
     /** The files which matched at least one include and no excludes and were selected. */
-    private Vector<String>              filesIncluded;
+    private Set<String>                 filesIncluded;
 
     /** The files which did not match any includes or selectors. */
-    private Vector<String>              filesNotIncluded;
+    private Set<String>                 filesNotIncluded;
 
     /** The files which matched at least one include and at least one exclude. */
-    private Vector<String>              filesExcluded;
+    private Set<String>                 filesExcluded;
 
     /** The directories which matched at least one include and no excludes and were selected. */
-    private Vector<String>              dirsIncluded;
+    private Set<String>                 dirsIncluded;
 
     /** The directories which were found and did not match any includes. */
-    private Vector<String>              dirsNotIncluded;
+    private Set<String>                 dirsNotIncluded;
 
     /** The directories which matched at least one include and at least one exclude. */
-    private Vector<String>              dirsExcluded;
+    private Set<String>                 dirsExcluded;
 
     /** The files which matched at least one include and no excludes and
      *  which a selector discarded.
      */
-    private Vector<String>              filesDeselected;
+    private Set<String>                 filesDeselected;
 
     /** The directories which matched at least one include and no excludes but which a selector discarded. */
-    private Vector<String>              dirsDeselected;
+    private Set<String>                 dirsDeselected;
 
     /** Whether or not our results were built by a slow scan. */
     private boolean                     haveSlowResults    = false;
@@ -203,17 +248,167 @@ public class SvnDirScanner extends DirectoryScanner {
     private boolean                     followSymlinks     = true;
 
     /** Whether or not everything tested so far has been included. */
-    private boolean                     everythingIncluded = true;
+    private volatile boolean            everythingIncluded = true;
 
     /** List of all scanned directories. */
-    private Set<String>                 scannedDirs = new HashSet<String>();
+    private Set<String>                 scannedDirs = Collections.synchronizedSet( new HashSet<String>() );
+
+    /** The component used to obtain a client adapter while scanning. */
+    private ProjectComponent            component;
+
+    /** Whether or not subtrees which are scanned completely are listed with a single status call. */
+    private boolean                     prefetch           = true;
+
+    /** Whether or not the selectors only accept changed entries, so unchanged ones aren't listed. */
+    private boolean                     changesOnly        = false;
+
+    /** Whether or not subtrees are scanned concurrently. */
+    private boolean                     parallel           = false;
+
+    /** The maximum number of threads used for a parallel scan. */
+    private int                         threads            = DEFAULT_THREADS;
+
+    /** The worker threads of the running top level scan if it's a parallel one. */
+    private ExecutorService             executor           = null;
+
+    /** Records the results of a sequential scan. */
+    private ScanSink                    direct             = new DirectSink();
 
     /**
-     * Sole constructor.
-     * @param clientAdapter
+     * Initialises this scanner with a client adapter which is used for all scans.
+     * 
+     * @param clientAdapter   The client adapter used to query the status. Not <code>null</code>.
      */
     public SvnDirScanner( ISVNClientAdapter clientAdapter ) {
         svnClient = clientAdapter;
+        component = null;
+    }
+
+    /**
+     * Initialises this scanner with a component which is used to obtain a client adapter.
+     * The adapter is only held while a scan is running.
+     * 
+     * @param svncomponent   The component providing the svn settings. Not <code>null</code>.
+     */
+    public SvnDirScanner( ProjectComponent svncomponent ) {
+        svnClient = null;
+        component = svncomponent;
+    }
+
+    /**
+     * Obtains a client adapter for the duration of a scan if this scanner hasn't been created
+     * with a fixed one.
+     * 
+     * @return   <code>true</code> <=> The adapter has been obtained and must be released.
+     */
+    private boolean acquireClientAdapter() {
+        if( (svnClient == null) && (component != null) ) {
+            Object event = FlightEvents.SCAN.begin();
+            svnClient    = SvnFacade.getClientAdapter( component );
+            if( event != null ) {
+                FlightEvents.SCAN.commit( event, "acquire", String.valueOf( basedir ) );
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Releases the client adapter if it has been obtained by {@link #acquireClientAdapter()}.
+     * 
+     * @param acquired   The result of the corresponding {@link #acquireClientAdapter()} call.
+     */
+    private void releaseClientAdapter( boolean acquired ) {
+        if( acquired ) {
+            SvnFacade.releaseClientAdapter( component, svnClient );
+            svnClient = null;
+        }
+    }
+
+    /**
+     * Starts the worker threads for a top level scan if the subtrees can be scanned concurrently.
+     * The workers are shared by all directories scanned until {@link #stopWorkers(boolean)}.
+     * 
+     * @return   <code>true</code> <=> The workers have been started and must be stopped.
+     */
+    private boolean startWorkers() {
+        if( (executor == null) && isParallel() ) {
+            executor = Executors.newFixedThreadPool( threads, new WorkerFactory() );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops the worker threads if they have been started by {@link #startWorkers()}. Returns 
+     * after the workers have released their client adapters.
+     * 
+     * @param started   The result of the corresponding {@link #startWorkers()} call.
+     */
+    private void stopWorkers( boolean started ) {
+        if( started ) {
+            ExecutorService stopping    = executor;
+            boolean         interrupted = false;
+            executor = null;
+            stopping.shutdown();
+            while( true ) {
+                try {
+                    stopping.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+                    break;
+                } catch( InterruptedException ex ) {
+                    // the workers are idle, so they terminate immediately
+                    interrupted = true;
+                }
+            }
+            if( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the subtrees can be scanned concurrently.
+     * 
+     * @return   <code>true</code> <=> The subtrees can be scanned concurrently.
+     */
+    boolean isParallel() {
+        return parallel && (threads > 1) && (component != null) && ((selectors == null) || isThreadSafe( Arrays.asList( selectors ) ));
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied selectors can be evaluated concurrently. This is
+     * the case for svn selectors which might be combined using <code>and</code>, <code>or</code>
+     * and <code>not</code> while other selectors might not be prepared for concurrent calls.
+     * 
+     * @param selectors   The selectors to examine. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The selectors can be evaluated concurrently.
+     */
+    private static boolean isThreadSafe( List<?> selectors ) {
+        for( Object selector : selectors ) {
+            if( (selector instanceof AndSelector) || (selector instanceof OrSelector) || (selector instanceof NotSelector) ) {
+                List<Object> nested = new ArrayList<Object>();
+                for( Enumeration<?> it = ((BaseSelectorContainer) selector).selectorElements(); it.hasMoreElements(); ) {
+                    nested.add( it.nextElement() );
+                }
+                if( ! isThreadSafe( nested ) ) {
+                    return false;
+                }
+            } else if( ! (selector instanceof BaseSvnSelector) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the client adapter of the current thread.
+     * 
+     * @return   The client adapter of the current thread. Not <code>null</code> while scanning.
+     */
+    private ISVNClientAdapter getClient() {
+        ISVNClientAdapter result = workerClient.get();
+        return result != null ? result : svnClient;
     }
 
     /**
@@ -224,33 +419,43 @@ public class SvnDirScanner extends DirectoryScanner {
      * @since Ant 1.6
      */
     private ISVNStatus[] list( File file ) {
-        ISVNStatus[] files = fileListMap.get( file );
+        ISVNStatus[]  files    = fileListMap.get( file );
+        if( (files == null) && changesOnly ) {
+            // only the changed entries are listed, so the recursive status of the directory
+            // provides everything that can be selected
+            prefetch( file );
+            files = fileListMap.get( file );
+        }
+        BuildCounters counters = component != null ? BuildCounters.getCounters( component.getProject() ) : null;
+        if( counters != null ) {
+            String counter = files != null ? "svnant_cache_hits_total" : "svnant_cache_misses_total";
+            counters.add( counter, 1, "cache", "scannerListing" );
+        }
         if( files == null ) {
             // Obtain the entries from the client adapter
+            Object event = FlightEvents.SCAN.begin();
             try {
-                files = svnClient.getStatus( file, false, true ); // descend=false, getAll=true
+                files = getClient().getStatus( file, false, true ); // descend=false, getAll=true
             } catch( SVNClientException e ) {
                 throw new RuntimeException( "Error scanning: " + e, e );
-            }
-
-            // Count children entries
-            int count = 0;
-            for( int loop = 0; loop < files.length; ++loop ) {
-                if( false == files[loop].getFile().equals( file ) ) {
-                    count++;
+            } finally {
+                if( event != null ) {
+                    FlightEvents.SCAN.commit( event, "status", file.getPath() );
                 }
             }
 
             // Copy children entries
-            ISVNStatus[] copy = new ISVNStatus[count];
-            int index = 0;
+            List<ISVNStatus> children = new ArrayList<ISVNStatus>( files.length );
             for( int loop = 0; loop < files.length; ++loop ) {
                 if( false == files[loop].getFile().equals( file ) ) {
-                    copy[index] = files[loop];
-                    ++index;
+                    children.add( files[loop] );
                 }
             }
-            files = copy;
+            files = children.toArray( new ISVNStatus[children.size()] );
+            if( counters != null ) {
+                counters.add( "svnant_scanner_directories_total", 1 );
+                counters.add( "svnant_scanner_entries_total", files.length );
+            }
 
             // Cache
             fileListMap.put( file, files );
@@ -258,6 +463,118 @@ public class SvnDirScanner extends DirectoryScanner {
         return files;
     }
 
+    /**
+     * Lists the complete subtree of the supplied directory using one recursive status call.
+     * The entries are indexed by their parent directory, so subsequent calls of 
+     * {@link #list(File)} are served from memory. Directories which are not part of the 
+     * result (unversioned ones or externals for instance) are still listed separately.
+     * If the selectors only accept changed entries, the unchanged ones are neither queried
+     * nor listed. Unchanged directories are only listed if they contain changes.
+     * 
+     * @param root   The directory which subtree has to be listed. Not <code>null</code>.
+     */
+    private void prefetch( File root ) {
+        if( (!prefetch) || fileListMap.containsKey( root ) ) {
+            return;
+        }
+        ISVNStatus[] statuses = null;
+        Object       event    = FlightEvents.SCAN.begin();
+        try {
+            statuses = getClient().getStatus( root, true, !changesOnly ); // descend=true
+        } catch( SVNClientException e ) {
+            throw new RuntimeException( "Error scanning: " + e, e );
+        } finally {
+            if( event != null ) {
+                FlightEvents.SCAN.commit( event, "prefetch", root.getPath() );
+            }
+        }
+
+        Map<File,List<ISVNStatus>> children = new HashMap<File,List<ISVNStatus>>();
+        for( int i = 0; i < statuses.length; i++ ) {
+            File file = statuses[i].getFile();
+            if( isListed( statuses[i] ) && (!children.containsKey( file )) ) {
+                // versioned directories are part of the result even if they are empty
+                children.put( file, new ArrayList<ISVNStatus>() );
+            }
+            if( file.equals( root ) ) {
+                continue;
+            }
+            File             parent  = file.getParentFile();
+            List<ISVNStatus> entries = children.get( parent );
+            if( entries == null ) {
+                entries = new ArrayList<ISVNStatus>();
+                children.put( parent, entries );
+            }
+            entries.add( statuses[i] );
+        }
+
+        if( changesOnly ) {
+            addUnchangedParents( root, statuses, children );
+        }
+
+        for( Map.Entry<File,List<ISVNStatus>> entry : children.entrySet() ) {
+            if( !fileListMap.containsKey( entry.getKey() ) ) {
+                List<ISVNStatus> entries = entry.getValue();
+                fileListMap.put( entry.getKey(), entries.toArray( new ISVNStatus[entries.size()] ) );
+            }
+        }
+
+        BuildCounters counters = component != null ? BuildCounters.getCounters( component.getProject() ) : null;
+        if( counters != null ) {
+            counters.add( "svnant_scanner_prefetches_total", 1 );
+            counters.add( "svnant_scanner_directories_total", children.size() );
+            counters.add( "svnant_scanner_entries_total", statuses.length );
+        }
+    }
+
+    /**
+     * Adds the unchanged directories between the root and the changed entries, so the scan
+     * descends into them. The root is always listed, even if it doesn't contain any changes.
+     * 
+     * @param root       The directory which subtree has been listed. Not <code>null</code>.
+     * @param statuses   The status of the changed entries. Not <code>null</code>.
+     * @param children   The entries indexed by their parent directory. Not <code>null</code>.
+     */
+    private static void addUnchangedParents( File root, ISVNStatus[] statuses, Map<File,List<ISVNStatus>> children ) {
+        Set<File> listed = new HashSet<File>();
+        for( int i = 0; i < statuses.length; i++ ) {
+            listed.add( statuses[i].getFile() );
+        }
+        for( File dir : new ArrayList<File>( children.keySet() ) ) {
+            File current = dir;
+            while( (current != null) && (!current.equals( root )) && listed.add( current ) ) {
+                File             parent  = current.getParentFile();
+                List<ISVNStatus> entries = children.get( parent );
+                if( entries == null ) {
+                    entries = new ArrayList<ISVNStatus>();
+                    children.put( parent, entries );
+                }
+                entries.add( new UnchangedStatus( current ) );
+                current = parent;
+            }
+        }
+        if( !children.containsKey( root ) ) {
+            children.put( root, new ArrayList<ISVNStatus>() );
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the children of the supplied directory are part of a
+     * recursive status.
+     * 
+     * @param status   The status of an entry. Not <code>null</code>.
+     * 
+     * @return   <code>true</code> <=> The supplied status belongs to a versioned directory.
+     */
+    private static boolean isListed( ISVNStatus status ) {
+        if( SVNNodeKind.DIR != status.getNodeKind() ) {
+            return false;
+        }
+        SVNStatusKind kind = status.getTextStatus();
+        return (SVNStatusKind.NORMAL == kind) || (SVNStatusKind.MODIFIED == kind) || (SVNStatusKind.ADDED == kind)
+                        || (SVNStatusKind.REPLACED == kind);
+    }
+
 
     /**
      * Tests whether or not a given path matches the start of a given
@@ -484,6 +801,19 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     public void setCaseSensitive( boolean isCaseSensitive ) {
         this.isCaseSensitive = isCaseSensitive;
+        includePatterns      = compile( includes );
+        excludePatterns      = compile( excludes );
+    }
+
+    /**
+     * Compiles the supplied patterns according to the current case sensitivity.
+     * 
+     * @param patterns   The patterns which have to be compiled. Maybe <code>null</code>.
+     * 
+     * @return   The compiled patterns. <code>null</code> if no patterns have been supplied.
+     */
+    private PatternTrie compile( String[] patterns ) {
+        return patterns != null ? PatternTrie.compile( patterns, isCaseSensitive ) : null;
     }
 
     /**
@@ -533,6 +863,7 @@ public class SvnDirScanner extends DirectoryScanner {
                 this.includes[i] = pattern;
             }
         }
+        includePatterns = compile( this.includes );
     }
 
     /**
@@ -561,6 +892,7 @@ public class SvnDirScanner extends DirectoryScanner {
                 this.excludes[i] = pattern;
             }
         }
+        excludePatterns = compile( this.excludes );
     }
 
     /**
@@ -572,6 +904,39 @@ public class SvnDirScanner extends DirectoryScanner {
         this.selectors = selectors;
     }
 
+    /**
+     * Enables/disables the prefetching of the status. If enabled each subtree that has to be
+     * scanned completely is listed using one recursive status call. Otherwise each directory
+     * is listed separately.
+     * 
+     * @param enable   <code>true</code> <=> Prefetch the status of complete subtrees.
+     */
+    public void setPrefetch( boolean enable ) {
+        prefetch = enable;
+    }
+
+    /**
+     * Enables/disables the concurrent scanning of subtrees. Each worker thread uses it's own 
+     * client adapter, so this requires a scanner which has been created with a component.
+     * The results are the same as the ones of a sequential scan (including their order).
+     * Selectors are evaluated by the worker threads, so the scan remains sequential unless
+     * all selectors are svn selectors.
+     * 
+     * @param enable   <code>true</code> <=> Scan subtrees concurrently.
+     */
+    public void setParallel( boolean enable ) {
+        parallel = enable;
+    }
+
+    /**
+     * Changes the maximum number of threads used for a parallel scan.
+     * 
+     * @param count   The maximum number of threads. At least 1.
+     */
+    public void setThreads( int count ) {
+        threads = count;
+    }
+
     /**
      * Returns whether or not the scanner has included all the files or
      * directories it has come across so far.
@@ -593,6 +958,29 @@ public class SvnDirScanner extends DirectoryScanner {
      *            or isn't a directory).
      */
     public void scan() throws IllegalStateException {
+        Object     event    = FlightEvents.SCAN.begin();
+        BuildTrace trace    = BuildTrace.getActive();
+        long       started  = trace != null ? System.nanoTime() : 0;
+        boolean    acquired = acquireClientAdapter();
+        boolean    workers  = startWorkers();
+        try {
+            scanImpl();
+        } finally {
+            stopWorkers( workers );
+            releaseClientAdapter( acquired );
+            if( event != null ) {
+                FlightEvents.SCAN.commit( event, "scan", String.valueOf( basedir ) );
+            }
+            if( trace != null ) {
+                trace.addSpan( "scan", "scanner", started, System.nanoTime(), "directory", String.valueOf( basedir ) );
+            }
+        }
+    }
+
+    /**
+     * Implementation of {@link #scan()}.
+     */
+    private void scanImpl() {
         if( basedir == null ) {
             throw new IllegalStateException( "No basedir set" );
         }
@@ -611,28 +999,41 @@ public class SvnDirScanner extends DirectoryScanner {
         if( excludes == null ) {
             excludes = new String[0];
         }
+        if( includePatterns == null ) {
+            includePatterns = compile( includes );
+        }
+        if( excludePatterns == null ) {
+            excludePatterns = compile( excludes );
+        }
+        changesOnly = prefetch && (selectors != null) && selectsChangesOnly( Arrays.asList( selectors ), true );
+        if( changesOnly ) {
+            // the unchanged entries aren't listed but they would have been deselected
+            everythingIncluded = false;
+        }
 
-        filesIncluded       = new Vector<String>();
-        filesNotIncluded    = new Vector<String>();
-        filesExcluded       = new Vector<String>();
-        filesDeselected     = new Vector<String>();
-        dirsIncluded        = new Vector<String>();
-        dirsNotIncluded     = new Vector<String>();
-        dirsExcluded        = new Vector<String>();
-        dirsDeselected      = new Vector<String>();
+        // insertion ordered sets keep the order of the scan while the membership tests
+        // of accountForIncludedFile/accountForIncludedDir don't depend on the number of entries
+        filesIncluded       = new LinkedHashSet<String>();
+        filesNotIncluded    = new LinkedHashSet<String>();
+        filesExcluded       = new LinkedHashSet<String>();
+        filesDeselected     = new LinkedHashSet<String>();
+        dirsIncluded        = new LinkedHashSet<String>();
+        dirsNotIncluded     = new LinkedHashSet<String>();
+        dirsExcluded        = new LinkedHashSet<String>();
+        dirsDeselected      = new LinkedHashSet<String>();
 
         if( isIncluded( "" ) ) {
             if( !isExcluded( "" ) ) {
-                if( isSelected( "", basedir ) ) {
-                    dirsIncluded.addElement( "" );
+                if( isSelected( "", basedir, null ) ) {
+                    dirsIncluded.add( "" );
                 } else {
-                    dirsDeselected.addElement( "" );
+                    dirsDeselected.add( "" );
                 }
             } else {
-                dirsExcluded.addElement( "" );
+                dirsExcluded.add( "" );
             }
         } else {
-            dirsNotIncluded.addElement( "" );
+            dirsNotIncluded.add( "" );
         }
         checkIncludePatterns();
         clearCaches();
@@ -645,15 +1046,24 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     private void checkIncludePatterns() {
         Hashtable<String,String> newroots = new Hashtable<String,String>();
+        // the roots of patterns which match in arbitrary depths, so their subtrees will be
+        // scanned completely while the other patterns only touch a few levels
+        Set<String>              deeproots = new HashSet<String>();
         // put in the newroots vector the include patterns without
         // wildcard tokens
         for( int icounter = 0; icounter < includes.length; icounter++ ) {
             String newpattern = SelectorUtils.rtrimWildcardTokens( includes[icounter] );
             newroots.put( newpattern, includes[icounter] );
+            if( includes[icounter].indexOf( "**" ) != -1 ) {
+                deeproots.add( newpattern );
+            }
         }
 
         if( newroots.containsKey( "" ) ) {
             // we are going to scan everything anyway
+            if( deeproots.contains( "" ) ) {
+                prefetch( basedir );
+            }
             scandir( basedir, "", true );
         } else {
             // only scan directories that can include matched files or
@@ -670,6 +1080,7 @@ public class SvnDirScanner extends DirectoryScanner {
             while( enum2.hasMoreElements() ) {
                 String currentelement = enum2.nextElement();
                 String originalpattern = newroots.get( currentelement );
+                boolean deep = deeproots.contains( currentelement );
                 File myfile = new File( basedir, currentelement );
 
                 if( myfile.exists() ) {
@@ -706,8 +1117,11 @@ public class SvnDirScanner extends DirectoryScanner {
                     }
 
                     if( myfile.isDirectory() ) {
+                        if( deep ) {
+                            prefetch( myfile );
+                        }
                         if( isIncluded( currentelement ) && currentelement.length() > 0 ) {
-                            accountForIncludedDir( currentelement, myfile, true );
+                            accountForIncludedDir( currentelement, myfile, null, true, isExcluded( currentelement ), couldHoldIncluded( currentelement ), direct );
                         } else {
                             if( currentelement.length() > 0 ) {
                                 if( currentelement.charAt( currentelement.length() - 1 ) != File.separatorChar ) {
@@ -718,9 +1132,9 @@ public class SvnDirScanner extends DirectoryScanner {
                         }
                     } else {
                         if( isCaseSensitive && originalpattern.equals( currentelement ) ) {
-                            accountForIncludedFile( currentelement, myfile );
+                            accountForIncludedFile( currentelement, myfile, null, isExcluded( currentelement ), direct );
                         } else if( !isCaseSensitive && originalpattern.equalsIgnoreCase( currentelement ) ) {
-                            accountForIncludedFile( currentelement, myfile );
+                            accountForIncludedFile( currentelement, myfile, null, isExcluded( currentelement ), direct );
                         }
                     }
                 }
@@ -740,21 +1154,43 @@ public class SvnDirScanner extends DirectoryScanner {
         if( haveSlowResults ) {
             return;
         }
+        Object     event    = FlightEvents.SCAN.begin();
+        BuildTrace trace    = BuildTrace.getActive();
+        long       started  = trace != null ? System.nanoTime() : 0;
+        boolean    acquired = acquireClientAdapter();
+        boolean    workers  = startWorkers();
+        try {
+            slowScanImpl();
+        } finally {
+            stopWorkers( workers );
+            releaseClientAdapter( acquired );
+            if( event != null ) {
+                FlightEvents.SCAN.commit( event, "slowScan", String.valueOf( basedir ) );
+            }
+            if( trace != null ) {
+                trace.addSpan( "slowScan", "scanner", started, System.nanoTime(), "directory", String.valueOf( basedir ) );
+            }
+        }
+    }
 
-        String[] excl = new String[dirsExcluded.size()];
-        dirsExcluded.copyInto( excl );
+    /**
+     * Implementation of {@link #slowScan()}.
+     */
+    private void slowScanImpl() {
+        String[] excl = dirsExcluded.toArray( new String[dirsExcluded.size()] );
 
-        String[] notIncl = new String[dirsNotIncluded.size()];
-        dirsNotIncluded.copyInto( notIncl );
+        String[] notIncl = dirsNotIncluded.toArray( new String[dirsNotIncluded.size()] );
 
         for( int i = 0; i < excl.length; i++ ) {
             if( !couldHoldIncluded( excl[i] ) ) {
+                prefetch( new File( basedir, excl[i] ) );
                 scandir( new File( basedir, excl[i] ), excl[i] + File.separator, false );
             }
         }
 
         for( int i = 0; i < notIncl.length; i++ ) {
             if( !couldHoldIncluded( notIncl[i] ) ) {
+                prefetch( new File( basedir, notIncl[i] ) );
                 scandir( new File( basedir, notIncl[i] ), notIncl[i] + File.separator, false );
             }
         }
@@ -783,6 +1219,23 @@ public class SvnDirScanner extends DirectoryScanner {
      * @see #slowScan
      */
     protected void scandir( File dir, String vpath, boolean fast ) {
+        if( executor != null ) {
+            new ParallelScan().scan( dir, vpath, fast );
+        } else {
+            scandir( dir, vpath, fast, direct );
+        }
+    }
+
+    /**
+     * Scans the given directory for files and directories while the results are passed
+     * to the supplied sink.
+     *
+     * @param dir    The directory to scan. Must not be <code>null</code>.
+     * @param vpath  The path relative to the base directory. Must not be <code>null</code>.
+     * @param fast   Whether or not this call is part of a fast scan.
+     * @param sink   Records the results and scans the subdirectories. Not <code>null</code>.
+     */
+    private void scandir( File dir, String vpath, boolean fast, ScanSink sink ) {
         // avoid double scanning of directories, can only happen in fast mode
         if( fast && hasBeenScanned( vpath ) ) {
             return;
@@ -800,30 +1253,39 @@ public class SvnDirScanner extends DirectoryScanner {
             throw new BuildException( "IO error scanning directory " + dir.getAbsolutePath() );
         }
 
+        // the positions of the directory within the compiled patterns, so each entry only
+        // needs to be matched with it's own name
+        PatternTrie.Position includedir = includePatterns.advancePath( includePatterns.getRoot(), vpath );
+        PatternTrie.Position excludedir = excludePatterns.advancePath( excludePatterns.getRoot(), vpath );
+
         for( int i = 0; i < newfiles.length; i++ ) {
-            String name = vpath + newfiles[i].getFile().getName();
-            File file = new File( dir, newfiles[i].getFile().getName() );
+            String segment = newfiles[i].getFile().getName();
+            String name = vpath + segment;
+            File file = new File( dir, segment );
+            PatternTrie.Position include = includePatterns.advance( includedir, segment );
             if( SVNNodeKind.DIR == newfiles[i].getNodeKind()
                             || (SVNNodeKind.UNKNOWN == newfiles[i].getNodeKind() && newfiles[i].getFile().isDirectory()) ) {
-                if( isIncluded( name ) ) {
-                    accountForIncludedDir( name, file, fast );
+                if( includePatterns.matches( include ) ) {
+                    boolean excluded = excludePatterns.matches( excludePatterns.advance( excludedir, segment ) );
+                    accountForIncludedDir( name, file, newfiles[i], fast, excluded, couldHoldIncluded( include, name ), sink );
                 } else {
                     everythingIncluded = false;
-                    dirsNotIncluded.addElement( name );
-                    if( fast && couldHoldIncluded( name ) ) {
-                        scandir( file, name + File.separator, fast );
+                    sink.add( dirsNotIncluded, name );
+                    if( fast && couldHoldIncluded( include, name ) ) {
+                        sink.descend( file, name + File.separator, fast );
                     }
                 }
                 if( !fast ) {
-                    scandir( file, name + File.separator, fast );
+                    sink.descend( file, name + File.separator, fast );
                 }
             } else if( SVNNodeKind.FILE == newfiles[i].getNodeKind()
                             || (SVNNodeKind.UNKNOWN == newfiles[i].getNodeKind() && newfiles[i].getFile().isFile()) ) {
-                if( isIncluded( name ) ) {
-                    accountForIncludedFile( name, file );
+                if( includePatterns.matches( include ) ) {
+                    boolean excluded = excludePatterns.matches( excludePatterns.advance( excludedir, segment ) );
+                    accountForIncludedFile( name, file, newfiles[i], excluded, sink );
                 } else {
                     everythingIncluded = false;
-                    filesNotIncluded.addElement( name );
+                    sink.add( filesNotIncluded, name );
                 }
             }
         }
@@ -833,20 +1295,23 @@ public class SvnDirScanner extends DirectoryScanner {
      * process included file
      * @param name  path of the file relative to the directory of the fileset
      * @param file  included file
+     * @param status  the listed status of the file or <code>null</code> if unknown
+     * @param excluded  <code>true</code> if the file matches an exclude pattern
+     * @param sink  records the results
      */
-    private void accountForIncludedFile( String name, File file ) {
+    private void accountForIncludedFile( String name, File file, ISVNStatus status, boolean excluded, ScanSink sink ) {
         if( !filesIncluded.contains( name ) && !filesExcluded.contains( name ) && !filesDeselected.contains( name ) ) {
 
-            if( !isExcluded( name ) ) {
-                if( isSelected( name, file ) ) {
-                    filesIncluded.addElement( name );
+            if( !excluded ) {
+                if( isSelected( name, file, status ) ) {
+                    sink.add( filesIncluded, name );
                 } else {
                     everythingIncluded = false;
-                    filesDeselected.addElement( name );
+                    sink.add( filesDeselected, name );
                 }
             } else {
                 everythingIncluded = false;
-                filesExcluded.addElement( name );
+                sink.add( filesExcluded, name );
             }
         }
     }
@@ -856,30 +1321,34 @@ public class SvnDirScanner extends DirectoryScanner {
      * @param name path of the directory relative to the directory of
      * the fileset
      * @param file directory as file
+     * @param status the listed status of the directory or <code>null</code> if unknown
      * @param fast
+     * @param excluded <code>true</code> if the directory matches an exclude pattern
+     * @param couldhold <code>true</code> if the directory could contain included entries
+     * @param sink records the results and scans the subdirectories
      */
-    private void accountForIncludedDir( String name, File file, boolean fast ) {
+    private void accountForIncludedDir( String name, File file, ISVNStatus status, boolean fast, boolean excluded, boolean couldhold, ScanSink sink ) {
         if( !dirsIncluded.contains( name ) && !dirsExcluded.contains( name ) && !dirsDeselected.contains( name ) ) {
 
-            if( !isExcluded( name ) ) {
-                if( isSelected( name, file ) ) {
-                    dirsIncluded.addElement( name );
+            if( !excluded ) {
+                if( isSelected( name, file, status ) ) {
+                    sink.add( dirsIncluded, name );
                     if( fast ) {
-                        scandir( file, name + File.separator, fast );
+                        sink.descend( file, name + File.separator, fast );
                     }
                 } else {
                     everythingIncluded = false;
-                    dirsDeselected.addElement( name );
-                    if( fast && couldHoldIncluded( name ) ) {
-                        scandir( file, name + File.separator, fast );
+                    sink.add( dirsDeselected, name );
+                    if( fast && couldhold ) {
+                        sink.descend( file, name + File.separator, fast );
                     }
                 }
 
             } else {
                 everythingIncluded = false;
-                dirsExcluded.addElement( name );
-                if( fast && couldHoldIncluded( name ) ) {
-                    scandir( file, name + File.separator, fast );
+                sink.add( dirsExcluded, name );
+                if( fast && couldhold ) {
+                    sink.descend( file, name + File.separator, fast );
                 }
             }
         }
@@ -894,12 +1363,7 @@ public class SvnDirScanner extends DirectoryScanner {
      *         include pattern, or <code>false</code> otherwise.
      */
     protected boolean isIncluded( String name ) {
-        for( int i = 0; i < includes.length; i++ ) {
-            if( matchPath( includes[i], name, isCaseSensitive ) ) {
-                return true;
-            }
-        }
-        return false;
+        return includePatterns.matches( includePatterns.advancePath( includePatterns.getRoot(), name ) );
     }
 
     /**
@@ -911,19 +1375,25 @@ public class SvnDirScanner extends DirectoryScanner {
      *         least one include pattern, or <code>false</code> otherwise.
      */
     protected boolean couldHoldIncluded( String name ) {
-        for( int i = 0; i < includes.length; i++ ) {
-            if( matchPatternStart( includes[i], name, isCaseSensitive ) ) {
-                if( isMorePowerfulThanExcludes( name, includes[i] ) ) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return couldHoldIncluded( includePatterns.advancePath( includePatterns.getRoot(), name ), name );
     }
 
     /**
-     *  find out whether one particular include pattern is more powerful
-     *  than all the excludes
+     * Tests whether or not a name matches the start of at least one include
+     * pattern.
+     *
+     * @param position The position of the name within the include patterns. Not <code>null</code>.
+     * @param name The name to match. Must not be <code>null</code>.
+     * @return <code>true</code> when the name matches against the start of at
+     *         least one include pattern, or <code>false</code> otherwise.
+     */
+    private boolean couldHoldIncluded( PatternTrie.Position position, String name ) {
+        return includePatterns.isAlive( position ) && isMorePowerfulThanExcludes( name );
+    }
+
+    /**
+     *  find out whether the include patterns matching the start of a name
+     *  are more powerful than all the excludes
      *  note : the power comparison is based on the length of the include pattern
      *  and of the exclude patterns without the wildcards
      *  ideally the comparison should be done based on the depth
@@ -933,18 +1403,11 @@ public class SvnDirScanner extends DirectoryScanner {
      *  IMPORTANT : this function should return false "with care"
      *
      *  @param name the relative path that one want to test
-     *  @param includepattern  one include pattern
-     *  @return true if there is no exclude pattern more powerful than this include pattern
+     *  @return true if there is no exclude pattern more powerful than the include patterns
      *  @since ant1.6
      */
-    private boolean isMorePowerfulThanExcludes( String name, String includepattern ) {
-        String soughtexclude = name + File.separator + "**";
-        for( int counter = 0; counter < excludes.length; counter++ ) {
-            if( excludes[counter].equals( soughtexclude ) ) {
-                return false;
-            }
-        }
-        return true;
+    private boolean isMorePowerfulThanExcludes( String name ) {
+        return !excludePatterns.contains( name + File.separator + "**" );
     }
 
     /**
@@ -956,12 +1419,7 @@ public class SvnDirScanner extends DirectoryScanner {
      *         exclude pattern, or <code>false</code> otherwise.
      */
     protected boolean isExcluded( String name ) {
-        for( int i = 0; i < excludes.length; i++ ) {
-            if( matchPath( excludes[i], name, isCaseSensitive ) ) {
-                return true;
-            }
-        }
-        return false;
+        return excludePatterns.matches( excludePatterns.advancePath( excludePatterns.getRoot(), name ) );
     }
 
     /**
@@ -973,9 +1431,30 @@ public class SvnDirScanner extends DirectoryScanner {
      *         should not be selected, <code>true</code> otherwise.
      */
     protected boolean isSelected( String name, File file ) {
+        return isSelected( name, file, null );
+    }
+
+    /**
+     * Tests whether a name should be selected. Status based selectors are evaluated with the
+     * listed status, so they don't need to query it again.
+     *
+     * @param name     The filename to check for selecting. Not <code>null</code>.
+     * @param file     The java.io.File object for this filename. Not <code>null</code>.
+     * @param status   The listed status of the file. Maybe <code>null</code> if unknown.
+     * 
+     * @return   <code>false</code> when the selectors says that the file should not be selected, 
+     *           <code>true</code> otherwise.
+     */
+    private boolean isSelected( String name, File file, ISVNStatus status ) {
         if( selectors != null ) {
             for( int i = 0; i < selectors.length; i++ ) {
-                if( !selectors[i].isSelected( basedir, name, file ) ) {
+                boolean selected;
+                if( (status != null) && (selectors[i] instanceof StatusBasedSelector) ) {
+                    selected = ((StatusBasedSelector) selectors[i]).isSelected( status );
+                } else {
+                    selected = selectors[i].isSelected( basedir, name, file );
+                }
+                if( !selected ) {
                     return false;
                 }
             }
@@ -983,6 +1462,42 @@ public class SvnDirScanner extends DirectoryScanner {
         return true;
     }
 
+    /**
+     * Returns <code>true</code> if the supplied selectors can only accept changed entries.
+     * Nested <code>and</code> and <code>or</code> selectors are examined, too.
+     * 
+     * @param selectors   The selectors to examine. Not <code>null</code>.
+     * @param all         <code>true</code> <=> All selectors must accept an entry (and), 
+     *                    otherwise one of them is sufficient (or).
+     * 
+     * @return   <code>true</code> <=> An entry with a 'normal' status cannot be selected.
+     */
+    private static boolean selectsChangesOnly( List<?> selectors, boolean all ) {
+        if( selectors.isEmpty() ) {
+            return false;
+        }
+        for( Object selector : selectors ) {
+            boolean changesonly = false;
+            if( selector instanceof StatusBasedSelector ) {
+                changesonly = ((StatusBasedSelector) selector).isChangeSelector();
+            } else if( (selector instanceof AndSelector) || (selector instanceof OrSelector) ) {
+                List<Object> nested = new ArrayList<Object>();
+                for( Enumeration<?> it = ((BaseSelectorContainer) selector).selectorElements(); it.hasMoreElements(); ) {
+                    nested.add( it.nextElement() );
+                }
+                changesonly = selectsChangesOnly( nested, selector instanceof AndSelector );
+            }
+            if( all && changesonly ) {
+                // a single selector rejecting unchanged entries is sufficient
+                return true;
+            } else if( (!all) && (!changesonly) ) {
+                // any alternative could accept an unchanged entry
+                return false;
+            }
+        }
+        return !all;
+    }
+
     /**
      * Returns the names of the files which matched at least one of the
      * include patterns and none of the exclude patterns.
@@ -992,8 +1507,7 @@ public class SvnDirScanner extends DirectoryScanner {
      *         include patterns and none of the exclude patterns.
      */
     public String[] getIncludedFiles() {
-        String[] files = new String[filesIncluded.size()];
-        filesIncluded.copyInto( files );
+        String[] files = filesIncluded.toArray( new String[filesIncluded.size()] );
         Arrays.sort( files );
         return files;
     }
@@ -1010,8 +1524,7 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     public String[] getNotIncludedFiles() {
         slowScan();
-        String[] files = new String[filesNotIncluded.size()];
-        filesNotIncluded.copyInto( files );
+        String[] files = filesNotIncluded.toArray( new String[filesNotIncluded.size()] );
         return files;
     }
 
@@ -1028,8 +1541,7 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     public String[] getExcludedFiles() {
         slowScan();
-        String[] files = new String[filesExcluded.size()];
-        filesExcluded.copyInto( files );
+        String[] files = filesExcluded.toArray( new String[filesExcluded.size()] );
         return files;
     }
 
@@ -1046,8 +1558,7 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     public String[] getDeselectedFiles() {
         slowScan();
-        String[] files = new String[filesDeselected.size()];
-        filesDeselected.copyInto( files );
+        String[] files = filesDeselected.toArray( new String[filesDeselected.size()] );
         return files;
     }
 
@@ -1060,8 +1571,7 @@ public class SvnDirScanner extends DirectoryScanner {
      * include patterns and none of the exclude patterns.
      */
     public String[] getIncludedDirectories() {
-        String[] directories = new String[dirsIncluded.size()];
-        dirsIncluded.copyInto( directories );
+        String[] directories = dirsIncluded.toArray( new String[dirsIncluded.size()] );
         Arrays.sort( directories );
         return directories;
     }
@@ -1078,8 +1588,7 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     public String[] getNotIncludedDirectories() {
         slowScan();
-        String[] directories = new String[dirsNotIncluded.size()];
-        dirsNotIncluded.copyInto( directories );
+        String[] directories = dirsNotIncluded.toArray( new String[dirsNotIncluded.size()] );
         return directories;
     }
 
@@ -1096,8 +1605,7 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     public String[] getExcludedDirectories() {
         slowScan();
-        String[] directories = new String[dirsExcluded.size()];
-        dirsExcluded.copyInto( directories );
+        String[] directories = dirsExcluded.toArray( new String[dirsExcluded.size()] );
         return directories;
     }
 
@@ -1114,8 +1622,7 @@ public class SvnDirScanner extends DirectoryScanner {
      */
     public String[] getDeselectedDirectories() {
         slowScan();
-        String[] directories = new String[dirsDeselected.size()];
-        dirsDeselected.copyInto( directories );
+        String[] directories = dirsDeselected.toArray( new String[dirsDeselected.size()] );
         return directories;
     }
 
@@ -1135,6 +1642,7 @@ public class SvnDirScanner extends DirectoryScanner {
                             File.separatorChar );
         }
         excludes = newExcludes;
+        excludePatterns = compile( excludes );
     }
 
     /**
@@ -1301,4 +1809,464 @@ public class SvnDirScanner extends DirectoryScanner {
         fileListMap.clear();
         scannedDirs.clear();
     }
+
+    /**
+     * The status of a versioned directory without changes which contains changed entries. 
+     * A status query for the changed entries doesn't report these directories, so only the
+     * local state is known while the repository related details like the url or the revision 
+     * are not available.
+     */
+    private static final class UnchangedStatus implements ISVNStatus {
+
+        private File   dir;
+
+        /**
+         * Initialises this status for the supplied directory.
+         * 
+         * @param unchanged   The unchanged directory. Not <code>null</code>.
+         */
+        public UnchangedStatus( File unchanged ) {
+            dir = unchanged;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNUrl getUrl() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public String getUrlString() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNRevision.Number getLastChangedRevision() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Date getLastChangedDate() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public String getLastCommitAuthor() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNStatusKind getTextStatus() {
+            return SVNStatusKind.NORMAL;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNStatusKind getRepositoryTextStatus() {
+            return SVNStatusKind.NONE;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNStatusKind getPropStatus() {
+            return SVNStatusKind.NORMAL;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNStatusKind getRepositoryPropStatus() {
+            return SVNStatusKind.NONE;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNRevision.Number getRevision() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public String getPath() {
+            return dir.getPath();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public File getFile() {
+            return dir;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNNodeKind getNodeKind() {
+            return SVNNodeKind.DIR;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isCopied() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isWcLocked() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isSwitched() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public File getConflictNew() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public File getConflictOld() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public File getConflictWorking() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public String getLockOwner() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Date getLockCreationDate() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public String getLockComment() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean hasTreeConflict() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public SVNConflictDescriptor getConflictDescriptor() {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isFileExternal() {
+            return false;
+        }
+
+    }
+
+    /**
+     * Receives the results of a scan.
+     */
+    private interface ScanSink {
+
+        /**
+         * Records a scanned entry.
+         * 
+         * @param target   The collection the entry belongs to. Not <code>null</code>.
+         * @param name     The path of the entry relative to the base directory. Not <code>null</code>.
+         */
+        void add( Set<String> target, String name );
+
+        /**
+         * Scans a subdirectory.
+         * 
+         * @param dir     The directory to scan. Not <code>null</code>.
+         * @param vpath   The path relative to the base directory. Not <code>null</code>.
+         * @param fast    Whether or not this call is part of a fast scan.
+         */
+        void descend( File dir, String vpath, boolean fast );
+
+    }
+
+    /**
+     * Records the results immediately and scans subdirectories within the current thread.
+     */
+    private class DirectSink implements ScanSink {
+
+        public void add( Set<String> target, String name ) {
+            target.add( name );
+        }
+
+        public void descend( File dir, String vpath, boolean fast ) {
+            scandir( dir, vpath, fast );
+        }
+
+    }
+
+    /**
+     * Buffers the results of a single directory which is scanned by a worker thread. The results
+     * of the subdirectories are kept at the position where a sequential scan would have recorded
+     * them, so merging the buffers reproduces the order of a sequential scan.
+     */
+    private class ScanBuffer implements ScanSink {
+
+        private ParallelScan   scan;
+        private List<Object>   items;
+
+        ScanBuffer( ParallelScan parallelscan ) {
+            scan  = parallelscan;
+            items = new ArrayList<Object>();
+        }
+
+        public void add( Set<String> target, String name ) {
+            items.add( new ScanEntry( target, name ) );
+        }
+
+        public void descend( File dir, String vpath, boolean fast ) {
+            ScanBuffer child = new ScanBuffer( scan );
+            items.add( child );
+            scan.submit( dir, vpath, fast, child );
+        }
+
+        /**
+         * Records the buffered results including the ones of the subdirectories.
+         */
+        void merge() {
+            for( Object item : items ) {
+                if( item instanceof ScanBuffer ) {
+                    ((ScanBuffer) item).merge();
+                } else {
+                    ScanEntry entry = (ScanEntry) item;
+                    entry.target.add( entry.name );
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A buffered entry.
+     */
+    private static class ScanEntry {
+
+        private Set<String>   target;
+        private String        name;
+
+        ScanEntry( Set<String> newtarget, String newname ) {
+            target = newtarget;
+            name   = newname;
+        }
+
+    }
+
+    /**
+     * Creates the worker threads of a top level scan. Each thread obtains it's own client adapter 
+     * when it scans the first directory and releases it when the workers are being stopped.
+     */
+    private class WorkerFactory implements ThreadFactory {
+
+        public Thread newThread( final Runnable runnable ) {
+            Thread result = new Thread( "svnant-scanner-" + THREADCOUNT.incrementAndGet() ) {
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        ISVNClientAdapter client = workerClient.get();
+                        if( client != null ) {
+                            workerClient.remove();
+                            SvnFacade.releaseClientAdapter( component, client );
+                        }
+                        // nested svn selectors leased adapters for this thread
+                        SelectorContext.release( component.getProject() );
+                    }
+                }
+            };
+            result.setDaemon( true );
+            return result;
+        }
+
+    }
+
+    /**
+     * Scans a directory tree using the worker threads of the top level scan. Each directory is a
+     * separate job while the results are only recorded after all jobs have been finished. 
+     */
+    private class ParallelScan {
+
+        private LinkedList<ScanJob>   queue   = new LinkedList<ScanJob>();
+        private int                   pending = 0;
+        private Throwable             failure = null;
+
+        /**
+         * Scans the supplied directory.
+         * 
+         * @param dir     The directory to scan. Not <code>null</code>.
+         * @param vpath   The path relative to the base directory. Not <code>null</code>.
+         * @param fast    Whether or not this call is part of a fast scan.
+         */
+        void scan( File dir, String vpath, boolean fast ) {
+            ScanBuffer root = new ScanBuffer( this );
+            submit( dir, vpath, fast, root );
+            List<Future<?>> workers = new ArrayList<Future<?>>();
+            for( int i = 0; i < threads; i++ ) {
+                workers.add( executor.submit( new Worker() ) );
+            }
+            try {
+                for( Future<?> worker : workers ) {
+                    worker.get();
+                }
+            } catch( InterruptedException ex ) {
+                abort( ex );
+                Thread.currentThread().interrupt();
+                throw new BuildException( "The scan of '" + dir + "' has been interrupted !" );
+            } catch( ExecutionException ex ) {
+                abort( ex.getCause() );
+            }
+            if( failure instanceof RuntimeException ) {
+                throw (RuntimeException) failure;
+            } else if( failure instanceof Error ) {
+                throw (Error) failure;
+            } else if( failure != null ) {
+                throw new BuildException( failure );
+            }
+            root.merge();
+        }
+
+        synchronized void submit( File dir, String vpath, boolean fast, ScanBuffer buffer ) {
+            // the most recently found directories are scanned first, so the queue stays small
+            queue.addLast( new ScanJob( dir, vpath, fast, buffer ) );
+            pending++;
+            notifyAll();
+        }
+
+        /**
+         * Returns the next job which has to be executed.
+         * 
+         * @return   The next job or <code>null</code> if the scan has been finished.
+         * 
+         * @throws InterruptedException   The worker has been interrupted.
+         */
+        synchronized ScanJob next() throws InterruptedException {
+            while( queue.isEmpty() && (pending > 0) && (failure == null) ) {
+                wait();
+            }
+            if( (failure != null) || queue.isEmpty() ) {
+                return null;
+            }
+            return queue.removeLast();
+        }
+
+        /**
+         * Marks a job as done.
+         * 
+         * @param error   The failure of the job or <code>null</code> if it has been successful.
+         */
+        synchronized void done( Throwable error ) {
+            pending--;
+            if( error != null ) {
+                abort( error );
+            }
+            notifyAll();
+        }
+
+        synchronized void abort( Throwable error ) {
+            if( failure == null ) {
+                failure = error;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Executes the jobs using the client adapter of the current worker thread.
+         */
+        private class Worker implements Runnable {
+
+            public void run() {
+                try {
+                    ScanJob job = next();
+                    while( job != null ) {
+                        Throwable error = null;
+                        try {
+                            if( workerClient.get() == null ) {
+                                workerClient.set( SvnFacade.getClientAdapter( component ) );
+                            }
+                            scandir( job.dir, job.vpath, job.fast, job.buffer );
+                        } catch( RuntimeException ex ) {
+                            error = ex;
+                        } catch( Error ex ) {
+                            error = ex;
+                        }
+                        done( error );
+                        job = next();
+                    }
+                } catch( InterruptedException ex ) {
+                    abort( ex );
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * A directory which has to be scanned by a worker.
+     */
+    private static class ScanJob {
+
+        private File         dir;
+        private String       vpath;
+        private boolean      fast;
+        private ScanBuffer   buffer;
+
+        ScanJob( File newdir, String newvpath, boolean newfast, ScanBuffer newbuffer ) {
+            dir    = newdir;
+            vpath  = newvpath;
+            fast   = newfast;
+            buffer = newbuffer;
+        }
+
+    }
+
 }
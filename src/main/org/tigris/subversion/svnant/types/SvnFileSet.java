@@ -87,6 +87,10 @@ import java.io.File;
  */
 public class SvnFileSet extends FileSet {
 
+    private boolean prefetch = true;
+    private boolean parallel = false;
+    private int     threads  = SvnDirScanner.DEFAULT_THREADS;
+
     /**
      * Returns the directory scanner needed to access the files to process.
      * @return a <code>DirectoryScanner</code> instance.
@@ -108,13 +112,46 @@ public class SvnFileSet extends FileSet {
         if( !dir.isDirectory() ) {
             throw new BuildException( dir.getAbsolutePath() + " is not a directory." );
         }
-        DirectoryScanner ds = new SvnDirScanner( SvnFacade.getClientAdapter( this ) );
+        if( threads < 1 ) {
+            throw new BuildException( String.format( "The attribute 'threads' must be positive (value: %d).", Integer.valueOf( threads ) ) );
+        }
+        SvnDirScanner ds = new SvnDirScanner( this );
+        ds.setPrefetch( prefetch );
+        ds.setParallel( parallel );
+        ds.setThreads( threads );
         setupDirectoryScanner( ds, p );
         ds.setFollowSymlinks( followSymlinks );
         ds.scan();
         return ds;
     }
 
+    /**
+     * Enables/disables the listing of complete subtrees with a single status call.
+     * 
+     * @param enable   <code>true</code> <=> Prefetch the status of complete subtrees.
+     */
+    public void setPrefetch( boolean enable ) {
+        prefetch = enable;
+    }
+
+    /**
+     * Enables/disables the concurrent scanning of subtrees.
+     * 
+     * @param enable   <code>true</code> <=> Scan subtrees concurrently.
+     */
+    public void setParallel( boolean enable ) {
+        parallel = enable;
+    }
+
+    /**
+     * Changes the maximum number of threads used if <code>parallel</code> has been enabled.
+     * 
+     * @param count   The maximum number of threads. At least 1.
+     */
+    public void setThreads( int count ) {
+        threads = count;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -87,6 +87,16 @@ public class SvnSetting extends DataType {
     private File                 configdir;
     private ConflictResolution   conflictresolution;
     private SvnClientType        client;
+    private Integer              poolsize;
+    private Integer              poolidletimeout;
+    private Integer              sessionpoolsize;
+    private Integer              sessionidletimeout;
+    private Boolean              clientbenchmark;
+    private String               clientproperty;
+    private SvnClientType        primaryclient;
+    private Boolean              metrics;
+    private Integer              progressinterval;
+    private Boolean              lognotifications;
     
     /**
      * Initialises this instance.
@@ -110,6 +120,16 @@ public class SvnSetting extends DataType {
         configdir               = null;
         conflictresolution      = null;
         client                  = SvnClientType.svnkit;
+        poolsize                = null;
+        poolidletimeout         = null;
+        sessionpoolsize         = null;
+        sessionidletimeout      = null;
+        clientbenchmark         = null;
+        clientproperty          = null;
+        primaryclient           = SvnClientType.cli;
+        metrics                 = null;
+        progressinterval        = null;
+        lognotifications        = null;
     }
     
     /**
@@ -134,6 +154,194 @@ public class SvnSetting extends DataType {
         return client;
     }
     
+    /**
+     * Changes the client used for all but remote read operations if the client type is <code>hybrid</code>.
+     * 
+     * @param clienttype   The client type used for all but remote read operations.
+     */
+    public void setPrimaryClient( String clienttype ) {
+        SvnClientType[] allowed = new SvnClientType[] { SvnClientType.svnkit, SvnClientType.javahl, SvnClientType.cli };
+        SvnAntUtilities.attrInvalidValue( "primaryClient", allowed, clienttype );
+        primaryclient = SvnClientType.valueOf( clienttype );
+    }
+    
+    /**
+     * Returns the client used for all but remote read operations if the client type is <code>hybrid</code>.
+     * 
+     * @return   The client used for all but remote read operations. Not <code>null</code>.
+     */
+    public SvnClientType getPrimaryClient() {
+        return primaryclient;
+    }
+    
+    /**
+     * Enables/disables the benchmark used to select the client if the client type is <code>auto</code>.
+     * 
+     * @param enable   <code>true</code> <=> Select the fastest available client.
+     */
+    public void setClientBenchmark( boolean enable ) {
+        clientbenchmark = enable ? Boolean.TRUE : Boolean.FALSE;
+    }
+    
+    /**
+     * Returns <code>true</code> if the client shall be selected using a benchmark.
+     * 
+     * @return   <code>true</code> <=> Select the fastest available client. Maybe <code>null</code>.
+     */
+    public Boolean getClientBenchmark() {
+        return clientbenchmark;
+    }
+    
+    /**
+     * Enables/disables the collection of statistics about the calls of the client adapter.
+     * 
+     * @param enable   <code>true</code> <=> Collect statistics about the calls of the client adapter.
+     */
+    public void setMetrics( boolean enable ) {
+        metrics = enable ? Boolean.TRUE : Boolean.FALSE;
+    }
+    
+    /**
+     * Returns <code>true</code> if statistics about the calls of the client adapter shall be collected.
+     * 
+     * @return   <code>true</code> <=> Collect statistics about the calls of the client adapter. Maybe <code>null</code>.
+     */
+    public Boolean getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Changes the number of seconds between two progress reports of a running command.
+     * 
+     * @param seconds   The number of seconds between two progress reports. A value of 0 
+     *                  disables the progress reports while a command is running.
+     */
+    public void setProgressInterval( int seconds ) {
+        SvnAntUtilities.attrNotNegative( "progressInterval", seconds );
+        progressinterval = Integer.valueOf( seconds );
+    }
+    
+    /**
+     * Returns the number of seconds between two progress reports of a running command.
+     * 
+     * @return   The number of seconds between two progress reports. Maybe <code>null</code>.
+     */
+    public Integer getProgressInterval() {
+        return progressinterval;
+    }
+    
+    /**
+     * Enables/disables the logging of each notification of the client adapter.
+     * 
+     * @param enable   <code>true</code> <=> Log each notification instead of aggregating them.
+     */
+    public void setLogNotifications( boolean enable ) {
+        lognotifications = enable ? Boolean.TRUE : Boolean.FALSE;
+    }
+    
+    /**
+     * Returns <code>true</code> if each notification of the client adapter shall be logged.
+     * 
+     * @return   <code>true</code> <=> Log each notification. Maybe <code>null</code>.
+     */
+    public Boolean getLogNotifications() {
+        return lognotifications;
+    }
+    
+    /**
+     * Changes the name of the property which receives the selected client type.
+     * 
+     * @param newproperty   The name of the property. Maybe <code>null</code>.
+     */
+    public void setClientProperty( String newproperty ) {
+        clientproperty = newproperty;
+    }
+    
+    /**
+     * Returns the name of the property which receives the selected client type.
+     * 
+     * @return   The name of the property. Maybe <code>null</code>.
+     */
+    public String getClientProperty() {
+        return clientproperty;
+    }
+    
+    /**
+     * Changes the maximum number of idle client adapters kept for reuse.
+     * 
+     * @param newpoolsize   The maximum number of idle client adapters. 0 disables the pooling.
+     */
+    public void setPoolSize( int newpoolsize ) {
+        SvnAntUtilities.attrNotNegative( "poolSize", newpoolsize );
+        poolsize = Integer.valueOf( newpoolsize );
+    }
+    
+    /**
+     * Returns the maximum number of idle client adapters kept for reuse.
+     * 
+     * @return   The maximum number of idle client adapters. Maybe <code>null</code>.
+     */
+    public Integer getPoolSize() {
+        return poolsize;
+    }
+    
+    /**
+     * Changes the number of seconds an idle client adapter is kept for reuse.
+     * 
+     * @param newtimeout   The number of seconds an idle client adapter is kept. 0 means forever.
+     */
+    public void setPoolIdleTimeout( int newtimeout ) {
+        SvnAntUtilities.attrNotNegative( "poolIdleTimeout", newtimeout );
+        poolidletimeout = Integer.valueOf( newtimeout );
+    }
+    
+    /**
+     * Returns the number of seconds an idle client adapter is kept for reuse.
+     * 
+     * @return   The number of seconds an idle client adapter is kept. Maybe <code>null</code>.
+     */
+    public Integer getPoolIdleTimeout() {
+        return poolidletimeout;
+    }
+    
+    /**
+     * Changes the maximum number of open repository sessions kept per thread.
+     * 
+     * @param newpoolsize   The maximum number of open repository sessions. 0 disables the pooling.
+     */
+    public void setSessionPoolSize( int newpoolsize ) {
+        SvnAntUtilities.attrNotNegative( "sessionPoolSize", newpoolsize );
+        sessionpoolsize = Integer.valueOf( newpoolsize );
+    }
+    
+    /**
+     * Returns the maximum number of open repository sessions kept per thread.
+     * 
+     * @return   The maximum number of open repository sessions. Maybe <code>null</code>.
+     */
+    public Integer getSessionPoolSize() {
+        return sessionpoolsize;
+    }
+    
+    /**
+     * Changes the number of seconds an unused repository session is kept open.
+     * 
+     * @param newtimeout   The number of seconds an unused repository session is kept open. 0 means forever.
+     */
+    public void setSessionIdleTimeout( int newtimeout ) {
+        SvnAntUtilities.attrNotNegative( "sessionIdleTimeout", newtimeout );
+        sessionidletimeout = Integer.valueOf( newtimeout );
+    }
+    
+    /**
+     * Returns the number of seconds an unused repository session is kept open.
+     * 
+     * @return   The number of seconds an unused repository session is kept open. Maybe <code>null</code>.
+     */
+    public Integer getSessionIdleTimeout() {
+        return sessionidletimeout;
+    }
+    
     /**
      * Changes the value for the conflict resolution handling.
      * 
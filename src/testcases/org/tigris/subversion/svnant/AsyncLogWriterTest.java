@@ -0,0 +1,95 @@
+package org.tigris.subversion.svnant;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the logfile written in the background receives all messages in order.
+ */
+public class AsyncLogWriterTest {
+
+    private File   logfile;
+
+    @Before
+    public void setUp() throws IOException {
+        logfile = File.createTempFile( "svnant-log", ".txt" );
+    }
+
+    @After
+    public void tearDown() {
+        logfile.delete();
+    }
+
+    @Test
+    public void testOrder() throws IOException {
+        // more messages than the queue can take, so the caller has to block
+        AsyncLogWriter writer = new AsyncLogWriter( logfile );
+        for( int i = 0; i < 5000; i++ ) {
+            writer.println( "message " + i );
+        }
+        writer.close();
+        List<String> lines = readLines();
+        Assert.assertEquals( 5000, lines.size() );
+        for( int i = 0; i < lines.size(); i++ ) {
+            Assert.assertEquals( "message " + i, lines.get( i ) );
+        }
+    }
+
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        final AsyncLogWriter writer  = new AsyncLogWriter( logfile );
+        Thread[]             threads = new Thread[4];
+        for( int i = 0; i < threads.length; i++ ) {
+            final int caller = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    for( int j = 0; j < 1000; j++ ) {
+                        writer.println( caller + " " + j );
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for( Thread thread : threads ) {
+            thread.join();
+        }
+        writer.close();
+
+        // the messages of each caller keep their order
+        int[] next = new int[ threads.length ];
+        for( String line : readLines() ) {
+            String[] parts  = line.split( " " );
+            int      caller = Integer.parseInt( parts[0] );
+            Assert.assertEquals( next[caller]++, Integer.parseInt( parts[1] ) );
+        }
+        for( int count : next ) {
+            Assert.assertEquals( 1000, count );
+        }
+    }
+
+    private List<String> readLines() throws IOException {
+        List<String>   result = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader( new FileReader( logfile ) );
+        try {
+            String line = reader.readLine();
+            while( line != null ) {
+                result.add( line );
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+}
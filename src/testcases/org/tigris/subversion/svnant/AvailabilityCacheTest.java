@@ -0,0 +1,91 @@
+package org.tigris.subversion.svnant;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Checks the disk cache for client types which are not available.
+ */
+public class AvailabilityCacheTest {
+
+    private static final String   PROP_CACHEDIR = "svnant.cache.dir";
+
+    private static final File     CACHEDIR      = new File( System.getProperty( "java.io.tmpdir" ), "svnant-availability" );
+
+    @Before
+    public void setUp() {
+        new File( CACHEDIR, "availability.properties" ).delete();
+        System.clearProperty( PROP_CACHEDIR );
+        AvailabilityCache.reset();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty( PROP_CACHEDIR );
+        AvailabilityCache.reset();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        AvailabilityCache.setUnavailable( SvnClientType.javahl );
+        Assert.assertFalse( AvailabilityCache.isUnavailable( SvnClientType.javahl ) );
+        Assert.assertNull( AvailabilityCache.getCacheFile() );
+    }
+
+    @Test
+    public void testEnabled() {
+        System.setProperty( PROP_CACHEDIR, CACHEDIR.getAbsolutePath() );
+        AvailabilityCache.setUnavailable( SvnClientType.javahl );
+        File cachefile = AvailabilityCache.getCacheFile();
+        Assert.assertEquals( new File( CACHEDIR, "availability.properties" ), cachefile );
+        Assert.assertTrue( cachefile.isFile() );
+        Assert.assertTrue( AvailabilityCache.isUnavailable( SvnClientType.javahl ) );
+        Assert.assertFalse( AvailabilityCache.isUnavailable( SvnClientType.svnkit ) );
+
+        // the entries survive the current invocation
+        AvailabilityCache.reset();
+        Assert.assertTrue( AvailabilityCache.isUnavailable( SvnClientType.javahl ) );
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        System.setProperty( PROP_CACHEDIR, CACHEDIR.getAbsolutePath() );
+        AvailabilityCache.setUnavailable( SvnClientType.javahl );
+        File       cachefile = AvailabilityCache.getCacheFile();
+        Properties entries   = load( cachefile );
+        long       dayago    = System.currentTimeMillis() - 24L * 60L * 60L * 1000L;
+        for( Object key : entries.keySet() ) {
+            entries.put( key, String.valueOf( dayago ) );
+        }
+        OutputStream outstream = new FileOutputStream( cachefile );
+        try {
+            entries.store( outstream, null );
+        } finally {
+            outstream.close();
+        }
+        AvailabilityCache.reset();
+        Assert.assertFalse( AvailabilityCache.isUnavailable( SvnClientType.javahl ) );
+    }
+
+    private Properties load( File file ) throws Exception {
+        Properties  result   = new Properties();
+        InputStream instream = new FileInputStream( file );
+        try {
+            result.load( instream );
+        } finally {
+            instream.close();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,39 @@
+package org.tigris.subversion.svnant;
+
+import org.apache.tools.ant.Project;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Checks the selection of the client types which are checked while the antlib is being loaded.
+ */
+public class AvailabilityPrecheckTest {
+
+    private AvailabilityPrecheck   precheck;
+
+    @Before
+    public void setUp() {
+        precheck = new AvailabilityPrecheck();
+        precheck.setProject( new Project() );
+    }
+
+    @Test
+    public void testNothingByDefault() {
+        Assert.assertEquals( Collections.emptyList(), precheck.getTypes( null ) );
+        Assert.assertEquals( Collections.emptyList(), precheck.getTypes( "false" ) );
+        Assert.assertEquals( Collections.emptyList(), precheck.getTypes( "" ) );
+    }
+
+    @Test
+    public void testListedTypes() {
+        Assert.assertEquals( Arrays.asList( SvnClientType.javahl, SvnClientType.svnkit ), precheck.getTypes( "javahl, svnkit,javahl" ) );
+        // placeholders and unknown names can't be checked
+        Assert.assertEquals( Arrays.asList( SvnClientType.cli ), precheck.getTypes( "auto,hybrid,unknown,cli" ) );
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks the lease/release cycle of the {@link ClientAdapterPool} and the reset of leased adapters.
+ */
+public class ClientAdapterPoolTest {
+
+    private List<Object>   key;
+
+    private List<String>   calls;
+
+    @Before
+    public void setUp() {
+        // the pool is shared by the whole JVM, so each test uses it's own configuration
+        key   = Arrays.asList( new Object[] { "test", new Object() } );
+        calls = new ArrayList<String>();
+    }
+
+    @Test
+    public void testLeaseAndRelease() {
+        ClientAdapterPool pool    = ClientAdapterPool.getInstance();
+        Assert.assertNull( pool.acquire( key, 0 ) );
+        ISVNClientAdapter first   = newAdapter( "first" );
+        ISVNClientAdapter second  = newAdapter( "second" );
+        pool.register( key, first );
+        pool.register( key, second );
+
+        // only one idle adapter is kept, the other one is disposed
+        pool.release( first, 1 );
+        pool.release( second, 1 );
+        Assert.assertEquals( Arrays.asList( "second.dispose" ), calls );
+
+        Assert.assertSame( first, pool.acquire( key, 0 ) );
+        Assert.assertNull( pool.acquire( key, 0 ) );
+
+        pool.release( first, 1 );
+        pool.clear();
+        Assert.assertEquals( Arrays.asList( "second.dispose", "first.dispose" ), calls );
+        Assert.assertNull( pool.acquire( key, 0 ) );
+    }
+
+    @Test
+    public void testIdleTimeout() throws InterruptedException {
+        ClientAdapterPool pool    = ClientAdapterPool.getInstance();
+        ISVNClientAdapter adapter = newAdapter( "adapter" );
+        pool.register( key, adapter );
+        pool.release( adapter, 1 );
+        Thread.sleep( 20 );
+        Assert.assertNull( pool.acquire( key, 10 ) );
+        Assert.assertEquals( Arrays.asList( "adapter.dispose" ), calls );
+    }
+
+    @Test
+    public void testUnknownAdapter() {
+        ISVNClientAdapter adapter = newAdapter( "adapter" );
+        ClientAdapterPool.getInstance().release( adapter, 1 );
+        Assert.assertEquals( Arrays.asList( "adapter.dispose" ), calls );
+    }
+
+    @Test
+    public void testResetListeners() {
+        ISVNClientAdapter  plain    = newAdapter( "adapter" );
+        ISVNClientAdapter  leased   = LeasedClientAdapter.wrap( plain );
+        ISVNNotifyListener kept     = newListener();
+        ISVNNotifyListener removed  = newListener();
+        leased.addNotifyListener( kept );
+        leased.addNotifyListener( removed );
+        leased.removeNotifyListener( removed );
+        leased.setProgressListener( null );
+        calls.clear();
+
+        Assert.assertSame( plain, LeasedClientAdapter.unwrap( leased ) );
+        Assert.assertTrue( LeasedClientAdapter.reset( leased ) );
+        Assert.assertEquals( Arrays.asList( "adapter.removeNotifyListener" ), calls );
+
+        // nothing left to be reverted
+        calls.clear();
+        Assert.assertTrue( LeasedClientAdapter.reset( leased ) );
+        Assert.assertTrue( calls.isEmpty() );
+    }
+
+    @Test
+    public void testResetConfiguration() throws Exception {
+        ISVNClientAdapter leased = LeasedClientAdapter.wrap( newAdapter( "adapter" ) );
+        leased.setUsername( "user" );
+        Assert.assertFalse( LeasedClientAdapter.reset( leased ) );
+        Assert.assertFalse( LeasedClientAdapter.reset( newAdapter( "plain" ) ) );
+    }
+
+    /**
+     * Creates an adapter which records the names of the invoked methods.
+     *
+     * @param name   The name of the adapter used for the records. Not <code>null</code>.
+     *
+     * @return   The adapter. Not <code>null</code>.
+     */
+    private ISVNClientAdapter newAdapter( final String name ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) {
+                                if( "equals".equals( method.getName() ) ) {
+                                    return Boolean.valueOf( proxy == args[0] );
+                                } else if( "hashCode".equals( method.getName() ) ) {
+                                    return Integer.valueOf( System.identityHashCode( proxy ) );
+                                } else if( "toString".equals( method.getName() ) ) {
+                                    return name;
+                                }
+                                calls.add( name + "." + method.getName() );
+                                return null;
+                            }
+                        } );
+    }
+
+    /**
+     * Creates a listener which ignores all notifications.
+     *
+     * @return   The listener. Not <code>null</code>.
+     */
+    private ISVNNotifyListener newListener() {
+        return (ISVNNotifyListener) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNNotifyListener.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) {
+                                if( "equals".equals( method.getName() ) ) {
+                                    return Boolean.valueOf( proxy == args[0] );
+                                }
+                                return null;
+                            }
+                        } );
+    }
+
+}
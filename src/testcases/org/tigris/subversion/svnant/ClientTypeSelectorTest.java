@@ -0,0 +1,54 @@
+package org.tigris.subversion.svnant;
+
+import org.apache.tools.ant.Project;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the selection of the client type for <code>client="auto"</code>.
+ */
+public class ClientTypeSelectorTest {
+
+    @Test
+    public void testPreference() {
+        List<SvnClientType> available = getAvailable();
+        SvnClientType       expected  = available.isEmpty() ? SvnClientType.svnkit : available.get(0);
+        Project project = new Project();
+        Assert.assertEquals( expected, ClientTypeSelector.select( project, false, "svnant.client" ) );
+        Assert.assertEquals( expected.name(), project.getProperty( "svnant.client" ) );
+
+        // the selection is kept while an existing property isn't overridden
+        project.setProperty( "svnant.client", "other" );
+        Assert.assertEquals( expected, ClientTypeSelector.select( new Project(), false, null ) );
+        Assert.assertEquals( expected, ClientTypeSelector.select( project, false, "svnant.client" ) );
+        Assert.assertEquals( "other", project.getProperty( "svnant.client" ) );
+    }
+
+    @Test
+    public void testBenchmark() {
+        List<SvnClientType> available = getAvailable();
+        SvnClientType       selected  = ClientTypeSelector.select( new Project(), true, null );
+        Assert.assertTrue( available.isEmpty() ? (selected == SvnClientType.svnkit) : available.contains( selected ) );
+        Assert.assertSame( selected, ClientTypeSelector.select( new Project(), true, null ) );
+    }
+
+    /**
+     * Returns the available client types in the order of preference.
+     *
+     * @return   The available client types. Not <code>null</code>.
+     */
+    private static List<SvnClientType> getAvailable() {
+        List<SvnClientType> result = new ArrayList<SvnClientType>();
+        for( SvnClientType type : new SvnClientType[] { SvnClientType.javahl, SvnClientType.svnkit, SvnClientType.cli } ) {
+            if( type.isAvailable() ) {
+                result.add( type );
+            }
+        }
+        return result;
+    }
+
+}
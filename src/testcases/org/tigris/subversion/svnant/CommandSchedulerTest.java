@@ -0,0 +1,125 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnant.commands.Cleanup;
+import org.tigris.subversion.svnant.commands.SvnCommand;
+
+import org.apache.tools.ant.BuildException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import java.io.File;
+
+/**
+ * Checks the order in which the {@link CommandScheduler} executes conflicting commands.
+ */
+public class CommandSchedulerTest {
+
+    private static final File   BASEDIR = new File( "build/scheduler" );
+
+    private Map<SvnCommand,String>   names;
+
+    private List<String>             events;
+
+    @Before
+    public void setUp() {
+        names  = new HashMap<SvnCommand,String>();
+        events = Collections.synchronizedList( new ArrayList<String>() );
+    }
+
+    @Test
+    public void testConflictingPaths() {
+        final CountDownLatch independent = new CountDownLatch(1);
+        SvnCommand           first       = newCleanup( "first", "x" );
+        SvnCommand           other       = newCleanup( "other", "y" );
+        SvnCommand           nested      = newCleanup( "nested", "x/sub" );
+        execute( new CommandScheduler.Runner() {
+            public void run( SvnCommand command ) {
+                String name = names.get( command );
+                events.add( "start " + name );
+                if( "first".equals( name ) ) {
+                    // the independent command has to run concurrently
+                    await( independent );
+                } else if( "other".equals( name ) ) {
+                    independent.countDown();
+                }
+                events.add( "end " + name );
+            }
+        }, first, other, nested );
+        Assert.assertTrue( events.indexOf( "start other" ) < events.indexOf( "end first" ) );
+        Assert.assertTrue( events.indexOf( "end first" ) < events.indexOf( "start nested" ) );
+    }
+
+    @Test
+    public void testExclusiveCommand() {
+        SvnCommand exclusive = new SvnCommand() {
+            public void execute() {
+            }
+            protected void validateAttributes() {
+            }
+        };
+        names.put( exclusive, "exclusive" );
+        execute( new RecordingRunner(), newCleanup( "first", "x" ), exclusive, newCleanup( "last", "y" ) );
+        Assert.assertEquals( Arrays.asList( "first", "exclusive", "last" ), events );
+    }
+
+    @Test
+    public void testFailure() {
+        SvnCommand failing = newCleanup( "failing", "x" );
+        try {
+            execute( new RecordingRunner() {
+                public void run( SvnCommand command ) {
+                    super.run( command );
+                    throw new BuildException( "failed" );
+                }
+            }, failing, newCleanup( "nested", "x/sub" ) );
+            Assert.fail();
+        } catch( BuildException ex ) {
+            Assert.assertEquals( "1 of 2 svn commands failed (1 not executed):\n  <Cleanup>: failed", ex.getMessage() );
+        }
+        // the dependent command isn't started after the failure
+        Assert.assertEquals( Arrays.asList( "failing" ), events );
+    }
+
+    private void execute( CommandScheduler.Runner runner, SvnCommand ... commands ) {
+        new CommandScheduler( Arrays.asList( commands ) ).execute( 4, runner );
+    }
+
+    private SvnCommand newCleanup( String name, String path ) {
+        Cleanup result = new Cleanup();
+        result.setDir( new File( BASEDIR, path ) );
+        names.put( result, name );
+        return result;
+    }
+
+    private static void await( CountDownLatch latch ) {
+        try {
+            Assert.assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+        } catch( InterruptedException ex ) {
+            throw new BuildException( ex );
+        }
+    }
+
+    /**
+     * Records the names of the executed commands.
+     */
+    private class RecordingRunner implements CommandScheduler.Runner {
+
+        public void run( SvnCommand command ) {
+            events.add( names.get( command ) );
+        }
+
+    }
+
+}
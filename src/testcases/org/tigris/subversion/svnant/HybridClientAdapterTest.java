@@ -0,0 +1,101 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.io.File;
+
+/**
+ * Checks the routing of the operations of the hybrid client.
+ */
+public class HybridClientAdapterTest {
+
+    private List<String>        calls;
+
+    private ISVNClientAdapter   hybrid;
+
+    @Before
+    public void setUp() {
+        calls  = new ArrayList<String>();
+        hybrid = HybridClientAdapter.create( newAdapter( "primary" ), newAdapter( "remote" ) );
+    }
+
+    @Test
+    public void testRemoteReads() throws Exception {
+        SVNUrl url = new SVNUrl( "http://example.org/repos/trunk" );
+        hybrid.getInfo( url );
+        hybrid.getContent( url, SVNRevision.HEAD );
+        Assert.assertEquals( Arrays.asList( "remote getInfo", "remote getContent" ), calls );
+    }
+
+    @Test
+    public void testWorkingCopy() throws Exception {
+        File file = new File( "trunk" );
+        hybrid.getInfo( file );
+        hybrid.getContent( file, SVNRevision.BASE );
+        // writes are never routed to the remote adapter
+        hybrid.update( file, SVNRevision.HEAD, true );
+        Assert.assertEquals( Arrays.asList( "primary getInfo", "primary getContent", "primary update" ), calls );
+    }
+
+    @Test
+    public void testBroadcast() {
+        hybrid.setUsername( "user" );
+        Assert.assertEquals( Arrays.asList( "remote setUsername", "primary setUsername" ), calls );
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        try {
+            hybrid.getInfo( new SVNUrl( "http://example.org/failing" ) );
+            Assert.fail();
+        } catch( SVNClientException ex ) {
+            // the failure of the adapter isn't wrapped
+            Assert.assertEquals( "remote", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void testObjectMethods() {
+        Assert.assertEquals( hybrid, hybrid );
+        Assert.assertFalse( hybrid.equals( HybridClientAdapter.create( hybrid, hybrid ) ) );
+        Assert.assertEquals( System.identityHashCode( hybrid ), hybrid.hashCode() );
+        Assert.assertTrue( calls.isEmpty() );
+    }
+
+    /**
+     * Creates an adapter which records the invoked operations. Urls containing <code>failing</code>
+     * cause a failure.
+     *
+     * @param name   The name used to record the operations. Not <code>null</code>.
+     *
+     * @return   The adapter. Not <code>null</code>.
+     */
+    private ISVNClientAdapter newAdapter( final String name ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) throws SVNClientException {
+                                if( (args != null) && (args[0] instanceof SVNUrl) && args[0].toString().contains( "failing" ) ) {
+                                    throw new SVNClientException( name );
+                                }
+                                calls.add( name + " " + method.getName() );
+                                return "update".equals( method.getName() ) ? Long.valueOf( 0 ) : null;
+                            }
+                        } );
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnant.types.SvnSetting;
+
+import org.apache.tools.ant.types.Reference;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectComponent;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the merging of the local and the referred settings and the resulting pool key.
+ */
+public class ResolvedSettingTest {
+
+    private Project      project;
+
+    private SvnSetting   local;
+
+    private SvnSetting   refid;
+
+    @Before
+    public void setUp() {
+        project = new Project();
+        local   = new SvnSetting( project );
+        refid   = new SvnSetting( project );
+    }
+
+    @Test
+    public void testDefaults() {
+        ResolvedSetting setting = resolve();
+        Assert.assertEquals( "MM/dd/yyyy hh:mm a", setting.getDateFormatter() );
+        Assert.assertNull( setting.getDateTimezone() );
+        Assert.assertTrue( setting.getFailonerror() );
+        Assert.assertFalse( setting.getMetrics() );
+        Assert.assertEquals( 4, setting.getPoolSize() );
+        Assert.assertEquals( 300, setting.getPoolIdleTimeout() );
+        Assert.assertEquals( 10, setting.getProgressInterval() );
+    }
+
+    @Test
+    public void testInheritance() {
+        refid.setUsername( "refuser" );
+        refid.setPassword( "refpassword" );
+        refid.setPoolSize( 2 );
+        refid.setDateFormatter( "yyyy-MM-dd" );
+        refid.setDateTimezone( "UTC" );
+        refid.setFailonerror( false );
+        local.setUsername( "localuser" );
+        local.setDateFormatter( "" );
+        local.setPoolSize( 0 );
+        ResolvedSetting setting = resolve();
+        // local values take precedence while empty texts are ignored
+        Assert.assertEquals( "localuser", setting.getUsername() );
+        Assert.assertEquals( "refpassword", setting.getPassword() );
+        Assert.assertEquals( 0, setting.getPoolSize() );
+        Assert.assertEquals( "yyyy-MM-dd", setting.getDateFormatter() );
+        Assert.assertEquals( "UTC", setting.getDateTimezone().getID() );
+        Assert.assertFalse( setting.getFailonerror() );
+    }
+
+    @Test
+    public void testPoolKey() {
+        refid.setUsername( "user" );
+        Assert.assertEquals( resolve().getPoolKey(), resolve().getPoolKey() );
+
+        // the size of the adapter pool doesn't affect the adapters themselves
+        local.setPoolSize( 1 );
+        local.setPoolIdleTimeout( 1 );
+        Assert.assertEquals( resolve().getPoolKey(), new ResolvedSetting( new SvnSetting( project ), refid, SvnClientType.memory ).getPoolKey() );
+
+        local.setUsername( "other" );
+        Assert.assertFalse( resolve().getPoolKey().equals( new ResolvedSetting( new SvnSetting( project ), refid, SvnClientType.memory ).getPoolKey() ) );
+        Assert.assertFalse( resolve().getPoolKey().equals( new ResolvedSetting( local, refid, SvnClientType.svnkit ).getPoolKey() ) );
+
+        // the primary client only matters for the hybrid client
+        SvnSetting plain   = new SvnSetting( project );
+        SvnSetting primary = new SvnSetting( project );
+        primary.setPrimaryClient( "javahl" );
+        Assert.assertEquals( 
+            new ResolvedSetting( local, plain, SvnClientType.memory ).getPoolKey(), 
+            new ResolvedSetting( local, primary, SvnClientType.memory ).getPoolKey() 
+        );
+        Assert.assertFalse( 
+            new ResolvedSetting( local, plain, SvnClientType.hybrid ).getPoolKey().equals(
+            new ResolvedSetting( local, primary, SvnClientType.hybrid ).getPoolKey() ) 
+        );
+    }
+
+    @Test
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    public void testSnapshot() {
+        refid.setClient( "memory" );
+        refid.setUsername( "user" );
+        project.addReference( "setting", refid );
+        ProjectComponent component = new ProjectComponent() {};
+        component.setProject( project );
+        SvnFacade.setRefid( component, new Reference( "setting" ) );
+        ResolvedSetting setting = SvnFacade.getResolvedSetting( component );
+        Assert.assertSame( setting, SvnFacade.getResolvedSetting( component ) );
+
+        // later changes of the settings don't affect the resolved ones
+        refid.setUsername( "other" );
+        Assert.assertEquals( "user", SvnFacade.getResolvedSetting( component ).getUsername() );
+
+        // a new refid causes the settings to be resolved again
+        SvnFacade.setRefid( component, new Reference( "setting" ) );
+        Assert.assertEquals( "other", SvnFacade.getResolvedSetting( component ).getUsername() );
+    }
+
+    private ResolvedSetting resolve() {
+        return new ResolvedSetting( local, refid, SvnClientType.memory );
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnant.types.SvnSetting;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+
+import org.apache.tools.ant.types.Reference;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectComponent;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the client adapters handed out by the {@link SvnFacade}.
+ */
+public class SvnFacadeTest {
+
+    private Project      project;
+
+    private SvnSetting   setting;
+
+    @Before
+    public void setUp() {
+        project = new Project();
+        setting = new SvnSetting( project );
+        setting.setClient( "memory" );
+        project.addReference( "memory", setting );
+        // the pool is shared by the whole JVM, so idle adapters of other tests are discarded
+        ClientAdapterPool.getInstance().clear();
+    }
+
+    @Test
+    public void testUnpooled() {
+        setting.setPoolSize( 0 );
+        ProjectComponent  component = newComponent();
+        ISVNClientAdapter adapter   = SvnFacade.getClientAdapter( component );
+        // there's nothing to revert, so the adapter isn't wrapped
+        Assert.assertFalse( isLeased( adapter ) );
+        SvnFacade.releaseClientAdapter( component, adapter );
+        Assert.assertNotSame( adapter, SvnFacade.getClientAdapter( component ) );
+    }
+
+    @Test
+    public void testPooled() {
+        setting.setPoolSize( 1 );
+        ProjectComponent  component = newComponent();
+        ISVNClientAdapter adapter   = SvnFacade.getClientAdapter( component );
+        Assert.assertTrue( isLeased( adapter ) );
+        ISVNClientAdapter plain     = LeasedClientAdapter.unwrap( adapter );
+        SvnFacade.releaseClientAdapter( component, adapter );
+        Assert.assertSame( plain, LeasedClientAdapter.unwrap( SvnFacade.getClientAdapter( component ) ) );
+    }
+
+    @Test
+    public void testNoGlobalLock() throws Exception {
+        setting.setPoolSize( 1 );
+        final ProjectComponent    component = newComponent();
+        final ISVNClientAdapter[] result    = new ISVNClientAdapter[1];
+        Thread                    worker    = new Thread() {
+            public void run() {
+                result[0] = SvnFacade.getClientAdapter( component );
+            }
+        };
+        // a static synchronized method would wait for this lock
+        synchronized( SvnFacade.class ) {
+            worker.start();
+            worker.join( TimeUnit.SECONDS.toMillis( 10 ) );
+        }
+        Assert.assertNotNull( result[0] );
+        SvnFacade.releaseClientAdapter( component, result[0] );
+    }
+
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        setting.setPoolSize( 2 );
+        final int                            threads  = 8;
+        final CyclicBarrier                  barrier  = new CyclicBarrier( threads );
+        final Map<ISVNClientAdapter,Boolean> inuse    = Collections.synchronizedMap( new IdentityHashMap<ISVNClientAdapter,Boolean>() );
+        final List<Throwable>                failures = Collections.synchronizedList( new ArrayList<Throwable>() );
+        List<Thread>                         workers  = new ArrayList<Thread>();
+        for( int i = 0; i < threads; i++ ) {
+            // each thread acts like a separate svn task within <parallel>
+            final ProjectComponent component = newComponent();
+            Thread worker = new Thread() {
+                public void run() {
+                    try {
+                        barrier.await();
+                        for( int j = 0; j < 200; j++ ) {
+                            ISVNClientAdapter adapter = SvnFacade.getClientAdapter( component );
+                            ISVNClientAdapter plain   = LeasedClientAdapter.unwrap( adapter );
+                            // an adapter is never leased by two callers at the same time
+                            Assert.assertNull( inuse.put( plain, Boolean.TRUE ) );
+                            adapter.getAdminDirectoryName();
+                            Assert.assertNotNull( inuse.remove( plain ) );
+                            SvnFacade.releaseClientAdapter( component, adapter );
+                        }
+                    } catch( Throwable ex ) {
+                        failures.add( ex );
+                    }
+                }
+            };
+            worker.start();
+            workers.add( worker );
+        }
+        for( Thread worker : workers ) {
+            worker.join( TimeUnit.SECONDS.toMillis( 30 ) );
+        }
+        Assert.assertEquals( Collections.emptyList(), failures );
+    }
+
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    private ProjectComponent newComponent() {
+        ProjectComponent result = new ProjectComponent() {};
+        result.setProject( project );
+        SvnFacade.setRefid( result, new Reference( "memory" ) );
+        return result;
+    }
+
+    private boolean isLeased( ISVNClientAdapter adapter ) {
+        return Proxy.isProxyClass( adapter.getClass() ) && (Proxy.getInvocationHandler( adapter ) instanceof LeasedClientAdapter);
+    }
+
+}
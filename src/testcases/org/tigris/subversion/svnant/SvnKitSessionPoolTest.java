@@ -0,0 +1,99 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Checks that SVNKit adapters keep working once they share a session pool.
+ */
+public class SvnKitSessionPoolTest {
+
+    private static final List<Object>   KEY = Arrays.<Object>asList( "svnant-test" );
+
+    private File   tempdir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempdir = File.createTempFile( "svnant", ".sessions" );
+        tempdir.delete();
+        tempdir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        SvnKitSessionPool.clear();
+        delete( tempdir );
+    }
+
+    @Test
+    public void testForeignAdapter() {
+        ISVNClientAdapter adapter = (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) {
+                                throw new UnsupportedOperationException( method.getName() );
+                            }
+                        } );
+        Assert.assertFalse( SvnKitSessionPool.install( adapter, KEY, 4, 0 ) );
+    }
+
+    @Test
+    public void testSharedPool() throws Exception {
+        Assume.assumeTrue( SvnClientType.svnkit.isAvailable() );
+        File              repository = new File( tempdir, "repository" );
+        File              content    = new File( tempdir, "content" );
+        ISVNClientAdapter first      = SvnClientType.svnkit.createClient();
+        Assert.assertTrue( SvnKitSessionPool.install( first, KEY, 4, 0 ) );
+        first.createRepository( repository, ISVNClientAdapter.REPOSITORY_FSTYPE_FSFS );
+        SVNUrl url = new SVNUrl( repository.toURI().toString().replaceFirst( "^file:/+", "file:///" ) );
+        Assert.assertEquals( 0, first.getInfo( url ).getRevision().getNumber() );
+        content.mkdirs();
+        Writer writer = new FileWriter( new File( content, "file.txt" ) );
+        try {
+            writer.write( "content\n" );
+        } finally {
+            writer.close();
+        }
+        first.doImport( content, url, "import", true );
+        first.dispose();
+
+        // disposing an adapter doesn't affect the other adapters of the pool
+        ISVNClientAdapter second = SvnClientType.svnkit.createClient();
+        try {
+            Assert.assertTrue( SvnKitSessionPool.install( second, KEY, 1, 1 ) );
+            Assert.assertEquals( 1, second.getInfo( url ).getRevision().getNumber() );
+            Assert.assertEquals( 1, second.getList( url, SVNRevision.HEAD, false ).length );
+        } finally {
+            second.dispose();
+        }
+    }
+
+    private static void delete( File file ) {
+        File[] children = file.listFiles();
+        if( children != null ) {
+            for( File child : children ) {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,131 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnant.commands.Cleanup;
+import org.tigris.subversion.svnant.types.SvnSetting;
+
+import org.apache.tools.ant.types.Reference;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.DefaultLogger;
+import org.apache.tools.ant.Project;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+/**
+ * Checks the logging and the failure handling of the svn task.
+ */
+public class SvnTaskTest {
+
+    private Project      project;
+
+    private SvnSetting   setting;
+
+    @Before
+    public void setUp() {
+        project = new Project();
+        setting = new SvnSetting( project );
+        setting.setClient( "memory" );
+        project.addReference( "memory", setting );
+        DefaultLogger logger = new DefaultLogger();
+        logger.setMessageOutputLevel( Project.MSG_INFO );
+        logger.setOutputPrintStream( new PrintStream( new ByteArrayOutputStream() ) );
+        logger.setErrorPrintStream( new PrintStream( new ByteArrayOutputStream() ) );
+        project.addBuildListener( logger );
+    }
+
+    @Test
+    public void testOutputLevel() {
+        // the first task registers listeners of svnant which must not enable verbose messages
+        newTask().execute();
+        SvnTask     second = newTask();
+        second.execute();
+        final int[] calls  = new int[1];
+        second.verbose( "%s", new Object() {
+            public String toString() {
+                calls[0]++;
+                return "formatted";
+            }
+        } );
+        Assert.assertEquals( 0, calls[0] );
+    }
+
+    @Test
+    public void testForeignListener() {
+        // listeners which don't provide their level receive all messages
+        project.addBuildListener( new BuildListener() {
+            public void buildStarted( BuildEvent event ) {}
+            public void buildFinished( BuildEvent event ) {}
+            public void targetStarted( BuildEvent event ) {}
+            public void targetFinished( BuildEvent event ) {}
+            public void taskStarted( BuildEvent event ) {}
+            public void taskFinished( BuildEvent event ) {}
+            public void messageLogged( BuildEvent event ) {}
+        } );
+        SvnTask     task  = newTask();
+        task.execute();
+        final int[] calls = new int[1];
+        task.debug( "%s", new Object() {
+            public String toString() {
+                calls[0]++;
+                return "formatted";
+            }
+        } );
+        Assert.assertEquals( 1, calls[0] );
+    }
+
+    @Test
+    public void testReportFailure() {
+        SvnTask task = newTask();
+        task.setReportFile( getTempDir() );
+        try {
+            task.execute();
+            Assert.fail();
+        } catch( BuildException ex ) {
+            Assert.assertTrue( ex.getMessage().startsWith( "Cannot write" ) );
+        }
+
+        // the failure is only reported
+        setting.setFailonerror( false );
+        task = newTask();
+        task.setReportFile( getTempDir() );
+        task.execute();
+    }
+
+    @Test
+    public void testPendingFailure() {
+        SvnTask task    = newTask();
+        Cleanup cleanup = new Cleanup();
+        cleanup.setDir( new File( getTempDir(), "svnant-missing" ) );
+        task.addCleanup( cleanup );
+        task.setReportFile( getTempDir() );
+        try {
+            task.execute();
+            Assert.fail();
+        } catch( BuildException ex ) {
+            // the failure of the command isn't replaced by the failure of the report
+            Assert.assertFalse( ex.getMessage().startsWith( "Cannot write" ) );
+        }
+    }
+
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    private SvnTask newTask() {
+        SvnTask result = new SvnTask();
+        result.setProject( project );
+        result.setTaskName( "svn" );
+        result.setRefid( new Reference( "memory" ) );
+        return result;
+    }
+
+    private static File getTempDir() {
+        return new File( System.getProperty( "java.io.tmpdir" ) );
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.tigris.subversion.svnant;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNInfo;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.apache.tools.ant.Project;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the revisions shared by the commands of a task, especially the pinning of HEAD.
+ */
+public class TaskRevisionsTest {
+
+    private static final String   FIRST  = "http://first.example.org/repos";
+
+    private static final String   SECOND = "http://second.example.org/repos";
+
+    private SvnTask         task;
+
+    private TaskRevisions   revisions;
+
+    private List<String>    calls;
+
+    @Before
+    public void setUp() {
+        task      = new SvnTask();
+        task.setProject( new Project() );
+        task.setPinHead( true );
+        revisions = new TaskRevisions( task );
+        calls     = Collections.synchronizedList( new ArrayList<String>() );
+    }
+
+    @Test
+    public void testPinAcrossRepositories() throws Exception {
+        ISVNClientAdapter client = newAdapter();
+        SVNRevision       first  = revisions.pin( client, SVNRevision.HEAD, new SVNUrl( FIRST + "/trunk" ) );
+        SVNRevision       second = revisions.pin( client, SVNRevision.HEAD, new SVNUrl( SECOND + "/trunk" ) );
+        Assert.assertEquals( new SVNRevision.Number( 1 ), first );
+        Assert.assertEquals( new SVNRevision.Number( 2 ), second );
+
+        // each repository is only queried once
+        Assert.assertSame( first, revisions.pin( client, SVNRevision.HEAD, new SVNUrl( FIRST + "/branches/b1/" ) ) );
+        Assert.assertSame( second, revisions.pin( client, SVNRevision.HEAD, new SVNUrl( SECOND ) ) );
+        Assert.assertEquals( 2, calls.size() );
+
+        // a repository sharing the prefix of another one is a separate repository
+        Assert.assertEquals( new SVNRevision.Number( 3 ), revisions.pin( client, SVNRevision.HEAD, new SVNUrl( FIRST + "2/trunk" ) ) );
+
+        revisions.reset();
+        Assert.assertEquals( new SVNRevision.Number( 4 ), revisions.pin( client, SVNRevision.HEAD, new SVNUrl( FIRST ) ) );
+    }
+
+    @Test
+    public void testConcurrentPin() throws Exception {
+        final CountDownLatch    blocked  = new CountDownLatch(1);
+        final CountDownLatch    release  = new CountDownLatch(1);
+        final ISVNClientAdapter client   = newAdapter();
+        final ISVNClientAdapter blocking = (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) throws Exception {
+                                blocked.countDown();
+                                release.await();
+                                return method.invoke( client, args );
+                            }
+                        } );
+        final SVNRevision[] result = new SVNRevision[1];
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    result[0] = revisions.pin( blocking, SVNRevision.HEAD, new SVNUrl( FIRST ) );
+                } catch( Exception ex ) {
+                    throw new RuntimeException( ex );
+                }
+            }
+        };
+        thread.start();
+        Assert.assertTrue( blocked.await( 10, TimeUnit.SECONDS ) );
+        // resolving another repository doesn't wait for the pending request
+        Assert.assertEquals( new SVNRevision.Number( 1 ), revisions.pin( client, SVNRevision.HEAD, new SVNUrl( SECOND ) ) );
+        // while the same repository is resolved concurrently the first resolved revision wins
+        Assert.assertEquals( new SVNRevision.Number( 2 ), revisions.pin( client, SVNRevision.HEAD, new SVNUrl( FIRST ) ) );
+        release.countDown();
+        thread.join( 10000 );
+        Assert.assertEquals( new SVNRevision.Number( 2 ), result[0] );
+        Assert.assertEquals( new SVNRevision.Number( 2 ), revisions.pin( client, SVNRevision.HEAD, new SVNUrl( FIRST + "/trunk" ) ) );
+    }
+
+    @Test
+    public void testOtherRevisions() throws Exception {
+        ISVNClientAdapter client   = newAdapter();
+        SVNRevision       revision = new SVNRevision.Number( 42 );
+        Assert.assertSame( revision, revisions.pin( client, revision, new SVNUrl( FIRST ) ) );
+        Assert.assertSame( SVNRevision.BASE, revisions.pin( client, SVNRevision.BASE, new SVNUrl( FIRST ) ) );
+        Assert.assertSame( SVNRevision.HEAD, revisions.pin( client, SVNRevision.HEAD, null ) );
+
+        task.setPinHead( false );
+        Assert.assertSame( SVNRevision.HEAD, revisions.pin( client, SVNRevision.HEAD, new SVNUrl( FIRST ) ) );
+        Assert.assertTrue( calls.isEmpty() );
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        Assert.assertSame( revisions.parse( "HEAD" ), revisions.parse( "HEAD" ) );
+        Assert.assertSame( revisions.parse( "123" ), revisions.parse( "123" ) );
+        Assert.assertEquals( new SVNRevision.Number( 123 ), revisions.parse( "123" ) );
+    }
+
+    /**
+     * Creates an adapter which answers info requests. The repository of an url is the one of the
+     * known repositories which is a prefix of the url while each request returns a new revision.
+     *
+     * @return   The adapter. Not <code>null</code>.
+     */
+    private ISVNClientAdapter newAdapter() {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) throws Exception {
+                                if( ! "getInfo".equals( method.getName() ) ) {
+                                    throw new UnsupportedOperationException( method.getName() );
+                                }
+                                String url  = args[0].toString();
+                                String root = url;
+                                for( String repository : new String[] { FIRST, SECOND, FIRST + "2" } ) {
+                                    if( url.equals( repository ) || url.startsWith( repository + "/" ) ) {
+                                        root = repository;
+                                    }
+                                }
+                                calls.add( url );
+                                return newInfo( new SVNUrl( root ), calls.size() );
+                            }
+                        } );
+    }
+
+    /**
+     * Creates an info which only provides the repository and the revision.
+     *
+     * @param root       The url of the repository. Not <code>null</code>.
+     * @param revision   The revision.
+     *
+     * @return   The info. Not <code>null</code>.
+     */
+    private ISVNInfo newInfo( final SVNUrl root, final long revision ) {
+        return (ISVNInfo) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNInfo.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) {
+                                if( "getRepository".equals( method.getName() ) ) {
+                                    return root;
+                                } else if( "getRevision".equals( method.getName() ) ) {
+                                    return new SVNRevision.Number( revision );
+                                }
+                                throw new UnsupportedOperationException( method.getName() );
+                            }
+                        } );
+    }
+
+}
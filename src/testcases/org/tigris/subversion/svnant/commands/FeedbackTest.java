@@ -0,0 +1,246 @@
+package org.tigris.subversion.svnant.commands;
+
+import org.tigris.subversion.svnant.SvnTask;
+import org.tigris.subversion.svnant.types.SvnSetting;
+
+import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNProgressEvent;
+
+import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.types.Reference;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Checks the aggregation of the notifications and the recording of the changed paths.
+ */
+public class FeedbackTest {
+
+    private static final File   BASEDIR = new File( System.getProperty( "java.io.tmpdir" ), "svnant-feedback" );
+
+    private Project        project;
+
+    private SvnTask        task;
+
+    private File           manifest;
+
+    private List<String>   info;
+
+    private List<String>   verbose;
+
+    @Before
+    public void setUp() throws IOException {
+        project  = new Project();
+        info     = Collections.synchronizedList( new ArrayList<String>() );
+        verbose  = Collections.synchronizedList( new ArrayList<String>() );
+        project.addBuildListener( new MessageListener() );
+        task     = new SvnTask();
+        task.setProject( project );
+        manifest = new File( BASEDIR, "changes.txt" );
+        manifest.delete();
+        BASEDIR.mkdirs();
+        for( String name : new String[] { "added.txt", "updated.txt", "conflicted.txt" } ) {
+            new File( BASEDIR, name ).createNewFile();
+        }
+    }
+
+    @Test
+    public void testManifest() throws IOException {
+        Feedback feedback = new Feedback( newUpdate() );
+        feedback.setCommand( ISVNNotifyListener.Command.UPDATE );
+        notify( feedback, "A    ", "added.txt" );
+        notify( feedback, "U    ", "updated.txt" );
+        notify( feedback, "D    ", "deleted.txt" );
+        notify( feedback, "C    ", "conflicted.txt" );
+        // the target of the update has no message, so it's not a change
+        feedback.onNotify( BASEDIR, SVNNodeKind.DIR );
+        feedback.finish();
+
+        Assert.assertEquals( Arrays.asList( 
+            "A " + path( "added.txt" ), "U " + path( "updated.txt" ), "D " + path( "deleted.txt" ), "C " + path( "conflicted.txt" ) 
+        ), read( manifest ) );
+        Assert.assertArrayEquals( new String[] { path( "added.txt" ), path( "updated.txt" ), path( "conflicted.txt" ) }, getPath( "changes" ).list() );
+        Assert.assertArrayEquals( new String[] { path( "added.txt" ) }, getPath( "changes.added" ).list() );
+        Assert.assertArrayEquals( new String[] { path( "updated.txt" ) }, getPath( "changes.updated" ).list() );
+        Assert.assertArrayEquals( new String[] { path( "deleted.txt" ) }, getPath( "changes.deleted" ).list() );
+        Assert.assertArrayEquals( new String[] { path( "conflicted.txt" ) }, getPath( "changes.conflicted" ).list() );
+        Assert.assertEquals( 5, feedback.getEntries() );
+    }
+
+    @Test
+    public void testCommandChange() throws IOException {
+        // without a message the change is implied by the command
+        Feedback feedback = new Feedback( newUpdate() );
+        feedback.setCommand( ISVNNotifyListener.Command.CHECKOUT );
+        feedback.onNotify( new File( BASEDIR, "added.txt" ), SVNNodeKind.FILE );
+        feedback.setCommand( ISVNNotifyListener.Command.UPDATE );
+        feedback.onNotify( new File( BASEDIR, "updated.txt" ), SVNNodeKind.FILE );
+        feedback.finish();
+        Assert.assertEquals( Arrays.asList( "A " + path( "added.txt" ), "U " + path( "updated.txt" ) ), read( manifest ) );
+    }
+
+    @Test
+    public void testAggregation() {
+        Feedback feedback = new Feedback( newUpdate() );
+        feedback.setCommand( ISVNNotifyListener.Command.UPDATE );
+        notify( feedback, "A    ", "added.txt" );
+        notify( feedback, "U    ", "updated.txt" );
+        notify( feedback, "D    ", "deleted.txt" );
+        notify( feedback, "C    ", "conflicted.txt" );
+        feedback.logMessage( "At revision 7." );
+        feedback.onProgress( new SVNProgressEvent( 2048, SVNProgressEvent.UNKNOWN ) );
+        feedback.onProgress( new SVNProgressEvent( 3072, SVNProgressEvent.UNKNOWN ) );
+        // a smaller progress belongs to a new repository session
+        feedback.onProgress( new SVNProgressEvent( 1024, SVNProgressEvent.UNKNOWN ) );
+        Assert.assertEquals( 4, feedback.getEntries() );
+        Assert.assertEquals( 4096, feedback.getBytes() );
+        feedback.finish();
+
+        // messages of single resources aren't logged by default
+        Assert.assertEquals( "At revision 7.", verbose.get( 0 ) );
+        Assert.assertEquals( 2, verbose.size() );
+        Assert.assertTrue( verbose.get( 1 ), verbose.get( 1 ).startsWith( 
+            "<Update> 4 entries (1 added, 1 updated, 1 deleted, 1 conflicts), 4 KB transferred, " 
+        ) );
+        Assert.assertEquals( Collections.<String>emptyList(), info );
+    }
+
+    @Test
+    public void testLogNotifications() {
+        SvnSetting setting = new SvnSetting( project );
+        setting.setLogNotifications( true );
+        useSetting( setting );
+        Feedback feedback = new Feedback( newUpdate() );
+        notify( feedback, "A    ", "added.txt" );
+        Assert.assertEquals( Arrays.asList( "A    " + path( "added.txt" ) ), verbose );
+    }
+
+    @Test
+    public void testNoProgressInterval() throws InterruptedException {
+        SvnSetting setting = new SvnSetting( project );
+        setting.setProgressInterval( 0 );
+        useSetting( setting );
+        Feedback feedback = new Feedback( newUpdate() );
+        feedback.setCommand( ISVNNotifyListener.Command.UPDATE );
+        Thread.sleep( 50 );
+        notify( feedback, "U    ", "updated.txt" );
+        Assert.assertEquals( Collections.<String>emptyList(), verbose );
+        feedback.finish();
+        Assert.assertEquals( 1, verbose.size() );
+        Assert.assertEquals( Collections.<String>emptyList(), info );
+    }
+
+    @Test
+    public void testProgressInterval() throws InterruptedException {
+        SvnSetting setting = new SvnSetting( project );
+        setting.setProgressInterval( 1 );
+        useSetting( setting );
+        Feedback feedback = new Feedback( newUpdate() );
+        feedback.setCommand( ISVNNotifyListener.Command.UPDATE );
+        notify( feedback, "U    ", "updated.txt" );
+        Assert.assertEquals( Collections.<String>emptyList(), info );
+        Thread.sleep( 1100 );
+        notify( feedback, "A    ", "added.txt" );
+        // the periodic report is visible, so the final one is, too
+        Assert.assertEquals( 1, info.size() );
+        Assert.assertTrue( info.get( 0 ), info.get( 0 ).startsWith( "<Update> 2 entries (1 added, 1 updated, 0 deleted, 0 conflicts), " ) );
+        feedback.finish();
+        Assert.assertEquals( 2, info.size() );
+        Assert.assertEquals( Collections.<String>emptyList(), verbose );
+    }
+
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    private void useSetting( SvnSetting setting ) {
+        project.addReference( "setting", setting );
+        task.setRefid( new Reference( "setting" ) );
+    }
+
+    private void notify( Feedback feedback, String code, String name ) {
+        feedback.logMessage( code + path( name ) );
+        feedback.onNotify( new File( BASEDIR, name ), SVNNodeKind.FILE );
+    }
+
+    private Update newUpdate() {
+        Update result = new Update();
+        result.setProject( project );
+        result.setTask( task );
+        result.setChangesFile( manifest );
+        result.setChangesRefid( "changes" );
+        return result;
+    }
+
+    private Path getPath( String refid ) {
+        return (Path) project.getReference( refid );
+    }
+
+    private String path( String name ) {
+        return new File( BASEDIR, name ).getAbsolutePath();
+    }
+
+    private List<String> read( File file ) throws IOException {
+        List<String>   result = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ) );
+        try {
+            String line = reader.readLine();
+            while( line != null ) {
+                result.add( line );
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Collects the messages of the info and verbose level.
+     */
+    private class MessageListener implements BuildListener {
+
+        public void messageLogged( BuildEvent event ) {
+            if( event.getPriority() == Project.MSG_INFO ) {
+                info.add( event.getMessage() );
+            } else if( event.getPriority() == Project.MSG_VERBOSE ) {
+                verbose.add( event.getMessage() );
+            }
+        }
+
+        public void buildStarted( BuildEvent event ) {
+        }
+
+        public void buildFinished( BuildEvent event ) {
+        }
+
+        public void targetStarted( BuildEvent event ) {
+        }
+
+        public void targetFinished( BuildEvent event ) {
+        }
+
+        public void taskStarted( BuildEvent event ) {
+        }
+
+        public void taskFinished( BuildEvent event ) {
+        }
+
+    }
+
+}
@@ -0,0 +1,289 @@
+package org.tigris.subversion.svnant.commands;
+
+import org.tigris.subversion.svnant.SvnTask;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNInfo;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.selectors.FilenameSelector;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Checks the conditions under which adjacent commands are joined and the execution of joined commands.
+ */
+public class JoinCommandsTest {
+
+    private static final File   BASEDIR = new File( System.getProperty( "java.io.tmpdir" ), "svnant-join" );
+
+    private static final String REPOS   = "http://example.org/repos";
+
+    private Project        project;
+
+    private SvnTask        task;
+
+    private List<String>   calls;
+
+    @Before
+    public void setUp() throws IOException {
+        project = new Project();
+        task    = new SvnTask();
+        task.setProject( project );
+        calls   = new ArrayList<String>();
+        new File( BASEDIR, "a/sub" ).mkdirs();
+        new File( BASEDIR, "b" ).mkdirs();
+        new File( BASEDIR, "a/f.txt" ).createNewFile();
+        new File( BASEDIR, "a/g.txt" ).createNewFile();
+        // two working copies of the same repository
+        new File( BASEDIR, "w1/.svn" ).mkdirs();
+        new File( BASEDIR, "w1/x" ).mkdirs();
+        new File( BASEDIR, "w1/y" ).mkdirs();
+        new File( BASEDIR, "w2/.svn" ).mkdirs();
+    }
+
+    @Test
+    public void testJoinable() {
+        Assert.assertTrue( newUpdate( "a" ).isJoinable( newUpdate( "b" ) ) );
+        // the nested resources would be collected before the first update
+        Assert.assertFalse( newUpdate( "a" ).isJoinable( newUpdate( "a/sub" ) ) );
+        Assert.assertFalse( newUpdate( "a/sub" ).isJoinable( newUpdate( "a" ) ) );
+    }
+
+    @Test
+    public void testSelectors() {
+        Update           selecting = newUpdate( null );
+        FileSet          fileset   = newFileSet( "b" );
+        FilenameSelector selector  = new FilenameSelector();
+        selector.setName( "*.txt" );
+        fileset.addFilename( selector );
+        selecting.addFileset( fileset );
+        Assert.assertFalse( newUpdate( "a" ).isJoinable( selecting ) );
+        Assert.assertFalse( selecting.isJoinable( newUpdate( "a" ) ) );
+    }
+
+    @Test
+    public void testDeclaredOrder() {
+        Update files = newUpdate( null );
+        files.addFileset( newFileSet( "a" ) );
+        Update dir   = newUpdate( "b" );
+        files.join( dir );
+        files.executeCommand( newAdapter( false ) );
+        // the files of the first command are updated before the directory of the joined one
+        Assert.assertEquals( Arrays.asList( "update [f.txt, g.txt] false", "update b true" ), calls );
+    }
+
+    @Test
+    public void testBatchFailure() {
+        Update files = newUpdate( null );
+        files.addFileset( newFileSet( "a" ) );
+        try {
+            files.executeCommand( newAdapter( true ) );
+            Assert.fail();
+        } catch( BuildException ex ) {
+            Assert.assertTrue( ex.getMessage().contains( "f.txt" ) );
+        }
+        // the resources aren't updated once more
+        Assert.assertEquals( Arrays.asList( "update [f.txt, g.txt] false" ), calls );
+    }
+
+    @Test
+    public void testCommit() {
+        Commit first  = newCommit( "a", "message" );
+        Commit second = newCommit( "b", "message" );
+        // commits are exclusive which doesn't prevent joining
+        Assert.assertTrue( first.isJoinable( second ) );
+        Assert.assertFalse( first.isJoinable( newCommit( "b", "other" ) ) );
+        Assert.assertFalse( first.isJoinable( newCommit( "a/sub", "message" ) ) );
+        first.join( second );
+        first.executeCommand( newAdapter( false ) );
+        Assert.assertEquals( Arrays.asList( "commit [a, b] true" ), calls );
+    }
+
+    @Test
+    public void testNotBatched() {
+        // the adapter doesn't provide batched calls for these commands
+        Add add = new Add();
+        add.setDir( new File( BASEDIR, "a" ) );
+        Add other = new Add();
+        other.setDir( new File( BASEDIR, "b" ) );
+        Assert.assertFalse( add.isJoinable( other ) );
+        Revert revert = new Revert();
+        revert.setDir( new File( BASEDIR, "a" ) );
+        Revert next = new Revert();
+        next.setDir( new File( BASEDIR, "b" ) );
+        Assert.assertFalse( revert.isJoinable( next ) );
+    }
+
+    @Test
+    public void testPinnedUpdate() {
+        task.setPinHead( true );
+        Update update = newUpdate( "w1/x" );
+        update.join( newUpdate( "w1/y" ) );
+        update.join( newUpdate( "w2" ) );
+        update.executeCommand( newPinningAdapter( false ) );
+        // HEAD is resolved once per working copy and once per repository
+        Assert.assertEquals( Arrays.asList( "info x", "head " + REPOS + "/x", "info w2", "update [x, y, w2] 7" ), calls );
+    }
+
+    @Test
+    public void testPinFailure() {
+        task.setPinHead( true );
+        Update update = newUpdate( "w1/x" );
+        try {
+            update.executeCommand( newPinningAdapter( true ) );
+            Assert.fail();
+        } catch( BuildException ex ) {
+            Assert.assertTrue( ex.getMessage().contains( "pin" ) );
+        }
+        // the resources aren't updated to an unpinned HEAD
+        Assert.assertEquals( Arrays.asList( "info x" ), calls );
+    }
+
+    private Commit newCommit( String dir, String message ) {
+        Commit result = new Commit();
+        result.setProject( project );
+        result.setTask( task );
+        result.setDir( new File( BASEDIR, dir ) );
+        result.setMessage( message );
+        return result;
+    }
+
+    private Update newUpdate( String dir ) {
+        Update result = new Update();
+        result.setProject( project );
+        result.setTask( task );
+        if( dir != null ) {
+            result.setDir( new File( BASEDIR, dir ) );
+        }
+        return result;
+    }
+
+    private FileSet newFileSet( String dir ) {
+        FileSet result = new FileSet();
+        result.setProject( project );
+        result.setDir( new File( BASEDIR, dir ) );
+        result.setIncludes( "*.txt" );
+        return result;
+    }
+
+    /**
+     * Creates an adapter which records the updates and commits.
+     *
+     * @param fail   <code>true</code> <=> Batched updates are failing.
+     *
+     * @return   The adapter. Not <code>null</code>.
+     */
+    private ISVNClientAdapter newAdapter( final boolean fail ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) throws SVNClientException {
+                                if( "commit".equals( method.getName() ) ) {
+                                    List<String> names = new ArrayList<String>();
+                                    for( File file : (File[]) args[0] ) {
+                                        names.add( file.getName() );
+                                    }
+                                    calls.add( "commit " + names + " " + args[2] );
+                                    return Long.valueOf( 1 );
+                                }
+                                if( ! "update".equals( method.getName() ) ) {
+                                    return null;
+                                }
+                                if( args[0] instanceof File[] ) {
+                                    List<String> names = new ArrayList<String>();
+                                    for( File file : (File[]) args[0] ) {
+                                        names.add( file.getName() );
+                                    }
+                                    calls.add( "update " + names + " " + args[2] );
+                                    if( fail ) {
+                                        throw new SVNClientException( "failed" );
+                                    }
+                                    return new long[ names.size() ];
+                                }
+                                calls.add( "update " + ((File) args[0]).getName() + " " + args[2] );
+                                return Long.valueOf( 0 );
+                            }
+                        } );
+    }
+
+    /**
+     * Creates an adapter which answers info requests and records them together with the updates.
+     * Each working copy path is located directly below the repository root.
+     *
+     * @param fail   <code>true</code> <=> Info requests for working copy paths are failing.
+     *
+     * @return   The adapter. Not <code>null</code>.
+     */
+    private ISVNClientAdapter newPinningAdapter( final boolean fail ) {
+        return (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) throws Exception {
+                                if( "getInfoFromWorkingCopy".equals( method.getName() ) ) {
+                                    String name = ((File) args[0]).getName();
+                                    calls.add( "info " + name );
+                                    if( fail ) {
+                                        throw new SVNClientException( "failed" );
+                                    }
+                                    return newInfo( new SVNUrl( REPOS + "/" + name ), 0 );
+                                }
+                                if( "getInfo".equals( method.getName() ) ) {
+                                    calls.add( "head " + args[0] );
+                                    return newInfo( (SVNUrl) args[0], 7 );
+                                }
+                                if( "update".equals( method.getName() ) ) {
+                                    List<String> names = new ArrayList<String>();
+                                    for( File file : (File[]) args[0] ) {
+                                        names.add( file.getName() );
+                                    }
+                                    calls.add( "update " + names + " " + args[1] );
+                                    return new long[ names.size() ];
+                                }
+                                return null;
+                            }
+                        } );
+    }
+
+    /**
+     * Creates an info for the supplied url within the test repository.
+     *
+     * @param url        The url of the resource. Not <code>null</code>.
+     * @param revision   The revision of the resource.
+     *
+     * @return   The info. Not <code>null</code>.
+     */
+    private ISVNInfo newInfo( final SVNUrl url, final long revision ) {
+        return (ISVNInfo) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNInfo.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) throws Exception {
+                                if( "getUrl".equals( method.getName() ) ) {
+                                    return url;
+                                } else if( "getRepository".equals( method.getName() ) ) {
+                                    return new SVNUrl( REPOS );
+                                } else if( "getRevision".equals( method.getName() ) ) {
+                                    return new SVNRevision.Number( revision );
+                                }
+                                throw new UnsupportedOperationException( method.getName() );
+                            }
+                        } );
+    }
+
+}
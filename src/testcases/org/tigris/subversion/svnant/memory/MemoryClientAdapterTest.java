@@ -0,0 +1,198 @@
+package org.tigris.subversion.svnant.memory;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNStatusKind;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import java.io.File;
+
+/**
+ * Checks the working copy operations of the memory client and the injected latency.
+ */
+public class MemoryClientAdapterTest {
+
+    private static final String   URL     = "file:///svnant-memory-test";
+
+    private static final File     BASEDIR = new File( System.getProperty( "java.io.tmpdir" ), "svnant-memory" );
+
+    private MemoryRepository    repository;
+
+    private ISVNClientAdapter   client;
+
+    private List<String>        notified;
+
+    @Before
+    public void setUp() throws Exception {
+        MemoryWorkingCopy.clear();
+        MemoryRepository.clear();
+        repository = MemoryRepository.create( URL );
+        MemoryRepository.Transaction transaction = repository.begin( "author", "initial" );
+        transaction.mkdir( "dir" );
+        transaction.put( "dir/a.txt", "a".getBytes( "UTF-8" ) );
+        transaction.put( "b.txt", "b".getBytes( "UTF-8" ) );
+        transaction.commit();
+        client   = MemoryClientAdapter.create();
+        notified = Collections.synchronizedList( new ArrayList<String>() );
+        client.addNotifyListener( new ISVNNotifyListener() {
+            public void setCommand( int command ) {
+            }
+            public void logCommandLine( String commandline ) {
+            }
+            public void logMessage( String message ) {
+            }
+            public void logError( String message ) {
+            }
+            public void logRevision( long revision, String path ) {
+            }
+            public void logCompleted( String message ) {
+            }
+            public void onNotify( File path, SVNNodeKind kind ) {
+                notified.add( path.getName() );
+            }
+        } );
+    }
+
+    @After
+    public void tearDown() {
+        MemoryClientAdapter.setLatency( 0, 0 );
+        MemoryWorkingCopy.clear();
+        MemoryRepository.clear();
+    }
+
+    @Test
+    public void testCheckout() throws Exception {
+        File wc = checkout( "wc" );
+        Assert.assertEquals( "a", read( new File( wc, "dir/a.txt" ) ) );
+        Assert.assertEquals( "b", read( new File( wc, "b.txt" ) ) );
+        Assert.assertTrue( notified.containsAll( Arrays.asList( "dir", "a.txt", "b.txt" ) ) );
+        Assert.assertEquals( SVNStatusKind.NORMAL, getStatus( new File( wc, "dir/a.txt" ) ) );
+        Assert.assertEquals( 1, client.getInfoFromWorkingCopy( wc ).getRevision().getNumber() );
+    }
+
+    @Test
+    public void testCommitAndUpdate() throws Exception {
+        File first  = checkout( "first" );
+        File second = checkout( "second" );
+        File file   = new File( first, "dir/a.txt" );
+        write( file, "changed" );
+        Assert.assertEquals( SVNStatusKind.MODIFIED, getStatus( file ) );
+        Assert.assertEquals( 2, client.commit( new File[] { file }, "change", false ) );
+        Assert.assertEquals( SVNStatusKind.NORMAL, getStatus( file ) );
+        Assert.assertEquals( 2, repository.getHeadRevision() );
+
+        // the other working copy only sees the change after an update
+        File other = new File( second, "dir/a.txt" );
+        Assert.assertEquals( "a", read( other ) );
+        Assert.assertEquals( 2, client.update( second, SVNRevision.HEAD, true ) );
+        Assert.assertEquals( "changed", read( other ) );
+        Assert.assertEquals( 1, client.update( second, new SVNRevision.Number( 1 ), true ) );
+        Assert.assertEquals( "a", read( other ) );
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        File wc   = checkout( "wc" );
+        File file = new File( wc, "dir/c.txt" );
+        write( file, "c" );
+        Assert.assertEquals( SVNStatusKind.UNVERSIONED, getStatus( file ) );
+        client.addFile( file );
+        Assert.assertEquals( SVNStatusKind.ADDED, getStatus( file ) );
+        client.commit( new File[] { wc }, "add", true );
+        Assert.assertEquals( SVNStatusKind.NORMAL, getStatus( file ) );
+        Assert.assertEquals( "c", new String( repository.getNode( "dir/c.txt", repository.getHeadRevision() ).getContent(), "UTF-8" ) );
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        File wc   = checkout( "wc" );
+        File file = new File( wc, "b.txt" );
+        client.remove( new File[] { file }, false );
+        Assert.assertEquals( SVNStatusKind.DELETED, getStatus( file ) );
+        Assert.assertNull( read( file ) );
+        client.commit( new File[] { wc }, "delete", true );
+        Assert.assertNull( repository.getNode( "b.txt", repository.getHeadRevision() ) );
+        Assert.assertNotNull( repository.getNode( "b.txt", 1 ) );
+    }
+
+    @Test
+    public void testRevert() throws Exception {
+        File wc       = checkout( "wc" );
+        File modified = new File( wc, "dir/a.txt" );
+        File deleted  = new File( wc, "b.txt" );
+        write( modified, "changed" );
+        client.remove( new File[] { deleted }, false );
+        client.revert( wc, true );
+        Assert.assertEquals( SVNStatusKind.NORMAL, getStatus( modified ) );
+        Assert.assertEquals( "a", read( modified ) );
+        Assert.assertEquals( SVNStatusKind.NORMAL, getStatus( deleted ) );
+        Assert.assertEquals( "b", read( deleted ) );
+        Assert.assertEquals( 1, repository.getHeadRevision() );
+    }
+
+    @Test
+    public void testStatus() throws Exception {
+        File wc = checkout( "wc" );
+        write( new File( wc, "dir/a.txt" ), "changed" );
+        write( new File( wc, "new.txt" ), "new" );
+        List<String> changed = new ArrayList<String>();
+        for( ISVNStatus status : client.getStatus( wc, true, false ) ) {
+            changed.add( status.getFile().getName() + " " + status.getTextStatus() );
+        }
+        Collections.sort( changed );
+        Assert.assertEquals( Arrays.asList( "a.txt modified", "new.txt unversioned" ), changed );
+        Assert.assertEquals( 5, client.getStatus( wc, true, true ).length );
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        File wc = checkout( "wc" );
+        MemoryClientAdapter.setLatency( 0, 200000000L );
+        long start = System.nanoTime();
+        client.getSingleStatus( wc );
+        long local = System.nanoTime() - start;
+        start      = System.nanoTime();
+        client.update( wc, SVNRevision.HEAD, true );
+        long remote = System.nanoTime() - start;
+        Assert.assertTrue( "local: " + local, local < 200000000L );
+        Assert.assertTrue( "remote: " + remote, remote >= 200000000L );
+
+        MemoryClientAdapter.setLatency( 200000000L, 0 );
+        start = System.nanoTime();
+        client.getSingleStatus( wc );
+        Assert.assertTrue( System.nanoTime() - start >= 200000000L );
+    }
+
+    private File checkout( String name ) throws Exception {
+        File result = new File( BASEDIR, name );
+        client.checkout( new SVNUrl( URL ), result, SVNRevision.HEAD, true );
+        return result;
+    }
+
+    private SVNStatusKind getStatus( File file ) throws Exception {
+        return client.getSingleStatus( file ).getTextStatus();
+    }
+
+    private String read( File file ) throws Exception {
+        byte[] content = MemoryWorkingCopy.find( file ).read( file );
+        return content != null ? new String( content, "UTF-8" ) : null;
+    }
+
+    private void write( File file, String content ) throws Exception {
+        MemoryWorkingCopy.find( file ).write( file, content.getBytes( "UTF-8" ) );
+    }
+
+}
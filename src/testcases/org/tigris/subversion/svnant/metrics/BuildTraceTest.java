@@ -0,0 +1,89 @@
+package org.tigris.subversion.svnant.metrics;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Checks the activation of the build trace and the written timeline.
+ */
+public class BuildTraceTest {
+
+    private BuildTrace   trace;
+
+    @After
+    public void tearDown() {
+        if( trace != null ) {
+            BuildTrace.stop( trace );
+        }
+    }
+
+    @Test
+    public void testActivation() {
+        Assert.assertNull( BuildTrace.getActive() );
+        trace = BuildTrace.start();
+        // sub builds share the active trace
+        Assert.assertSame( trace, BuildTrace.start() );
+        Assert.assertSame( trace, BuildTrace.getActive() );
+
+        // only the owner stops the trace
+        BuildTrace.stop( null );
+        Assert.assertSame( trace, BuildTrace.getActive() );
+        BuildTrace.stop( trace );
+        Assert.assertNull( BuildTrace.getActive() );
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        trace = BuildTrace.start();
+        long started = System.nanoTime();
+        trace.addSpan( "update", "command", started, started + 2500000L, "dir", "a \"b\"" );
+        Thread other = new Thread( "svnant-worker" ) {
+            public void run() {
+                long now = System.nanoTime();
+                trace.addSpan( "getStatus", "adapter", now, now );
+            }
+        };
+        other.start();
+        other.join();
+
+        File file = File.createTempFile( "svnant-trace", ".json" );
+        try {
+            trace.write( file );
+            String content = read( file );
+            Assert.assertTrue( content.startsWith( "{\"displayTimeUnit\": \"ms\", \"traceEvents\": [\n" ) );
+            Assert.assertTrue( content.endsWith( "\n]}\n" ) );
+            Assert.assertTrue( content.contains( "\"args\": {\"name\": \"svnant-worker\"}" ) );
+            Assert.assertTrue( content.contains( "\"args\": {\"name\": " + TaskReport.quote( Thread.currentThread().getName() ) + "}" ) );
+            Assert.assertTrue( content.contains( "{\"name\": \"update\", \"cat\": \"command\", \"ph\": \"X\", \"pid\": 1, \"tid\": " + Thread.currentThread().getId() ) );
+            Assert.assertTrue( content.contains( "\"dur\": 2500.000, \"args\": {\"dir\": \"a \\\"b\\\"\"}}" ) );
+            Assert.assertTrue( content.contains( "{\"name\": \"getStatus\", \"cat\": \"adapter\", \"ph\": \"X\", \"pid\": 1, \"tid\": " + other.getId() ) );
+            Assert.assertTrue( content.contains( "\"dur\": 0.000}" ) );
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static String read( File file ) throws IOException {
+        StringBuilder  result = new StringBuilder();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ) );
+        try {
+            char[] buffer = new char[1024];
+            int    count  = reader.read( buffer );
+            while( count != -1 ) {
+                result.append( buffer, 0, count );
+                count = reader.read( buffer );
+            }
+        } finally {
+            reader.close();
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.tigris.subversion.svnant.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the histogram buckets and the aggregation of the call statistics.
+ */
+public class CallStatisticsTest {
+
+    @Test
+    public void testBucketBoundaries() {
+        long[]         limits     = CallStatistics.getBucketLimits();
+        CallStatistics statistics = new CallStatistics();
+        for( int i = 0; i < limits.length; i++ ) {
+            // a duration matching a limit belongs to the following bucket
+            statistics.record( limits[i] - 1 );
+            statistics.record( limits[i] );
+        }
+        long[] histogram = statistics.getHistogram();
+        Assert.assertEquals( limits.length + 1, histogram.length );
+        Assert.assertEquals( 1, histogram[0] );
+        for( int i = 1; i < limits.length; i++ ) {
+            Assert.assertEquals( 2, histogram[i] );
+        }
+        Assert.assertEquals( 1, histogram[ limits.length ] );
+    }
+
+    @Test
+    public void testUnboundedBucket() {
+        CallStatistics statistics = new CallStatistics();
+        statistics.record( Long.MAX_VALUE );
+        long[] histogram = statistics.getHistogram();
+        Assert.assertEquals( 1, histogram[ histogram.length - 1 ] );
+        Assert.assertEquals( Long.MAX_VALUE, statistics.getMax() );
+    }
+
+    @Test
+    public void testEmpty() {
+        CallStatistics statistics = new CallStatistics();
+        Assert.assertEquals( 0, statistics.getCount() );
+        Assert.assertEquals( 0, statistics.getMin() );
+        Assert.assertEquals( 0, statistics.getMax() );
+        Assert.assertEquals( "calls=0, total=0.0ms, min=0.0ms, max=0.0ms, avg=0.0ms, histogram=[]", statistics.toString() );
+    }
+
+    @Test
+    public void testAggregation() {
+        CallStatistics first = new CallStatistics();
+        first.record( 2000000L );
+        first.record( 40000L );
+        CallStatistics second = new CallStatistics();
+        second.record( 20000000000L );
+        CallStatistics copy = first.copy();
+        first.add( second );
+        Assert.assertEquals( 3, first.getCount() );
+        Assert.assertEquals( 20002040000L, first.getTotal() );
+        Assert.assertEquals( 40000L, first.getMin() );
+        Assert.assertEquals( 20000000000L, first.getMax() );
+        Assert.assertEquals( 
+            "calls=3, total=20002.0ms, min=0.0ms, max=20000.0ms, avg=6667.3ms, histogram=[<0.1ms:1, <10.0ms:1, >=10000.0ms:1]", 
+            first.toString() 
+        );
+        // the copy isn't affected by later changes
+        Assert.assertEquals( 2, copy.getCount() );
+        Assert.assertEquals( 2040000L, copy.getTotal() );
+        Assert.assertEquals( 2000000L, copy.getMax() );
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.tigris.subversion.svnant.metrics;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SortedMap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Checks that the calls of recording client adapters are attributed to the issuing command.
+ */
+public class ClientMetricsTest {
+
+    @After
+    public void tearDown() {
+        MetricsClientAdapter.setCommand( null );
+    }
+
+    @Test
+    public void testCommandAttribution() {
+        ClientMetrics     build  = new ClientMetrics();
+        ISVNClientAdapter client = MetricsClientAdapter.wrap( newAdapter(), "facade", build );
+        client.addNotifyListener( null );
+        Assert.assertNull( MetricsClientAdapter.setCommand( "update" ) );
+        client.addNotifyListener( null );
+        client.removeNotifyListener( null );
+        Assert.assertEquals( "update", MetricsClientAdapter.setCommand( "commit" ) );
+        client.removeNotifyListener( null );
+        MetricsClientAdapter.setCommand( null );
+        Assert.assertNull( MetricsClientAdapter.getCommand() );
+
+        SortedMap<String,CallStatistics> commands = build.getCommandStatistics();
+        Assert.assertEquals( "[commit, facade, update]", commands.keySet().toString() );
+        Assert.assertEquals( 1, commands.get( "commit" ).getCount() );
+        Assert.assertEquals( 1, commands.get( "facade" ).getCount() );
+        Assert.assertEquals( 2, commands.get( "update" ).getCount() );
+
+        SortedMap<String,CallStatistics> methods = build.getMethodStatistics();
+        Assert.assertEquals( "[addNotifyListener, removeNotifyListener]", methods.keySet().toString() );
+        Assert.assertEquals( 2, methods.get( "addNotifyListener" ).getCount() );
+        Assert.assertEquals( 2, methods.get( "removeNotifyListener" ).getCount() );
+        Assert.assertEquals( 4, build.getTotal().getCount() );
+
+        // the adapter keeps its own copy of the calls
+        Assert.assertEquals( 4, MetricsClientAdapter.getMetrics( client ).getTotal().getCount() );
+    }
+
+    @Test
+    public void testCommandPerThread() throws Exception {
+        ClientMetrics           build  = new ClientMetrics();
+        final ISVNClientAdapter client = MetricsClientAdapter.wrap( newAdapter(), "facade", build );
+        MetricsClientAdapter.setCommand( "update" );
+        Thread worker = new Thread() {
+            public void run() {
+                client.addNotifyListener( null );
+            }
+        };
+        worker.start();
+        worker.join();
+        client.addNotifyListener( null );
+        SortedMap<String,CallStatistics> commands = build.getCommandStatistics();
+        Assert.assertEquals( 1, commands.get( "facade" ).getCount() );
+        Assert.assertEquals( 1, commands.get( "update" ).getCount() );
+    }
+
+    @Test
+    public void testAdd() {
+        ClientMetrics first = new ClientMetrics();
+        first.record( "update", "update", 1000L );
+        ClientMetrics second = new ClientMetrics();
+        second.record( "update", "update", 2000L );
+        second.record( "status", "getStatus", 3000L );
+        first.add( second );
+        Assert.assertEquals( 2, first.getCommandStatistics().get( "update" ).getCount() );
+        Assert.assertEquals( 3000L, first.getMethodStatistics().get( "update" ).getTotal() );
+        Assert.assertEquals( 1, first.getCommandStatistics().get( "status" ).getCount() );
+        Assert.assertEquals( 6000L, first.getTotal().getTotal() );
+    }
+
+    /**
+     * Creates an adapter which ignores all calls.
+     * 
+     * @return   An adapter ignoring all calls. Not <code>null</code>.
+     */
+    private ISVNClientAdapter newAdapter() {
+        return (ISVNClientAdapter) Proxy.newProxyInstance(
+            ISVNClientAdapter.class.getClassLoader(),
+            new Class<?>[] { ISVNClientAdapter.class },
+            new InvocationHandler() {
+                public Object invoke( Object proxy, Method method, Object[] args ) {
+                    return null;
+                }
+            }
+        );
+    }
+
+}
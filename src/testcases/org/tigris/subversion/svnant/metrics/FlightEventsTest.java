@@ -0,0 +1,33 @@
+package org.tigris.subversion.svnant.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the flight recorder events don't do anything as long as no recording is running.
+ */
+public class FlightEventsTest {
+
+    @Test
+    public void testNotRecording() {
+        Assert.assertFalse( FlightEvents.isRecording() );
+        Assert.assertNull( FlightEvents.COMMAND.begin() );
+        Assert.assertNull( FlightEvents.CALL.begin() );
+        Assert.assertNull( FlightEvents.SCAN.begin() );
+    }
+
+    @Test
+    public void testCommitWithoutEvent() {
+        FlightEvents.COMMAND.commit( null, "Update", "[/wc]", "HEAD" );
+        FlightEvents.CALL.commit( null );
+        Assert.assertFalse( FlightEvents.isRecording() );
+    }
+
+    @Test
+    public void testCommitForeignEvent() {
+        // an unusable event is dropped without affecting the caller
+        FlightEvents.SCAN.commit( new Object(), "scan", "/wc" );
+        FlightEvents.SCAN.commit( "event", (String) null );
+    }
+
+}
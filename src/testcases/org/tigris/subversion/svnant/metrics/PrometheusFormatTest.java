@@ -0,0 +1,82 @@
+package org.tigris.subversion.svnant.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the rendering of the build metrics in the Prometheus text exposition format.
+ */
+public class PrometheusFormatTest {
+
+    @Test
+    public void testCounters() {
+        BuildCounters counters = new BuildCounters();
+        counters.add( "svnant_commands_total", 2, "command", "update" );
+        counters.add( "svnant_commands_total", 1, "command", "commit" );
+        counters.add( "svnant_command_seconds_total", 1500000000L, "command", "update" );
+        counters.add( "svnant_cache_hits_total", 3, "cache", "status" );
+        counters.add( "svnant_cache_misses_total", 1, "cache", "status" );
+        Assert.assertEquals(
+            "# HELP svnant_cache_hits_total Number of requests answered by a cache.\n" +
+            "# TYPE svnant_cache_hits_total counter\n" +
+            "svnant_cache_hits_total{cache=\"status\"} 3\n" +
+            "# HELP svnant_cache_misses_total Number of requests not answered by a cache.\n" +
+            "# TYPE svnant_cache_misses_total counter\n" +
+            "svnant_cache_misses_total{cache=\"status\"} 1\n" +
+            "# HELP svnant_command_seconds_total Time spent executing svn commands.\n" +
+            "# TYPE svnant_command_seconds_total counter\n" +
+            "svnant_command_seconds_total{command=\"update\"} 1.500000\n" +
+            "# HELP svnant_commands_total Number of executed svn commands.\n" +
+            "# TYPE svnant_commands_total counter\n" +
+            "svnant_commands_total{command=\"commit\"} 1\n" +
+            "svnant_commands_total{command=\"update\"} 2\n" +
+            "# HELP svnant_cache_hit_ratio Ratio of the requests answered by a cache.\n" +
+            "# TYPE svnant_cache_hit_ratio gauge\n" +
+            "svnant_cache_hit_ratio{cache=\"status\"} 0.7500\n",
+            PrometheusFormat.format( counters, null )
+        );
+    }
+
+    @Test
+    public void testClientMetrics() {
+        ClientMetrics metrics = new ClientMetrics();
+        metrics.record( "update", "update", 2000000L );
+        metrics.record( "update", "update", 20000000L );
+        metrics.record( "status", "getStatus", 50000L );
+        Assert.assertEquals(
+            "# HELP svnant_adapter_calls_total Number of client adapter calls.\n" +
+            "# TYPE svnant_adapter_calls_total counter\n" +
+            "svnant_adapter_calls_total{method=\"getStatus\"} 1\n" +
+            "svnant_adapter_calls_total{method=\"update\"} 2\n" +
+            "# HELP svnant_adapter_call_seconds Duration of client adapter calls.\n" +
+            "# TYPE svnant_adapter_call_seconds histogram\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"getStatus\",le=\"0.000100\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"getStatus\",le=\"0.001000\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"getStatus\",le=\"0.010000\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"getStatus\",le=\"0.100000\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"getStatus\",le=\"1.000000\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"getStatus\",le=\"10.000000\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"getStatus\",le=\"+Inf\"} 1\n" +
+            "svnant_adapter_call_seconds_sum{method=\"getStatus\"} 0.000050\n" +
+            "svnant_adapter_call_seconds_count{method=\"getStatus\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"update\",le=\"0.000100\"} 0\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"update\",le=\"0.001000\"} 0\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"update\",le=\"0.010000\"} 1\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"update\",le=\"0.100000\"} 2\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"update\",le=\"1.000000\"} 2\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"update\",le=\"10.000000\"} 2\n" +
+            "svnant_adapter_call_seconds_bucket{method=\"update\",le=\"+Inf\"} 2\n" +
+            "svnant_adapter_call_seconds_sum{method=\"update\"} 0.022000\n" +
+            "svnant_adapter_call_seconds_count{method=\"update\"} 2\n",
+            PrometheusFormat.format( new BuildCounters(), metrics )
+        );
+    }
+
+    @Test
+    public void testLabelEscaping() {
+        BuildCounters counters = new BuildCounters();
+        counters.add( "svnant_commands_total", 1, "command", "a\"b\\c\nd" );
+        Assert.assertTrue( PrometheusFormat.format( counters, null ).contains( "svnant_commands_total{command=\"a\\\"b\\\\c\\nd\"} 1\n" ) );
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.tigris.subversion.svnant.metrics;
+
+import org.apache.tools.ant.Project;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Checks the JSON content of the task reports and the collection of the reports within a file.
+ */
+public class TaskReportTest {
+
+    private static final File   BASEDIR = new File( System.getProperty( "java.io.tmpdir" ), "svnant-report" );
+
+    private Project   project;
+
+    private File      file;
+
+    @Before
+    public void setUp() {
+        project = new Project();
+        file    = new File( BASEDIR, "report.json" );
+        BASEDIR.mkdirs();
+        file.delete();
+    }
+
+    @Test
+    public void testJson() {
+        TaskReport report = new TaskReport( "svn", "build", "build.xml:12: " );
+        report.addAcquisition( 1500000L );
+        report.addAcquisition( 500000L );
+        report.addCommand( "Update", Arrays.asList( "/wc/a", "/wc/b" ), 12345678L, 10000000L, 3, 7, null );
+        report.addCommand( "Commit", Collections.<String>emptyList(), 1000000L, 0, 1, 0, "out of date: \"x\"\n" );
+        Assert.assertEquals( 
+            "  {\n" +
+            "   \"task\": \"svn\",\n" +
+            "   \"target\": \"build\",\n" +
+            "   \"location\": \"build.xml:12: \",\n" +
+            "   \"started\": 0,\n" +
+            "   \"adapterAcquisitions\": 2,\n" +
+            "   \"adapterAcquisitionMillis\": 2.000,\n" +
+            "   \"commands\": [\n" +
+            "    {\"name\": \"Update\", \"targets\": [\"/wc/a\", \"/wc/b\"], \"wallMillis\": 12.346, \"adapterMillis\": 10.000, " +
+                "\"adapterCalls\": 3, \"notifications\": 7, \"success\": true},\n" +
+            "    {\"name\": \"Commit\", \"targets\": [], \"wallMillis\": 1.000, \"adapterMillis\": 0.000, " +
+                "\"adapterCalls\": 1, \"notifications\": 0, \"success\": false, \"error\": \"out of date: \\\"x\\\"\\n\"}\n" +
+            "   ]\n" +
+            "  }",
+            withoutStart( report.toJson() )
+        );
+    }
+
+    @Test
+    public void testEmpty() {
+        Assert.assertEquals( 
+            "  {\n" +
+            "   \"task\": \"svn\",\n" +
+            "   \"target\": null,\n" +
+            "   \"location\": \"\",\n" +
+            "   \"started\": 0,\n" +
+            "   \"adapterAcquisitions\": 0,\n" +
+            "   \"adapterAcquisitionMillis\": 0.000,\n" +
+            "   \"commands\": []\n" +
+            "  }",
+            withoutStart( new TaskReport( "svn", null, "" ).toJson() )
+        );
+    }
+
+    @Test
+    public void testQuote() {
+        Assert.assertEquals( "null", TaskReport.quote( null ) );
+        Assert.assertEquals( "\"a\\\\b\\t\\r\\u0001\"", TaskReport.quote( "a\\b\t\r\u0001" ) );
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        // a file of a previous build is replaced
+        write( file, "[\n  {\"task\": \"stale\"}\n]\n" );
+        TaskReport first = new TaskReport( "first", null, "" );
+        first.write( project, file );
+        Assert.assertEquals( "[\n" + first.toJson() + "\n]\n", read( file ) );
+
+        // later reports of the same build are added
+        TaskReport second = new TaskReport( "second", null, "" );
+        second.write( project, new File( BASEDIR, "../svnant-report/report.json" ) );
+        Assert.assertEquals( "[\n" + first.toJson() + ",\n" + second.toJson() + "\n]\n", read( file ) );
+
+        // other files collect their own reports
+        File other = new File( BASEDIR, "other.json" );
+        TaskReport third = new TaskReport( "third", null, "" );
+        third.write( project, other );
+        Assert.assertEquals( "[\n" + third.toJson() + "\n]\n", read( other ) );
+        Assert.assertEquals( "[\n" + first.toJson() + ",\n" + second.toJson() + "\n]\n", read( file ) );
+
+        // a new build starts with an empty file again
+        third.write( new Project(), file );
+        Assert.assertEquals( "[\n" + third.toJson() + "\n]\n", read( file ) );
+    }
+
+    private String withoutStart( String json ) {
+        return json.replaceFirst( "\"started\": [0-9]+,", "\"started\": 0," );
+    }
+
+    private void write( File dest, String content ) throws IOException {
+        OutputStream output = new FileOutputStream( dest );
+        try {
+            output.write( content.getBytes( "UTF-8" ) );
+        } finally {
+            output.close();
+        }
+    }
+
+    private String read( File source ) throws IOException {
+        byte[]      content = new byte[ (int) source.length() ];
+        InputStream input   = new FileInputStream( source );
+        try {
+            int offset = 0;
+            while( offset < content.length ) {
+                offset += input.read( content, offset, content.length - offset );
+            }
+        } finally {
+            input.close();
+        }
+        return new String( content, "UTF-8" );
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.tigris.subversion.svnant.selectors;
+
+import org.tigris.subversion.svnant.types.SvnSetting;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+
+import org.apache.tools.ant.types.Reference;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * Checks the scope of the status information and the client adapters shared by svn selectors.
+ */
+public class SelectorContextTest {
+
+    private Project           project;
+
+    private Modified          selector;
+
+    private SelectorContext   context;
+
+    @Before
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    public void setUp() {
+        project = new Project();
+        SvnSetting setting = new SvnSetting( project );
+        setting.setClient( "memory" );
+        project.addReference( "memory", setting );
+        selector = new Modified();
+        selector.setProject( project );
+        selector.setRefid( new Reference( "memory" ) );
+        context = selector.getContext();
+    }
+
+    @Test
+    public void testStatusCache() throws Exception {
+        File       file  = new File( "unversioned.txt" );
+        ISVNStatus first = context.getSingleStatus( context.getClientAdapter(), file );
+        Assert.assertSame( first, context.getSingleStatus( context.getClientAdapter(), file ) );
+
+        // a command might have changed the working copy
+        SelectorContext.invalidate( project );
+        Assert.assertNotSame( first, context.getSingleStatus( context.getClientAdapter(), file ) );
+    }
+
+    @Test
+    public void testContextPerSelector() {
+        // the context isn't looked up again, so it's even used without the shared contexts
+        project.getReferences().remove( "org.tigris.subversion.svnant.selectors.SelectorContext" );
+        Assert.assertSame( context, selector.getContext() );
+
+        for( Object listener : project.getBuildListeners() ) {
+            ((BuildListener) listener).buildFinished( new BuildEvent( project ) );
+        }
+        Assert.assertTrue( context.isDisposed() );
+        Assert.assertNotSame( context, selector.getContext() );
+    }
+
+    @Test
+    public void testLeasePerThread() throws Exception {
+        final ISVNClientAdapter   main    = context.getClientAdapter();
+        final ISVNClientAdapter[] other   = new ISVNClientAdapter[1];
+        Thread                    worker  = new Thread() {
+            public void run() {
+                other[0] = context.getClientAdapter();
+            }
+        };
+        worker.start();
+        worker.join();
+        Assert.assertSame( main, context.getClientAdapter() );
+        Assert.assertNotNull( other[0] );
+        Assert.assertNotSame( main, other[0] );
+
+        // releases the lease of this thread and the one of the terminated worker
+        SelectorContext.release( project );
+        Assert.assertNotSame( main, context.getClientAdapter() );
+    }
+
+    @Test
+    public void testReleaseOnTaskFinished() {
+        ISVNClientAdapter before = context.getClientAdapter();
+        Task              task   = new Task() {};
+        task.setProject( project );
+        // sub builds only report the end of their tasks, so this has to release the adapters
+        for( Object listener : project.getBuildListeners() ) {
+            ((BuildListener) listener).taskFinished( new BuildEvent( task ) );
+        }
+        Assert.assertNotSame( before, context.getClientAdapter() );
+    }
+
+}
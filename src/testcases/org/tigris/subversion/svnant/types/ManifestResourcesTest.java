@@ -0,0 +1,110 @@
+package org.tigris.subversion.svnant.types;
+
+import org.tigris.subversion.svnant.types.ManifestResources.Change;
+
+import org.apache.tools.ant.Project;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Checks the Path which provides the files listed within a manifest.
+ */
+public class ManifestResourcesTest {
+
+    private File   manifest;
+
+    private File   existing;
+
+    @Before
+    public void setUp() throws IOException {
+        manifest = File.createTempFile( "svnant-manifest", ".txt" );
+        existing = File.createTempFile( "svnant-changed", ".txt" );
+    }
+
+    @After
+    public void tearDown() {
+        manifest.delete();
+        existing.delete();
+    }
+
+    @Test
+    public void testList() throws IOException {
+        File   deleted = new File( existing.getParentFile(), existing.getName() + ".deleted" );
+        Writer writer  = new OutputStreamWriter( new FileOutputStream( manifest ), "UTF-8" );
+        try {
+            writer.write( existing.getAbsolutePath() + "\n\n" + deleted.getAbsolutePath() + "\n" );
+        } finally {
+            writer.close();
+        }
+        ManifestResources path = new ManifestResources( new Project(), manifest );
+        Assert.assertArrayEquals( new String[] { existing.getAbsolutePath() }, path.list() );
+        Assert.assertEquals( 1, path.size() );
+        Assert.assertEquals( existing.getAbsolutePath(), path.toString() );
+
+        // the manifest is read each time
+        existing.delete();
+        Assert.assertEquals( 0, path.list().length );
+    }
+
+    @Test
+    public void testChanges() throws IOException {
+        File added   = File.createTempFile( "svnant-added", ".txt" );
+        File deleted = new File( existing.getParentFile(), existing.getName() + ".deleted" );
+        try {
+            write( "U " + existing.getAbsolutePath() + "\nA " + added.getAbsolutePath() + "\nD " + deleted.getAbsolutePath() + "\n" );
+            Project project = new Project();
+            Assert.assertArrayEquals( new String[] { existing.getAbsolutePath(), added.getAbsolutePath() }, new ManifestResources( project, manifest ).list() );
+            Assert.assertArrayEquals( new String[] { added.getAbsolutePath() }, new ManifestResources( project, manifest, EnumSet.of( Change.added ) ).list() );
+            // deleted paths are provided although they don't exist anymore
+            Assert.assertArrayEquals( new String[] { deleted.getAbsolutePath() }, new ManifestResources( project, manifest, EnumSet.of( Change.deleted ) ).list() );
+            Assert.assertEquals( 0, new ManifestResources( project, manifest, EnumSet.of( Change.conflicted ) ).size() );
+        } finally {
+            added.delete();
+        }
+    }
+
+    @Test
+    public void testCached() throws IOException {
+        write( "U " + existing.getAbsolutePath() + "\n" );
+        ManifestResources path         = new ManifestResources( new Project(), manifest );
+        long              lastmodified = manifest.lastModified();
+        Assert.assertEquals( 1, path.size() );
+
+        // an unchanged manifest isn't read again
+        String other = existing.getAbsolutePath().substring( 0, existing.getAbsolutePath().length() - 1 ) + "x";
+        write( "U " + other + "\n" );
+        manifest.setLastModified( lastmodified );
+        Assert.assertArrayEquals( new String[] { existing.getAbsolutePath() }, path.list() );
+
+        write( "U " + existing.getAbsolutePath() + "\nU " + existing.getAbsolutePath() + "\n" );
+        manifest.setLastModified( lastmodified + 2000 );
+        Assert.assertEquals( 2, path.size() );
+    }
+
+    @Test
+    public void testMissingManifest() {
+        manifest.delete();
+        Assert.assertEquals( 0, new ManifestResources( new Project(), manifest ).list().length );
+    }
+
+    private void write( String content ) throws IOException {
+        Writer writer = new OutputStreamWriter( new FileOutputStream( manifest ), "UTF-8" );
+        try {
+            writer.write( content );
+        } finally {
+            writer.close();
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.tigris.subversion.svnant.types;
+
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * Compares the results of the {@link PatternTrie} with the ones of the <code>SelectorUtils</code>
+ * for each single pattern and for all patterns at once.
+ */
+public class PatternTrieTest {
+
+    private static final String[] PATTERNS = {
+        "**", "*", "**/*", "*.txt", "**/*.txt", "src/**", "src/**/*.java", "src/*/Test?.java", "**/CVS", 
+        "**/CVS/**", "**/.svn/**", "doc/**/images/**", "a/b/c", "a/*/c", "a/**/c", "**/#*#", "**/._*", "lib/",
+        "**/**/x", "A/b"
+    };
+
+    private static final String[] PATHS = {
+        "", "a", "a/b", "a/b/c", "a/x/c", "a/x/y/c", "a/c", "file.txt", "dir/file.txt", "src", "src/Main.java",
+        "src/org/Main.java", "src/org/Test1.java", "src/org/Test12.java", "CVS", "x/CVS", "x/CVS/Entries", 
+        ".svn", "x/.svn/entries", "doc/images", "doc/a/images/b.png", "#tmp#", "x/._res", "lib", "lib/a.jar",
+        "x", "y/x", "a/B", "A/B", "a/b/c/d"
+    };
+
+    @Test
+    public void testCaseSensitive() {
+        check( true );
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        check( false );
+    }
+
+    @Test
+    public void testContains() {
+        PatternTrie trie = PatternTrie.compile( localize( new String[] { "a/**", "b" } ), true );
+        Assert.assertTrue( trie.contains( localize( "a/**" ) ) );
+        Assert.assertFalse( trie.contains( "a" ) );
+        Assert.assertSame( trie, PatternTrie.compile( localize( new String[] { "a/**", "b" } ), true ) );
+    }
+
+    private void check( boolean casesensitive ) {
+        String[] patterns = localize( PATTERNS );
+        for( int i = 0; i < patterns.length; i++ ) {
+            PatternTrie trie = PatternTrie.compile( new String[] { patterns[i] }, casesensitive );
+            for( String path : localize( PATHS ) ) {
+                PatternTrie.Position position = trie.advancePath( trie.getRoot(), path );
+                String               message  = "'" + patterns[i] + "' with '" + path + "'";
+                Assert.assertEquals( message, SelectorUtils.matchPath( patterns[i], path, casesensitive ), trie.matches( position ) );
+                Assert.assertEquals( message, SelectorUtils.matchPatternStart( patterns[i], path, casesensitive ), trie.isAlive( position ) );
+            }
+        }
+        PatternTrie all = PatternTrie.compile( patterns, casesensitive );
+        for( String path : localize( PATHS ) ) {
+            boolean matches = false;
+            boolean start   = false;
+            for( int i = 0; i < patterns.length; i++ ) {
+                matches = matches || SelectorUtils.matchPath( patterns[i], path, casesensitive );
+                start   = start || SelectorUtils.matchPatternStart( patterns[i], path, casesensitive );
+            }
+            PatternTrie.Position position = all.advancePath( all.getRoot(), path );
+            Assert.assertEquals( path, matches, all.matches( position ) );
+            Assert.assertEquals( path, start, all.isAlive( position ) );
+        }
+    }
+
+    private String[] localize( String[] paths ) {
+        String[] result = new String[paths.length];
+        for( int i = 0; i < paths.length; i++ ) {
+            result[i] = localize( paths[i] );
+        }
+        return result;
+    }
+
+    private String localize( String path ) {
+        String result = path.replace( '/', File.separatorChar );
+        return result.endsWith( File.separator ) ? result + "**" : result;
+    }
+
+}
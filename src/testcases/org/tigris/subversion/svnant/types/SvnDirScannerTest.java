@@ -0,0 +1,523 @@
+package org.tigris.subversion.svnant.types;
+
+import org.tigris.subversion.svnant.SvnFacade;
+import org.tigris.subversion.svnant.memory.MemoryClientAdapter;
+import org.tigris.subversion.svnant.memory.MemoryRepository;
+import org.tigris.subversion.svnant.memory.MemoryWorkingCopy;
+import org.tigris.subversion.svnant.selectors.Added;
+import org.tigris.subversion.svnant.selectors.BaseSvnSelector;
+import org.tigris.subversion.svnant.selectors.Modified;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNStatusKind;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tools.ant.types.selectors.AndSelector;
+import org.apache.tools.ant.types.selectors.BaseSelectorContainer;
+import org.apache.tools.ant.types.selectors.FileSelector;
+import org.apache.tools.ant.types.selectors.FilenameSelector;
+import org.apache.tools.ant.types.selectors.NotSelector;
+import org.apache.tools.ant.types.selectors.OrSelector;
+
+import org.apache.tools.ant.types.Reference;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectComponent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.io.File;
+
+/**
+ * Checks the {@link SvnDirScanner} with a client adapter that provides a directory with a 
+ * configurable number of versioned files.
+ */
+public class SvnDirScannerTest {
+
+    private static final int SMALL = 1000;
+
+    private static final int LARGE = 4 * SMALL;
+
+    private static final int HUGE  = 16 * SMALL;
+
+    private File             basedir;
+
+    private List<ISVNStatus> entries;
+
+    private int              calls;
+
+    private AtomicInteger    statuscalls;
+
+    @Before
+    public void setUp() throws Exception {
+        basedir = File.createTempFile( "svnant", "scanner" );
+        basedir.delete();
+        basedir.mkdirs();
+        entries     = new ArrayList<ISVNStatus>();
+        calls       = 0;
+        statuscalls = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        basedir.delete();
+    }
+
+    @Test
+    public void testIncludedFiles() {
+        SvnDirScanner scanner = newScanner( 100 );
+        scanner.setExcludes( new String[] { "file1*" } );
+        scanner.scan();
+        String[] included = scanner.getIncludedFiles();
+        String[] excluded = scanner.getExcludedFiles();
+        Assert.assertEquals( 89, included.length );
+        Assert.assertEquals( 11, excluded.length );
+        Assert.assertEquals( "file0", included[0] );
+        Assert.assertEquals( "file1", excluded[0] );
+        Assert.assertEquals( "file19", excluded[10] );
+        Assert.assertEquals( 0, scanner.getNotIncludedFiles().length );
+    }
+
+    @Test
+    public void testPrefetch() {
+        for( int i = 0; i < 10; i++ ) {
+            File dir = new File( basedir, "dir" + i );
+            entries.add( newStatus( dir, SVNNodeKind.DIR ) );
+            entries.add( newStatus( new File( dir, "file" ), SVNNodeKind.FILE ) );
+            entries.add( newStatus( new File( dir, "empty" ), SVNNodeKind.DIR ) );
+        }
+
+        SvnDirScanner scanner = newScanner( 5 );
+        scanner.setPrefetch( false );
+        scanner.scan();
+        String[] expected = scanner.getIncludedFiles();
+        Assert.assertEquals( 15, expected.length );
+        Assert.assertEquals( 21, calls );
+
+        calls   = 0;
+        scanner = newScanner( 5 );
+        scanner.scan();
+        Assert.assertEquals( Arrays.asList( expected ), Arrays.asList( scanner.getIncludedFiles() ) );
+        Assert.assertEquals( 1, calls );
+
+        // patterns without '**' only touch a few directories which are listed separately
+        calls   = 0;
+        scanner = newScanner( 5 );
+        scanner.setIncludes( new String[] { "*/file" } );
+        scanner.scan();
+        Assert.assertEquals( 10, scanner.getIncludedFiles().length );
+        Assert.assertEquals( 11, calls );
+    }
+
+    @Test
+    public void testChangesOnly() {
+        addChanges();
+
+        SvnDirScanner scanner = newScanner( 100 );
+        scanner.setIncludes( new String[] { "**/*" } );
+        scanner.setSelectors( new FileSelector[] { new Modified() } );
+        scanner.setPrefetch( false );
+        scanner.scan();
+        List<String> expected = Arrays.asList( scanner.getIncludedFiles() );
+        Assert.assertEquals( 2, expected.size() );
+        Assert.assertEquals( 110, scanner.getDeselectedFiles().length );
+
+        // only the changed entries are queried while the selected files remain the same
+        calls   = 0;
+        scanner = newScanner( 100 );
+        scanner.setIncludes( new String[] { "**/*" } );
+        scanner.setSelectors( new FileSelector[] { new Modified() } );
+        scanner.scan();
+        Assert.assertEquals( expected, Arrays.asList( scanner.getIncludedFiles() ) );
+        Assert.assertEquals( 0, scanner.getDeselectedFiles().length );
+        Assert.assertEquals( 1, calls );
+        Assert.assertFalse( scanner.isEverythingIncluded() );
+    }
+
+    @Test
+    public void testCombinedChangeSelectors() {
+        addChanges();
+        // only the changed entries are listed
+        Assert.assertEquals( 2, countListedFiles( newContainer( new AndSelector(), newSelector( new Modified() ),
+                        newFilename( "**/changed" ) ) ) );
+        Assert.assertEquals( 2, countListedFiles( newContainer( new OrSelector(), newSelector( new Modified() ),
+                        newSelector( new Added() ) ) ) );
+        // an alternative or a negation accepts unchanged entries, too
+        Assert.assertEquals( 112, countListedFiles( newContainer( new OrSelector(), newSelector( new Modified() ),
+                        newFilename( "**/file" ) ) ) );
+        Assert.assertEquals( 112, countListedFiles( newContainer( new NotSelector(), newSelector( new Modified() ) ) ) );
+    }
+
+    @Test
+    public void testNegatedChangeSelector() {
+        addChanges();
+        SvnDirScanner scanner = newScanner( 100 );
+        scanner.setSelectors( new FileSelector[] { newContainer( new NotSelector(), newSelector( new Modified() ) ) } );
+        scanner.scan();
+        Assert.assertTrue( Arrays.asList( scanner.getIncludedFiles() ).contains( "dir0" + File.separator + "file" ) );
+    }
+
+    @Test
+    public void testScaling() {
+        int small  = countStatusCalls( SMALL );
+        int medium = countStatusCalls( 2 * SMALL );
+        int large  = countStatusCalls( LARGE );
+        // the effort per entry must not depend on the number of entries
+        Assert.assertTrue( medium > small );
+        Assert.assertEquals( 2 * (medium - small), large - medium );
+
+        // the bookkeeping of the scanned entries must not grow with the number of entries, 
+        // so sixteen times the entries may take sixteen times as long (with a generous margin)
+        measureScan( SMALL );
+        long smalltime = measureScan( SMALL );
+        long hugetime  = measureScan( HUGE );
+        Assert.assertTrue( String.format( "%d entries: %dms, %d entries: %dms", Integer.valueOf( SMALL ),
+                        Long.valueOf( smalltime / 1000000 ), Integer.valueOf( HUGE ), Long.valueOf( hugetime / 1000000 ) ),
+                        hugetime < 8 * (HUGE / SMALL) * smalltime );
+    }
+
+    @Test
+    public void testParallelSelectors() {
+        SvnDirScanner scanner = new SvnDirScanner( new ProjectComponent() {} );
+        scanner.setParallel( true );
+        Assert.assertTrue( scanner.isParallel() );
+
+        NotSelector not = new NotSelector();
+        not.appendSelector( new Modified() );
+        scanner.setSelectors( new FileSelector[] { new Modified(), not } );
+        Assert.assertTrue( scanner.isParallel() );
+
+        // other selectors might not support concurrent calls
+        OrSelector or = new OrSelector();
+        or.appendSelector( new Modified() );
+        or.appendSelector( new FilenameSelector() );
+        scanner.setSelectors( new FileSelector[] { new Modified(), or } );
+        Assert.assertFalse( scanner.isParallel() );
+
+        scanner.setSelectors( null );
+        scanner.setThreads( 1 );
+        Assert.assertFalse( scanner.isParallel() );
+    }
+
+    @Test
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    public void testParallelScan() throws Exception {
+        Project    project = new Project();
+        SvnSetting setting = new SvnSetting( project );
+        setting.setClient( "memory" );
+        project.addReference( "memory", setting );
+        ProjectComponent component = new ProjectComponent() {};
+        component.setProject( project );
+        SvnFacade.setRefid( component, new Reference( "memory" ) );
+
+        // three levels of directories with a few modified files
+        String                       url         = "file:///svnant-parallel-scan";
+        MemoryRepository.Transaction transaction = MemoryRepository.create( url ).begin( "svnant", "tree" );
+        for( int i = 0; i < 4; i++ ) {
+            transaction.mkdir( "d" + i );
+            for( int j = 0; j < 3; j++ ) {
+                transaction.mkdir( "d" + i + "/s" + j );
+                for( int k = 0; k < 5; k++ ) {
+                    transaction.put( "d" + i + "/s" + j + "/f" + k, new byte[0] );
+                }
+            }
+            transaction.put( "d" + i + "/f", new byte[0] );
+        }
+        transaction.put( "f", new byte[0] );
+        transaction.commit();
+        MemoryClientAdapter.create().checkout( new SVNUrl( url ), basedir, SVNRevision.HEAD, true );
+        MemoryWorkingCopy workingcopy = MemoryWorkingCopy.find( basedir );
+        workingcopy.write( new File( basedir, "d0/s1/f2" ), new byte[] { 1 } );
+        workingcopy.write( new File( basedir, "d2/s0/f4" ), new byte[] { 1 } );
+        workingcopy.write( new File( basedir, "d3/f" ), new byte[] { 1 } );
+        workingcopy.write( new File( basedir, "d1/s1/f1" ), new byte[] { 1 } );
+
+        for( boolean prefetch : new boolean[] { false, true } ) {
+            Set<String>       threads    = Collections.synchronizedSet( new HashSet<String>() );
+            SvnDirScanner     sequential = newScanner( component, prefetch, threads );
+            SvnDirScanner     parallel   = newScanner( component, prefetch, threads );
+            parallel.setParallel( true );
+            parallel.setThreads( 4 );
+            Assert.assertTrue( parallel.isParallel() );
+
+            sequential.scan();
+            threads.clear();
+            parallel.scan();
+            // the selectors have been evaluated by the workers
+            for( String thread : threads ) {
+                Assert.assertTrue( thread, thread.startsWith( "svnant-scanner-" ) );
+            }
+            Assert.assertFalse( threads.isEmpty() );
+
+            Assert.assertEquals( Arrays.asList( sequential.getIncludedFiles() ), Arrays.asList( parallel.getIncludedFiles() ) );
+            Assert.assertEquals( Arrays.asList( sequential.getIncludedDirectories() ), Arrays.asList( parallel.getIncludedDirectories() ) );
+            Assert.assertEquals( Arrays.asList( sequential.getDeselectedFiles() ), Arrays.asList( parallel.getDeselectedFiles() ) );
+            Assert.assertEquals( Arrays.asList( sequential.getDeselectedDirectories() ), Arrays.asList( parallel.getDeselectedDirectories() ) );
+            // these require a slow scan which is performed by the workers, too
+            Assert.assertEquals( Arrays.asList( sequential.getNotIncludedFiles() ), Arrays.asList( parallel.getNotIncludedFiles() ) );
+            Assert.assertEquals( Arrays.asList( sequential.getNotIncludedDirectories() ), Arrays.asList( parallel.getNotIncludedDirectories() ) );
+            Assert.assertEquals( Arrays.asList( sequential.getExcludedFiles() ), Arrays.asList( parallel.getExcludedFiles() ) );
+            Assert.assertEquals( Arrays.asList( sequential.getExcludedDirectories() ), Arrays.asList( parallel.getExcludedDirectories() ) );
+            Assert.assertEquals( 3, sequential.getIncludedFiles().length );
+            Assert.assertTrue( sequential.getExcludedFiles().length > 0 );
+            // with a prefetch only the changed entries are listed
+            Assert.assertEquals( prefetch, sequential.getNotIncludedFiles().length == 0 );
+        }
+    }
+
+    /**
+     * Creates a scanner which obtains it's client adapters through the supplied component. Some
+     * entries are excluded or not included while the others have to be modified.
+     *
+     * @param component   The component providing the svn settings. Not <code>null</code>.
+     * @param prefetch    <code>true</code> <=> The subtrees are listed using a single call.
+     * @param threads     Receives the names of the threads evaluating the selector. Not <code>null</code>.
+     *
+     * @return   The scanner. Not <code>null</code>.
+     */
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    private SvnDirScanner newScanner( ProjectComponent component, boolean prefetch, final Set<String> threads ) {
+        Modified selector = new Modified() {
+            public boolean isSelected( ISVNStatus status ) {
+                threads.add( Thread.currentThread().getName() );
+                return super.isSelected( status );
+            }
+        };
+        selector.setProject( component.getProject() );
+        selector.setRefid( new Reference( "memory" ) );
+        SvnDirScanner result = new SvnDirScanner( component );
+        result.setBasedir( basedir );
+        // patterns with a fixed root would require the directories to exist on the disk
+        result.setIncludes( new String[] { "**/f", "**/f2", "**/f4", "**/s1/**" } );
+        result.setExcludes( new String[] { "**/f1", "d3/s2/**" } );
+        result.setSelectors( new FileSelector[] { selector } );
+        result.setPrefetch( prefetch );
+        return result;
+    }
+
+    /**
+     * Adds unchanged directories with a file and two modified files.
+     */
+    private void addChanges() {
+        for( int i = 0; i < 10; i++ ) {
+            File dir = new File( basedir, "dir" + i );
+            entries.add( newStatus( dir, SVNNodeKind.DIR ) );
+            entries.add( newStatus( new File( dir, "file" ), SVNNodeKind.FILE ) );
+        }
+        File sub = new File( new File( basedir, "dir3" ), "sub" );
+        entries.add( newStatus( sub, SVNNodeKind.DIR ) );
+        entries.add( newStatus( new File( sub, "changed" ), SVNNodeKind.FILE, SVNStatusKind.MODIFIED ) );
+        entries.add( newStatus( new File( basedir, "dir5" + File.separator + "changed" ), SVNNodeKind.FILE,
+                        SVNStatusKind.MODIFIED ) );
+    }
+
+    /**
+     * Scans the base directory with 100 additional files using the supplied selector.
+     *
+     * @param selector   The selector used for the scan. Not <code>null</code>.
+     *
+     * @return   The number of files which have been listed (selected or not).
+     */
+    private int countListedFiles( FileSelector selector ) {
+        SvnDirScanner scanner = newScanner( 100 );
+        scanner.setSelectors( new FileSelector[] { selector } );
+        scanner.scan();
+        return scanner.getIncludedFiles().length + scanner.getDeselectedFiles().length;
+    }
+
+    /**
+     * Creates a container with the supplied selectors.
+     *
+     * @param container   The container. Not <code>null</code>.
+     * @param selectors   The nested selectors. Not <code>null</code>.
+     *
+     * @return   The supplied container. Not <code>null</code>.
+     */
+    private FileSelector newContainer( BaseSelectorContainer container, FileSelector ... selectors ) {
+        for( FileSelector selector : selectors ) {
+            container.appendSelector( selector );
+        }
+        return container;
+    }
+
+    /**
+     * Prepares a svn selector. Nested selectors don't get the listed status, so they query it 
+     * using a client which doesn't know any of the entries.
+     *
+     * @param selector   The selector which has to be prepared. Not <code>null</code>.
+     *
+     * @return   The supplied selector. Not <code>null</code>.
+     */
+    @SuppressWarnings("deprecation") // Reference(Project,String) isn't available with Ant 1.6
+    private FileSelector newSelector( BaseSvnSelector selector ) {
+        Project    project = new Project();
+        SvnSetting setting = new SvnSetting( project );
+        setting.setClient( "memory" );
+        project.addReference( "memory", setting );
+        selector.setProject( project );
+        selector.setRefid( new Reference( "memory" ) );
+        return selector;
+    }
+
+    /**
+     * Creates a selector for the supplied name pattern.
+     *
+     * @param name   The name pattern. Neither <code>null</code> nor empty.
+     *
+     * @return   The selector. Not <code>null</code>.
+     */
+    private FileSelector newFilename( String name ) {
+        FilenameSelector result = new FilenameSelector();
+        result.setName( name );
+        return result;
+    }
+
+    /**
+     * Scans a directory with the supplied number of files.
+     *
+     * @param count   The number of files within the directory.
+     *
+     * @return   The number of calls of status methods while scanning.
+     */
+    private int countStatusCalls( int count ) {
+        SvnDirScanner scanner = newScanner( count );
+        calls = 0;
+        statuscalls.set( 0 );
+        scanner.scan();
+        Assert.assertEquals( count, scanner.getIncludedFiles().length );
+        // the whole directory is prefetched by a single call
+        Assert.assertEquals( 1, calls );
+        return statuscalls.get();
+    }
+
+    /**
+     * Measures the fastest of a few scans of a directory with the supplied number of files.
+     *
+     * @param count   The number of files within the directory.
+     *
+     * @return   The time in nanoseconds needed by the fastest scan.
+     */
+    private long measureScan( int count ) {
+        long result = Long.MAX_VALUE;
+        for( int i = 0; i < 3; i++ ) {
+            SvnDirScanner scanner = newScanner( count );
+            long          started = System.nanoTime();
+            scanner.scan();
+            result = Math.min( result, System.nanoTime() - started );
+        }
+        return result;
+    }
+
+    /**
+     * Creates a scanner for the base directory which contains the supplied number of files.
+     *
+     * @param count   The number of files within the base directory.
+     *
+     * @return   The scanner. Not <code>null</code>.
+     */
+    private SvnDirScanner newScanner( int count ) {
+        final List<ISVNStatus> statuses = new ArrayList<ISVNStatus>( entries );
+        statuses.add( 0, newStatus( basedir, SVNNodeKind.DIR ) );
+        for( int i = 0; i < count; i++ ) {
+            statuses.add( newStatus( new File( basedir, "file" + i ), SVNNodeKind.FILE ) );
+        }
+        ISVNClientAdapter adapter = (ISVNClientAdapter) Proxy.newProxyInstance( getClass().getClassLoader(),
+                        new Class<?>[] { ISVNClientAdapter.class }, new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) {
+                                if( "getStatus".equals( method.getName() ) ) {
+                                    calls++;
+                                    return getStatus( statuses, (File) args[0], ((Boolean) args[1]).booleanValue(),
+                                                    ((Boolean) args[2]).booleanValue() );
+                                }
+                                throw new UnsupportedOperationException( method.getName() );
+                            }
+                        } );
+        SvnDirScanner result = new SvnDirScanner( adapter );
+        result.setBasedir( basedir );
+        return result;
+    }
+
+    /**
+     * Selects the status of a directory and its children.
+     *
+     * @param statuses   The status of all entries. Not <code>null</code>.
+     * @param dir        The directory which status is requested. Not <code>null</code>.
+     * @param descend    <code>true</code> <=> Include the whole subtree.
+     * @param all        <code>true</code> <=> Include the unchanged entries.
+     *
+     * @return   The status of the directory and its children. Not <code>null</code>.
+     */
+    private ISVNStatus[] getStatus( List<ISVNStatus> statuses, File dir, boolean descend, boolean all ) {
+        List<ISVNStatus> result = new ArrayList<ISVNStatus>();
+        String           prefix = dir.getPath() + File.separator;
+        for( ISVNStatus status : statuses ) {
+            File file = status.getFile();
+            if( (!all) && (SVNStatusKind.NORMAL == status.getTextStatus()) ) {
+                continue;
+            }
+            if( file.equals( dir ) || dir.equals( file.getParentFile() )
+                            || (descend && file.getPath().startsWith( prefix )) ) {
+                result.add( status );
+            }
+        }
+        return result.toArray( new ISVNStatus[result.size()] );
+    }
+
+    /**
+     * Creates a status which only provides the file, the node kind and a normal text status.
+     *
+     * @param file   The file of the status. Not <code>null</code>.
+     * @param kind   The node kind of the file. Not <code>null</code>.
+     *
+     * @return   The status. Not <code>null</code>.
+     */
+    private ISVNStatus newStatus( File file, SVNNodeKind kind ) {
+        return newStatus( file, kind, SVNStatusKind.NORMAL );
+    }
+
+    /**
+     * Creates a status which only provides the file, the node kind and the text status.
+     *
+     * @param file         The file of the status. Not <code>null</code>.
+     * @param kind         The node kind of the file. Not <code>null</code>.
+     * @param textstatus   The text status of the file. Not <code>null</code>.
+     *
+     * @return   The status. Not <code>null</code>.
+     */
+    private ISVNStatus newStatus( final File file, final SVNNodeKind kind, final SVNStatusKind textstatus ) {
+        return (ISVNStatus) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] { ISVNStatus.class },
+                        new InvocationHandler() {
+                            public Object invoke( Object proxy, Method method, Object[] args ) {
+                                statuscalls.incrementAndGet();
+                                if( "getFile".equals( method.getName() ) ) {
+                                    return file;
+                                } else if( "getNodeKind".equals( method.getName() ) ) {
+                                    return kind;
+                                } else if( "getTextStatus".equals( method.getName() ) ) {
+                                    return textstatus;
+                                }
+                                throw new UnsupportedOperationException( method.getName() );
+                            }
+                        } );
+    }
+
+}